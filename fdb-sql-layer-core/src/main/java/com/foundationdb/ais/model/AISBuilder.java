@@ -207,6 +207,22 @@ public class AISBuilder {
         IndexColumn.create(index, column, position, ascending, indexedLength);
     }
 
+    public void indexIncludedColumn(String schemaName, String tableName,
+            String indexName, String columnName) {
+        LOG.trace("indexIncludedColumn: " + schemaName + "." + tableName + "."
+                + indexName + ":" + columnName);
+        Table table = ais.getTable(schemaName, tableName);
+        checkFound(table, "creating index included column", "table",
+                concat(schemaName, tableName));
+        Column column = table.getColumn(columnName);
+        checkFound(column, "creating index included column", "column",
+                concat(schemaName, tableName, columnName));
+        TableIndex index = table.getIndex(indexName);
+        checkFound(index, "creating index included column", "index",
+                concat(schemaName, tableName, indexName));
+        index.addIncludedColumn(column);
+    }
+
     // deprecate?
     public void groupIndexColumn(String groupName, String indexName, String schemaName, String tableName,
                                  String columnName, Integer position) {
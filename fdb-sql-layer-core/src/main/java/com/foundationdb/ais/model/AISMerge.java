@@ -418,6 +418,16 @@ public class AISMerge {
             // Calls (Group)Index.addColumn(), which checks all are in same branch
             IndexColumn.create(newIndex, newColumn, indexCol, indexCol.getPosition());
         }
+        if(index.isTableIndex()) {
+            TableIndex newTableIndex = (TableIndex)newIndex;
+            for(Column column : ((TableIndex)index).getIncludedColumns()) {
+                Column newColumn = newTableIndex.getTable().getColumn(column.getName());
+                if(newColumn == null) {
+                    throw new NoSuchColumnException(column.getName());
+                }
+                newTableIndex.addIncludedColumn(newColumn);
+            }
+        }
 
         newIndex.copyStorageDescription(index);
         getStorageFormatRegistry().finishStorageDescription(newIndex, nameGenerator);
@@ -136,13 +136,23 @@ public abstract class Index extends HasStorage implements Visitable, Constraint
     }
 
     /**
-     * Return all columns that make up the physical index key. This includes declared columns and hkey columns.
+     * Return all columns that make up an index row. This includes declared columns, hkey columns
+     * and, for a table index, any included columns.
      * @return list of columns
      */
     public List<IndexColumn> getAllColumns() {
         return allColumns;
     }
 
+    /**
+     * Return the number of trailing columns of {@link #getAllColumns()} that are stored in the
+     * entry's value rather than its key. These are a table index's included columns.
+     * @return number of value columns
+     */
+    public int getValueColumnCount() {
+        return 0;
+    }
+
     public IndexMethod getIndexMethod()
     {
         return indexMethod;
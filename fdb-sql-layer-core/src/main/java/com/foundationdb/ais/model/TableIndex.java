@@ -131,9 +131,23 @@ public class TableIndex extends Index
                 toHKeyBuilder.toHKeyEntry(-1, indexColumns.indexOf(column));
             }
         }
+        // Add included columns not already present after the hkey. They are
+        // stored in the value, so they do not affect ordering or uniqueness
+        // but make the index covering.
+        List<IndexColumn> includedIndexColumns = new ArrayList<>();
+        for (Column column : includedColumns) {
+            if (!indexColumns.contains(column)) {
+                toIndexRowBuilder.rowCompEntry(column.getPosition(), -1);
+                indexColumns.add(column);
+                includedIndexColumns.add(new IndexColumn(this, column, indexColumnPosition, true, 0));
+                indexColumnPosition++;
+            }
+        }
         allColumns = new ArrayList<>();
         allColumns.addAll(keyColumns);
         allColumns.addAll(hKeyColumns);
+        allColumns.addAll(includedIndexColumns);
+        valueColumnCount = includedIndexColumns.size();
         indexRowComposition = toIndexRowBuilder.createIndexRowComposition();
         indexToHKey = toHKeyBuilder.createIndexToHKey();
     }
@@ -163,6 +177,33 @@ public class TableIndex extends Index
         return table;
     }
 
+    /**
+     * Return the non-key columns whose values are stored in every
+     * entry, so that the index can cover queries that need them.
+     * @return list of included columns
+     */
+    public List<Column> getIncludedColumns()
+    {
+        return includedColumns;
+    }
+
+    public void addIncludedColumn(Column column)
+    {
+        checkMutability();
+        if (column.getTable() != table) {
+            throw new IllegalArgumentException("Included column " + column + " is not from table " + table);
+        }
+        if (!includedColumns.contains(column)) {
+            includedColumns.add(column);
+        }
+    }
+
+    @Override
+    public int getValueColumnCount()
+    {
+        return valueColumnCount;
+    }
+
     public IndexToHKey indexToHKey()
     {
         return indexToHKey;
@@ -190,6 +231,8 @@ public class TableIndex extends Index
     }
 
     private final Table table;
+    private final List<Column> includedColumns = new ArrayList<>();
     private HKey hKey;
     private IndexToHKey indexToHKey;
+    private int valueColumnCount;
 }
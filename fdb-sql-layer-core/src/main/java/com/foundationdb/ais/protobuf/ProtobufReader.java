@@ -380,6 +380,9 @@ public class ProtobufReader {
             handleStorage(tableIndex, pbIndex);
             handleSpatial(tableIndex, pbIndex);
             loadIndexColumns(table, tableIndex, pbIndex.getColumnsList());
+            for(String columnName : pbIndex.getIncludedColumnsList()) {
+                tableIndex.addIncludedColumn(table.getColumn(columnName));
+            }
         }
     }
 
@@ -833,7 +836,8 @@ public class ProtobufReader {
                 AISProtobuf.Index.LASTSPATIALARG_FIELD_NUMBER,
                 AISProtobuf.Index.DIMENSIONS_FIELD_NUMBER,
                 AISProtobuf.Index.STORAGE_FIELD_NUMBER,
-                AISProtobuf.Index.CONSTRAINTNAME_FIELD_NUMBER
+                AISProtobuf.Index.CONSTRAINTNAME_FIELD_NUMBER,
+                AISProtobuf.Index.INCLUDEDCOLUMNS_FIELD_NUMBER
         );
     }
 
@@ -846,7 +850,8 @@ public class ProtobufReader {
                 AISProtobuf.Index.LASTSPATIALARG_FIELD_NUMBER,
                 AISProtobuf.Index.DIMENSIONS_FIELD_NUMBER,
                 AISProtobuf.Index.STORAGE_FIELD_NUMBER,
-                AISProtobuf.Index.CONSTRAINTNAME_FIELD_NUMBER
+                AISProtobuf.Index.CONSTRAINTNAME_FIELD_NUMBER,
+                AISProtobuf.Index.INCLUDEDCOLUMNS_FIELD_NUMBER
         );
     }
 
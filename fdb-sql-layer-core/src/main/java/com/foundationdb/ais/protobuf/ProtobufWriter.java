@@ -536,6 +536,12 @@ public class ProtobufWriter {
             writeIndexColumn(indexBuilder, indexColumn, withTableName);
         }
 
+        if(index.isTableIndex()) {
+            for(Column column : ((TableIndex)index).getIncludedColumns()) {
+                indexBuilder.addIncludedColumns(column.getName());
+            }
+        }
+
         return indexBuilder.build();
     }
 
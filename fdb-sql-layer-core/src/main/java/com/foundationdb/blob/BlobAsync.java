@@ -86,6 +86,11 @@ public class BlobAsync {
         }
     }
 
+    /** The subspace owned by this blob, for subclasses to keep their own keys in. */
+    protected Subspace getSubspace() {
+        return subspace;
+    }
+
     /**
      * Gets the location of whatever attributes are stored about the blob. This
      * is mainly included for inheritance purposes as subclasses may use the
@@ -368,11 +373,14 @@ public class BlobAsync {
                                          byte[] result = new byte[(int)Math.min(n, (size-offset))];
                                          for(KeyValue chunk : chunks){
                                              long chunkOffset = dataKeyOffset(chunk.getKey());
-                                             for(int i = 0; i < chunk.getValue().length; i++){
-                                                 int rPos = (int)(chunkOffset + i -offset);
-                                                 if(rPos >= 0 && rPos < result.length) {
-                                                     result[rPos] = chunk.getValue()[i];
-                                                 }
+                                             byte[] chunkData = chunk.getValue();
+                                             // Overlap of [chunkOffset, chunkOffset+length) with the result
+                                             long start = Math.max(chunkOffset, offset);
+                                             long end = Math.min(chunkOffset + chunkData.length, offset + result.length);
+                                             if(start < end) {
+                                                 System.arraycopy(chunkData, (int)(start - chunkOffset),
+                                                                  result, (int)(start - offset),
+                                                                  (int)(end - start));
                                              }
                                          }
                                          return result;
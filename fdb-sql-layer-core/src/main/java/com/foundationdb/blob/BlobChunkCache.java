@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.blob;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Node-local cache of chunks of hot LOBs, bounded by total bytes.
+ *
+ * <p>Entries are keyed by the LOB's version (see {@link SQLBlob#getVersion}),
+ * which every change bumps, so a reader in any transaction only ever finds
+ * chunks of the contents it would see itself. Old versions just age out.</p>
+ */
+public class BlobChunkCache
+{
+    private final long maxBytes;
+    private final LinkedHashMap<ChunkKey,byte[]> chunks;
+    private long currentBytes;
+
+    public BlobChunkCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized byte[] get(UUID lobId, long version, long chunk) {
+        return chunks.get(new ChunkKey(lobId, version, chunk));
+    }
+
+    public synchronized void put(UUID lobId, long version, long chunk, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        byte[] prev = chunks.put(new ChunkKey(lobId, version, chunk), data);
+        if (prev != null) {
+            currentBytes -= prev.length;
+        }
+        currentBytes += data.length;
+        Iterator<Map.Entry<ChunkKey,byte[]>> it = chunks.entrySet().iterator();
+        while ((currentBytes > maxBytes) && it.hasNext()) {
+            currentBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        chunks.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    static final class ChunkKey {
+        private final UUID lobId;
+        private final long version;
+        private final long chunk;
+
+        ChunkKey(UUID lobId, long version, long chunk) {
+            this.lobId = lobId;
+            this.version = version;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChunkKey)) return false;
+            ChunkKey other = (ChunkKey)o;
+            return (version == other.version) && (chunk == other.chunk) && lobId.equals(other.lobId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = lobId.hashCode();
+            result = 31 * result + (int)(version ^ (version >>> 32));
+            result = 31 * result + (int)(chunk ^ (chunk >>> 32));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.blob;
+
+import com.foundationdb.TransactionContext;
+import com.foundationdb.async.Future;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+
+/**
+ * Reads a range of a {@link BlobAsync} as a stream, one fixed size chunk at
+ * a time. Reads of the next <code>prefetch</code> chunks are always in
+ * flight, so a large blob is fetched in parallel rather than with one range
+ * read, and never has to be held in memory all at once.
+ *
+ * <p>Chunks are aligned to multiples of the chunk size from the beginning of
+ * the blob. If a {@link BlobChunkCache} is given, they are looked up in and
+ * added to it.</p>
+ */
+public class BlobInputStream extends InputStream
+{
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_PREFETCH = 4;
+
+    private final BlobAsync blob;
+    private final TransactionContext tcx;
+    private final long end;
+    private final int chunkSize;
+    private final int prefetch;
+    private final BlobChunkCache cache;
+    private final UUID lobId;
+    private final long version;
+    private final Deque<PendingChunk> pending = new ArrayDeque<>();
+    private long position;
+    private long nextChunk;
+    private byte[] current;
+    private long currentStart;
+
+    /** Stream <code>[offset, end)</code> of <code>blob</code> without caching. */
+    public BlobInputStream(BlobAsync blob, TransactionContext tcx, long offset, long end) {
+        this(blob, tcx, offset, end, DEFAULT_CHUNK_SIZE, DEFAULT_PREFETCH, null, null, 0);
+    }
+
+    /**
+     * Stream <code>[offset, end)</code> of <code>blob</code>, caching chunks
+     * under <code>lobId</code> and <code>version</code> if <code>cache</code>
+     * is not <code>null</code>.
+     */
+    public BlobInputStream(BlobAsync blob, TransactionContext tcx, long offset, long end,
+                           int chunkSize, int prefetch,
+                           BlobChunkCache cache, UUID lobId, long version) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.blob = blob;
+        this.tcx = tcx;
+        this.position = offset;
+        this.end = end;
+        this.chunkSize = chunkSize;
+        this.prefetch = Math.max(1, prefetch);
+        this.cache = cache;
+        this.lobId = lobId;
+        this.version = version;
+        this.nextChunk = offset / chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current[(int)(position++ - currentStart)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int total = 0;
+        while ((len > 0) && fill()) {
+            int pos = (int)(position - currentStart);
+            int n = Math.min(len, current.length - pos);
+            System.arraycopy(current, pos, b, off, n);
+            position += n;
+            off += n;
+            len -= n;
+            total += n;
+        }
+        return (total == 0) ? -1 : total;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        if ((current == null) || (position < currentStart)) {
+            return 0;
+        }
+        return (int)Math.max(0, currentStart + current.length - position);
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+        current = null;
+        position = end;
+    }
+
+    /** Make <code>current</code> hold the byte at <code>position</code>. */
+    private boolean fill() throws IOException {
+        if (position >= end) {
+            return false;
+        }
+        if ((current != null) &&
+            (position >= currentStart) && (position < currentStart + current.length)) {
+            return true;
+        }
+        long chunk = position / chunkSize;
+        // Discard anything before a skip.
+        while (!pending.isEmpty() && (pending.peekFirst().chunk < chunk)) {
+            pending.removeFirst();
+        }
+        if (nextChunk < chunk) {
+            nextChunk = chunk;
+        }
+        long lastChunk = (end - 1) / chunkSize;
+        while ((pending.size() < prefetch) && (nextChunk <= lastChunk)) {
+            pending.addLast(startChunk(nextChunk++));
+        }
+        PendingChunk next = pending.removeFirst();
+        byte[] data = next.get();
+        if ((data == null) || (data.length == 0)) {
+            // Blob ended (or was truncated) early.
+            return false;
+        }
+        current = data;
+        currentStart = chunk * chunkSize;
+        return position < currentStart + current.length;
+    }
+
+    private PendingChunk startChunk(long chunk) {
+        if (cache != null) {
+            byte[] data = cache.get(lobId, version, chunk);
+            if (data != null) {
+                return new PendingChunk(chunk, data, null);
+            }
+        }
+        long offset = chunk * chunkSize;
+        return new PendingChunk(chunk, null, blob.read(tcx, offset, chunkSize));
+    }
+
+    private class PendingChunk {
+        private final long chunk;
+        private byte[] data;
+        private final Future<byte[]> future;
+
+        private PendingChunk(long chunk, byte[] data, Future<byte[]> future) {
+            this.chunk = chunk;
+            this.data = data;
+            this.future = future;
+        }
+
+        private byte[] get() {
+            if (future != null) {
+                data = future.get();
+                if ((cache != null) && (data != null) && (data.length > 0)) {
+                    cache.put(lobId, version, chunk, data);
+                }
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.blob;
+
+import com.foundationdb.TransactionContext;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes to a {@link BlobAsync} as a stream, starting at a given offset.
+ * Data is buffered and written a chunk at a time, so the caller never needs
+ * to assemble the whole value.
+ */
+public class BlobOutputStream extends OutputStream
+{
+    private final BlobAsync blob;
+    private final TransactionContext tcx;
+    private final byte[] buffer;
+    private int count;
+    private long position;
+    private boolean closed;
+
+    public BlobOutputStream(BlobAsync blob, TransactionContext tcx, long offset) {
+        this(blob, tcx, offset, BlobInputStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public BlobOutputStream(BlobAsync blob, TransactionContext tcx, long offset, int chunkSize) {
+        this.blob = blob;
+        this.tcx = tcx;
+        this.buffer = new byte[chunkSize];
+        this.position = offset;
+    }
+
+    /** Position in the blob of the next byte to be written. */
+    public long getPosition() {
+        return position + count;
+    }
+
+    @Override
+    public void write(int b) {
+        checkOpen();
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        checkOpen();
+        while (len > 0) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() {
+        checkOpen();
+        flushBuffer();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            flushBuffer();
+            closed = true;
+        }
+    }
+
+    private void flushBuffer() {
+        if (count > 0) {
+            blob.write(tcx, position, Arrays.copyOf(buffer, count)).get();
+            position += count;
+            count = 0;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Stream is closed");
+        }
+    }
+}
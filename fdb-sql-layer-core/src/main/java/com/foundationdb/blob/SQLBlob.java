@@ -19,11 +19,13 @@ package com.foundationdb.blob;
 
 import com.foundationdb.*;
 import com.foundationdb.async.*;
+import com.foundationdb.server.FDBTableStatusCache;
 import com.foundationdb.subspace.Subspace;
 import com.foundationdb.tuple.Tuple2;
 
 public class SQLBlob extends BlobAsync {
-    
+    private static final String VERSION_KEY = "V";
+
     public SQLBlob(Subspace subspace){
         super (subspace);
     }
@@ -56,6 +58,41 @@ public class SQLBlob extends BlobAsync {
         });
     }
 
+    /**
+     * The version of the blob's contents, which {@link #updateVersion} advances
+     * with every change. Used to key cached chunks.
+     */
+    public Future<Long> getVersion(TransactionContext tcx) {
+        return tcx.runAsync(new Function<Transaction, Future<Long>>() {
+            @Override
+            public Future<Long> apply(Transaction tr) {
+                return tr.get(versionKey()).map(new Function<byte[], Long>() {
+                    @Override
+                    public Long apply(byte[] versionBytes) {
+                        return (versionBytes == null) ? 0L : FDBTableStatusCache.unpackForAtomicOp(versionBytes);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Record a change to the blob's contents. The version becomes this
+     * transaction's read version, which is past that of any change already
+     * committed, even to a blob since deleted and re-created with the same id.
+     * The version key is read as well as written, so that two transactions
+     * changing the same blob conflict and each committed change gets its own
+     * version.
+     */
+    public void updateVersion(Transaction tr) {
+        tr.get(versionKey()).get();
+        tr.set(versionKey(), FDBTableStatusCache.packForAtomicOp(tr.getReadVersion().get()));
+    }
+
+    private byte[] versionKey() {
+        return getSubspace().pack(Tuple2.from(VERSION_KEY));
+    }
+
     public Future<Boolean> isLinked(TransactionContext tcx) {
         return tcx.runAsync(new Function<Transaction, Future<Boolean>>() {
             @Override
@@ -134,6 +134,11 @@ public class API
         return new GroupScan_Default(new GroupScan_Default.FullGroupCursorCreator(group));
     }
 
+    public static Operator groupScan_Default(Group group, int partitionBindingPosition)
+    {
+        return new GroupScan_Default(new GroupScan_Default.PartitionGroupCursorCreator(group, partitionBindingPosition));
+    }
+
     public static Operator groupScan_Default(Group group,
                                              int hKeyBindingPosition,
                                              boolean deep,
@@ -411,6 +416,15 @@ public class API
         return new IndexScan_Default(indexType, indexKeyRange, ordering, indexScanSelector, lookaheadQuantum);
     }
 
+    public static Operator indexScan_MultiRange(IndexRowType indexType,
+                                                List<IndexKeyRange> indexKeyRanges,
+                                                Ordering ordering,
+                                                IndexScanSelector indexScanSelector,
+                                                int lookaheadQuantum)
+    {
+        return new IndexScan_MultiRange(indexType, indexKeyRanges, ordering, indexScanSelector, lookaheadQuantum);
+    }
+
     // Select
 
     public static Operator select_HKeyOrdered(Operator inputOperator,
@@ -427,6 +441,14 @@ public class API
         return new Select_HKeyOrdered(inputOperator, predicateRowType, predicate.getTPreparedExpression());
     }
 
+    public static Operator select_HKeyOrdered(Operator inputOperator,
+                                              RowType predicateRowType,
+                                              TPreparedExpression predicate,
+                                              SelectivityFeedback feedback)
+    {
+        return new Select_HKeyOrdered(inputOperator, predicateRowType, predicate, feedback);
+    }
+
     // Filter
 
     public static Operator filter_Default(Operator inputOperator, Collection<? extends RowType> keepTypes)
@@ -558,6 +580,34 @@ public class API
         return new UnionAll_Default(input1, input1RowType, input2, input2RowType, openBoth);
     }
 
+    // Exchange
+
+    public static Operator exchange_Parallel(List<? extends Operator> partitions,
+                                             RowType rowType)
+    {
+        return new Exchange_Parallel(partitions, null, -1, rowType, null);
+    }
+
+    public static Operator exchange_Parallel(List<? extends Operator> partitions,
+                                             RowType rowType,
+                                             Ordering ordering)
+    {
+        return new Exchange_Parallel(partitions, null, -1, rowType, ordering);
+    }
+
+    /** Run <code>input</code> over <code>degree</code> parts of <code>group</code>,
+     * bound at <code>partitionBindingPosition</code> for its {@link #groupScan_Default(Group,int)}. */
+    public static Operator exchange_Parallel(Operator input,
+                                             int degree,
+                                             Group group,
+                                             int partitionBindingPosition,
+                                             RowType rowType,
+                                             Ordering ordering)
+    {
+        return new Exchange_Parallel(Collections.nCopies(degree, input), group, partitionBindingPosition,
+                                     rowType, ordering);
+    }
+
     // Except
 
     public static Operator except_Ordered(Operator leftInput, Operator rightInput,
@@ -818,6 +868,21 @@ public class API
                 hashTableBindingPosition);
     }
 
+    // hashTableLookup_Adaptive
+    public static Operator hashTableLookup_Adaptive(RowType hashedRowType,
+                                                    List<TPreparedExpression> outerComparisonFields,
+                                                    int hashTableBindingPosition,
+                                                    Operator nestedInput,
+                                                    long switchRowCount)
+    {
+        return new HashTableLookup_Adaptive(
+                hashedRowType,
+                outerComparisonFields,
+                hashTableBindingPosition,
+                nestedInput,
+                switchRowCount);
+    }
+
     // using_HashTable
     public static Operator using_HashTable(Operator hashInput,
                                            RowType hashedRowType,
@@ -830,6 +895,18 @@ public class API
         return new Using_HashTable(hashInput, hashedRowType, comparisonFields, hashTableBindingPosition, joinedInput, tComparisons, collators);
     }
 
+    public static Operator using_HashTable(Operator hashInput,
+                                           RowType hashedRowType,
+                                           List<TPreparedExpression> comparisonFields,
+                                           int hashTableBindingPosition,
+                                           Operator joinedInput,
+                                           List<TComparison> tComparisons,
+                                           List<AkCollator> collators,
+                                           boolean deferred)
+    {
+        return new Using_HashTable(hashInput, hashedRowType, comparisonFields, hashTableBindingPosition, joinedInput, tComparisons, collators, deferred);
+    }
+
     // EmitBoundRow_Nested
 
     public static Operator emitBoundRow_Nested(Operator input,
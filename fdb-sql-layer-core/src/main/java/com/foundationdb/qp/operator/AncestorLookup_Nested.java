@@ -105,12 +105,14 @@ import java.util.*;
  <h1>Performance</h1>
 
  For each input row, AncestorLookup_Nested does one random access for
- each ancestor type.
+ each ancestor type. A group cursor is opened for each ancestor before
+ any of them is read, so those accesses are outstanding together rather
+ than issued one after another.
 
  <h1>Memory Requirements</h1>
 
  AncestorLookup_Nested stores in memory up to (ancestorTypes.size() +
- 1) rows.
+ 1) rows, and keeps one group cursor open for each ancestor type.
 
  */
 
@@ -284,14 +286,17 @@ class AncestorLookup_Nested extends Operator
                     CursorLifecycle.checkIdleOrActive(this);
                 }
                 checkQueryCancelation();
-                Row row = pending.poll();
+                Row row = null;
+                while (row == null && cursorIndex < ancestorCursors.length) {
+                    row = readAncestorRow(cursorIndex++);
+                }
                 if (LOG_EXECUTION) {
                     LOG.debug("AncestorLookup: {}", row);
                 }
                 if (row == null) {
                     setIdle();
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -302,9 +307,11 @@ class AncestorLookup_Nested extends Operator
         @Override
         public void close()
         {
-            super.close();
-            pending.clear();
-            assert ancestorCursor.isClosed() : "Failed to close ancestorCursor"; 
+            try {
+                closeAncestorCursors();
+            } finally {
+                super.close();
+            }
         }
 
         // Execution interface
@@ -312,33 +319,41 @@ class AncestorLookup_Nested extends Operator
         Execution(QueryContext context, QueryBindingsCursor bindingsCursor)
         {
             super(context, bindingsCursor);
-            this.pending = new ArrayDeque<>(ancestors.size() + 1);
-            this.ancestorCursor = adapter().newGroupCursor(group);
+            this.ancestorHKeys = new HKey[ancestors.size()];
+            this.ancestorCursors = new GroupCursor[ancestorHKeys.length];
+            for (int i = 0; i < ancestorCursors.length; i++) {
+                ancestorCursors[i] = adapter().newGroupCursor(group);
+            }
         }
 
         // For use by this class
 
+        // All the ancestor cursors are opened up front, so that their reads are
+        // outstanding together rather than one after another.
         private void findAncestors(Row row)
         {
-            assert pending.isEmpty();
-            for (int i = 0; i < ancestors.size(); i++) {
-                Row ancestorRow = readAncestorRow(row.ancestorHKey(ancestors.get(i)));
-                if (ancestorRow != null) {
-                    pending.add(ancestorRow);
+            try {
+                for (int i = 0; i < ancestorCursors.length; i++) {
+                    ancestorHKeys[i] = row.ancestorHKey(ancestors.get(i));
+                    ancestorCursors[i].rebind(ancestorHKeys[i], false);
+                    ancestorCursors[i].open();
                 }
+            } catch (RuntimeException e) {
+                closeAncestorCursors();
+                throw e;
             }
+            cursorIndex = 0;
         }
 
-        private Row readAncestorRow(HKey hKey)
+        private Row readAncestorRow(int i)
         {
             Row row;
-            ancestorCursor.rebind(hKey, false);
-            ancestorCursor.open();
+            GroupCursor ancestorCursor = ancestorCursors[i];
             try {
                 row = ancestorCursor.next();
                 // Retrieved row might not actually be what we were looking for -- not all ancestors are present,
                 // (there are orphan rows).
-                if (row != null && !hKey.equals(row.hKey())) {
+                if (row != null && !ancestorHKeys[i].equals(row.hKey())) {
                     row = null;
                 }
             } finally {
@@ -347,10 +362,21 @@ class AncestorLookup_Nested extends Operator
             return row;
         }
 
+        private void closeAncestorCursors()
+        {
+            for (GroupCursor ancestorCursor : ancestorCursors) {
+                if (!ancestorCursor.isClosed()) {
+                    ancestorCursor.close();
+                }
+            }
+            cursorIndex = ancestorCursors.length;
+        }
+
         // Object state
 
-        private final GroupCursor ancestorCursor;
-        private final Queue<Row> pending;
+        private final HKey[] ancestorHKeys;
+        private final GroupCursor[] ancestorCursors;
+        private int cursorIndex;
     }
 
     private class AncestorCursor extends RowCursorImpl implements BindingsAwareCursor
@@ -470,7 +496,7 @@ class AncestorLookup_Nested extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("AncestorLookup_Nested: yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -402,7 +402,7 @@ public class BranchLookup_Nested extends Operator
                 if (row == null) {
                     setIdle();
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -557,7 +557,7 @@ public class BranchLookup_Nested extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("BranchLookup_Nested: yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -0,0 +1,878 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.operator;
+
+import com.foundationdb.ais.model.AkibanInformationSchema;
+import com.foundationdb.ais.model.Group;
+import com.foundationdb.ais.model.Table;
+import com.foundationdb.qp.row.ImmutableRow;
+import com.foundationdb.qp.row.OverlayingRow;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.server.error.AkibanInternalException;
+import com.foundationdb.server.error.ErrorCode;
+import com.foundationdb.server.explain.*;
+import com.foundationdb.server.service.ServiceManager;
+import com.foundationdb.server.service.session.Session;
+import com.foundationdb.server.service.transaction.TransactionService;
+import com.foundationdb.server.types.TClass;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.texpressions.TEvaluatableExpression;
+import com.foundationdb.util.ArgumentValidation;
+import com.foundationdb.util.tap.InOutTap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+
+ <h1>Overview</h1>
+
+ Exchange_Parallel runs several partitions of the same plan fragment at once, each
+ in its own thread and transaction, and gathers their rows into a single stream.
+
+ <h1>Arguments</h1>
+
+ <ul>
+
+ <li><b>List&lt;? extends Operator&gt; partitions:</b> Inputs that together
+ produce the rows of the fragment, typically the same fragment over
+ different partitions of a group scan.
+
+ <li><b>Group group:</b> If not null, the group that is split into as many
+ parts as there are partitions.
+
+ <li><b>int partitionBindingPosition:</b> Where each partition's part of
+ <code>group</code> is bound for its group scan.
+
+ <li><b>RowType rowType:</b> Type of output rows, which all the partitions'
+ rows are compatible with.
+
+ <li><b>API.Ordering ordering:</b> If not null, the order each partition's rows
+ are already in, which is kept by merging them.
+
+ </ul>
+
+ <h1>Behavior</h1>
+
+ When opened, each partition is handed to a worker thread with its own session
+ and a transaction that shares the current transaction's read version, so that
+ all the workers see the same snapshot. Workers send copies of their rows back
+ in batches through bounded queues.
+
+ If there is a group, it is split once, in the current transaction, and each
+partition is given one part of it. Every partition therefore scans a
+different range of the same snapshot, and together they scan all of it.
+
+Workers come from a pool of at most MAX_WORKERS threads shared by all
+queries. Any partition for which there is no free thread is run in the
+calling thread instead.
+
+Without an ordering, batches are returned as they arrive. With one, each
+ partition has its own queue and the partitions' rows are merged.
+
+ If the current transaction's snapshot cannot be shared, for instance because it
+ has already written something or the store does not support it, the partitions
+ are instead run one after another (or side by side, when merging) in the
+ calling thread.
+
+ <h1>Output</h1>
+
+ The rows of all the partitions, in the given ordering if there is one.
+
+ <h1>Assumptions</h1>
+
+ The partitions do not write and do not depend on bindings set by operators
+ above this one.
+
+ <h1>Performance</h1>
+
+ The partitions' IO proceeds in parallel. Rows are copied once to pass them
+ between threads.
+
+ <h1>Memory Requirements</h1>
+
+ Up to QUEUE_CAPACITY batches of BATCH_SIZE rows per queue.
+
+ */
+
+class Exchange_Parallel extends Operator
+{
+    // Object interface
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s(%d%s)", getClass().getSimpleName(), partitions.size(),
+                             (ordering == null) ? "" : ", " + ordering);
+    }
+
+    // Operator interface
+
+    @Override
+    protected Cursor cursor(QueryContext context, QueryBindingsCursor bindingsCursor)
+    {
+        return new Execution(context, bindingsCursor);
+    }
+
+    @Override
+    public RowType rowType()
+    {
+        return rowType;
+    }
+
+    @Override
+    public void findDerivedTypes(Set<RowType> derivedTypes)
+    {
+        for (Operator partition : partitions) {
+            partition.findDerivedTypes(derivedTypes);
+        }
+    }
+
+    @Override
+    public List<Operator> getInputOperators()
+    {
+        return Collections.<Operator>unmodifiableList(partitions);
+    }
+
+    @Override
+    public String describePlan()
+    {
+        return describePlan(partitions.get(0));
+    }
+
+    // Exchange_Parallel interface
+
+    public Exchange_Parallel(List<? extends Operator> partitions,
+                             Group group, int partitionBindingPosition,
+                             RowType rowType, API.Ordering ordering)
+    {
+        ArgumentValidation.notNull("partitions", partitions);
+        ArgumentValidation.isGTE("partitions", partitions.size(), 1);
+        if (group != null) {
+            ArgumentValidation.isGTE("partitionBindingPosition", partitionBindingPosition, 0);
+        }
+        ArgumentValidation.notNull("rowType", rowType);
+        this.partitions = new ArrayList<>(partitions);
+        this.group = group;
+        this.partitionBindingPosition = partitionBindingPosition;
+        this.rowType = rowType;
+        this.ordering = ordering;
+    }
+
+    // Class state
+
+    private static final InOutTap TAP_OPEN = OPERATOR_TAP.createSubsidiaryTap("operator: Exchange_Parallel open");
+    private static final InOutTap TAP_NEXT = OPERATOR_TAP.createSubsidiaryTap("operator: Exchange_Parallel next");
+    private static final Logger LOG = LoggerFactory.getLogger(Exchange_Parallel.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final long POLL_MILLIS = 100;
+    private static final int MAX_WORKERS = 4 * Runtime.getRuntime().availableProcessors();
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private static ExecutorService workerPool;
+
+    private static synchronized ExecutorService workerPool()
+    {
+        if (workerPool == null) {
+            // No queue: a partition waits for a free thread in its caller instead.
+            workerPool = new ThreadPoolExecutor(0, MAX_WORKERS,
+                                                WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                new SynchronousQueue<Runnable>(),
+                                                new WorkerThreadFactory("exchange"));
+        }
+        return workerPool;
+    }
+
+    // Object state
+
+    private final List<Operator> partitions;
+    private final Group group;
+    private final int partitionBindingPosition;
+    private final RowType rowType;
+    private final API.Ordering ordering;
+
+    @Override
+    public CompoundExplainer getExplainer(ExplainContext context)
+    {
+        Attributes atts = new Attributes();
+        atts.put(Label.NAME, PrimitiveExplainer.getInstance(getName()));
+        atts.put(Label.PARALLELISM, PrimitiveExplainer.getInstance(partitions.size()));
+        if (ordering != null) {
+            for (int i = 0; i < ordering.sortColumns(); i++) {
+                atts.put(Label.EXPRESSIONS, ordering.expression(i).getExplainer(context));
+                atts.put(Label.ORDERING, PrimitiveExplainer.getInstance(ordering.ascending(i) ? "ASC" : "DESC"));
+            }
+        }
+        // All the partitions are the same plan.
+        atts.put(Label.INPUT_OPERATOR, partitions.get(0).getExplainer(context));
+        atts.put(Label.OUTPUT_TYPE, rowType.getExplainer(context));
+        return new CompoundExplainer(Type.EXCHANGE, atts);
+    }
+
+    // Inner classes
+
+    private class Execution extends LeafCursor
+    {
+        // Cursor interface
+
+        @Override
+        public void open()
+        {
+            TAP_OPEN.in();
+            try {
+                super.open();
+                if (group != null) {
+                    groupPartitions = context.getStore(group.getRoot()).partitionGroup(group, partitions.size());
+                }
+                inputs = startWorkers();
+                if (inputs == null) {
+                    inputs = new ArrayList<>(partitions.size());
+                    for (int i = 0; i < partitions.size(); i++) {
+                        inputs.add(serialInput(i));
+                    }
+                }
+                if (ordering != null) {
+                    heads = new Row[inputs.size()];
+                    for (int i = 0; i < heads.length; i++) {
+                        heads[i] = advance(i);
+                    }
+                }
+                currentInput = 0;
+            } finally {
+                TAP_OPEN.out();
+            }
+        }
+
+        @Override
+        public Row next()
+        {
+            if (TAP_NEXT_ENABLED) {
+                TAP_NEXT.in();
+            }
+            try {
+                if (CURSOR_LIFECYCLE_ENABLED) {
+                    CursorLifecycle.checkIdleOrActive(this);
+                }
+                checkQueryCancelation();
+                Row next = null;
+                if (isActive()) {
+                    next = (ordering == null) ? nextUnordered() : nextMerged();
+                    if (next == null) {
+                        setIdle();
+                    }
+                }
+                if (LOG_EXECUTION) {
+                    LOG.debug("Exchange_Parallel: yield {}", next);
+                }
+                return next;
+            } finally {
+                if (TAP_NEXT_ENABLED) {
+                    TAP_NEXT.out();
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                if (inputs != null) {
+                    for (Input input : inputs) {
+                        input.close();
+                    }
+                }
+                stopWorkers();
+            } finally {
+                groupPartitions = null;
+                inputs = null;
+                heads = null;
+                super.close();
+            }
+        }
+
+        // Execution interface
+
+        Execution(QueryContext context, QueryBindingsCursor bindingsCursor)
+        {
+            super(context, bindingsCursor);
+            if (ordering != null) {
+                int nkeys = ordering.sortColumns();
+                evaluations = new TEvaluatableExpression[partitions.size()][nkeys];
+                for (int i = 0; i < partitions.size(); i++) {
+                    for (int j = 0; j < nkeys; j++) {
+                        evaluations[i][j] = ordering.expression(j).build();
+                    }
+                }
+            }
+            else {
+                evaluations = null;
+            }
+        }
+
+        private Row nextUnordered()
+        {
+            while (currentInput < inputs.size()) {
+                Row row = inputs.get(currentInput).next();
+                if (row != null) {
+                    return row;
+                }
+                inputs.get(currentInput).close();
+                currentInput++;
+            }
+            return null;
+        }
+
+        private Row nextMerged()
+        {
+            int best = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if ((heads[i] != null) &&
+                    ((best < 0) || (compareHeads(i, best) < 0))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            Row next = heads[best];
+            heads[best] = advance(best);
+            return next;
+        }
+
+        private Row advance(int i)
+        {
+            Row row = inputs.get(i).next();
+            if (row != null) {
+                for (TEvaluatableExpression evaluation : evaluations[i]) {
+                    evaluation.with(context);
+                    evaluation.with(bindings);
+                    evaluation.with(row);
+                    evaluation.evaluate();
+                }
+            }
+            return row;
+        }
+
+        private int compareHeads(int i, int j)
+        {
+            for (int k = 0; k < ordering.sortColumns(); k++) {
+                ValueSource v1 = evaluations[i][k].resultValue();
+                ValueSource v2 = evaluations[j][k].resultValue();
+                int c;
+                if (ordering.collator(k) != null) {
+                    c = ordering.collator(k).compare(v1, v2);
+                }
+                else {
+                    c = TClass.compare(ordering.type(k), v1, ordering.type(k), v2);
+                }
+                if (c != 0) {
+                    return ordering.ascending(k) ? c : -c;
+                }
+            }
+            return 0;
+        }
+
+        /** Bindings for partition <code>i</code>, with its part of the group. */
+        private QueryBindings partitionBindings(int i)
+        {
+            QueryBindings partitionBindings = bindings.createBindings();
+            if (groupPartitions != null) {
+                partitionBindings.setGroupPartition(partitionBindingPosition, groupPartitions.get(i));
+            }
+            return partitionBindings;
+        }
+
+        private Input serialInput(int i)
+        {
+            return new CursorInput(partitions.get(i).cursor(context,
+                                                            new SingletonQueryBindingsCursor(partitionBindings(i))));
+        }
+
+        /** Start a worker for each partition, if the current snapshot can be shared with them.
+         * @return the inputs to read from or <code>null</code> to run serially.
+         */
+        private List<Input> startWorkers()
+        {
+            if (partitions.size() < 2) {
+                return null;
+            }
+            ServiceManager serviceManager;
+            try {
+                serviceManager = context.getServiceManager();
+            }
+            catch (UnsupportedOperationException ex) {
+                return null;
+            }
+            if (serviceManager == null) {
+                return null;
+            }
+            TransactionService txnService = serviceManager.getServiceByClass(TransactionService.class);
+            Session parentSession = context.getSession();
+            if ((txnService == null) || !txnService.isTransactionActive(parentSession)) {
+                return null;
+            }
+            List<Session> sessions = new ArrayList<>(partitions.size());
+            try {
+                for (int i = 0; i < partitions.size(); i++) {
+                    Session session = serviceManager.getSessionService().createSession();
+                    sessions.add(session);
+                    if (!txnService.beginSnapshotTransaction(session, parentSession)) {
+                        if (LOG_EXECUTION) {
+                            LOG.debug("Exchange_Parallel: cannot share snapshot, running serially");
+                        }
+                        closeSessions(txnService, sessions);
+                        return null;
+                    }
+                }
+            }
+            catch (RuntimeException ex) {
+                closeSessions(txnService, sessions);
+                throw ex;
+            }
+            stopping = false;
+            List<Input> inputs = new ArrayList<>();
+            List<Input> serialInputs = new ArrayList<>();
+            QueueInput sharedInput = null;
+            BlockingQueue<Batch> sharedQueue = null;
+            if (ordering == null) {
+                sharedQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY * partitions.size());
+                sharedInput = new QueueInput(sharedQueue, 0);
+                inputs.add(sharedInput);
+            }
+            workers = new ArrayList<>(partitions.size());
+            for (int i = 0; i < partitions.size(); i++) {
+                BlockingQueue<Batch> queue = sharedQueue;
+                if (queue == null) {
+                    queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+                }
+                Session session = sessions.get(i);
+                QueryContext workerContext = new WorkerQueryContext(context,
+                                                                    serviceManager.getStore().createAdapter(session),
+                                                                    session);
+                Worker worker = new Worker(partitions.get(i), workerContext, partitionBindings(i),
+                                           txnService, queue);
+                Input input;
+                try {
+                    workers.add(workerPool().submit(worker));
+                    if (sharedInput != null) {
+                        sharedInput.addProducer();
+                        continue;
+                    }
+                    input = new QueueInput(queue, 1);
+                }
+                catch (RejectedExecutionException ex) {
+                    // All the pool's threads are busy.
+                    closeSessions(txnService, Collections.singletonList(session));
+                    input = serialInput(i);
+                    if (sharedInput != null) {
+                        serialInputs.add(input);
+                        continue;
+                    }
+                }
+                inputs.add(input);
+            }
+            // Unordered, the partitions run here come after all the workers' batches.
+            inputs.addAll(serialInputs);
+            return inputs;
+        }
+
+        private void stopWorkers()
+        {
+            if (workers == null) {
+                return;
+            }
+            stopping = true;
+            boolean interrupted = false;
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                }
+                catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                catch (ExecutionException ex) {
+                    LOG.warn("Exchange worker failed", ex.getCause());
+                }
+            }
+            workers = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void closeSessions(TransactionService txnService, List<Session> sessions)
+        {
+            for (Session session : sessions) {
+                txnService.rollbackTransactionIfOpen(session);
+                session.close();
+            }
+        }
+
+        private Row retyped(Row row)
+        {
+            if (row.rowType() == rowType) {
+                return row;
+            }
+            return new OverlayingRow(row, rowType);
+        }
+
+        // Object state
+
+        private final TEvaluatableExpression[][] evaluations;
+        private List<Input> inputs;
+        private int currentInput;
+        private Row[] heads;
+        private List<Future<?>> workers;
+        private List<GroupPartition> groupPartitions;
+        private volatile boolean stopping;
+
+        // Inner classes
+
+        private abstract class Input
+        {
+            public abstract Row next();
+
+            public abstract void close();
+        }
+
+        /** A partition run in this thread. */
+        private class CursorInput extends Input
+        {
+            @Override
+            public Row next()
+            {
+                if (cursor.isClosed()) {
+                    if (exhausted) {
+                        return null;
+                    }
+                    cursor.openTopLevel();
+                }
+                Row row = cursor.next();
+                if (row == null) {
+                    exhausted = true;
+                    cursor.closeTopLevel();
+                    return null;
+                }
+                return retyped(row);
+            }
+
+            @Override
+            public void close()
+            {
+                if (!cursor.isClosed()) {
+                    cursor.closeTopLevel();
+                }
+            }
+
+            CursorInput(Cursor cursor)
+            {
+                this.cursor = cursor;
+            }
+
+            private final Cursor cursor;
+            private boolean exhausted;
+        }
+
+        /** Batches from one or more workers. */
+        private class QueueInput extends Input
+        {
+            @Override
+            public Row next()
+            {
+                while (true) {
+                    if ((batch != null) && (position < batch.rows.size())) {
+                        return batch.rows.get(position++);
+                    }
+                    if (remaining == 0) {
+                        return null;
+                    }
+                    batch = take();
+                    position = 0;
+                    if (batch.last) {
+                        remaining--;
+                    }
+                    if (batch.failure != null) {
+                        remaining = 0;
+                        if (batch.failure instanceof RuntimeException) {
+                            throw (RuntimeException)batch.failure;
+                        }
+                        throw new AkibanInternalException("Exchange worker failed", batch.failure);
+                    }
+                }
+            }
+
+            @Override
+            public void close()
+            {
+                batch = null;
+                remaining = 0;
+            }
+
+            private Batch take()
+            {
+                try {
+                    while (true) {
+                        Batch next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (next != null) {
+                            return next;
+                        }
+                        checkQueryCancelation();
+                    }
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new AkibanInternalException("Interrupted waiting for exchange worker", ex);
+                }
+            }
+
+            QueueInput(BlockingQueue<Batch> queue, int producers)
+            {
+                this.queue = queue;
+                this.remaining = producers;
+            }
+
+            void addProducer()
+            {
+                remaining++;
+            }
+
+            private final BlockingQueue<Batch> queue;
+            private int remaining;
+            private Batch batch;
+            private int position;
+        }
+
+        /** Run one partition and send its rows back. */
+        private class Worker implements Runnable
+        {
+            @Override
+            public void run()
+            {
+                Cursor cursor = null;
+                try {
+                    cursor = partition.cursor(workerContext, new SingletonQueryBindingsCursor(workerBindings));
+                    cursor.openTopLevel();
+                    List<Row> rows = new ArrayList<>(BATCH_SIZE);
+                    Row row;
+                    while (!stopping && ((row = cursor.next()) != null)) {
+                        rows.add(new ImmutableRow(rowType, ImmutableRow.getValueSources(row)));
+                        if (rows.size() >= BATCH_SIZE) {
+                            send(new Batch(rows, false, null));
+                            rows = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                    send(new Batch(rows, true, null));
+                }
+                catch (Throwable ex) {
+                    send(new Batch(Collections.<Row>emptyList(), true, ex));
+                }
+                finally {
+                    try {
+                        if ((cursor != null) && !cursor.isClosed()) {
+                            cursor.closeTopLevel();
+                        }
+                    }
+                    finally {
+                        txnService.rollbackTransactionIfOpen(workerContext.getSession());
+                        workerContext.getSession().close();
+                    }
+                }
+            }
+
+            private void send(Batch batch)
+            {
+                try {
+                    while (!stopping) {
+                        if (queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    }
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            Worker(Operator partition, QueryContext workerContext, QueryBindings workerBindings,
+                   TransactionService txnService, BlockingQueue<Batch> queue)
+            {
+                this.partition = partition;
+                this.workerContext = workerContext;
+                this.workerBindings = workerBindings;
+                this.txnService = txnService;
+                this.queue = queue;
+            }
+
+            private final Operator partition;
+            private final QueryContext workerContext;
+            private final QueryBindings workerBindings;
+            private final TransactionService txnService;
+            private final BlockingQueue<Batch> queue;
+        }
+    }
+
+    private static class Batch
+    {
+        Batch(List<Row> rows, boolean last, Throwable failure)
+        {
+            this.rows = rows;
+            this.last = last;
+            this.failure = failure;
+        }
+
+        final List<Row> rows;
+        final boolean last;
+        final Throwable failure;
+    }
+
+    /** A worker's own store adapter and session, with everything else from the query. */
+    private static class WorkerQueryContext extends QueryContextBase
+    {
+        @Override
+        public StoreAdapter getStore()
+        {
+            return adapter;
+        }
+
+        @Override
+        public StoreAdapter getStore(Table table)
+        {
+            return adapter;
+        }
+
+        @Override
+        public Session getSession()
+        {
+            return session;
+        }
+
+        @Override
+        public AkibanInformationSchema getAIS()
+        {
+            return delegate.getAIS();
+        }
+
+        @Override
+        public ServiceManager getServiceManager()
+        {
+            return delegate.getServiceManager();
+        }
+
+        @Override
+        public String getCurrentUser()
+        {
+            return delegate.getCurrentUser();
+        }
+
+        @Override
+        public String getSessionUser()
+        {
+            return delegate.getSessionUser();
+        }
+
+        @Override
+        public String getCurrentSchema()
+        {
+            return delegate.getCurrentSchema();
+        }
+
+        @Override
+        public String getCurrentSetting(String key)
+        {
+            return delegate.getCurrentSetting(key);
+        }
+
+        @Override
+        public int getSessionId()
+        {
+            return delegate.getSessionId();
+        }
+
+        @Override
+        public long getStartTime()
+        {
+            return delegate.getStartTime();
+        }
+
+        @Override
+        public long getQueryTimeoutMilli()
+        {
+            return delegate.getQueryTimeoutMilli();
+        }
+
+        @Override
+        public void checkQueryCancelation()
+        {
+            delegate.checkQueryCancelation();
+        }
+
+        @Override
+        public void notifyClient(NotificationLevel level, ErrorCode errorCode, String message)
+        {
+            delegate.notifyClient(level, errorCode, message);
+        }
+
+        WorkerQueryContext(QueryContext delegate, StoreAdapter adapter, Session session)
+        {
+            this.delegate = delegate;
+            this.adapter = adapter;
+            this.session = session;
+        }
+
+        private final QueryContext delegate;
+        private final StoreAdapter adapter;
+        private final Session session;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory
+    {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public WorkerThreadFactory(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, prefix + "_" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -27,4 +27,6 @@ package com.foundationdb.qp.operator;
  */
 
 public interface GroupCursor extends RowCursor, Rebindable {
+    /** Limit the next scan to one part of the group, as split by {@link StoreAdapter#partitionGroup}. */
+    void rebind(GroupPartition partition);
 }
@@ -376,7 +376,7 @@ class GroupLookup_Default extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("GroupLookup: yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -599,7 +599,7 @@ class GroupLookup_Default extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("GroupLookup: yield {}", outputRow);
                 }
-                return outputRow;
+                return countScanned(outputRow);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
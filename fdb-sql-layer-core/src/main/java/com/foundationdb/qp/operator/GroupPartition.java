@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.operator;
+
+import com.foundationdb.util.Strings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One of the disjoint parts that a group is split into by {@link
+ * StoreAdapter#partitionGroup}, as a range of the store's own keys.
+ * The split is decided once for all the partitions of a scan, so that
+ * together they see each row exactly once.
+ */
+public class GroupPartition
+{
+    /** The whole group, for stores that do not split. */
+    public static final GroupPartition WHOLE = new GroupPartition(null, null);
+    /** Nothing, for the remaining partitions of a store that does not split. */
+    public static final GroupPartition EMPTY = new GroupPartition(new byte[0], new byte[0]);
+
+    private final byte[] start, end;
+
+    /** Keys from <code>start</code> (inclusive) to <code>end</code> (exclusive). */
+    public GroupPartition(byte[] start, byte[] end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /** The first key, or <code>null</code> for the start of the group. */
+    public byte[] getStart() {
+        return start;
+    }
+
+    /** The key after the last, or <code>null</code> for the end of the group. */
+    public byte[] getEnd() {
+        return end;
+    }
+
+    public boolean isWhole() {
+        return (start == null) && (end == null);
+    }
+
+    public boolean isEmpty() {
+        return (start != null) && (end != null) && Arrays.equals(start, end);
+    }
+
+    /** The whole group in the first of <code>nPartitions</code>. */
+    public static List<GroupPartition> wholeInFirst(int nPartitions) {
+        List<GroupPartition> partitions = new ArrayList<>(nPartitions);
+        partitions.add(WHOLE);
+        partitions.addAll(Collections.nCopies(nPartitions - 1, EMPTY));
+        return partitions;
+    }
+
+    @Override
+    public String toString() {
+        if (isWhole()) {
+            return "WHOLE";
+        }
+        if (isEmpty()) {
+            return "EMPTY";
+        }
+        return "[" + ((start == null) ? "" : Strings.hex(start)) + ", " +
+            ((end == null) ? "" : Strings.hex(end)) + ")";
+    }
+}
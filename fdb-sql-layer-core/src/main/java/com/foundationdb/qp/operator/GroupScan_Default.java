@@ -160,7 +160,7 @@ class GroupScan_Default extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("GroupScan_Default: yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -287,6 +287,40 @@ class GroupScan_Default extends Operator
         }
     }
 
+    static class PartitionGroupCursorCreator extends AbstractGroupCursorCreator
+    {
+
+        // GroupCursorCreator interface
+
+        @Override
+        public GroupCursor cursor(QueryContext context)
+        {
+            return new PartitionBoundCursor(context.getStore(group().getRoot()).newGroupCursor(group()),
+                                            partitionBindingPosition);
+        }
+
+        // PartitionGroupCursorCreator interface
+
+        PartitionGroupCursorCreator(Group group, int partitionBindingPosition)
+        {
+            super(group);
+            ArgumentValidation.isGTE("partitionBindingPosition", partitionBindingPosition, 0);
+            this.partitionBindingPosition = partitionBindingPosition;
+        }
+
+        // AbstractGroupCursorCreator interface
+
+        @Override
+        public String describeRange()
+        {
+            return "partition from binding " + partitionBindingPosition;
+        }
+
+        // object state
+
+        private final int partitionBindingPosition;
+    }
+
     static class PositionalGroupCursorCreator extends AbstractGroupCursorCreator
     {
 
@@ -409,6 +443,11 @@ class GroupScan_Default extends Operator
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void rebind(GroupPartition partition) {
+            throw new UnsupportedOperationException();
+        }
+
         HKeyBoundCursor(QueryContext context,
                         GroupCursor input,
                         int hKeyBindingPosition,
@@ -437,4 +476,66 @@ class GroupScan_Default extends Operator
         private boolean sawOne = false;
         private QueryBindings bindings;
     }
+
+    private static class PartitionBoundCursor extends RowCursorImpl implements BindingsAwareCursor, GroupCursor
+    {
+
+        @Override
+        public void open()
+        {
+            super.open();
+            input.rebind(bindings.getGroupPartition(partitionBindingPosition));
+            input.open();
+        }
+
+        @Override
+        public Row next()
+        {
+            Row row = input.next();
+            if (row == null) {
+                setIdle();
+            }
+            return row;
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                if (!input.isClosed()) {
+                    input.close();
+                }
+            } finally {
+                super.close();
+            }
+        }
+
+        @Override
+        public void rebind(QueryBindings bindings)
+        {
+            this.bindings = bindings;
+        }
+
+        @Override
+        public void rebind(HKey hKey, boolean deep)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void rebind(GroupPartition partition)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        PartitionBoundCursor(GroupCursor input, int partitionBindingPosition)
+        {
+            this.input = input;
+            this.partitionBindingPosition = partitionBindingPosition;
+        }
+
+        private final GroupCursor input;
+        private final int partitionBindingPosition;
+        private QueryBindings bindings;
+    }
 }
@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.operator;
+
+import com.foundationdb.qp.row.ImmutableRow;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.qp.util.HashTable;
+import com.foundationdb.server.explain.*;
+import com.foundationdb.server.types.texpressions.TEvaluatableExpression;
+import com.foundationdb.server.types.texpressions.TPreparedExpression;
+import com.foundationdb.util.ArgumentValidation;
+import com.foundationdb.util.tap.InOutTap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+
+ <h1>Overview</h1>
+
+ HashTableLookup_Adaptive is the inner side of a hash join that can instead run a
+ nested-loop alternative, such as an index lookup, for each outer row. It starts
+ with the nested alternative and switches to the hash table, loading it then, once
+ more than a given number of outer rows have been seen.
+
+ <h1>Arguments</h1>
+
+ <ul>
+
+ <li><b>RowType hashedRowType:</b> Type of rows in the hash table and from the nested input.
+
+ <li><b>List&lt;TPreparedExpression&gt; outerComparisonFields:</b> Hash key from the outer row.
+
+ <li><b>int hashTableBindingPosition:</b> Position of the (deferred) hash table in the bindings.
+
+ <li><b>Operator nestedInput:</b> Produces the same rows as a hash lookup would for the bound outer row.
+
+ <li><b>long switchRowCount:</b> Number of outer rows after which the hash table is cheaper.
+
+ </ul>
+
+ <h1>Behavior</h1>
+
+ The hash table is set up by an enclosing Using_HashTable in deferred mode, which
+ only loads it when first needed. While it is unloaded, each open counts one outer
+ row and executes the nested input. When the count goes past switchRowCount, the
+ table is loaded and used for that row and every remaining one. The switch happens
+ at most once per table, that is, per execution of the enclosing Using_HashTable.
+
+ <h1>Output</h1>
+
+ Rows of hashedRowType matching the outer row.
+
+ <h1>Assumptions</h1>
+
+ The nested input applies all the join conditions the hash key does.
+
+ <h1>Performance</h1>
+
+ Small outer inputs only pay for index lookups; large ones pay for those lookups
+ of the first switchRowCount rows and one hash table load.
+
+ <h1>Memory Requirements</h1>
+
+ The hash table, once loaded.
+
+ */
+
+class HashTableLookup_Adaptive extends Operator
+{
+    // Object interface
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName();
+    }
+
+    // Operator interface
+
+    @Override
+    protected Cursor cursor(QueryContext context, QueryBindingsCursor bindingsCursor)
+    {
+        return new Execution(context, bindingsCursor);
+    }
+
+    @Override
+    public void findDerivedTypes(Set<RowType> derivedTypes)
+    {
+        nestedInput.findDerivedTypes(derivedTypes);
+    }
+
+    @Override
+    public List<Operator> getInputOperators()
+    {
+        return Collections.singletonList(nestedInput);
+    }
+
+    @Override
+    public String describePlan()
+    {
+        return describePlan(nestedInput);
+    }
+
+    // HashTableLookup_Adaptive interface
+
+    public HashTableLookup_Adaptive(RowType hashedRowType,
+                                    List<TPreparedExpression> outerComparisonFields,
+                                    int hashTableBindingPosition,
+                                    Operator nestedInput,
+                                    long switchRowCount)
+    {
+        ArgumentValidation.notNull("hashedRowType", hashedRowType);
+        ArgumentValidation.notNull("outerComparisonFields", outerComparisonFields);
+        ArgumentValidation.isGTE("outerComparisonFields", outerComparisonFields.size(), 1);
+        ArgumentValidation.notNull("nestedInput", nestedInput);
+        ArgumentValidation.isGTE("switchRowCount", switchRowCount, 0);
+        this.hashedRowType = hashedRowType;
+        this.outerComparisonFields = outerComparisonFields;
+        this.hashTableBindingPosition = hashTableBindingPosition;
+        this.nestedInput = nestedInput;
+        this.switchRowCount = switchRowCount;
+    }
+
+    // Class state
+
+    private static final InOutTap TAP_OPEN = OPERATOR_TAP.createSubsidiaryTap("operator: HashTableLookup_Adaptive open");
+    private static final InOutTap TAP_NEXT = OPERATOR_TAP.createSubsidiaryTap("operator: HashTableLookup_Adaptive next");
+    private static final Logger LOG = LoggerFactory.getLogger(HashTableLookup_Adaptive.class);
+
+    // Object state
+
+    private final RowType hashedRowType;
+    private final List<TPreparedExpression> outerComparisonFields;
+    private final int hashTableBindingPosition;
+    private final Operator nestedInput;
+    private final long switchRowCount;
+
+    @Override
+    public CompoundExplainer getExplainer(ExplainContext context)
+    {
+        Attributes atts = new Attributes();
+        atts.put(Label.NAME, PrimitiveExplainer.getInstance(getName()));
+        atts.put(Label.BINDING_POSITION, PrimitiveExplainer.getInstance(hashTableBindingPosition));
+        for (TPreparedExpression field : outerComparisonFields) {
+            atts.put(Label.EXPRESSIONS, field.getExplainer(context));
+        }
+        atts.put(Label.LIMIT, PrimitiveExplainer.getInstance(switchRowCount));
+        atts.put(Label.INPUT_OPERATOR, nestedInput.getExplainer(context));
+        return new CompoundExplainer(Type.HASH_JOIN, atts);
+    }
+
+    // Inner classes
+
+    private class Execution extends LeafCursor
+    {
+        // Cursor interface
+
+        @Override
+        public void open()
+        {
+            TAP_OPEN.in();
+            try {
+                super.open();
+                HashTable hashTable = bindings.getHashTable(hashTableBindingPosition);
+                assert (hashedRowType == hashTable.getRowType()) : hashTable;
+                if (hashTable.isLoaded() ||
+                    (hashTable.incrementDeferredLookups() > switchRowCount)) {
+                    if (LOG_EXECUTION && !hashTable.isLoaded()) {
+                        LOG.debug("HashTableLookup_Adaptive: switching to hash table after {} rows", switchRowCount);
+                    }
+                    innerRowList = hashTable.getMatchingRows(null, evaluatableComparisonFields, bindings);
+                    innerRowListPosition = 0;
+                }
+                else {
+                    innerRowList = null;
+                    nestedBindingsCursor.reset(bindings);
+                    nestedCursor.openTopLevel();
+                }
+            } finally {
+                TAP_OPEN.out();
+            }
+        }
+
+        @Override
+        public Row next()
+        {
+            if (TAP_NEXT_ENABLED) {
+                TAP_NEXT.in();
+            }
+            try {
+                if (CURSOR_LIFECYCLE_ENABLED) {
+                    CursorLifecycle.checkIdleOrActive(this);
+                }
+                checkQueryCancelation();
+                Row next = null;
+                if (innerRowList != null) {
+                    if (innerRowListPosition < innerRowList.size()) {
+                        next = innerRowList.get(innerRowListPosition++);
+                    }
+                }
+                else {
+                    next = nestedCursor.next();
+                    if ((next != null) && next.isBindingsSensitive()) {
+                        // Freeze values which may depend on outer bindings.
+                        next = ImmutableRow.buildImmutableRow(next);
+                    }
+                }
+                if (next == null) {
+                    setIdle();
+                }
+                if (LOG_EXECUTION) {
+                    LOG.debug("HashTableLookup_Adaptive: yield {}", next);
+                }
+                return next;
+            } finally {
+                if (TAP_NEXT_ENABLED) {
+                    TAP_NEXT.out();
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                if (!nestedCursor.isClosed()) {
+                    nestedCursor.closeTopLevel();
+                }
+            } finally {
+                innerRowList = null;
+                super.close();
+            }
+        }
+
+        // Execution interface
+
+        Execution(QueryContext context, QueryBindingsCursor bindingsCursor)
+        {
+            super(context, bindingsCursor);
+            for (TPreparedExpression comparisonField : outerComparisonFields) {
+                evaluatableComparisonFields.add(comparisonField.build());
+            }
+            this.nestedBindingsCursor = new SingletonQueryBindingsCursor(null);
+            this.nestedCursor = nestedInput.cursor(context, nestedBindingsCursor);
+        }
+
+        // Object state
+
+        private final List<TEvaluatableExpression> evaluatableComparisonFields = new ArrayList<>();
+        private final SingletonQueryBindingsCursor nestedBindingsCursor;
+        private final Cursor nestedCursor;
+        private List<Row> innerRowList;
+        private int innerRowListPosition;
+    }
+}
@@ -317,7 +317,7 @@ class IndexScan_Default extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug("IndexScan_Default$Execution: yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
@@ -390,7 +390,7 @@ class IndexScan_Default extends Operator
                 if (LOG_EXECUTION) {
                     LOG.debug(IndexScan_Default.this.toString() + ": yield {}", row);
                 }
-                return row;
+                return countScanned(row);
             } finally {
                 if (TAP_NEXT_ENABLED) {
                     TAP_NEXT.out();
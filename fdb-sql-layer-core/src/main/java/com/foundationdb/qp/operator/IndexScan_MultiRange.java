@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.operator;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Index;
+import com.foundationdb.ais.model.IndexColumn;
+import com.foundationdb.ais.model.Table;
+import com.foundationdb.qp.expression.IndexKeyRange;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.rowtype.IndexRowType;
+import com.foundationdb.server.explain.*;
+import com.foundationdb.util.ArgumentValidation;
+import com.foundationdb.util.tap.InOutTap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+
+ <h1>Overview</h1>
+
+ IndexScan_MultiRange scans an index for each of a list of key
+ ranges, such as the points of a long IN list, as a single operator.
+
+ <h1>Arguments</h1>
+
+ <ul>
+
+ <li><b>IndexRowType indexType:</b> The index's type.
+
+ <li><b>List&lt;IndexKeyRange&gt; indexKeyRanges:</b> The ranges of
+ keys to be visited, in ascending order and not overlapping.
+
+ <li><b>Ordering ordering:</b> Indicates whether keys should be visited
+  in ascending order or descending order.
+
+ <li><b>IndexScanSelector scanSelector:</b> On a group index, specify which
+  tables must be present for OUTER JOIN semantics.
+
+ <li><b>int lookaheadQuantum:</b> Number of ranges to keep open ahead
+  of the one being read.
+
+ </ul>
+
+ <h1>Behavior</h1>
+
+ Each range is scanned as by IndexScan_Default. Up to lookaheadQuantum
+ ranges are open at once, so that their reads are outstanding together
+ rather than one round trip after another. Ranges are visited in
+ order, or in reverse order if the ordering is descending on the
+ column in which the ranges differ.
+
+ <h1>Output</h1>
+
+ Output contains index rows. Each row has an hkey of the index's table.
+
+ <h1>Assumptions</h1>
+
+ The ranges are sorted and do not overlap.
+
+ <h1>Performance</h1>
+
+ IndexScan_MultiRange does one random access per range, up to
+ lookaheadQuantum of them concurrently.
+
+ <h1>Memory Requirements</h1>
+
+ One index cursor per open range.
+
+ */
+
+class IndexScan_MultiRange extends Operator
+{
+    // Object interface
+
+    @Override
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder(getClass().getSimpleName());
+        str.append("(").append(index);
+        str.append(" ").append(indexKeyRanges.size()).append(" ranges");
+        if (!ordering.allAscending()) {
+            str.append(" ").append(ordering);
+        }
+        str.append(scanSelector.describe());
+        str.append(")");
+        return str.toString();
+    }
+
+    // Operator interface
+
+    @Override
+    protected Cursor cursor(QueryContext context, QueryBindingsCursor bindingsCursor)
+    {
+        return new Execution(context, bindingsCursor);
+    }
+
+    // IndexScan_MultiRange interface
+
+    public IndexScan_MultiRange(IndexRowType indexType,
+                                List<IndexKeyRange> indexKeyRanges,
+                                API.Ordering ordering,
+                                IndexScanSelector scanSelector,
+                                int lookaheadQuantum)
+    {
+        ArgumentValidation.notNull("indexType", indexType);
+        ArgumentValidation.notEmpty("indexKeyRanges", indexKeyRanges);
+        this.indexType = indexType;
+        this.index = indexType.index();
+        this.ordering = ordering;
+        if (rangesDescending(indexKeyRanges, ordering)) {
+            List<IndexKeyRange> reversed = new ArrayList<>(indexKeyRanges);
+            Collections.reverse(reversed);
+            indexKeyRanges = reversed;
+        }
+        this.indexKeyRanges = indexKeyRanges;
+        this.scanSelector = scanSelector;
+        this.lookaheadQuantum = Math.max(lookaheadQuantum, 1);
+    }
+
+    // For use by this class
+
+    /** The ranges share their leading bound columns and differ in the last one,
+     * so they are visited in reverse when that column is descending. */
+    private static boolean rangesDescending(List<IndexKeyRange> indexKeyRanges, API.Ordering ordering)
+    {
+        int rangeColumn = indexKeyRanges.get(0).boundColumns() - 1;
+        return (rangeColumn >= 0) &&
+               (rangeColumn < ordering.sortColumns()) &&
+               !ordering.ascending(rangeColumn);
+    }
+
+    // Class state
+
+    private static final InOutTap TAP_OPEN = OPERATOR_TAP.createSubsidiaryTap("operator: IndexScan_MultiRange open");
+    private static final InOutTap TAP_NEXT = OPERATOR_TAP.createSubsidiaryTap("operator: IndexScan_MultiRange next");
+    private static final Logger LOG = LoggerFactory.getLogger(IndexScan_MultiRange.class);
+
+    // Object state
+
+    private final IndexRowType indexType;
+    private final Index index;
+    private final API.Ordering ordering;
+    private final List<IndexKeyRange> indexKeyRanges;
+    private final IndexScanSelector scanSelector;
+    private final int lookaheadQuantum;
+
+    @Override
+    public CompoundExplainer getExplainer(ExplainContext context)
+    {
+        Attributes atts = new Attributes();
+        atts.put(Label.NAME, PrimitiveExplainer.getInstance(getName()));
+        atts.put(Label.INDEX, indexType.getExplainer(context));
+        for (IndexColumn indexColumn : index.getAllColumns()) {
+            Column column = indexColumn.getColumn();
+            atts.put(Label.TABLE_SCHEMA, PrimitiveExplainer.getInstance(column.getTable().getName().getSchemaName()));
+            atts.put(Label.TABLE_NAME, PrimitiveExplainer.getInstance(column.getTable().getName().getTableName()));
+            atts.put(Label.COLUMN_NAME, PrimitiveExplainer.getInstance(column.getName()));
+        }
+        if (index.isGroupIndex())
+            atts.put(Label.INDEX_KIND, PrimitiveExplainer.getInstance("GROUP"));
+        atts.put(Label.SCAN_OPTION, PrimitiveExplainer.getInstance(indexKeyRanges.size() + " ranges"));
+        for (int i = 0; i < ordering.sortColumns(); i++) {
+            atts.put(Label.ORDERING, PrimitiveExplainer.getInstance(ordering.ascending(i) ? "ASC" : "DESC"));
+        }
+        atts.put(Label.PIPELINE, PrimitiveExplainer.getInstance(lookaheadQuantum));
+        if (context.hasExtraInfo(this))
+            atts.putAll(context.getExtraInfo(this).get()); 
+        return new CompoundExplainer(Type.SCAN_OPERATOR, atts);
+    }
+
+    // Inner classes
+
+    private class Execution extends LeafCursor
+    {
+        // Cursor interface
+
+        @Override
+        public void open()
+        {
+            TAP_OPEN.in();
+            try {
+                super.open();
+                first = opened = 0;
+                openAhead();
+            } finally {
+                TAP_OPEN.out();
+            }
+        }
+
+        @Override
+        public Row next()
+        {
+            if (TAP_NEXT_ENABLED) {
+                TAP_NEXT.in();
+            }
+            try {
+                if (CURSOR_LIFECYCLE_ENABLED) {
+                    CursorLifecycle.checkIdleOrActive(this);
+                }
+                checkQueryCancelation();
+                Row row = null;
+                while (first < opened) {
+                    int slot = first % cursors.length;
+                    row = cursors[slot].next();
+                    if (row != null) break;
+                    cursors[slot].close();
+                    cursors[slot] = null;
+                    first++;
+                    openAhead();
+                }
+                if (row == null) {
+                    setIdle();
+                }
+                if (LOG_EXECUTION) {
+                    LOG.debug("IndexScan_MultiRange$Execution: yield {}", row);
+                }
+                return countScanned(row);
+            } finally {
+                if (TAP_NEXT_ENABLED) {
+                    TAP_NEXT.out();
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                for (int i = 0; i < cursors.length; i++) {
+                    if (cursors[i] != null) {
+                        cursors[i].close();
+                        cursors[i] = null;
+                    }
+                }
+                first = opened = indexKeyRanges.size();
+            } finally {
+                super.close();
+            }
+        }
+
+        // Execution interface
+
+        Execution(QueryContext context, QueryBindingsCursor bindingsCursor)
+        {
+            super(context, bindingsCursor);
+            this.adapter = adapter(index.rootMostTable());
+            this.cursors = new RowCursor[Math.min(lookaheadQuantum, indexKeyRanges.size())];
+        }
+
+        // For use by this class
+
+        // Keep the window of open ranges full; each range's cursor
+        // starts its read when opened.
+        private void openAhead()
+        {
+            while ((opened < indexKeyRanges.size()) && (opened - first < cursors.length)) {
+                RowCursor cursor = adapter.newIndexCursor(context, indexType, indexKeyRanges.get(opened),
+                                                          ordering, scanSelector, false);
+                if (cursor instanceof BindingsAwareCursor) {
+                    ((BindingsAwareCursor)cursor).rebind(bindings);
+                }
+                cursor.open();
+                cursors[opened % cursors.length] = cursor;
+                opened++;
+            }
+        }
+
+        // Object state
+
+        private final StoreAdapter adapter;
+        private final RowCursor[] cursors;
+        // Ranges [first, opened) are open.
+        private int first, opened;
+    }
+}
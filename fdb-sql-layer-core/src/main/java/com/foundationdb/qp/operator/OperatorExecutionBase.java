@@ -20,6 +20,9 @@ package com.foundationdb.qp.operator;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.server.api.dml.ColumnSelector;
 import com.foundationdb.server.error.QueryCanceledException;
+import com.foundationdb.server.service.monitor.StatementResources;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *  Abstract implementation of RowCursor. 
@@ -93,11 +96,32 @@ public abstract class OperatorExecutionBase extends ExecutionBase implements Row
         }
     }
 
+    /**
+     * Count a row returned by an operator that reads from storage against
+     * the resources of the current statement.
+     */
+    protected Row countScanned(Row row)
+    {
+        if (row != null) {
+            if (rowsScanned == null) {
+                Class<?> operatorClass = getClass();
+                while (operatorClass.getEnclosingClass() != null) {
+                    operatorClass = operatorClass.getEnclosingClass();
+                }
+                rowsScanned = StatementResources.rowsScannedCounter(context.getSession(),
+                                                                    operatorClass.getSimpleName());
+            }
+            rowsScanned.incrementAndGet();
+        }
+        return row;
+    }
+
     protected OperatorExecutionBase(QueryContext context)
     {
         super(context);
     }
     
     protected CursorLifecycle.CursorState state = CursorLifecycle.CursorState.CLOSED;
+    private AtomicLong rowsScanned;
 
 }
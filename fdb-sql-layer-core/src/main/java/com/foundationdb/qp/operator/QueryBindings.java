@@ -93,6 +93,21 @@ public interface QueryBindings
      */
     public void setHashTable(int index, HashTable hashTable);
 
+    /**
+     * Gets the part of a group to scan bound to the given index.
+     * @param index the index to look up
+     * @return the group partition at that index
+     * @throws BindingNotSetException if the given index wasn't set
+     */
+    public GroupPartition getGroupPartition(int index);
+
+    /**
+     * Bind the part of a group to scan to the given index.
+     * @param index the index to set
+     * @param partition the group partition to assign
+     */
+    public void setGroupPartition(int index, GroupPartition partition);
+
     /**
      * Clear all bindings.
      */
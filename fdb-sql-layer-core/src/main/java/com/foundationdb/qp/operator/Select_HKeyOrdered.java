@@ -44,6 +44,7 @@ import java.util.Set;
  <li><b>Operator inputOperator:</b> Operator providing the input stream.
  <li><b>RowType predicateRowType:</b> Type of row to which the selection predicate is applied.
  <li><b>Expression predicate:</b> Selection predicate.
+ <li><b>SelectivityFeedback feedback:</b> Optional receiver of the observed selectivity, reported when the cursor is closed.
  
  <h1>Behavior</h1>
  
@@ -120,12 +121,19 @@ class Select_HKeyOrdered extends Operator
 
     // Select_HKeyOrdered interface
     public Select_HKeyOrdered(Operator inputOperator, RowType predicateRowType, TPreparedExpression pPredicate)
+    {
+        this(inputOperator, predicateRowType, pPredicate, null);
+    }
+
+    public Select_HKeyOrdered(Operator inputOperator, RowType predicateRowType, TPreparedExpression pPredicate,
+                              SelectivityFeedback feedback)
     {
         ArgumentValidation.notNull("predicateRowType", predicateRowType);
         this.inputOperator = inputOperator;
         this.predicateRowType = predicateRowType;
         this.groupScanInput = !(predicateRowType instanceof IndexRowType);
         this.pPredicate = pPredicate;
+        this.feedback = feedback;
         
         ArgumentValidation.notNull("predicate", pPredicate);
         if (pPredicate.resultType().typeClass() != AkBool.INSTANCE)
@@ -144,6 +152,7 @@ class Select_HKeyOrdered extends Operator
     private final RowType predicateRowType;
     private final boolean groupScanInput;
     private final TPreparedExpression pPredicate;
+    private final SelectivityFeedback feedback;
 
     @Override
     public CompoundExplainer getExplainer(ExplainContext context)
@@ -191,7 +200,9 @@ class Select_HKeyOrdered extends Operator
                     if (inputRow.rowType() == predicateRowType) {
                         pEvaluation.with(inputRow);
                         pEvaluation.evaluate();
+                        tested++;
                         if (pEvaluation.resultValue().getBoolean(false)) {
+                            passed++;
                             // New row of predicateRowType
                             if (groupScanInput) {
                                 selectedRow = inputRow;
@@ -228,6 +239,10 @@ class Select_HKeyOrdered extends Operator
         {
             super.close();
             selectedRow = null;
+            if ((feedback != null) && (tested > 0)) {
+                feedback.observed(tested, passed);
+            }
+            tested = passed = 0;
         }
 
         // Execution interface
@@ -242,5 +257,6 @@ class Select_HKeyOrdered extends Operator
 
         private Row selectedRow; // The last input row with type = predicateRowType.
         private final TEvaluatableExpression pEvaluation;
+        private long tested, passed; // Rows of predicateRowType evaluated / accepted since open.
     }
 }
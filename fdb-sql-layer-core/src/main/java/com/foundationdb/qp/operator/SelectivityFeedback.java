@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.operator;
+
+/** Receives the actual selectivity of a predicate seen during execution.
+ * @see API#select_HKeyOrdered(Operator, com.foundationdb.qp.rowtype.RowType, com.foundationdb.server.types.texpressions.TPreparedExpression, SelectivityFeedback)
+ */
+public interface SelectivityFeedback
+{
+    /** Called when a cursor is closed after evaluating the predicate
+     * against <code>tested</code> rows, of which <code>passed</code>
+     * were accepted. May be called concurrently from different sessions.
+     */
+    public void observed(long tested, long passed);
+}
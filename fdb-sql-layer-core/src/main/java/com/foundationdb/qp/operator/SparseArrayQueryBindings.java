@@ -168,6 +168,24 @@ public class SparseArrayQueryBindings implements QueryBindings
         bindings.set(index, hashTable);
     }
 
+    @Override
+    public GroupPartition getGroupPartition(int index) {
+        if (bindings.isDefined(index)) {
+            return (GroupPartition)bindings.get(index);
+        }
+        else if (parent != null) {
+            return parent.getGroupPartition(index);
+        }
+        else {
+            throw new BindingNotSetException(index);
+        }
+    }
+
+    @Override
+    public void setGroupPartition(int index, GroupPartition partition) {
+        bindings.set(index, partition);
+    }
+
     @Override
     public void clear() {
         bindings.clear();
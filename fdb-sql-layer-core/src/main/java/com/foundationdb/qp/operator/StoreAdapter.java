@@ -38,12 +38,20 @@ import com.foundationdb.server.store.Store;
 import com.foundationdb.util.tap.InOutTap;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class StoreAdapter
 {
     public abstract GroupCursor newGroupCursor(Group group);
 
+    /**
+     * Split <code>group</code> into <code>nPartitions</code> disjoint parts,
+     * which together cover all of it, for {@link GroupCursor#rebind(GroupPartition)}.
+     * Scans of different parts can proceed in parallel.
+     */
+    public abstract List<GroupPartition> partitionGroup(Group group, int nPartitions);
+
     public static final int COMMIT_FREQUENCY_PERIODICALLY = -2;
 
     public GroupCursor newDumpGroupCursor(Group group, int commitFrequency) {
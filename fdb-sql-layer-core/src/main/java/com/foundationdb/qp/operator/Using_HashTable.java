@@ -80,6 +80,18 @@ class Using_HashTable extends Operator
                            Operator joinedInput,
                            List<TComparison> tComparisons,
                            List<AkCollator> collators)
+    {
+        this(hashInput, hashedRowType, comparisonFields, tableBindingPosition, joinedInput, tComparisons, collators, false);
+    }
+
+    public Using_HashTable(Operator hashInput,
+                           RowType hashedRowType,
+                           List<TPreparedExpression> comparisonFields,
+                           int tableBindingPosition,
+                           Operator joinedInput,
+                           List<TComparison> tComparisons,
+                           List<AkCollator> collators,
+                           boolean deferred)
     {
         ArgumentValidation.notNull("hashInput", hashInput);
         ArgumentValidation.notNull("hashedRowType", hashedRowType);
@@ -95,7 +107,7 @@ class Using_HashTable extends Operator
         this.tComparisons = tComparisons;
         this.collators = collators;
         this.comparisonFields = comparisonFields;
-
+        this.deferred = deferred;
     }
 
 
@@ -114,6 +126,7 @@ class Using_HashTable extends Operator
     private final List<AkCollator> collators;
     private final List<TComparison> tComparisons;
     private final List<TPreparedExpression> comparisonFields;
+    private final boolean deferred;
 
 
     @Override
@@ -126,6 +139,8 @@ class Using_HashTable extends Operator
         for (TPreparedExpression field : comparisonFields) {
             atts.put(Label.EXPRESSIONS, field.getExplainer(context));
         }
+        if (deferred)
+            atts.put(Label.SCAN_OPTION, PrimitiveExplainer.getInstance("DEFERRED"));
         return new CompoundExplainer(Type.HASH_JOIN, atts);
     }
 
@@ -144,7 +159,20 @@ class Using_HashTable extends Operator
                 // Usually super.open called first, but needs to be done
                 // opposite order here to allow Using_HashFilter access
                 // to the filled HashTable in the bindings. 
-                HashTable hashTable = buildHashTable();
+                HashTable hashTable = createHashTable();
+                if (deferred) {
+                    // Only built if a lookup decides to use it.
+                    final QueryBindings loadBindings = bindings;
+                    hashTable.setLoader(new HashTable.Loader() {
+                            @Override
+                            public void load(HashTable hashTable) {
+                                loadHashTable(hashTable, loadBindings);
+                            }
+                        });
+                }
+                else {
+                    loadHashTable(hashTable, bindings);
+                }
                 bindings.setHashTable(tableBindingPosition, hashTable);
                 super.open();
             } finally {
@@ -195,21 +223,24 @@ class Using_HashTable extends Operator
 
         // For use by this class
 
-        private HashTable  buildHashTable() {
-            QueryBindingsCursor bindingsCursor = new SingletonQueryBindingsCursor(bindings);
-            Cursor loadCursor = hashInput.cursor(context, bindingsCursor);
-            loadCursor.openTopLevel();
-            Row row;
+        private HashTable createHashTable() {
             HashTable hashTable= new HashTable();
             hashTable.setRowType(hashedRowType);
             hashTable.setTComparisons(tComparisons);
             hashTable.setCollators(collators);
+            return hashTable;
+        }
+
+        private void loadHashTable(HashTable hashTable, QueryBindings bindings) {
+            QueryBindingsCursor bindingsCursor = new SingletonQueryBindingsCursor(bindings);
+            Cursor loadCursor = hashInput.cursor(context, bindingsCursor);
+            loadCursor.openTopLevel();
+            Row row;
             while ((row = loadCursor.next()) != null) {
                 assert(row.rowType() == hashedRowType) : row;
                 hashTable.put(row, evaluatableComparisonFields, bindings);
             }
             loadCursor.closeTopLevel();
-            return hashTable;
         }
      }
 }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.row;
+
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.server.types.value.ValueSource;
+
+/**
+ * A row over some stored encoding that only decodes the fields that are
+ * actually accessed, each at most once. Plans that read a couple of columns
+ * of a wide table never pay to decode the rest.
+ */
+public abstract class LazyRow extends AbstractRow
+{
+    private final RowType rowType;
+    private final ValueSource[] values;
+
+    protected LazyRow(RowType rowType) {
+        this.rowType = rowType;
+        this.values = new ValueSource[rowType.nFields()];
+    }
+
+    /** Decode the given field from the underlying encoding. */
+    protected abstract ValueSource decodeValue(int i);
+
+    @Override
+    public RowType rowType() {
+        return rowType;
+    }
+
+    @Override
+    public HKey hKey() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected ValueSource uncheckedValue(int i) {
+        ValueSource value = values[i];
+        if (value == null) {
+            value = decodeValue(i);
+            values[i] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isBindingsSensitive() {
+        return false;
+    }
+}
@@ -24,6 +24,7 @@ import com.foundationdb.ais.model.Sequence;
 import com.foundationdb.ais.model.TableIndex;
 import com.foundationdb.qp.expression.IndexKeyRange;
 import com.foundationdb.qp.operator.API;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.IndexScanSelector;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
@@ -57,6 +58,7 @@ import com.foundationdb.FDBException;
 
 import java.io.InterruptedIOException;
 import java.util.Collection;
+import java.util.List;
 
 public class FDBAdapter extends StoreAdapter {
     private static final IndexRowPool indexRowPool = new IndexRowPool();
@@ -75,6 +77,11 @@ public class FDBAdapter extends StoreAdapter {
         return new FDBGroupCursor(this, group, scanOptions());
     }
 
+    @Override
+    public List<GroupPartition> partitionGroup(Group group, int nPartitions) {
+        return store.partitionGroup(getSession(), group, nPartitions);
+    }
+
     /** The transaction scan options for normal operator scans. */
     public FDBScanTransactionOptions scanOptions() {
         if (txnService.isTransactionActive(getSession()))
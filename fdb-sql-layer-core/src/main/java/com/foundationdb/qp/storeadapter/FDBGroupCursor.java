@@ -19,6 +19,7 @@ package com.foundationdb.qp.storeadapter;
 import com.foundationdb.ais.model.Group;
 import com.foundationdb.qp.operator.CursorLifecycle;
 import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.RowCursorImpl;
 import com.foundationdb.qp.row.HKey;
 import com.foundationdb.qp.row.Row;
@@ -34,6 +35,7 @@ public class FDBGroupCursor extends RowCursorImpl implements GroupCursor {
     private final FDBStoreData storeData;
     private final Schema schema;
     private final FDBScanTransactionOptions transactionOptions;
+    private GroupPartition partition;
     private HKey hKey;
     private boolean hKeyDeep;
     private GroupScan groupScan;
@@ -53,13 +55,26 @@ public class FDBGroupCursor extends RowCursorImpl implements GroupCursor {
         CursorLifecycle.checkClosed(this);
         this.hKey = hKey;
         this.hKeyDeep = deep;
+        this.partition = null;
+    }
+
+    @Override
+    public void rebind(GroupPartition partition) {
+        CursorLifecycle.checkClosed(this);
+        this.hKey = null;
+        this.partition = partition;
     }
 
     @Override
     public void open() {
         super.open();
         if (hKey == null) {
-            groupScan = new FullScan();
+            if ((partition != null) && !partition.isWhole()) {
+                groupScan = new PartitionScan(partition);
+            }
+            else {
+                groupScan = new FullScan();
+            }
         }
         else if (hKeyDeep) {
             groupScan = new HKeyAndDescendantScan(hKey);
@@ -106,6 +121,13 @@ public class FDBGroupCursor extends RowCursorImpl implements GroupCursor {
         }
     }
 
+    private class PartitionScan extends GroupScan {
+        public PartitionScan(GroupPartition partition) {
+            adapter.getUnderlyingStore().groupPartitionIterator(adapter.getSession(), storeData,
+                                                                partition, transactionOptions);
+        }
+    }
+
     private class HKeyAndDescendantScan extends GroupScan {
         public HKeyAndDescendantScan(HKey hKey) {
             hKey.copyTo(storeData.persistitKey.clear());
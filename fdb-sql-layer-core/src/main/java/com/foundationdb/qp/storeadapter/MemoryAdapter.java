@@ -26,6 +26,7 @@ import com.foundationdb.qp.expression.IndexKeyRange;
 import com.foundationdb.qp.operator.API.Ordering;
 import com.foundationdb.qp.operator.API.SortOption;
 import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.IndexScanSelector;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
@@ -47,6 +48,7 @@ import com.foundationdb.server.store.MemoryStore;
 import com.foundationdb.util.tap.InOutTap;
 
 import java.util.Collection;
+import java.util.List;
 
 public class MemoryAdapter extends StoreAdapter
 {
@@ -65,6 +67,12 @@ public class MemoryAdapter extends StoreAdapter
         return new MemoryGroupCursor(this, group);
     }
 
+    /** The whole group is in the first partition. */
+    @Override
+    public List<GroupPartition> partitionGroup(Group group, int nPartitions) {
+        return GroupPartition.wholeInFirst(nPartitions);
+    }
+
     @Override
     public RowCursor newIndexCursor(QueryContext context,
                                     IndexRowType rowType,
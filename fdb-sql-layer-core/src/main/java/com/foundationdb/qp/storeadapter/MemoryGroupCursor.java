@@ -20,6 +20,7 @@ package com.foundationdb.qp.storeadapter;
 import com.foundationdb.ais.model.Group;
 import com.foundationdb.qp.operator.CursorLifecycle;
 import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.RowCursorImpl;
 import com.foundationdb.qp.row.HKey;
 import com.foundationdb.qp.row.Row;
@@ -32,6 +33,7 @@ public class MemoryGroupCursor extends RowCursorImpl implements GroupCursor
     private final MemoryAdapter adapter;
     private final MemoryStoreData storeData;
     private final Schema schema;
+    private GroupPartition partition;
     private HKey hKey;
     private boolean hKeyDeep;
     private GroupScan groupScan;
@@ -47,7 +49,7 @@ public class MemoryGroupCursor extends RowCursorImpl implements GroupCursor
     public void open() {
         super.open();
         if(hKey == null) {
-            groupScan = new FullScan();
+            groupScan = ((partition != null) && partition.isEmpty()) ? new EmptyScan() : new FullScan();
         } else if(hKeyDeep) {
             groupScan = new HKeyAndDescendantScan(hKey);
         } else {
@@ -82,6 +84,15 @@ public class MemoryGroupCursor extends RowCursorImpl implements GroupCursor
         CursorLifecycle.checkClosed(this);
         this.hKey = hKey;
         this.hKeyDeep = deep;
+        this.partition = null;
+    }
+
+    /** Only ever the whole group or nothing, from {@link MemoryAdapter#partitionGroup}. */
+    @Override
+    public void rebind(GroupPartition partition) {
+        CursorLifecycle.checkClosed(this);
+        this.hKey = null;
+        this.partition = partition;
     }
 
     //
@@ -103,6 +114,14 @@ public class MemoryGroupCursor extends RowCursorImpl implements GroupCursor
         }
     }
 
+    private class EmptyScan extends GroupScan
+    {
+        @Override
+        public void advance() {
+            setIdle();
+        }
+    }
+
     private class HKeyAndDescendantScan extends GroupScan
     {
         public HKeyAndDescendantScan(HKey hKey) {
@@ -45,6 +45,7 @@ import com.foundationdb.server.PersistitValueValueTarget;
 import com.foundationdb.server.collation.AkCollator;
 import com.foundationdb.server.error.MergeSortIOException;
 import com.foundationdb.server.error.StorageKeySizeExceededException;
+import com.foundationdb.server.service.monitor.StatementResources;
 import com.foundationdb.server.types.TInstance;
 import com.foundationdb.server.types.common.types.TString;
 import com.foundationdb.server.types.value.ValueSource;
@@ -112,6 +113,8 @@ public class MergeJoinSorter implements Sorter {
     private Key sortKey;
     private Comparator<SortKey> compare;
     private API.SortOption sortOption;
+    private StatementResources resources;
+    private long maxMemory;
     
     public MergeJoinSorter (QueryContext context,
             QueryBindings bindings,
@@ -128,6 +131,7 @@ public class MergeJoinSorter implements Sorter {
         this.ordering = ordering.copy();
         this.loadTap = loadTap;
         this.sortOption = sortOption;
+        this.resources = StatementResources.forSession(context.getSession());
         
         this.sortKey = context.getStore().getKeyCreator().createKey(); 
         this.sorterAdapter = new ValueSorterAdapter();
@@ -184,7 +188,7 @@ public class MergeJoinSorter implements Sorter {
     }
     
     private SortConfig getSortConfig (MergeTempFileProvider tmpFileProvider) {
-        long maxMemory = Long.parseLong(context.getServiceManager().getConfigurationService().getProperty("fdbsql.sort.memory"));
+        maxMemory = Long.parseLong(context.getServiceManager().getConfigurationService().getProperty("fdbsql.sort.memory"));
         return new SortConfig().withTempFileProvider(tmpFileProvider).withMaxMemoryUsage(maxMemory);
     }
     /*
@@ -322,6 +326,7 @@ public class MergeJoinSorter implements Sorter {
         private AkCollator collators[];
         private PersistitValueValueTarget valueTarget;
         private RowCursor input;
+        private long loadedBytes;
         boolean done = false;
         
         public KeyReadCursor (RowCursor input) {
@@ -363,8 +368,13 @@ public class MergeJoinSorter implements Sorter {
                 if (row != null) {
                     ++rowCount;
                     sortKey = new SortKey (createKey(row, rowCount), createValue(row));
+                    loadedBytes += sortKey.getSize();
                 } else {
                     done = true;
+                    if (resources != null) {
+                        // Presort buffer holds at most maxMemory before spilling.
+                        resources.memoryUsed(Math.min(loadedBytes, maxMemory));
+                    }
                 }
             } finally {
                 loadTap.out();
@@ -480,16 +490,22 @@ public class MergeJoinSorter implements Sorter {
         @Override
         public DataWriter<SortKey> constructWriter(OutputStream arg0)
                 throws IOException {
-            return new KeyWriter(arg0);
+            return new KeyWriter(arg0, resources);
         }
     }
     
     public static class KeyWriter extends DataWriter<SortKey> {
         private OutputStream os;
         private ByteBuffer length;
+        private final StatementResources resources;
 
         public KeyWriter(OutputStream os) {
+            this(os, null);
+        }
+
+        public KeyWriter(OutputStream os, StatementResources resources) {
             this.os = os;
+            this.resources = resources;
             length = ByteBuffer.allocate(4);
         }
         @Override
@@ -505,6 +521,9 @@ public class MergeJoinSorter implements Sorter {
                 writeKeyState (state);
             }
             writeKey (arg0.rowValue);
+            if (resources != null) {
+                resources.sortSpilled(arg0.getSize());
+            }
         }
         
         private void writeKeyState (KeyState state) throws IOException {
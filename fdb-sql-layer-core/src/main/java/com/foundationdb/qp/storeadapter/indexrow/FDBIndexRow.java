@@ -262,7 +262,10 @@ public class FDBIndexRow extends IndexRow {
     @Override
     public void copyFrom(Key key, Value value) {
         key.copyTo(iKey);
-        if (value != null && value.isDefined() && !value.isNull()) {
+        if (index.getValueColumnCount() > 0) {
+            // Included columns are stored in the value as further key fields.
+            PersistitKey.appendEncodedFields(iKey, value.getEncodedBytes(), value.getEncodedSize(), index.getIndexName());
+        } else if (value != null && value.isDefined() && !value.isNull()) {
             tableBitmap = value.getLong();
         }
         leafTableHKey = ancestorHKey(index.leafMostTable());
@@ -35,14 +35,22 @@ import java.util.Collections;
 import java.util.List;
 
 public class HashTable {
+    /** Fills a table that is only built if actually used. */
+    public interface Loader {
+        public void load(HashTable hashTable);
+    }
+
     private ArrayListMultimap<KeyWrapper, Row> hashTable = ArrayListMultimap.create();
 
     private RowType hashedRowType;
     private List<TComparison> tComparisons;
     private List<AkCollator> collators;
     private boolean matchNulls;
+    private Loader loader;
+    private long deferredLookups;
 
     public List<Row> getMatchingRows(Row row, List<TEvaluatableExpression> evaluatableComparisonFields, QueryBindings bindings){
+        ensureLoaded();
         KeyWrapper key = new KeyWrapper(row, evaluatableComparisonFields, bindings);
         if (!matchNulls && key.isNull())
             return Collections.emptyList();
@@ -74,6 +82,28 @@ public class HashTable {
         this.matchNulls = matchNulls;
     }
 
+    /** Defer filling the table until it is first needed. */
+    public void setLoader(Loader loader) {
+        this.loader = loader;
+    }
+
+    public boolean isLoaded() {
+        return (loader == null);
+    }
+
+    public void ensureLoaded() {
+        if (loader != null) {
+            Loader load = loader;
+            loader = null;
+            load.load(this);
+        }
+    }
+
+    /** Count a lookup that was answered some other way while not loaded. */
+    public long incrementDeferredLookups() {
+        return ++deferredLookups;
+    }
+
     public class KeyWrapper implements Comparable<KeyWrapper> {
         List<ValueSource> values = new ArrayList<>();
         int hashKey = 0;
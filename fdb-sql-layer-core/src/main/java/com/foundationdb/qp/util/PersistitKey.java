@@ -20,6 +20,8 @@ package com.foundationdb.qp.util;
 import com.foundationdb.server.error.StorageKeySizeExceededException;
 import com.persistit.Key;
 
+import java.util.Arrays;
+
 public class PersistitKey
 {
     public static void appendFieldFromKey(Key targetKey, Key sourceKey, int sourceDepth, Object descForError)
@@ -38,4 +40,28 @@ public class PersistitKey
             targetKey.setEncodedSize(newSize);
         }
     }
+
+    /**
+     * Remove the last <code>fields</code> fields from <code>key</code> and return their encoded
+     * bytes, which {@link #appendEncodedFields} puts back.
+     */
+    public static byte[] removeTrailingFields(Key key, int fields)
+    {
+        int size = key.getEncodedSize();
+        key.indexTo(key.getDepth() - fields);
+        int from = key.getIndex();
+        byte[] bytes = Arrays.copyOfRange(key.getEncodedBytes(), from, size);
+        key.setEncodedSize(from);
+        return bytes;
+    }
+
+    public static void appendEncodedFields(Key targetKey, byte[] bytes, int length, Object descForError)
+    {
+        int newSize = targetKey.getEncodedSize() + length;
+        if(newSize > targetKey.getMaximumSize()) {
+            throw new StorageKeySizeExceededException(targetKey.getMaximumSize(), String.valueOf(descForError));
+        }
+        System.arraycopy(bytes, 0, targetKey.getEncodedBytes(), targetKey.getEncodedSize(), length);
+        targetKey.setEncodedSize(newSize);
+    }
 }
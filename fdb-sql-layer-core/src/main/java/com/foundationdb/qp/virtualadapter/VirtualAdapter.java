@@ -25,6 +25,7 @@ import com.foundationdb.ais.model.Table;
 import com.foundationdb.ais.model.TableIndex;
 import com.foundationdb.qp.expression.IndexKeyRange;
 import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.IndexScanSelector;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
@@ -46,6 +47,7 @@ import com.foundationdb.server.store.format.VirtualTableStorageDescription;
 import com.foundationdb.util.tap.InOutTap;
 
 import java.util.Collection;
+import java.util.List;
 
 public class VirtualAdapter extends StoreAdapter {
 
@@ -71,6 +73,12 @@ public class VirtualAdapter extends StoreAdapter {
         return new VirtualGroupCursor(this, group);
     }
 
+    /** The whole group is in the first partition. */
+    @Override
+    public List<GroupPartition> partitionGroup(Group group, int nPartitions) {
+        return GroupPartition.wholeInFirst(nPartitions);
+    }
+
 
     @Override
     public AkibanInformationSchema getAIS() {
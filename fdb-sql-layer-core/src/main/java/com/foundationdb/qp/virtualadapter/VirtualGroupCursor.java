@@ -20,6 +20,7 @@ package com.foundationdb.qp.virtualadapter;
 import com.foundationdb.ais.model.Group;
 import com.foundationdb.qp.operator.CursorLifecycle;
 import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.operator.RowCursorImpl;
 import com.foundationdb.qp.row.HKey;
 import com.foundationdb.qp.row.Row;
@@ -31,16 +32,22 @@ public class VirtualGroupCursor extends RowCursorImpl implements GroupCursor {
         CursorLifecycle.checkIdle(this);
     }
 
+    @Override
+    public void rebind(GroupPartition partition) {
+        CursorLifecycle.checkClosed(this);
+        empty = partition.isEmpty();
+    }
+
     @Override
     public void open() {
         super.open();
-        scan = factory.getGroupScan(adapter, group);
+        scan = empty ? null : factory.getGroupScan(adapter, group);
     }
 
     @Override
     public Row next() {
         CursorLifecycle.checkIdleOrActive(this);
-        Row row = scan.next();
+        Row row = (scan == null) ? null : scan.next();
         if(row == null) {
             setIdle();
         }
@@ -51,8 +58,10 @@ public class VirtualGroupCursor extends RowCursorImpl implements GroupCursor {
     @Override
     public void close() {
         super.close();
-        scan.close();
-        scan = null;
+        if (scan != null) {
+            scan.close();
+            scan = null;
+        }
     }
 
 
@@ -82,4 +91,5 @@ public class VirtualGroupCursor extends RowCursorImpl implements GroupCursor {
     private final VirtualScanFactory factory;
     private GroupScan scan;
     private Group group;
+    private boolean empty;
 }
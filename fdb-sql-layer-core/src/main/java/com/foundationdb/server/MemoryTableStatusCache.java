@@ -112,7 +112,8 @@ public class MemoryTableStatusCache implements TableStatusCache
 
         @Override
         public void rowsWritten(Session session, long count) {
-            setRowCount(session, getRowCount(session) + count);
+            MemoryTransaction txn = txnService.getTransaction(session);
+            txn.addLong(statusKey, count);
         }
 
         @Override
@@ -237,7 +237,8 @@ public interface DDLFunctions {
     /**
      * Update statistics for the given table.
      * @param tableName the table whose statistics should be updated.
-     * @param indexesToUpdate specific indexes to update. If <code>null</code>, all indexes are analyzed.
+     * @param indexesToUpdate specific indexes to update. If <code>null</code>, all indexes are analyzed,
+     * along with other columns, if column statistics are enabled.
      */
     void updateTableStatistics(Session session, TableName tableName, Collection<String> indexesToUpdate);
 
@@ -19,19 +19,91 @@ package com.foundationdb.server.collation;
 
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
 import com.ibm.icu.text.Collator;
+import com.ibm.icu.text.RawCollationKey;
+import com.ibm.icu.text.RuleBasedCollator;
 import com.persistit.Key;
 import com.persistit.util.Util;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class AkCollatorICU extends AkCollator {
 
     private final CollationSpecifier collationSpecifier;
 
-    final ThreadLocal<Collator> collator = new ThreadLocal<Collator>() {
-        protected Collator initialValue() {
-            return AkCollatorFactory.forScheme(collationSpecifier);
+    /** Sort keys are only cached for strings up to this length. */
+    static final int SORT_KEY_CACHE_MAX_LENGTH = 32;
+    /** Number of sort keys each thread remembers. */
+    static final int SORT_KEY_CACHE_SIZE = 1024;
+
+    /**
+     * Everything a thread needs to collate without allocating: its own
+     * ICU Collator (which is not thread-safe), a reusable raw key buffer
+     * and a small LRU cache of sort keys for repeated short values.
+     */
+    static class PerThread {
+        final Collator collator;
+        final boolean caseInsensitive;
+        final boolean asciiCaseFolds;
+        final RawCollationKey rawKey = new RawCollationKey();
+        final Map<String,byte[]> sortKeys = new LinkedHashMap<String,byte[]>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,byte[]> eldest) {
+                return size() > SORT_KEY_CACHE_SIZE;
+            }
+        };
+        int cacheHits, cacheMisses;
+
+        PerThread(Collator collator) {
+            this.collator = collator;
+            // Case is tertiary, unless case level puts it right after primary (_cs_ai).
+            this.caseInsensitive = (collator.getStrength() <= Collator.SECONDARY) &&
+                !((collator instanceof RuleBasedCollator) && ((RuleBasedCollator)collator).isCaseLevel());
+            this.asciiCaseFolds = caseInsensitive && asciiLettersFold(collator);
+        }
+
+        /** Does every ASCII letter equal its upper case? Not so where
+         * case is tailored, as with the dotted and dotless i of tr and az.
+         */
+        static boolean asciiLettersFold(Collator collator) {
+            for (char c = 'a'; c <= 'z'; c++) {
+                if (collator.compare(String.valueOf(c), String.valueOf(Character.toUpperCase(c))) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Fill {@link #rawKey}, whose size includes the terminating null. */
+        RawCollationKey rawKey(String value) {
+            return collator.getRawCollationKey(value, rawKey);
+        }
+
+        byte[] sortKey(String value) {
+            boolean cacheable = value.length() <= SORT_KEY_CACHE_MAX_LENGTH;
+            if (cacheable) {
+                byte[] bytes = sortKeys.get(value);
+                if (bytes != null) {
+                    cacheHits++;
+                    return bytes;
+                }
+                cacheMisses++;
+            }
+            RawCollationKey key = rawKey(value);
+            byte[] bytes = Arrays.copyOf(key.bytes, key.size - 1); // Remove terminating null.
+            if (cacheable) {
+                sortKeys.put(value, bytes);
+            }
+            return bytes;
+        }
+    }
+
+    final ThreadLocal<PerThread> perThread = new ThreadLocal<PerThread>() {
+        protected PerThread initialValue() {
+            return new PerThread(AkCollatorFactory.forScheme(collationSpecifier));
         }
     };
 
@@ -49,7 +121,7 @@ public class AkCollatorICU extends AkCollator {
     AkCollatorICU(final String scheme, final int collationId) {
         super(scheme, collationId);
         collationSpecifier = new CollationSpecifier(scheme);
-        collator.get(); // force the collator to initialize (to test scheme)
+        perThread.get(); // force the collator to initialize (to test scheme)
     }
 
     @Override
@@ -57,23 +129,46 @@ public class AkCollatorICU extends AkCollator {
         return false;
     }
 
+    /** The calling thread's ICU collator. */
+    Collator collator() {
+        return perThread.get().collator;
+    }
+
     @Override
     public void append(Key key, String value) {
         if (value == null) {
             key.append(null);
         } else {
-            key.append(encodeSortKeyBytes(value));
+            key.append(perThread.get().sortKey(value));
         }
     }
 
     @Override
     public int compare(String source, String target) {
-        return collator.get().compare(source, target);
+        if (source.equals(target)) {
+            return 0;
+        }
+        PerThread local = perThread.get();
+        // Case is only a tertiary difference, so ASCII strings that differ
+        // in nothing else are equal at primary and secondary strength,
+        // unless the locale tailors the case of some ASCII letter.
+        if (local.asciiCaseFolds && isAscii(source) && isAscii(target) && source.equalsIgnoreCase(target)) {
+            return 0;
+        }
+        // Sort keys of repeated values are already to hand.
+        byte[] sourceKey = local.sortKeys.get(source);
+        if (sourceKey != null) {
+            byte[] targetKey = local.sortKeys.get(target);
+            if (targetKey != null) {
+                return UnsignedBytes.lexicographicalComparator().compare(sourceKey, targetKey);
+            }
+        }
+        return local.collator.compare(source, target);
     }
 
     @Override
     public boolean isCaseSensitive() {
-        return collator.get().getStrength() > Collator.SECONDARY;
+        return !perThread.get().caseInsensitive;
     }
 
     /**
@@ -81,12 +176,11 @@ public class AkCollatorICU extends AkCollator {
      * 
      * @param value
      *            the String
-     * @return sort key bytes
+     * @return sort key bytes, which may be shared and must not be modified
      */
     @Override
     public byte[] encodeSortKeyBytes(String value) {
-        byte[] bytes = collator.get().getCollationKey(value).toByteArray();
-        return Arrays.copyOf(bytes, bytes.length - 1); // Remove terminating null.
+        return perThread.get().sortKey(value);
     }
 
     /** Decode the value to a string of hex digits. */
@@ -99,9 +193,8 @@ public class AkCollatorICU extends AkCollator {
 
     @Override
     public int hashCode(String string) {
-        byte[] bytes = collator.get().getCollationKey(string).toByteArray();
-        bytes = Arrays.copyOfRange(bytes, 0, bytes.length-1); // remove null terminating character
-        return hashCode(bytes);
+        RawCollationKey key = perThread.get().rawKey(string);
+        return hashFunction.hashBytes(key.bytes, 0, key.size - 1).asInt(); // exclude null terminating character
     }
 
     @Override
@@ -119,5 +212,14 @@ public class AkCollatorICU extends AkCollator {
         return collationSpecifier.toString();
     }
 
+    static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static final HashFunction hashFunction = Hashing.goodFastHash(32); // Because we're returning ints
 }
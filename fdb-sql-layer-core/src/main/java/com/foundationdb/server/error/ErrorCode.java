@@ -265,7 +265,8 @@ public enum ErrorCode {
     FDB_COMMIT_UNKNOWN_RESULT ("40", "003", Importance.ERROR, FDBCommitUnknownResultException.class),
     FDB_PAST_VERSION        ("40", "004", Importance.ERROR, FDBPastVersionException.class),
     FDB_FUTURE_VERSION      ("40", "005", Importance.ERROR, FDBFutureVersionException.class),
-    //40006-A open
+    TRANSACTION_CONFLICT    ("40", "006", Importance.DEBUG, TransactionConflictException.class),
+    //40007-A open
     LOCK_TIMEOUT            ("40", "00B", Importance.DEBUG, LockTimeoutException.class),
 
     // Class 42 - syntax error or access rule violation
@@ -68,6 +68,7 @@ public enum Type
     BUFFER_OPERATOR(GeneralType.OPERATOR),
     HKEY_OPERATOR(GeneralType.OPERATOR),
     HASH_JOIN(GeneralType.OPERATOR),
+    EXCHANGE(GeneralType.OPERATOR),
     
     // PROCEDURE    
     //--------------------------------------------------------------------------
@@ -279,6 +279,9 @@ public class DefaultFormatter
         case HKEY_OPERATOR:
             appendHKeyOperator(name, atts);
             break;
+        case EXCHANGE:
+            appendExchangeOperator(name, atts);
+            break;
         default:
             throw new UnsupportedOperationException("Formatter does not recognize " + 
                                                     explainer.getType());
@@ -328,6 +331,16 @@ public class DefaultFormatter
                 }
             }
         }
+        else if (name.equals("IndexScan_MultiRange")) {
+            append(atts.getAttribute(Label.INDEX));
+            if (levelOfDetail != LevelOfDetail.BRIEF) {
+                sb.append(", ").append(atts.getValue(Label.SCAN_OPTION));
+                if ((Long)atts.getValue(Label.PIPELINE) != 1) {
+                    sb.append(", Pipelining ");
+                    sb.append((long)(atts.getValue(Label.PIPELINE)));
+                }
+            }
+        }
         else if (name.equals("ValuesScan_Default")) {
             if (levelOfDetail != LevelOfDetail.BRIEF) {
                 if (atts.containsKey(Label.EXPRESSIONS)) {
@@ -820,6 +833,21 @@ public class DefaultFormatter
         }
     }
 
+    protected void appendExchangeOperator(String name, Attributes atts) {
+        sb.append(atts.getValue(Label.PARALLELISM));
+        if (levelOfDetail != LevelOfDetail.BRIEF) {
+            if (atts.containsKey(Label.EXPRESSIONS)) {
+                sb.append(", MERGE ");
+                int i = 0;
+                for (Explainer ex : atts.get(Label.EXPRESSIONS)) {
+                    append(ex);
+                    sb.append(' ').append(atts.get(Label.ORDERING).get(i++).get()).append(", ");
+                }
+                sb.setLength(sb.length() - 2);
+            }
+        }
+    }
+
     protected void appendProcedure(CompoundExplainer explainer, int depth) {
         sb.append("CALL ");
         Attributes atts = explainer.get();
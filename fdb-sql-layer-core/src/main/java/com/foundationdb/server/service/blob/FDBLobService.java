@@ -18,6 +18,9 @@
 package com.foundationdb.server.service.blob;
 
 import com.foundationdb.Transaction;
+import com.foundationdb.blob.BlobChunkCache;
+import com.foundationdb.blob.BlobInputStream;
+import com.foundationdb.blob.BlobOutputStream;
 import com.foundationdb.blob.SQLBlob;
 import com.foundationdb.subspace.Subspace;
 import com.foundationdb.directory.DirectorySubspace;
@@ -29,6 +32,7 @@ import com.foundationdb.TransactionContext;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.service.Service;
 import com.foundationdb.server.service.ServiceManager;
+import com.foundationdb.server.service.config.ConfigurationService;
 import com.foundationdb.server.service.security.SecurityService;
 import com.foundationdb.server.service.transaction.TransactionService;
 import com.foundationdb.server.store.FDBHolder;
@@ -36,10 +40,20 @@ import com.foundationdb.server.store.FDBTransactionService;
 import com.foundationdb.tuple.Tuple2;
 import com.google.inject.Inject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 public class FDBLobService implements Service, LobService {
+    public static final String CACHE_SIZE_PROPERTY = "fdbsql.blob.cache_size";
+    public static final String CHUNK_SIZE_PROPERTY = "fdbsql.blob.chunk_size";
+    public static final String PREFETCH_PROPERTY = "fdbsql.blob.prefetch_chunks";
+
+    private static final Session.Key<Set<UUID>> MODIFIED_LOBS = Session.Key.named("MODIFIED_LOBS");
     private static byte[] LOB_EXISTS = {0x01};
     private DirectorySubspace lobDirectory;
     private FDBHolder fdbHolder;
@@ -47,6 +61,9 @@ public class FDBLobService implements Service, LobService {
     private final SecurityService securityService;
     private final ServiceManager serviceManager;
     private final String LOB_DIRECTORY = "lobs";
+    private BlobChunkCache chunkCache;
+    private int chunkSize;
+    private int prefetchChunks;
     
     @Inject
     public FDBLobService(ServiceManager serviceManager, SecurityService securityService) {
@@ -109,33 +126,63 @@ public class FDBLobService implements Service, LobService {
 
     @Override
     public byte[] readBlob(final Session session, final UUID lobId, final long offset, final int length) {
-        SQLBlob blob = openBlob(session, lobId);
-        byte[] res = blob.read(getTxc(session), offset, length).get();
-        return res != null ? res : new byte[]{};
+        long end = Math.min(sizeBlob(session, lobId), offset + length);
+        if (offset >= end) {
+            return new byte[]{};
+        }
+        return readFully(readBlobStream(session, lobId, offset), (int)(end - offset));
     }
 
     @Override
     public byte[] readBlob(final Session session, final UUID lobId) {
+        long size = sizeBlob(session, lobId);
+        if (size == 0) {
+            return null;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new LobContentException("Lob too large to return entire lob");
+        }
+        return readFully(readBlobStream(session, lobId, 0), (int)size);
+    }
+
+    @Override
+    public InputStream readBlobStream(final Session session, final UUID lobId, final long offset) {
         SQLBlob blob = openBlob(session, lobId);
-        return blob.read(getTxc(session)).get();
+        long size = blob.getSize(getTxc(session)).get();
+        return openStream(session, lobId, blob, offset, size);
     }
 
     @Override
     public void writeBlob(final Session session, final UUID lobId, final long offset, final byte[] data) {
         SQLBlob blob = openBlob(session, lobId);
         blob.write(getTxc(session), offset, data).get();
+        blobModified(session, lobId, blob);
     }
 
     @Override
     public void appendBlob(final Session session, final UUID lobId, final byte[] data) {
+        OutputStream output = appendBlobStream(session, lobId);
+        try {
+            output.write(data);
+            output.close();
+        } catch (IOException e) {
+            throw new LobContentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public OutputStream appendBlobStream(final Session session, final UUID lobId) {
         SQLBlob blob = openBlob(session, lobId);
-        blob.append(getTxc(session), data).get();
+        long size = blob.getSize(getTxc(session)).get();
+        blobModified(session, lobId, blob);
+        return new BlobOutputStream(blob, getTxc(session), size, chunkSize);
     }
 
     @Override
     public void truncateBlob(final Session session, final UUID lobId, final long size) {
         SQLBlob blob = openBlob(session, lobId);
         blob.truncate(getTxc(session), size).get();
+        blobModified(session, lobId, blob);
     }
 
     @Override
@@ -158,6 +205,51 @@ public class FDBLobService implements Service, LobService {
         }
     }
 
+    private InputStream openStream(Session session, UUID lobId, SQLBlob blob, long offset, long end) {
+        Transaction tr = getTxc(session);
+        // Chunks this transaction has written may yet be rolled back, so do not share them.
+        Set<UUID> modified = session.get(MODIFIED_LOBS);
+        if ((chunkCache == null) || ((modified != null) && modified.contains(lobId))) {
+            return new BlobInputStream(blob, tr, offset, end, chunkSize, prefetchChunks, null, null, 0);
+        }
+        long version = blob.getVersion(tr).get();
+        return new BlobInputStream(blob, tr, offset, end, chunkSize, prefetchChunks, chunkCache, lobId, version);
+    }
+
+    static byte[] readFully(InputStream stream, int length) {
+        byte[] result = new byte[length];
+        int pos = 0;
+        try {
+            while (pos < length) {
+                int n = stream.read(result, pos, length - pos);
+                if (n < 0) {
+                    break;
+                }
+                pos += n;
+            }
+            stream.close();
+        } catch (IOException e) {
+            throw new LobContentException(e.getMessage());
+        }
+        return (pos == length) ? result : Arrays.copyOf(result, pos);
+    }
+
+    private void blobModified(Session session, UUID lobId, SQLBlob blob) {
+        blob.updateVersion(getTxc(session));
+        Set<UUID> modified = session.get(MODIFIED_LOBS);
+        if (modified == null) {
+            modified = new HashSet<>();
+            session.put(MODIFIED_LOBS, modified);
+            transactionService.addCallback(session, TransactionService.CallbackType.END, new TransactionService.Callback() {
+                @Override
+                public void run(Session session, long timestamp) {
+                    session.remove(MODIFIED_LOBS);
+                }
+            });
+        }
+        modified.add(lobId);
+    }
+
     private SQLBlob openBlob(Session session, UUID lobId) {
         if(existsLob(session, lobId)) {
             return new SQLBlob(getLobSubspace(lobId));
@@ -184,10 +276,16 @@ public class FDBLobService implements Service, LobService {
             this.transactionService = (FDBTransactionService)ts;
         }
         this.lobDirectory = fdbHolder.getRootDirectory().createOrOpen(fdbHolder.getTransactionContext(), Arrays.asList(LOB_DIRECTORY)).get();
+        ConfigurationService config = serviceManager.getConfigurationService();
+        long cacheSize = Long.parseLong(config.getProperty(CACHE_SIZE_PROPERTY));
+        this.chunkCache = (cacheSize > 0) ? new BlobChunkCache(cacheSize) : null;
+        this.chunkSize = Integer.parseInt(config.getProperty(CHUNK_SIZE_PROPERTY));
+        this.prefetchChunks = Integer.parseInt(config.getProperty(PREFETCH_PROPERTY));
     }
 
     @Override
     public void stop() {
+        chunkCache = null;
     }
 
     @Override
@@ -114,7 +114,13 @@ public class LobRoutines {
         try {
             LobService ls = getLobService();
             ls.verifyAccessPermission(session, context, id);
-            output = ls.readBlob(session, id, offset, length);
+            long remaining = ls.sizeBlob(session, id) - offset;
+            if (remaining <= 0) {
+                output = new byte[0];
+            } else {
+                output = FDBLobService.readFully(ls.readBlobStream(session, id, offset),
+                                                 (int)Math.min(length, remaining));
+            }
             if (startedTransaction) {
                 txnService.commitTransaction(session);
             }
@@ -21,6 +21,8 @@ package com.foundationdb.server.service.blob;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.qp.operator.QueryContext;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.UUID;
 
 public interface LobService {
@@ -31,8 +33,12 @@ public interface LobService {
     public long sizeBlob(Session session, UUID lobId);
     public byte[] readBlob(Session session, UUID lobId, long offset, int length);
     public byte[] readBlob(Session session, UUID lobId);
+    /** Stream the contents from <code>offset</code> without materializing them. */
+    public InputStream readBlobStream(Session session, UUID lobId, long offset);
     public void writeBlob(Session session, UUID lobId, long offset, byte[] data);
     public void appendBlob(Session session, UUID lobId, byte[] data);
+    /** Stream data onto the end. Must be closed before the transaction commits. */
+    public OutputStream appendBlobStream(Session session, UUID lobId);
     public void truncateBlob(Session session, UUID lobId, long size);
     public void clearAllLobs(Session session);
     public void verifyAccessPermission(Session session, QueryContext context, UUID lobId);
@@ -808,6 +808,9 @@ public class BasicDDLFunctions implements DDLFunctions {
             }
         }
         indexStatisticsService.updateIndexStatistics(session, indexes);
+        if (indexesToUpdate == null) {
+            indexStatisticsService.updateColumnStatistics(session, table);
+        }
     }
 
     @Override
@@ -24,6 +24,7 @@ import com.foundationdb.qp.operator.QueryContext;
 import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.types.FormatOptions;
+import com.foundationdb.sql.server.ServerType;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -74,5 +75,16 @@ public interface ExternalDataService {
                                 Table toTable, List<Column> toColumns,
                                 long commitFrequency, int maxRetries,
                                 QueryContext context) throws IOException;
+
+    /**
+     * Load from a PostgreSQL binary <code>COPY</code> stream.
+     *
+     * @param toTypes The wire types of <code>toColumns</code>, which determine each field's binary encoding.
+     */
+    long loadTableFromPostgresBinary(Session session, InputStream inputStream, String encoding,
+                                     List<? extends ServerType> toTypes,
+                                     Table toTable, List<Column> toColumns,
+                                     long commitFrequency, int maxRetries,
+                                     QueryContext context) throws IOException;
     
 }
@@ -24,6 +24,7 @@ import com.foundationdb.ais.model.Table;
 import com.foundationdb.qp.virtualadapter.VirtualAdapter;
 import com.foundationdb.qp.operator.API;
 import com.foundationdb.qp.operator.Cursor;
+import com.foundationdb.qp.operator.ListQueryBindingsCursor;
 import com.foundationdb.qp.operator.Operator;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
@@ -41,10 +42,19 @@ import com.foundationdb.server.service.externaldata.JsonRowWriter.WriteTableRow;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.service.transaction.TransactionService;
 import com.foundationdb.server.store.Store;
+import com.foundationdb.server.types.ErrorHandlingMode;
 import com.foundationdb.server.types.FormatOptions;
+import com.foundationdb.server.types.TCast;
+import com.foundationdb.server.types.TExecutionContext;
+import com.foundationdb.server.types.TInstance;
 import com.foundationdb.server.types.common.types.TypesTranslator;
+import com.foundationdb.server.types.service.TypesRegistryService;
+import com.foundationdb.server.types.value.UnderlyingType;
+import com.foundationdb.server.types.value.Value;
 import com.foundationdb.server.types.value.ValueSource;
 import com.foundationdb.server.types.value.ValueSources;
+import com.foundationdb.sql.optimizer.rule.PipelineConfiguration;
+import com.foundationdb.sql.server.ServerType;
 import com.foundationdb.util.AkibanAppender;
 import com.google.inject.Inject;
 
@@ -58,12 +68,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static com.foundationdb.sql.server.ServerSessionBase.PIPELINE_PROPERTIES_PREFIX;
+
 public class ExternalDataServiceImpl implements ExternalDataService, Service {
     protected final ConfigurationService configService;
     protected final DXLService dxlService;
     protected final Store store;
     protected final TransactionService transactionService;
     protected final ServiceManager serviceManager;
+    protected int lookaheadQuantum = 1;
     
     private static final Logger logger = LoggerFactory.getLogger(ExternalDataServiceImpl.class);
 
@@ -112,6 +125,7 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
                             PrintWriter writer,
                             Table table,
                             List<List<Object>> keys,
+                            List<Column> keyColumns,
                             int depth,
                             boolean withTransaction,
                             Operator plan,
@@ -123,7 +137,6 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
                     return serviceManager;
                 }
             };
-        QueryBindings queryBindings = queryContext.createBindings();
         JsonRowWriter json = new JsonRowWriter(new TableRowTracker(table, depth));
         WriteTableRow rowWriter = new WriteTableRow();
         AkibanAppender appender = AkibanAppender.of(writer);
@@ -134,20 +147,41 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
                 transactionService.beginTransaction(session);
                 transaction = true;
             }
-            cursor = API.cursor(plan, queryContext, queryBindings);
             appender.append("[");
             boolean begun = false;
 
             if (keys == null) {
+                cursor = API.cursor(plan, queryContext, queryContext.createBindings());
                 begun = json.writeRows(cursor, appender, "\n", rowWriter, options);
             } else {
+                // Bind all the keys up front and run them through a
+                // single cursor, so that a plan that looks ahead can
+                // have several of them in flight at once.
+                List<QueryBindings> bindings = new ArrayList<>(keys.size());
                 for (List<Object> key : keys) {
+                    QueryBindings queryBindings = queryContext.createBindings();
                     for (int i = 0; i < key.size(); i++) {
-                        ValueSource value = ValueSources.fromObject(key.get(i));
+                        ValueSource value;
+                        if (keyColumns == null)
+                            value = ValueSources.fromObject(key.get(i));
+                        else
+                            value = keyValue(key.get(i), keyColumns.get(i).getType(), queryContext);
                         queryBindings.setValue(i, value);
                     }
-                    if (json.writeRows(cursor, appender, begun ? ",\n" : "\n", rowWriter, options))
-                        begun = true;
+                    bindings.add(queryBindings);
+                }
+                cursor = API.cursor(plan, queryContext, new ListQueryBindingsCursor(bindings));
+                cursor.openBindings();
+                for (int i = 0; i < bindings.size(); i++) {
+                    cursor.nextBindings();
+                    cursor.open();
+                    try {
+                        if (json.writeRowsFromOpenCursor(cursor, appender, begun ? ",\n" : "\n", rowWriter, options))
+                            begun = true;
+                    }
+                    finally {
+                        cursor.close();
+                    }
                 }
             }
 
@@ -158,13 +192,42 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
             }
         }
         finally {
-            if (cursor != null && !cursor.isClosed())
-                cursor.closeTopLevel();
+            if (cursor != null) {
+                if (!cursor.isClosed())
+                    cursor.close();
+                cursor.closeBindings();
+            }
             if (transaction)
                 transactionService.rollbackTransaction(session);
         }
     }
 
+    /** Convert a primary key value, which may have come in as a string, to
+     * the column's own type, as needed to build an hkey from it directly.
+     * A string that is not a valid value of that type is an error, rather
+     * than being cast to whatever part of it can be.
+     */
+    private ValueSource keyValue(Object object, TInstance type, QueryContext queryContext) {
+        if ((object instanceof String) &&
+            (TInstance.underlyingType(type) != UnderlyingType.STRING)) {
+            TCast cast = type.typeClass().castFromVarchar();
+            if (cast != null) {
+                TInstance stringType = getTypesTranslator().typeForString((String)object);
+                Value value = new Value(type);
+                cast.evaluate(new TExecutionContext(null,
+                                                    Collections.singletonList(stringType),
+                                                    type, queryContext,
+                                                    ErrorHandlingMode.ERROR,
+                                                    ErrorHandlingMode.ERROR,
+                                                    ErrorHandlingMode.ERROR),
+                              new Value(stringType, (String)object),
+                              value);
+                return value;
+            }
+        }
+        return ValueSources.fromObject(object);
+    }
+
     /* ExternalDataService */
 
     @Override
@@ -176,7 +239,7 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
         logger.debug("Writing all of {}", table);
         PlanGenerator generator = ais.getCachedValue(this, CACHED_PLAN_GENERATOR);
         Operator plan = generator.generateScanPlan(table);
-        dumpAsJson(session, writer, table, null, depth, withTransaction, plan, options);
+        dumpAsJson(session, writer, table, null, null, depth, withTransaction, plan, options);
     }
 
     @Override
@@ -188,8 +251,18 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
         Table table = getTable(ais, schemaName, tableName);
         logger.debug("Writing from {}: {}", table, keys);
         PlanGenerator generator = ais.getCachedValue(this, CACHED_PLAN_GENERATOR);
-        Operator plan = generator.generateBranchPlan(table);
-        dumpAsJson(session, writer, table, keys, depth, withTransaction, plan, options);
+        Operator plan = null;
+        List<Column> keyColumns = null;
+        if (!table.isVirtual()) {
+            // When the key gives the whole hkey, each branch is one range of the group.
+            plan = generator.generateBranchHKeyPlan(table, lookaheadQuantum);
+            keyColumns = table.getPrimaryKeyIncludingInternal().getColumns();
+        }
+        if (plan == null) {
+            plan = generator.generateBranchPlan(table);
+            keyColumns = null;
+        }
+        dumpAsJson(session, writer, table, keys, keyColumns, depth, withTransaction, plan, options);
     }
 
     @Override
@@ -202,7 +275,7 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
         logger.debug("Writing from {}: {}", table, scan);
         PlanGenerator generator = ais.getCachedValue(this, CACHED_PLAN_GENERATOR);
         Operator plan = generator.generateBranchPlan(table, scan, scanType);
-        dumpAsJson(session, writer, table, Collections.singletonList(Collections.emptyList()), depth, withTransaction, plan, options);
+        dumpAsJson(session, writer, table, Collections.singletonList(Collections.emptyList()), null, depth, withTransaction, plan, options);
     }
 
     @Override
@@ -234,6 +307,23 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
                                       commitFrequency, maxRetries);
     }
 
+    @Override
+    public long loadTableFromPostgresBinary(Session session, InputStream inputStream, 
+                                            String encoding, 
+                                            List<? extends ServerType> toTypes,
+                                            Table toTable, List<Column> toColumns,
+                                            long commitFrequency, int maxRetries,
+                                            QueryContext context) 
+            throws IOException {
+        PostgresBinaryRowReader reader = 
+            new PostgresBinaryRowReader(toTable, toColumns, toTypes,
+                                        inputStream, encoding, 
+                                        context, getTypesTranslator(),
+                                        serviceManager.getServiceByClass(TypesRegistryService.class));
+        return loadTableFromRowReader(session, inputStream, reader, 
+                                      commitFrequency, maxRetries);
+    }
+
     protected long loadTableFromRowReader(Session session, 
                                           InputStream inputStream, RowReader reader, 
                                           long commitFrequency, int maxRetries)
@@ -351,6 +441,8 @@ public class ExternalDataServiceImpl implements ExternalDataService, Service {
     
     @Override
     public void start() {
+        PipelineConfiguration pipeline = new PipelineConfiguration(configService.deriveProperties(PIPELINE_PROPERTIES_PREFIX));
+        lookaheadQuantum = pipeline.getGroupLookupLookaheadQuantum();
     }
 
     @Override
@@ -75,7 +75,13 @@ public class JsonRowWriter
             }
             if (rowDepth > maxDepth)
                 continue;
-            assert (rowDepth == depth+1);
+            if (rowDepth > depth+1) {
+                // An orphan, whose parent was not written: it cannot
+                // be nested under anything. This includes descendants of
+                // a requested row that does not itself exist.
+                logger.trace("Orphan row {}", row);
+                continue;
+            }
             depth = rowDepth;
             tracker.pushRowType();
             if (begun) {
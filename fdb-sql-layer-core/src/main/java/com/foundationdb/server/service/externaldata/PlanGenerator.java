@@ -33,6 +33,7 @@ public class PlanGenerator
     private Schema schema;
     private Map<Table,Operator> scanPlans = new HashMap<>();
     private Map<Table,Operator> branchPlans = new HashMap<>();
+    private Map<Table,Operator> branchHKeyPlans = new HashMap<>();
     private Map<Table,Operator> ancestorPlans = new HashMap<>();
 
     public PlanGenerator(AkibanInformationSchema ais) {
@@ -65,6 +66,18 @@ public class PlanGenerator
         return plan;
     }
 
+    /** Plan for getting a branch directly by hkey, or <code>null</code> if
+     * the primary key does not determine the hkey.
+     */
+    public synchronized Operator generateBranchHKeyPlan(Table table, int lookaheadQuantum) {
+        if (branchHKeyPlans.containsKey(table)) return branchHKeyPlans.get(table);
+
+        Operator plan = com.foundationdb.sql.optimizer.rule.PlanGenerator.generateBranchHKeyPlan(schema.ais(), table, lookaheadQuantum);
+
+        branchHKeyPlans.put(table, plan);
+        return plan;
+    }
+
     public Operator generateBranchPlan(Table table, Operator scan, RowType scanType) {
         // No caching possible.
         return com.foundationdb.sql.optimizer.rule.PlanGenerator.generateBranchPlan(table, scan, scanType);
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.externaldata;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Table;
+import com.foundationdb.qp.operator.QueryContext;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.error.ExternalRowReaderException;
+import com.foundationdb.server.types.TCast;
+import com.foundationdb.server.types.TClass;
+import com.foundationdb.server.types.TExecutionContext;
+import com.foundationdb.server.types.common.types.TypesTranslator;
+import com.foundationdb.server.types.service.TypesRegistryService;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.sql.server.ServerType;
+import com.foundationdb.sql.server.ServerValueDecoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+/** Read from a PostgreSQL binary <code>COPY</code> stream. Each field
+ * arrives in the binary wire encoding of its column's type and is
+ * decoded straight into the row, without going through text.
+ */
+public class PostgresBinaryRowReader extends RowReader
+{
+    public static final byte[] SIGNATURE = {
+        'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0
+    };
+    private static final int FLAG_OIDS = 1 << 16;
+
+    private final ServerType[] types;
+    private final boolean[] binary;
+    private final ServerValueDecoder decoder;
+    private final TypesRegistryService typesRegistryService;
+    private final QueryContext queryContext;
+    // Casts from the wire type, remembered per field since the wire
+    // type rarely changes from one row to the next.
+    private final TClass[] castSources;
+    private final TCast[] casts;
+    private final TExecutionContext[] castContexts;
+    private boolean headerRead, trailerRead;
+
+    public PostgresBinaryRowReader(Table table, List<Column> columns,
+                                   List<? extends ServerType> types,
+                                   InputStream inputStream, String encoding,
+                                   QueryContext queryContext, TypesTranslator typesTranslator,
+                                   TypesRegistryService typesRegistryService) {
+        super(table, columns, inputStream, encoding, null, 
+              queryContext, typesTranslator);
+        int nfields = columns.size();
+        this.types = types.toArray(new ServerType[nfields]);
+        this.binary = new boolean[nfields];
+        for (int i = 0; i < nfields; i++) {
+            // Types without a binary encoding of their own are sent as text.
+            binary[i] = (this.types[i].getBinaryEncoding() != ServerType.BinaryEncoding.NONE);
+        }
+        this.decoder = new ServerValueDecoder(typesTranslator, encoding);
+        this.typesRegistryService = typesRegistryService;
+        this.queryContext = queryContext;
+        this.castSources = new TClass[nfields];
+        this.casts = new TCast[nfields];
+        this.castContexts = new TExecutionContext[nfields];
+    }
+
+    @Override
+    public Row nextRow() throws IOException {
+        if (!headerRead) {
+            readHeader();
+            headerRead = true;
+        }
+        if (trailerRead) {
+            return null;
+        }
+        int b = read();
+        if (b < 0) {
+            // Be lenient about a missing trailer.
+            return null;
+        }
+        int nfields = (short)((b << 8) | readByte());
+        if (nfields == -1) {
+            trailerRead = true;
+            return null;
+        }
+        if (nfields != types.length) {
+            throw new ExternalRowReaderException("Row has " + nfields + 
+                                                 " fields, expected " + types.length);
+        }
+        newRow();
+        for (int i = 0; i < nfields; i++) {
+            Value target = nextFieldValue();
+            int length = readInt();
+            if (length < 0) {
+                target.putNull();
+            }
+            else {
+                byte[] encoded = new byte[length];
+                readFully(encoded);
+                decodeField(i, encoded, target);
+            }
+        }
+        return finishRow();
+    }
+
+    protected void readHeader() throws IOException {
+        byte[] signature = new byte[SIGNATURE.length];
+        readFully(signature);
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (signature[i] != SIGNATURE[i]) {
+                throw new ExternalRowReaderException("Missing binary COPY signature");
+            }
+        }
+        int flags = readInt();
+        if ((flags & FLAG_OIDS) != 0) {
+            throw new ExternalRowReaderException("Binary COPY WITH OIDS not supported");
+        }
+        int extension = readInt();
+        while (extension-- > 0) {
+            readByte();
+        }
+    }
+
+    protected void decodeField(int fieldIndex, byte[] encoded, Value target) {
+        ValueSource source = decoder.decodeSource(encoded, types[fieldIndex], binary[fieldIndex]);
+        TClass sourceClass = source.getType().typeClass();
+        if (sourceClass != castSources[fieldIndex]) {
+            castSources[fieldIndex] = sourceClass;
+            casts[fieldIndex] = typesRegistryService.getCastsResolver()
+                .cast(source.getType(), target.getType());
+            castContexts[fieldIndex] = 
+                new TExecutionContext(Collections.singletonList(source.getType()),
+                                      target.getType(),
+                                      queryContext);
+        }
+        casts[fieldIndex].evaluate(castContexts[fieldIndex], source, target);
+    }
+
+    private int readByte() throws IOException {
+        int b = read();
+        if (b < 0) {
+            throw new ExternalRowReaderException("Unexpected end of binary COPY data");
+        }
+        return b;
+    }
+
+    private int readInt() throws IOException {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            int nb = read(bytes, off, bytes.length - off);
+            if (nb < 0) {
+                throw new ExternalRowReaderException("Unexpected end of binary COPY data");
+            }
+            off += nb;
+        }
+    }
+
+}
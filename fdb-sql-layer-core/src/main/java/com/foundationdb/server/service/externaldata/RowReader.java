@@ -214,6 +214,25 @@ public abstract class RowReader
         }
     }
     
+    protected int read(byte[] b, int off, int len) throws IOException {
+        while (true) {
+            if (fileAvail > 0) {
+                int nb = Math.min(fileAvail, len);
+                System.arraycopy(fileBuffer, fileIndex, b, off, nb);
+                fileIndex += nb;
+                fileAvail -= nb;
+                return nb;
+            }
+            else if (fileAvail < 0) {
+                return -1;
+            }
+            else {
+                fileAvail = inputStream.read(fileBuffer);
+                fileIndex = 0;
+            }
+        }
+    }
+
     protected void unread(int b) {
         assert ((fileIndex > 0) && (b == (fileBuffer[fileIndex-1] & 0xFF)));
         fileAvail++;
@@ -245,6 +264,20 @@ public abstract class RowReader
         fieldLength = 0;
     }
 
+    /** Get the row value for the current field, which the caller
+     * fills in already decoded, and advance to the next field.
+     */
+    protected Value nextFieldValue() {
+        Value value = row.valueAt(fieldColumns[fieldIndex]);
+        fieldIndex++;
+        fieldLength = 0;
+        return value;
+    }
+
+    protected int fieldCount() {
+        return fieldColumns.length;
+    }
+
     protected void clearField() {
         fieldLength = 0;
     }
@@ -21,10 +21,14 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 
 import com.foundationdb.ais.model.AkibanInformationSchema;
@@ -50,6 +54,7 @@ import com.foundationdb.server.service.monitor.MonitorStage;
 import com.foundationdb.server.service.monitor.PreparedStatementMonitor;
 import com.foundationdb.server.service.monitor.ServerMonitor;
 import com.foundationdb.server.service.monitor.SessionMonitor;
+import com.foundationdb.server.service.monitor.StatementResources;
 import com.foundationdb.server.service.monitor.UserMonitor;
 import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
 import com.foundationdb.server.service.security.SecurityService;
@@ -83,6 +88,7 @@ public class ServerSchemaTablesServiceImpl
     static final TableName SERVER_PREPARED_STATEMENTS = new TableName (SCHEMA_NAME, "server_prepared_statements");
     static final TableName SERVER_CURSORS = new TableName (SCHEMA_NAME, "server_cursors");
     static final TableName SERVER_USERS = new TableName (SCHEMA_NAME, "server_users");
+    static final TableName SERVER_STATEMENT_RESOURCES = new TableName (SCHEMA_NAME, "server_statement_resources");
 
     private final MonitorService monitor;
     private final ConfigurationService configService;
@@ -154,6 +160,8 @@ public class ServerSchemaTablesServiceImpl
         attach (ais, SERVER_CURSORS, Cursors.class);
         //SERVER_USERS
         attach(ais, SERVER_USERS, Users.class);
+        //SERVER_STATEMENT_RESOURCES
+        attach(ais, SERVER_STATEMENT_RESOURCES, StatementResourcesFactory.class);
     }
 
     @Override
@@ -194,6 +202,26 @@ public class ServerSchemaTablesServiceImpl
         }
     }
     
+    /** Running statements in accessible sessions, followed by recently completed ones. */
+    protected List<StatementResources> getAccessibleStatementResources(Session session) {
+        List<StatementResources> result = new ArrayList<>();
+        Set<Integer> sessionIds = new HashSet<>();
+        for (SessionMonitor sm : getAccessibleSessions(session)) {
+            sessionIds.add(sm.getSessionId());
+            StatementResources resources = sm.getCurrentStatementResources();
+            if ((resources != null) && (resources.getEndTimeMillis() < 0)) {
+                result.add(resources);
+            }
+        }
+        boolean all = securityService.hasRestrictedAccess(session);
+        for (StatementResources resources : monitor.getRecentStatementResources()) {
+            if (all || sessionIds.contains(resources.getSessionId())) {
+                result.add(resources);
+            }
+        }
+        return result;
+    }
+
     private class InstanceSummary extends BasicFactoryBase {
 
         public InstanceSummary(TableName sourceTable) {
@@ -646,6 +674,49 @@ public class ServerSchemaTablesServiceImpl
         }
     }
     
+    private class StatementResourcesFactory extends BasicFactoryBase {
+        public StatementResourcesFactory(TableName sourceTable) {
+            super(sourceTable);
+        }
+
+        @Override
+        public GroupScan getGroupScan(VirtualAdapter adapter, Group group) {
+            Iterator<StatementResources> statements = getAccessibleStatementResources(adapter.getSession()).iterator();
+            return new SimpleVirtualGroupScan<StatementResources>(group.getAIS(), getName(), statements) {
+                @Override
+                protected Object[] createRow(StatementResources data, int hiddenPk) {
+                    StringBuilder operators = new StringBuilder();
+                    for (Entry<String,Long> entry : data.getRowsScanned().entrySet()) {
+                        if (operators.length() > 0) operators.append(", ");
+                        operators.append(entry.getKey()).append('=').append(entry.getValue());
+                    }
+                    return new Object[] {
+                            (long)data.getSessionId(),
+                            data.getStatement(),
+                            data.getStartTimeMillis() > 0 ? data.getStartTimeMillis() / 1000 : null,
+                            data.getEndTimeMillis() > 0 ? data.getEndTimeMillis() / 1000 : null,
+                            data.getRowsProcessed() < 0 ? null : (long)data.getRowsProcessed(),
+                            data.getTotalRowsScanned(),
+                            operators.length() > 0 ? operators.toString() : null,
+                            data.getKeysRead(),
+                            data.getBytesRead(),
+                            data.getKeysWritten(),
+                            data.getBytesWritten(),
+                            data.getRetries(),
+                            data.getSortSpillBytes(),
+                            data.getPeakMemoryBytes(),
+                            hiddenPk
+                    };
+                }
+            };
+        }
+
+        @Override
+        public long rowCount(Session session) {
+            return monitor.getRecentStatementResources().size() + monitor.getSessionMonitors().size();
+        }
+    }
+
     static AkibanInformationSchema createTablesToRegister(TypesTranslator typesTranslator) {
         NewAISBuilder builder = AISBBasedBuilder.create(typesTranslator);
         
@@ -749,6 +820,22 @@ public class ServerSchemaTablesServiceImpl
         builder.table(SERVER_USERS)
             .colString("user_name", IDENT_MAX, false)
             .colBigInt("statement_count", false);
+
+        builder.table(SERVER_STATEMENT_RESOURCES)
+            .colBigInt("session_id", false)
+            .colString("statement", PATH_MAX, true)
+            .colSystemTimestamp("start_time", true)
+            .colSystemTimestamp("end_time", true)
+            .colBigInt("row_count", true)
+            .colBigInt("rows_scanned", false)
+            .colString("rows_scanned_by_operator", PATH_MAX, true)
+            .colBigInt("keys_read", false)
+            .colBigInt("bytes_read", false)
+            .colBigInt("keys_written", false)
+            .colBigInt("bytes_written", false)
+            .colBigInt("retries", false)
+            .colBigInt("sort_spill_bytes", false)
+            .colBigInt("peak_memory_bytes", false);
             
         return builder.ais(false);
     }
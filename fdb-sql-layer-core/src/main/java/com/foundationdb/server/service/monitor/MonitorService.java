@@ -78,6 +78,9 @@ public interface MonitorService {
 
     /** Get statisics counter for statement types */
     long getCount(StatementTypes type);
+
+    /** Get the resources used by recently completed statements, oldest first. */
+    Collection<StatementResources> getRecentStatementResources();
     
 
     //
@@ -22,6 +22,7 @@ import com.foundationdb.server.error.InvalidOperationException;
 import com.foundationdb.server.error.QueryLogCloseException;
 import com.foundationdb.server.service.Service;
 import com.foundationdb.server.service.config.ConfigurationService;
+import com.foundationdb.server.service.jmx.JmxManageable;
 import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
 import com.foundationdb.server.service.session.Session;
 import com.google.inject.Inject;
@@ -29,22 +30,33 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-public class MonitorServiceImpl implements Service, MonitorService, SessionEventListener
+public class MonitorServiceImpl implements Service, MonitorService, SessionEventListener, JmxManageable
 {
     private static final String QUERY_LOG_PROPERTY = "fdbsql.querylog.enabled";
     private static final String QUERY_LOG_FILE_PROPERTY = "fdbsql.querylog.filename";
     private static final String QUERY_LOG_THRESHOLD = "fdbsql.querylog.exec_threshold_ms";
+    private static final String QUERY_LOG_FORMAT_PROPERTY = "fdbsql.querylog.format";
+    private static final String QUERY_LOG_BUFFER_SIZE_PROPERTY = "fdbsql.querylog.buffer_size";
+    private static final String QUERY_LOG_FLUSH_INTERVAL_PROPERTY = "fdbsql.querylog.flush_interval_ms";
+    private static final String QUERY_LOG_SAMPLE_RATE_PROPERTY = "fdbsql.querylog.sample_rate";
+    private static final String QUERY_LOG_USER_RATE_LIMIT_PROPERTY = "fdbsql.querylog.user_rate_limit";
+    private static final String QUERY_LOG_MAX_FILE_SIZE_PROPERTY = "fdbsql.querylog.max_file_size";
+    private static final String QUERY_LOG_MAX_FILES_PROPERTY = "fdbsql.querylog.max_files";
+    private static final String RECENT_STATEMENTS_PROPERTY = "fdbsql.monitor.recent_statements";
 
     private static final ErrorCode[] SLOW_ERRORS = {
         ErrorCode.FDB_PAST_VERSION, ErrorCode.QUERY_TIMEOUT
@@ -65,11 +77,25 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
     private volatile String queryLogFileName;
     private volatile boolean isQueryLogEnabled;
     private volatile long queryLogThresholdMillis;
-    private BufferedWriter queryLogWriter;
+    private volatile QueryLogWriter queryLogWriter;
+    private QueryLogWriter.Format queryLogFormat;
+    private int queryLogBufferSize;
+    private long queryLogFlushIntervalMillis;
+    private volatile double queryLogSampleRate;
+    private volatile int queryLogUserRateLimit;
+    private ConcurrentMap<String,RateLimit> queryLogUserRates;
+    private long queryLogMaxFileSize;
+    private int queryLogMaxFiles;
     
     private Map<String, UserMonitor> users;
 
     private AtomicLong[] statementCounter;
+
+    private int recentStatementsLimit;
+    private Deque<StatementResources> recentStatements;
+    private AtomicInteger recentStatementsSize;
+    private AtomicLong keysRead, bytesRead, keysWritten, bytesWritten;
+    private AtomicLong retries, sortSpillBytes;
     
     @Inject
     public MonitorServiceImpl(ConfigurationService config) {
@@ -92,9 +118,27 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
         sessions = new ConcurrentHashMap<>();
         users = new ConcurrentHashMap<>();
 
+        recentStatementsLimit = Integer.parseInt(config.getProperty(RECENT_STATEMENTS_PROPERTY));
+        recentStatements = new ConcurrentLinkedDeque<>();
+        recentStatementsSize = new AtomicInteger();
+        keysRead = new AtomicLong();
+        bytesRead = new AtomicLong();
+        keysWritten = new AtomicLong();
+        bytesWritten = new AtomicLong();
+        retries = new AtomicLong();
+        sortSpillBytes = new AtomicLong();
+
         this.isQueryLogEnabled = false;
         this.queryLogThresholdMillis = Integer.parseInt(config.getProperty(QUERY_LOG_THRESHOLD));
         this.queryLogFileName = config.getProperty(QUERY_LOG_FILE_PROPERTY);
+        this.queryLogFormat = QueryLogWriter.Format.valueOf(config.getProperty(QUERY_LOG_FORMAT_PROPERTY).toUpperCase());
+        this.queryLogBufferSize = Integer.parseInt(config.getProperty(QUERY_LOG_BUFFER_SIZE_PROPERTY));
+        this.queryLogFlushIntervalMillis = Long.parseLong(config.getProperty(QUERY_LOG_FLUSH_INTERVAL_PROPERTY));
+        this.queryLogSampleRate = Double.parseDouble(config.getProperty(QUERY_LOG_SAMPLE_RATE_PROPERTY));
+        this.queryLogUserRateLimit = Integer.parseInt(config.getProperty(QUERY_LOG_USER_RATE_LIMIT_PROPERTY));
+        this.queryLogUserRates = new ConcurrentHashMap<>();
+        this.queryLogMaxFileSize = Long.parseLong(config.getProperty(QUERY_LOG_MAX_FILE_SIZE_PROPERTY));
+        this.queryLogMaxFiles = Integer.parseInt(config.getProperty(QUERY_LOG_MAX_FILES_PROPERTY));
         setQueryLogEnabled(Boolean.parseBoolean(config.getProperty(QUERY_LOG_PROPERTY)));
     }
 
@@ -188,65 +232,36 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
             }
             if (!slow) return;
         }
-        
-        SessionMonitor monitor = sessions.get(sessionId);
-        monitor.countEvent(StatementTypes.LOGGED);
         /*
-         * format of each query log entry is:
-         * #
-         * # timestamp
-         * # session_id=sessionID
-         * # execution_time=millis
-         * (optional) # error_msg=class: CODE: text
-         * (optional) # rows_processed=count
-         * SQL text
-         * #
-         * For example:
-         * # 2011-08-18 15:08:11.071
-         * # session_id=2
-         * # execution_time=69824520
-         * # rows_processed=100
-         * select * from tables;
-         * #
-         * # 2011-08-18 15:08:18.224
-         * # session_id=2
-         * # execution_time=3132589
-         * # rows_processed=10
-         * select * from groups;
-         * #
+         * Sampling only thins out successful queries; failures are always
+         * candidates for the log.
          */
-        StringBuilder buffer = new StringBuilder();
-        buffer.append("# ");
-        buffer.append(new Timestamp(System.currentTimeMillis()));
-        buffer.append("\n");
-        buffer.append("# session_id=");
-        buffer.append(sessionId);
-        buffer.append("\n");
-        buffer.append("# execution_time=");
-        buffer.append(duration);
-        buffer.append("\n");
-        if (failure != null) {
-            buffer.append("# error_msg=");
-            buffer.append(failure.toString().replace('\n', ' '));
-            buffer.append("\n");
+        if ((failure == null) && (queryLogSampleRate < 1.0) &&
+            (ThreadLocalRandom.current().nextDouble() >= queryLogSampleRate)) {
+            return;
         }
-        else if (rowsProcessed >= 0) {
-            buffer.append("# rows_processed=");
-            buffer.append(rowsProcessed);
-            buffer.append("\n");
+
+        QueryLogWriter writer = queryLogWriter;
+        if (writer == null) {
+            return;
         }
-        buffer.append(sql);
-        buffer.append("\n#\n");
-        try {
-            synchronized(this) {
-                queryLogWriter.write(buffer.toString());
-                queryLogWriter.flush();
-            }
-        } 
-        catch (IOException ex) {
-            logger.warn("Failed to write to query log.", ex);
+        if (writer.isFailed()) {
             /* disable query logging due to failure */
             isQueryLogEnabled = false;
+            return;
+        }
+        SessionMonitor monitor = sessions.get(sessionId);
+        UserMonitor userMonitor = monitor.getUserMonitor();
+        String userName = (userMonitor != null) ? userMonitor.getUserName() : null;
+        if ((queryLogUserRateLimit > 0) && !userRateLimit(userName)) {
+            return;
+        }
+        QueryLogWriter.Entry entry = new QueryLogWriter.Entry(
+            System.currentTimeMillis(), sessionId, userName, duration, rowsProcessed,
+            (failure != null) ? failure.toString().replace('\n', ' ') : null,
+            sql);
+        if (writer.offer(entry)) {
+            monitor.countEvent(StatementTypes.LOGGED);
         }
     }
     
@@ -313,13 +328,14 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
             isQueryLogEnabled = setUpQueryLog();
         } else {
             isQueryLogEnabled = false;
+            QueryLogWriter writer = queryLogWriter;
+            queryLogWriter = null;
             try {
-                queryLogWriter.close();
+                writer.close();
             } catch(IOException ex) {
                 logger.warn("Failed to close query log output stream.", ex);
                 throw new QueryLogCloseException(ex);
             }
-            queryLogWriter = null;
         }
     }
 
@@ -343,11 +359,40 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
         return queryLogThresholdMillis;
     }
 
+    /** Fraction of successful queries that are considered for the log. */
+    public void setQueryLogSampleRate(double sampleRate) {
+        queryLogSampleRate = sampleRate;
+    }
+
+    public double getQueryLogSampleRate() {
+        return queryLogSampleRate;
+    }
+
+    /** Maximum query log entries per second for any one user or {@code 0} if no limit. */
+    public void setQueryLogUserRateLimit(int perSecond) {
+        queryLogUserRateLimit = perSecond;
+    }
+
+    public int getQueryLogUserRateLimit() {
+        return queryLogUserRateLimit;
+    }
+
+    /** Number of entries dropped because the writer could not keep up. */
+    public long getQueryLogDropped() {
+        QueryLogWriter writer = queryLogWriter;
+        return (writer != null) ? writer.getDropped() : 0;
+    }
+
     @Override
     public long getCount(StatementTypes type) {
         return statementCounter[type.ordinal()].get();
     }
 
+    @Override
+    public Collection<StatementResources> getRecentStatementResources() {
+        return Collections.unmodifiableCollection(recentStatements);
+    }
+
     
     /* SessionEventListener */
     
@@ -355,6 +400,75 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
     public void countEvent (StatementTypes type) {
         statementCounter[type.ordinal()].incrementAndGet();
     }
+
+    @Override
+    public void statementEnded (StatementResources resources) {
+        keysRead.addAndGet(resources.getKeysRead());
+        bytesRead.addAndGet(resources.getBytesRead());
+        keysWritten.addAndGet(resources.getKeysWritten());
+        bytesWritten.addAndGet(resources.getBytesWritten());
+        retries.addAndGet(resources.getRetries());
+        sortSpillBytes.addAndGet(resources.getSortSpillBytes());
+        if (recentStatementsLimit <= 0) {
+            return;
+        }
+        recentStatements.addLast(resources);
+        if (recentStatementsSize.incrementAndGet() > recentStatementsLimit) {
+            if (recentStatements.pollFirst() != null) {
+                recentStatementsSize.decrementAndGet();
+            }
+        }
+    }
+
+    /* JmxManageable */
+
+    @Override
+    public JmxObjectInfo getJmxObjectInfo() {
+        return new JmxObjectInfo("Monitor", new MonitorServiceMXBean() {
+            @Override
+            public long getKeysRead() {
+                return keysRead.get();
+            }
+
+            @Override
+            public long getBytesRead() {
+                return bytesRead.get();
+            }
+
+            @Override
+            public long getKeysWritten() {
+                return keysWritten.get();
+            }
+
+            @Override
+            public long getBytesWritten() {
+                return bytesWritten.get();
+            }
+
+            @Override
+            public long getRetries() {
+                return retries.get();
+            }
+
+            @Override
+            public long getSortSpillBytes() {
+                return sortSpillBytes.get();
+            }
+
+            @Override
+            public List<StatementResources> getStatementResources() {
+                List<StatementResources> result = new ArrayList<>();
+                for (SessionMonitor session : sessions.values()) {
+                    StatementResources resources = session.getCurrentStatementResources();
+                    if ((resources != null) && (resources.getEndTimeMillis() < 0)) {
+                        result.add(resources);
+                    }
+                }
+                result.addAll(recentStatements);
+                return result;
+            }
+        }, MonitorServiceMXBean.class);
+    }
     
     /* Internal */
 
@@ -369,24 +483,42 @@ public class MonitorServiceImpl implements Service, MonitorService, SessionEvent
             logger.error("File name for query log was never set.");
             return false;
         }
-        File queryLogFile = new File(queryLogFileName);
-        try {
-            if(queryLogFile.createNewFile()) {
-                logger.debug("Query log file already existed. Appending to existing file.");
-            }
-        } catch(IOException ex) {
-            logger.error("Failed to create query log file", ex);
-            return false;
-        }
-        FileWriter writer;
-        try {
-            writer = new FileWriter(queryLogFileName, true);
-        } catch(IOException ex) {
-            logger.error("Failed to create FileWriter object for query log.", ex);
+        QueryLogWriter writer = new QueryLogWriter(queryLogFileName, queryLogFormat,
+                                                   queryLogBufferSize,
+                                                   queryLogMaxFileSize, queryLogMaxFiles,
+                                                   queryLogFlushIntervalMillis);
+        if (!writer.open()) {
             return false;
         }
-        this.queryLogWriter = new BufferedWriter(writer);
-        logger.debug("Query log file ready for writing.");
+        this.queryLogWriter = writer;
         return true;
     }
+
+    private boolean userRateLimit(String userName) {
+        String key = (userName != null) ? userName : "";
+        RateLimit rate = queryLogUserRates.get(key);
+        if (rate == null) {
+            rate = new RateLimit();
+            RateLimit prev = queryLogUserRates.putIfAbsent(key, rate);
+            if (prev != null) {
+                rate = prev;
+            }
+        }
+        return rate.tryAcquire(queryLogUserRateLimit);
+    }
+
+    /** Count of entries in the current one second window. */
+    static class RateLimit {
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        public boolean tryAcquire(int perSecond) {
+            long now = System.nanoTime() / 1000000000L;
+            long current = window.get();
+            if ((now != current) && window.compareAndSet(current, now)) {
+                count.set(0);
+            }
+            return (count.incrementAndGet() <= perSecond);
+        }
+    }
 }
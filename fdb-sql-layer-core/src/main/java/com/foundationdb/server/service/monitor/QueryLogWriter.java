@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.monitor;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.foundationdb.util.JsonUtils;
+import com.google.common.io.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes query log entries from a background thread.
+ *
+ * <p>Executing threads only claim a slot in a bounded ring and publish
+ * the entry; formatting, writing and flushing happen in batches on the
+ * writer thread. When the ring is full, entries are dropped and counted
+ * rather than blocking the query.</p>
+ */
+class QueryLogWriter implements Runnable
+{
+    public enum Format { TEXT, JSON, BINARY }
+
+    public static class Entry {
+        final long timestamp;
+        final int sessionId;
+        final String userName;
+        final long duration;
+        final int rowsProcessed;
+        final String failure;
+        final String sql;
+
+        public Entry(long timestamp, int sessionId, String userName,
+                     long duration, int rowsProcessed, String failure, String sql) {
+            this.timestamp = timestamp;
+            this.sessionId = sessionId;
+            this.userName = userName;
+            this.duration = duration;
+            this.rowsProcessed = rowsProcessed;
+            this.failure = failure;
+            this.sql = sql;
+        }
+    }
+
+    /** Leading bytes of a binary format log file. */
+    public static final byte[] BINARY_MAGIC = { 'F', 'D', 'B', 'Q', 'L', 'O', 'G', 1 };
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryLogWriter.class);
+
+    private final File file;
+    private final Format format;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final long flushIntervalNanos;
+
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Only advanced by writer thread.
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running, failed;
+    private Thread thread;
+
+    private CountingOutputStream output;
+    private long appendedTo;    // Length of the file when opened for append.
+    private DataOutputStream dataOutput;
+    private JsonGenerator jsonOutput;
+
+    public QueryLogWriter(String fileName, Format format, int capacity,
+                          long maxFileSize, int maxFiles, long flushIntervalMillis) {
+        this.file = new File(fileName);
+        this.format = format;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushIntervalMillis, 1));
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Open the log file and start the writer thread. */
+    public boolean open() {
+        try {
+            openFile();
+        }
+        catch (IOException ex) {
+            logger.error("Failed to open query log file", ex);
+            return false;
+        }
+        running = true;
+        thread = new Thread(this, "QUERY_LOG_WRITER");
+        thread.setDaemon(true);
+        thread.start();
+        logger.debug("Query log file ready for writing.");
+        return true;
+    }
+
+    /** Stop the writer thread after it writes everything queued and close the file. */
+    public void close() throws IOException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        closeFile();
+    }
+
+    /**
+     * Queue an entry without blocking.
+     * @return <code>false</code> if the entry was dropped
+     */
+    public boolean offer(Entry entry) {
+        if (failed) {
+            return false;
+        }
+        long slot;
+        while (true) {
+            slot = tail.get();
+            if (slot - head.get() > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(slot, slot + 1)) {
+                break;
+            }
+        }
+        ring.lazySet((int)slot & mask, entry);
+        return true;
+    }
+
+    /* Runnable */
+
+    @Override
+    public void run() {
+        long reportedDropped = 0;
+        try {
+            while (true) {
+                boolean stopping = !running;
+                int written = drain();
+                if (written > 0) {
+                    output.flush();
+                }
+                long nowDropped = dropped.get();
+                if (nowDropped != reportedDropped) {
+                    logger.warn("Query log buffer full, {} entries dropped", nowDropped - reportedDropped);
+                    reportedDropped = nowDropped;
+                }
+                if (stopping && (head.get() == tail.get())) {
+                    break;
+                }
+                if (written == 0) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            }
+        }
+        catch (IOException ex) {
+            logger.warn("Failed to write to query log.", ex);
+            failed = true;
+        }
+    }
+
+    /* Internal */
+
+    /** Write published entries in order until the ring is empty or a slot is still being filled. */
+    private int drain() throws IOException {
+        int count = 0;
+        long next = head.get();
+        while (next < tail.get()) {
+            int index = (int)next & mask;
+            Entry entry = ring.get(index);
+            if (entry == null) {
+                break;          // Claimed but not yet published.
+            }
+            ring.set(index, null);
+            head.set(++next);
+            if ((maxFileSize > 0) && (appendedTo + output.getCount() >= maxFileSize)) {
+                rotate();
+            }
+            write(entry);
+            count++;
+        }
+        return count;
+    }
+
+    private void write(Entry entry) throws IOException {
+        switch (format) {
+        case TEXT:
+            writeText(entry);
+            break;
+        case JSON:
+            writeJson(entry);
+            break;
+        case BINARY:
+            writeBinary(entry);
+            break;
+        }
+    }
+
+    /*
+     * format of each text query log entry is:
+     * #
+     * # timestamp
+     * # session_id=sessionID
+     * # execution_time=millis
+     * (optional) # error_msg=class: CODE: text
+     * (optional) # rows_processed=count
+     * SQL text
+     * #
+     * For example:
+     * # 2011-08-18 15:08:11.071
+     * # session_id=2
+     * # execution_time=69824520
+     * # rows_processed=100
+     * select * from tables;
+     * #
+     * # 2011-08-18 15:08:18.224
+     * # session_id=2
+     * # execution_time=3132589
+     * # rows_processed=10
+     * select * from groups;
+     * #
+     */
+    private void writeText(Entry entry) throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("# ");
+        buffer.append(new Timestamp(entry.timestamp));
+        buffer.append("\n");
+        buffer.append("# session_id=");
+        buffer.append(entry.sessionId);
+        buffer.append("\n");
+        buffer.append("# execution_time=");
+        buffer.append(entry.duration);
+        buffer.append("\n");
+        if (entry.failure != null) {
+            buffer.append("# error_msg=");
+            buffer.append(entry.failure);
+            buffer.append("\n");
+        }
+        else if (entry.rowsProcessed >= 0) {
+            buffer.append("# rows_processed=");
+            buffer.append(entry.rowsProcessed);
+            buffer.append("\n");
+        }
+        buffer.append(entry.sql);
+        buffer.append("\n#\n");
+        output.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** One JSON object per line. */
+    private void writeJson(Entry entry) throws IOException {
+        jsonOutput.writeStartObject();
+        jsonOutput.writeStringField("timestamp", new Timestamp(entry.timestamp).toString());
+        jsonOutput.writeNumberField("session_id", entry.sessionId);
+        if (entry.userName != null) {
+            jsonOutput.writeStringField("user", entry.userName);
+        }
+        jsonOutput.writeNumberField("execution_time", entry.duration);
+        if (entry.failure != null) {
+            jsonOutput.writeStringField("error_msg", entry.failure);
+        }
+        else if (entry.rowsProcessed >= 0) {
+            jsonOutput.writeNumberField("rows_processed", entry.rowsProcessed);
+        }
+        jsonOutput.writeStringField("sql", entry.sql);
+        jsonOutput.writeEndObject();
+        jsonOutput.flush();
+        output.write('\n');
+    }
+
+    /**
+     * Format of each binary entry is: timestamp (long), session id (int),
+     * execution time (long), rows processed (int), then user, error message
+     * and SQL text, each as a length (int, <code>-1</code> for null) and UTF-8 bytes.
+     */
+    private void writeBinary(Entry entry) throws IOException {
+        dataOutput.writeLong(entry.timestamp);
+        dataOutput.writeInt(entry.sessionId);
+        dataOutput.writeLong(entry.duration);
+        dataOutput.writeInt(entry.rowsProcessed);
+        writeBinaryString(entry.userName);
+        writeBinaryString(entry.failure);
+        writeBinaryString(entry.sql);
+    }
+
+    private void writeBinaryString(String str) throws IOException {
+        if (str == null) {
+            dataOutput.writeInt(-1);
+        }
+        else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            dataOutput.writeInt(bytes.length);
+            dataOutput.write(bytes);
+        }
+    }
+
+    private void openFile() throws IOException {
+        if (file.createNewFile()) {
+            logger.debug("Created new query log file.");
+        }
+        appendedTo = file.length();
+        output = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 65536));
+        switch (format) {
+        case JSON:
+            jsonOutput = JsonUtils.createJsonGenerator(output, JsonEncoding.UTF8);
+            jsonOutput.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            jsonOutput.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            jsonOutput.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            break;
+        case BINARY:
+            dataOutput = new DataOutputStream(output);
+            if (appendedTo == 0) {
+                dataOutput.write(BINARY_MAGIC);
+            }
+            break;
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (output == null) {
+            return;
+        }
+        try {
+            if (jsonOutput != null) {
+                jsonOutput.close();
+            }
+            output.close();
+        }
+        finally {
+            output = null;
+            dataOutput = null;
+            jsonOutput = null;
+        }
+    }
+
+    /** Shift <code>name.N</code> to <code>name.N+1</code>, dropping the oldest, and start a new file. */
+    private void rotate() throws IOException {
+        closeFile();
+        String name = file.getPath();
+        if (maxFiles > 0) {
+            new File(name + "." + maxFiles).delete();
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                File older = new File(name + "." + i);
+                if (older.exists()) {
+                    older.renameTo(new File(name + "." + (i + 1)));
+                }
+            }
+            file.renameTo(new File(name + ".1"));
+        }
+        else {
+            file.delete();
+        }
+        openFile();
+    }
+}
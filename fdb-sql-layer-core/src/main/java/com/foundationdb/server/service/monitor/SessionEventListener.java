@@ -24,4 +24,6 @@ import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
 public interface SessionEventListener extends EventListener{
 
     public void countEvent (StatementTypes type);
+
+    public void statementEnded (StatementResources resources);
 }
@@ -65,6 +65,9 @@ public interface SessionMonitor {
      */
     int getRowsProcessed();
 
+    /** The resources used by the current / last statement or <code>null</code> if none. */
+    StatementResources getCurrentStatementResources();
+
     /** The current stage of the session. */
     MonitorStage getCurrentStage();
     
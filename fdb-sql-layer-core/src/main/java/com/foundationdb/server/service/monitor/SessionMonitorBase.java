@@ -33,6 +33,7 @@ public abstract class SessionMonitorBase implements SessionMonitor {
     private long currentStatementStartTime = -1;
     private long currentStatementEndTime = -1;
     private int rowsProcessed = 0;
+    private volatile StatementResources currentResources;
     private UserMonitor user = null; 
     
     private long[] statementCounters = new long[StatementTypes.values().length];
@@ -67,6 +68,7 @@ public abstract class SessionMonitorBase implements SessionMonitor {
         currentStatementStartTime = startTime;
         currentStatementEndTime = -1;
         rowsProcessed = -1;
+        currentResources = new StatementResources(sessionID, statement, startTime);
     }
 
     public void endStatement() {
@@ -79,6 +81,13 @@ public abstract class SessionMonitorBase implements SessionMonitor {
         if (user != null) {
             user.statementRun();
         }
+        StatementResources resources = currentResources;
+        if ((resources != null) && (resources.getEndTimeMillis() < 0)) {
+            resources.end(currentStatementEndTime, rowsProcessed);
+            for (SessionEventListener listen : eventListeners) {
+                listen.statementEnded(resources);
+            }
+        }
     }
     
     public void countEvent(StatementTypes type) {
@@ -167,6 +176,11 @@ public abstract class SessionMonitorBase implements SessionMonitor {
         return rowsProcessed;
     }
 
+    @Override
+    public StatementResources getCurrentStatementResources() {
+        return currentResources;
+    }
+
     @Override
     public MonitorStage getCurrentStage() {
         return currentStage;
@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.monitor;
+
+import com.foundationdb.server.service.session.Session;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resources used by a single statement: rows scanned by each kind of
+ * operator, keys and bytes read and written, transaction retries,
+ * spilled bytes and peak materialized memory.
+ *
+ * <p>Counters may be updated from any thread while the statement runs
+ * and read concurrently by monitoring.</p>
+ */
+public class StatementResources
+{
+    private final int sessionId;
+    private final String statement;
+    private final long startTimeMillis;
+    private volatile long endTimeMillis = -1;
+    private volatile int rowsProcessed = -1;
+
+    private final ConcurrentMap<String,AtomicLong> rowsScanned = new ConcurrentHashMap<>();
+    private final AtomicLong keysRead = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong keysWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong sortSpillBytes = new AtomicLong();
+    private final AtomicLong peakMemoryBytes = new AtomicLong();
+
+    public StatementResources(int sessionId, String statement, long startTimeMillis) {
+        this.sessionId = sessionId;
+        this.statement = statement;
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    /** Get the resources of the statement currently running in the given session or <code>null</code>. */
+    public static StatementResources forSession(Session session) {
+        if (session == null) {
+            return null;
+        }
+        SessionMonitor monitor = session.get(MonitorServiceImpl.SESSION_KEY);
+        if (monitor == null) {
+            return null;
+        }
+        return monitor.getCurrentStatementResources();
+    }
+
+    /**
+     * Get the counter of rows scanned by the given operator for the
+     * statement running in the given session. When nothing is being
+     * monitored, the counter is not attached to anything.
+     */
+    public static AtomicLong rowsScannedCounter(Session session, String operator) {
+        StatementResources resources = forSession(session);
+        if (resources == null) {
+            return new AtomicLong();
+        }
+        return resources.rowsScannedCounter(operator);
+    }
+
+    public AtomicLong rowsScannedCounter(String operator) {
+        AtomicLong counter = rowsScanned.get(operator);
+        if (counter == null) {
+            counter = new AtomicLong();
+            AtomicLong prev = rowsScanned.putIfAbsent(operator, counter);
+            if (prev != null) {
+                counter = prev;
+            }
+        }
+        return counter;
+    }
+
+    public void read(int keys, long bytes) {
+        keysRead.addAndGet(keys);
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void written(int keys, long bytes) {
+        keysWritten.addAndGet(keys);
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void retried() {
+        retries.incrementAndGet();
+    }
+
+    public void sortSpilled(long bytes) {
+        sortSpillBytes.addAndGet(bytes);
+    }
+
+    /** Note that the given number of bytes is currently held in memory by some operator. */
+    public void memoryUsed(long bytes) {
+        while (true) {
+            long peak = peakMemoryBytes.get();
+            if ((bytes <= peak) || peakMemoryBytes.compareAndSet(peak, bytes)) {
+                break;
+            }
+        }
+    }
+
+    public void end(long endTimeMillis, int rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+        this.endTimeMillis = endTimeMillis;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /** The time at which the statement completed or <code>-1</code> if still running. */
+    public long getEndTimeMillis() {
+        return endTimeMillis;
+    }
+
+    public int getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    /** Rows scanned, by operator name. */
+    public Map<String,Long> getRowsScanned() {
+        Map<String,Long> result = new TreeMap<>();
+        for (Map.Entry<String,AtomicLong> entry : rowsScanned.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    public long getTotalRowsScanned() {
+        long total = 0;
+        for (AtomicLong count : rowsScanned.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public long getKeysRead() {
+        return keysRead.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getKeysWritten() {
+        return keysWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getSortSpillBytes() {
+        return sortSpillBytes.get();
+    }
+
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes.get();
+    }
+}
@@ -0,0 +1,635 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.text;
+
+import com.foundationdb.Database;
+import com.foundationdb.KeyValue;
+import com.foundationdb.Transaction;
+import com.foundationdb.async.Function;
+import com.foundationdb.blob.BlobAsync;
+import com.foundationdb.subspace.Subspace;
+import com.foundationdb.tuple.Tuple;
+import com.foundationdb.tuple.Tuple2;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.BufferedIndexOutput;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.LockObtainFailedException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A Lucene <code>Directory</code> kept in FDB, so that every SQL layer node
+ * sees the same index files.
+ *
+ * <p>Each file has an entry under <code>(F, name)</code> holding its length
+ * and a version, which is new each time the file is (re)created. The contents
+ * are a {@link BlobAsync} under <code>(D, name, version)</code>, written as
+ * the output is flushed and read in fixed size blocks through a node-local
+ * {@link FDBDirectoryCache}.</p>
+ *
+ * <p>Locks are leases under <code>(L, name)</code> owned by a node. The
+ * <code>IndexWriter</code>'s write lock therefore admits only one node as the
+ * indexer of a given index; the holder must {@link #renewLocks} within the
+ * lease time or another node may take it over. Since lease times come from
+ * each node's own clock, another node's lease is only taken over once
+ * <code>skewMillis</code> past its expiration.</p>
+ *
+ * <p>As a fence against a holder that has not yet noticed losing its lease,
+ * creating, writing, finishing or deleting a file fails while any lock is
+ * held by another node or after this node's own lease has run out.</p>
+ *
+ * <p>Searchers on other nodes may still be reading the files of an older
+ * commit point when the writer drops them. So deleting (or recreating) a
+ * file only removes its entry and marks that version's contents under
+ * <code>(X, name, version)</code>; the contents themselves are cleared
+ * once they have been deleted for <code>deleteGraceMillis</code>.</p>
+ */
+public class FDBDirectory extends Directory
+{
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final String FILES_KEY = "F";
+    private static final String DATA_KEY = "D";
+    private static final String LOCKS_KEY = "L";
+    private static final String DELETED_KEY = "X";
+
+    private final Database db;
+    private final Subspace files;
+    private final Subspace data;
+    private final Subspace locks;
+    private final Subspace deleted;
+    private final FDBDirectoryCache cache;
+    private final String nodeID;
+    private final long leaseMillis, skewMillis, deleteGraceMillis;
+    private final Map<String,Long> heldLocks = new HashMap<>(); // To local expiration
+    private long lastRenewal;
+
+    public FDBDirectory(Database db, Subspace subspace, FDBDirectoryCache cache,
+                        String nodeID, long leaseMillis, long skewMillis,
+                        long deleteGraceMillis) {
+        this.db = db;
+        this.files = subspace.get(FILES_KEY);
+        this.data = subspace.get(DATA_KEY);
+        this.locks = subspace.get(LOCKS_KEY);
+        this.deleted = subspace.get(DELETED_KEY);
+        this.cache = cache;
+        this.nodeID = nodeID;
+        this.leaseMillis = leaseMillis;
+        this.skewMillis = skewMillis;
+        this.deleteGraceMillis = deleteGraceMillis;
+        this.lockFactory = new FDBLockFactory();
+    }
+
+    /** Remove every file and lock stored under <code>subspace</code>. */
+    public static void clear(Database db, final Subspace subspace) {
+        db.run(new Function<Transaction,Void>() {
+            @Override
+            public Void apply(Transaction tr) {
+                tr.clear(subspace.range());
+                return null;
+            }
+        });
+    }
+
+    //
+    // Directory
+    //
+
+    @Override
+    public String[] listAll() throws IOException {
+        ensureOpen();
+        return db.run(new Function<Transaction,String[]>() {
+            @Override
+            public String[] apply(Transaction tr) {
+                List<KeyValue> kvs = tr.getRange(files.range()).asList().get();
+                String[] names = new String[kvs.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = files.unpack(kvs.get(i).getKey()).getString(0);
+                }
+                return names;
+            }
+        });
+    }
+
+    @Override
+    public boolean fileExists(String name) throws IOException {
+        ensureOpen();
+        return getEntry(name) != null;
+    }
+
+    @Override
+    public void deleteFile(final String name) throws IOException {
+        ensureOpen();
+        Boolean found = db.run(new Function<Transaction,Boolean>() {
+            @Override
+            public Boolean apply(Transaction tr) {
+                if (!isWritable(tr)) {
+                    return null;
+                }
+                byte[] key = files.pack(Tuple2.from(name));
+                byte[] value = tr.get(key).get();
+                if (value == null) {
+                    return false;
+                }
+                tr.clear(key);
+                markDeleted(tr, name, FileEntry.unpack(value).version);
+                return true;
+            }
+        });
+        if (found == null) {
+            throw lockedElsewhere(name);
+        }
+        if (!found) {
+            throw new FileNotFoundException(name);
+        }
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        ensureOpen();
+        return requireEntry(name).length;
+    }
+
+    @Override
+    public IndexOutput createOutput(final String name, IOContext context) throws IOException {
+        ensureOpen();
+        final FileEntry entry = new FileEntry(0, UUID.randomUUID().getLeastSignificantBits());
+        boolean created = db.run(new Function<Transaction,Boolean>() {
+            @Override
+            public Boolean apply(Transaction tr) {
+                if (!isWritable(tr)) {
+                    return false;
+                }
+                // Any previous contents go with the previous version, which may
+                // still be open elsewhere. The entry is written right away so that
+                // an abandoned file is still listed, and so eventually cleaned up
+                // by Lucene.
+                byte[] key = files.pack(Tuple2.from(name));
+                byte[] value = tr.get(key).get();
+                if (value != null) {
+                    markDeleted(tr, name, FileEntry.unpack(value).version);
+                }
+                tr.set(key, entry.pack());
+                return true;
+            }
+        });
+        if (!created) {
+            throw lockedElsewhere(name);
+        }
+        return new FDBIndexOutput(name, entry.version);
+    }
+
+    @Override
+    public void sync(Collection<String> names) {
+        // Every flush is already a durable FDB commit.
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        ensureOpen();
+        FileEntry entry = requireEntry(name);
+        return new FDBIndexInput(name, context, entry);
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+    }
+
+    @Override
+    public String getLockID() {
+        return files.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "FDBDirectory(" + files + ")";
+    }
+
+    /** Does this node hold any lock in this directory? */
+    public boolean holdsLocks() {
+        synchronized (heldLocks) {
+            return !heldLocks.isEmpty();
+        }
+    }
+
+    /**
+     * Extend the lease on every lock this node holds in this directory.
+     * @return <code>false</code> if any of them has been lost, in which case
+     * whatever was done under it must be abandoned.
+     */
+    public boolean renewLocks() {
+        final List<String> names;
+        synchronized (heldLocks) {
+            names = new ArrayList<>(heldLocks.keySet());
+            lastRenewal = System.currentTimeMillis();
+        }
+        boolean allRenewed = true;
+        for (String name : names) {
+            Long expires;
+            synchronized (heldLocks) {
+                expires = heldLocks.get(name);
+            }
+            if (expires == null) {
+                continue;       // Released meanwhile.
+            }
+            if ((expires <= System.currentTimeMillis()) || !tryLock(name)) {
+                // Even if no one else took it, work may have gone on without it.
+                synchronized (heldLocks) {
+                    heldLocks.remove(name);
+                }
+                allRenewed = false;
+            }
+        }
+        return allRenewed;
+    }
+
+    /** As {@link #renewLocks}, but only once a third of the lease has passed. */
+    public boolean renewLocksIfDue() {
+        synchronized (heldLocks) {
+            if (System.currentTimeMillis() - lastRenewal < leaseMillis / 3) {
+                return true;
+            }
+        }
+        return renewLocks();
+    }
+
+    /** Is the given lock held by some other node? */
+    public boolean isLockedElsewhere(String name) {
+        if (lockPrefix() != null) {
+            name = lockPrefix() + "-" + name;
+        }
+        Tuple2 lease = getLease(name);
+        return (lease != null) && isLeasedElsewhere(lease, System.currentTimeMillis());
+    }
+
+    //
+    // Internal
+    //
+
+    private FileEntry getEntry(final String name) {
+        return db.run(new Function<Transaction,FileEntry>() {
+            @Override
+            public FileEntry apply(Transaction tr) {
+                byte[] value = tr.get(files.pack(Tuple2.from(name))).get();
+                return (value == null) ? null : FileEntry.unpack(value);
+            }
+        });
+    }
+
+    private FileEntry requireEntry(String name) throws FileNotFoundException {
+        FileEntry entry = getEntry(name);
+        if (entry == null) {
+            throw new FileNotFoundException(name);
+        }
+        return entry;
+    }
+
+    private BlobAsync blob(String name, long version) {
+        return new BlobAsync(data.get(Tuple2.from(name, version)));
+    }
+
+    private String lockPrefix() {
+        return lockFactory.getLockPrefix();
+    }
+
+    private boolean isLeasedElsewhere(Tuple2 lease, long now) {
+        return !nodeID.equals(lease.getString(0)) && (lease.getLong(1) + skewMillis > now);
+    }
+
+    /** Check for any lock held by another node, within the given transaction,
+     * so that the check conflicts with that node taking it. */
+    private boolean isLockedElsewhere(Transaction tr) {
+        long now = System.currentTimeMillis();
+        for (KeyValue kv : tr.getRange(locks.range()).asList().get()) {
+            if (isLeasedElsewhere(Tuple2.fromBytes(kv.getValue()), now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Can this node write in the given transaction? That is, is no lock held
+     * by another node and has none of its own leases run out locally. */
+    private boolean isWritable(Transaction tr) {
+        long now = System.currentTimeMillis();
+        synchronized (heldLocks) {
+            for (Long expires : heldLocks.values()) {
+                if (expires <= now) {
+                    return false;
+                }
+            }
+        }
+        return !isLockedElsewhere(tr);
+    }
+
+    /** Mark the contents of a dropped file version for later clearing and
+     * clear any whose grace period has passed. */
+    private void markDeleted(Transaction tr, String name, long version) {
+        long now = System.currentTimeMillis();
+        for (KeyValue kv : tr.getRange(deleted.range()).asList().get()) {
+            if (Tuple2.fromBytes(kv.getValue()).getLong(0) + deleteGraceMillis + skewMillis <= now) {
+                Tuple dropped = deleted.unpack(kv.getKey());
+                tr.clear(data.range(Tuple2.from(dropped.getString(0), dropped.getLong(1))));
+                tr.clear(kv.getKey());
+            }
+        }
+        tr.set(deleted.pack(Tuple2.from(name, version)), Tuple2.from(now).pack());
+    }
+
+    private static LockObtainFailedException lockedElsewhere(String name) {
+        return new LockObtainFailedException("Index locked by another node or lease lost, cannot write " + name);
+    }
+
+    private boolean tryLock(final String name) {
+        final long start = System.currentTimeMillis();
+        boolean obtained = db.run(new Function<Transaction,Boolean>() {
+            @Override
+            public Boolean apply(Transaction tr) {
+                byte[] key = locks.pack(Tuple2.from(name));
+                byte[] value = tr.get(key).get();
+                long now = System.currentTimeMillis();
+                if ((value != null) && isLeasedElsewhere(Tuple2.fromBytes(value), now)) {
+                    return false;
+                }
+                tr.set(key, Tuple2.from(nodeID, now + leaseMillis).pack());
+                return true;
+            }
+        });
+        if (obtained) {
+            // Measured from before the transaction, so never later than the stored lease.
+            synchronized (heldLocks) {
+                heldLocks.put(name, start + leaseMillis);
+            }
+        }
+        return obtained;
+    }
+
+    private Tuple2 getLease(final String name) {
+        return db.run(new Function<Transaction,Tuple2>() {
+            @Override
+            public Tuple2 apply(Transaction tr) {
+                byte[] value = tr.get(locks.pack(Tuple2.from(name))).get();
+                return (value == null) ? null : Tuple2.fromBytes(value);
+            }
+        });
+    }
+
+    private void clearLock(final String name, final boolean onlyIfOwned) {
+        db.run(new Function<Transaction,Void>() {
+            @Override
+            public Void apply(Transaction tr) {
+                byte[] key = locks.pack(Tuple2.from(name));
+                if (onlyIfOwned) {
+                    byte[] value = tr.get(key).get();
+                    if ((value == null) || !nodeID.equals(Tuple2.fromBytes(value).getString(0))) {
+                        return null;
+                    }
+                }
+                tr.clear(key);
+                return null;
+            }
+        });
+        synchronized (heldLocks) {
+            heldLocks.remove(name);
+        }
+    }
+
+    static class FileEntry {
+        final long length;
+        final long version;
+
+        FileEntry(long length, long version) {
+            this.length = length;
+            this.version = version;
+        }
+
+        byte[] pack() {
+            return Tuple2.from(length, version).pack();
+        }
+
+        static FileEntry unpack(byte[] value) {
+            Tuple2 tuple = Tuple2.fromBytes(value);
+            return new FileEntry(tuple.getLong(0), tuple.getLong(1));
+        }
+    }
+
+    class FDBIndexOutput extends BufferedIndexOutput {
+        private final String name;
+        private final long version;
+        private final BlobAsync blob;
+        private long position;
+        private long length;
+
+        FDBIndexOutput(String name, long version) {
+            this.name = name;
+            this.version = version;
+            this.blob = blob(name, version);
+        }
+
+        @Override
+        protected void flushBuffer(byte[] b, int offset, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            final byte[] bytes = Arrays.copyOfRange(b, offset, offset + len);
+            boolean written = db.run(new Function<Transaction,Boolean>() {
+                @Override
+                public Boolean apply(Transaction tr) {
+                    if (!isWritable(tr)) {
+                        return false;
+                    }
+                    blob.write(tr, position, bytes).get();
+                    return true;
+                }
+            });
+            if (!written) {
+                throw lockedElsewhere(name);
+            }
+            position += len;
+            length = Math.max(length, position);
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            super.seek(pos);
+            position = pos;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return Math.max(length, getFilePointer());
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            final FileEntry entry = new FileEntry(length, version);
+            boolean finished = db.run(new Function<Transaction,Boolean>() {
+                @Override
+                public Boolean apply(Transaction tr) {
+                    if (!isWritable(tr)) {
+                        return false;
+                    }
+                    byte[] key = files.pack(Tuple2.from(name));
+                    byte[] value = tr.get(key).get();
+                    // Only if not since deleted or recreated
+                    if ((value != null) && (FileEntry.unpack(value).version == version)) {
+                        tr.set(key, entry.pack());
+                    }
+                    return true;
+                }
+            });
+            if (!finished) {
+                throw lockedElsewhere(name);
+            }
+        }
+    }
+
+    class FDBIndexInput extends BufferedIndexInput {
+        private final String name;
+        private final FileEntry entry;
+        private final byte[] cachePrefix;
+        private final BlobAsync blob;
+        private long position;
+
+        FDBIndexInput(String name, IOContext context, FileEntry entry) {
+            super("FDBIndexInput(" + name + ")", context);
+            this.name = name;
+            this.entry = entry;
+            this.cachePrefix = data.pack(Tuple2.from(name));
+            this.blob = blob(name, entry.version);
+        }
+
+        @Override
+        protected void readInternal(byte[] b, int offset, int len) throws IOException {
+            if (position + len > entry.length) {
+                throw new IOException("read past EOF: " + name);
+            }
+            while (len > 0) {
+                long blockNumber = position / BLOCK_SIZE;
+                int blockOffset = (int)(position % BLOCK_SIZE);
+                byte[] block = readBlock(blockNumber);
+                int n = Math.min(len, block.length - blockOffset);
+                if (n <= 0) {
+                    throw new IOException("short block " + blockNumber + " in " + name);
+                }
+                System.arraycopy(block, blockOffset, b, offset, n);
+                position += n;
+                offset += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        protected void seekInternal(long pos) {
+            position = pos;
+        }
+
+        @Override
+        public long length() {
+            return entry.length;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public FDBIndexInput clone() {
+            return (FDBIndexInput)super.clone();
+        }
+
+        private byte[] readBlock(long blockNumber) {
+            byte[] block = cache.get(cachePrefix, entry.version, blockNumber);
+            if (block == null) {
+                long start = blockNumber * BLOCK_SIZE;
+                int size = (int)Math.min(BLOCK_SIZE, entry.length - start);
+                block = blob.read(db, start, size).get();
+                if (block == null) {
+                    block = new byte[0];
+                }
+                else {
+                    cache.put(cachePrefix, entry.version, blockNumber, block);
+                }
+            }
+            return block;
+        }
+    }
+
+    class FDBLockFactory extends LockFactory {
+        @Override
+        public Lock makeLock(String name) {
+            if (lockPrefix != null) {
+                name = lockPrefix + "-" + name;
+            }
+            return new FDBLock(name);
+        }
+
+        @Override
+        public void clearLock(String name) {
+            if (lockPrefix != null) {
+                name = lockPrefix + "-" + name;
+            }
+            FDBDirectory.this.clearLock(name, false);
+        }
+    }
+
+    class FDBLock extends Lock {
+        private final String name;
+
+        FDBLock(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean obtain() {
+            return tryLock(name);
+        }
+
+        @Override
+        public void release() {
+            clearLock(name, true);
+        }
+
+        @Override
+        public boolean isLocked() {
+            Tuple2 lease = getLease(name);
+            return (lease != null) && (lease.getLong(1) > System.currentTimeMillis());
+        }
+
+        @Override
+        public String toString() {
+            return "FDBLock(" + name + ")";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.text;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Node-local cache of blocks read from {@link FDBDirectory} files, shared by
+ * all directories and bounded by total bytes. Files are immutable once
+ * written and a rewritten file gets a new version, so entries never need
+ * to be invalidated, only evicted.
+ */
+public class FDBDirectoryCache
+{
+    private final long maxBytes;
+    private final LinkedHashMap<BlockKey,byte[]> blocks;
+    private long currentBytes;
+
+    public FDBDirectoryCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized byte[] get(byte[] filePrefix, long version, long block) {
+        return blocks.get(new BlockKey(filePrefix, version, block));
+    }
+
+    public synchronized void put(byte[] filePrefix, long version, long block, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        byte[] prev = blocks.put(new BlockKey(filePrefix, version, block), data);
+        if (prev != null) {
+            currentBytes -= prev.length;
+        }
+        currentBytes += data.length;
+        Iterator<Map.Entry<BlockKey,byte[]>> it = blocks.entrySet().iterator();
+        while ((currentBytes > maxBytes) && it.hasNext()) {
+            currentBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    static final class BlockKey {
+        private final byte[] filePrefix;
+        private final long version;
+        private final long block;
+        private final int hashCode;
+
+        BlockKey(byte[] filePrefix, long version, long block) {
+            this.filePrefix = filePrefix;
+            this.version = version;
+            this.block = block;
+            this.hashCode = (Arrays.hashCode(filePrefix) * 31 + (int)(version ^ (version >>> 32))) * 31 +
+                            (int)(block ^ (block >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockKey)) return false;
+            BlockKey other = (BlockKey)o;
+            return (version == other.version) &&
+                   (block == other.block) &&
+                   Arrays.equals(filePrefix, other.filePrefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
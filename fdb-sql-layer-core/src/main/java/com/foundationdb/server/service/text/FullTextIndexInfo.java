@@ -34,8 +34,8 @@ import com.foundationdb.server.error.NoSuchTableException;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.store.LockObtainFailedException;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -239,7 +239,14 @@ public class FullTextIndexInfo
         synchronized (shared) {
             searcher = shared.getSearcher();
             if (searcher == null) {
-                searcher = new Searcher(shared, getAnalyzer());
+                Indexer indexer = getIndexerIfAvailable();
+                if (indexer != null) {
+                    searcher = new Searcher(shared, indexer.getWriter());
+                }
+                else {
+                    // Another node is indexing: follow its commits.
+                    searcher = new Searcher(shared, shared.open());
+                }
             }
             shared.setSearcher(searcher);
         }
@@ -258,29 +265,62 @@ public class FullTextIndexInfo
         return indexer;
     }
 
-    public void deletePath() {
-        File path = shared.getPath();
-        // no doc to delete
-        if (!path.exists() || path.listFiles() == null)
-            return;
-        for (File f : path.listFiles()) {
-            f.delete();
+    /**
+     * Get the indexer, or <code>null</code> if the index is shared and
+     * another node currently holds its write lock.
+     */
+    public Indexer getIndexerIfAvailable() throws IOException {
+        if (shared.isLockedElsewhere()) {
+            return null;
         }
-        path.delete();
+        try {
+            return getIndexer();
+        }
+        catch (LockObtainFailedException ex) {
+            return null;
+        }
+    }
+
+    public void deletePath() {
+        shared.deleteDirectory();
+    }
+
+    /** Keep the write lock of a shared index while writing it.
+     * @see FullTextIndexShared#keepLock
+     */
+    public void keepIndexerLock() throws IOException {
+        shared.keepLock();
     }
 
     public void commitIndexer() throws IOException {
         shared.getIndexer().getWriter().commit();
     }
 
+    /** Make any changes made through the indexer visible to searches. */
+    public void refreshSearcher() throws IOException {
+        Searcher searcher;
+        synchronized (shared) {
+            searcher = shared.getSearcher();
+        }
+        if (searcher != null) {
+            searcher.refresh();
+        }
+    }
+
     public void rollbackIndexer() throws IOException {
         synchronized (shared) {
             Indexer indexer = shared.getIndexer();
             if(indexer != null) {
+                Searcher searcher = shared.getSearcher();
                 try {
+                    // Searcher is bound to the writer that is about to be closed.
+                    if(searcher != null) {
+                        searcher.close();
+                    }
                     indexer.getWriter().rollback();
                 } finally {
                     // Rollback causes the writer to be closed. Always get rid of it.
+                    shared.setSearcher(null);
                     shared.setIndexer(null);
                 }
             }
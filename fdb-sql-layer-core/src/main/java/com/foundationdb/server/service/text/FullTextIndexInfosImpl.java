@@ -27,8 +27,11 @@ import com.foundationdb.server.service.session.Session;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -63,6 +66,23 @@ public abstract class FullTextIndexInfosImpl implements FullTextIndexInfos
     protected abstract AkibanInformationSchema getAIS(Session session);
     protected abstract File getIndexPath();
 
+    /** Open the Lucene storage for an index. Local files by default. */
+    protected Directory openDirectory(FullTextIndexShared index) throws IOException {
+        return FSDirectory.open(index.getPath());
+    }
+
+    /** Remove the Lucene storage for a (closed) index. */
+    protected void deleteDirectory(FullTextIndexShared index) {
+        File path = index.getPath();
+        // no doc to delete
+        if (!path.exists() || path.listFiles() == null)
+            return;
+        for (File f : path.listFiles()) {
+            f.delete();
+        }
+        path.delete();
+    }
+
     protected FullTextIndexInfo getIndexIfExists(Session session, IndexName name, AkibanInformationSchema ais) {
         if (ais == null)
             ais = getAIS(session);
@@ -89,7 +109,7 @@ public abstract class FullTextIndexInfosImpl implements FullTextIndexInfos
                 shared = new FullTextIndexShared(name);
                 info = new FullTextIndexInfo(shared);
                 info.init(ais);
-                info = shared.init(ais, info, getIndexPath());
+                info = shared.init(ais, info, this);
                 indexes.put(name, shared);
             }
         }
@@ -31,11 +31,11 @@ import com.foundationdb.ais.model.aisb2.NewAISBuilder;
 import com.foundationdb.qp.operator.API;
 import com.foundationdb.qp.operator.Cursor;
 import com.foundationdb.qp.operator.Operator;
-import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
 import com.foundationdb.qp.operator.RowCursor;
 import com.foundationdb.qp.operator.SimpleQueryContext;
 import com.foundationdb.qp.operator.StoreAdapter;
+import com.foundationdb.qp.row.BindableRow;
 import com.foundationdb.qp.row.HKey;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.ValuesHKey;
@@ -45,6 +45,7 @@ import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.qp.util.SchemaCache;
 import com.foundationdb.server.error.AkibanInternalException;
 import com.foundationdb.server.service.Service;
+import com.foundationdb.server.service.ServiceManager;
 import com.foundationdb.server.service.config.ConfigurationService;
 import com.foundationdb.server.service.listener.ListenerService;
 import com.foundationdb.server.service.listener.RowListener;
@@ -55,14 +56,18 @@ import com.foundationdb.server.service.transaction.TransactionService;
 import com.foundationdb.server.service.transaction.TransactionService.Callback;
 import com.foundationdb.server.service.transaction.TransactionService.CallbackType;
 import com.foundationdb.server.service.transaction.TransactionService.CloseableTransaction;
+import com.foundationdb.server.store.FDBHolder;
 import com.foundationdb.server.store.SchemaManager;
 import com.foundationdb.server.store.Store;
 import com.foundationdb.sql.server.ServerCallContextStack;
 import com.foundationdb.sql.server.ServerQueryContext;
+import com.foundationdb.subspace.Subspace;
+import com.foundationdb.tuple.Tuple2;
 import com.foundationdb.util.Exceptions;
 
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
 
 import com.google.inject.Inject;
 import com.persistit.Key;
@@ -71,10 +76,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl 
         implements FullTextIndexService, Service, TableListener, RowListener
@@ -82,13 +99,33 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
     private static final Logger logger = LoggerFactory.getLogger(FullTextIndexServiceImpl.class);
 
     public static final String INDEX_PATH_PROPERTY = "fdbsql.text.indexpath";
+    /** Latency target: longest a change waits before being applied to an index. */
     public static final String BACKGROUND_INTERVAL_PROPERTY = "fdbsql.text.backgroundInterval";
+    /** Throughput target: most changes applied to all indexes in one transaction. */
+    public static final String UPDATE_BATCH_SIZE_PROPERTY = "fdbsql.text.updateBatchSize";
+    /** Number of indexes that can be updated concurrently. */
+    public static final String UPDATE_THREADS_PROPERTY = "fdbsql.text.updateThreads";
+    /** Where Lucene files are kept: <code>file</code> under the index path or <code>fdb</code>, shared by all nodes. */
+    public static final String STORAGE_PROPERTY = "fdbsql.text.storage";
+    /** Bytes of FDB stored index blocks cached on this node. */
+    public static final String FDB_CACHE_SIZE_PROPERTY = "fdbsql.text.fdb.cacheSize";
+    /** How long the indexing node's write lock lasts without being renewed. */
+    public static final String FDB_LOCK_LEASE_PROPERTY = "fdbsql.text.fdb.lockLease";
+    /** How far apart nodes' clocks may be, added before taking over another node's expired lock. */
+    public static final String FDB_LOCK_SKEW_PROPERTY = "fdbsql.text.fdb.lockSkew";
+    /** How long the contents of a deleted index file are kept for searchers still reading it. */
+    public static final String FDB_DELETE_GRACE_PROPERTY = "fdbsql.text.fdb.deleteGrace";
+
+    private static final String LOOKAHEAD_QUANTUM_PROPERTY = "fdbsql.pipeline.groupLookup.lookaheadQuantum";
+
+    private static final String FDB_DIRECTORY = "fullText";
 
     private static final TableName CHANGES_TABLE = new TableName(TableName.INFORMATION_SCHEMA, "full_text_changes");
     private static final TableName BACKGROUND_WAIT_PROC_NAME = new TableName(TableName.SYS_SCHEMA, "full_text_background_wait");
 
 
     private final ConfigurationService configService;
+    private final ServiceManager serviceManager;
     private final SessionService sessionService;
     private final ListenerService listenerService;
     private final SchemaManager schemaManager;
@@ -98,18 +135,30 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
     private final Object BACKGROUND_UPDATE_LOCK = new Object();
 
     private BackgroundRunner backgroundUpdate;
+    private ExecutorService updateWorkers;
     private long backgroundInterval;
+    private int updateBatchSize;
+    private int lookaheadQuantum;
     private File indexPath;
+    private FDBHolder fdbHolder;
+    private Subspace fdbSubspace;
+    private FDBDirectoryCache fdbCache;
+    private String nodeID;
+    private long fdbLockLease;
+    private long fdbLockSkew;
+    private long fdbDeleteGrace;
 
 
     @Inject
     public FullTextIndexServiceImpl(ConfigurationService configService,
+                                    ServiceManager serviceManager,
                                     SessionService sessionService,
                                     ListenerService listenerService,
                                     SchemaManager schemaManager,
                                     Store store,
                                     TransactionService transactionService) {
         this.configService = configService;
+        this.serviceManager = serviceManager;
         this.sessionService = sessionService;
         this.listenerService = listenerService;
         this.schemaManager = schemaManager;
@@ -167,17 +216,34 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
             throw new AkibanInternalException("Could not create indexPath directories: " + indexPath);
         }
 
+        if("fdb".equals(configService.getProperty(STORAGE_PROPERTY))) {
+            fdbHolder = serviceManager.getServiceByClass(FDBHolder.class);
+            fdbSubspace = fdbHolder.getRootDirectory().createOrOpen(fdbHolder.getTransactionContext(),
+                                                                    Arrays.asList(FDB_DIRECTORY)).get();
+            fdbCache = new FDBDirectoryCache(Long.parseLong(configService.getProperty(FDB_CACHE_SIZE_PROPERTY)));
+            fdbLockLease = Long.parseLong(configService.getProperty(FDB_LOCK_LEASE_PROPERTY));
+            fdbLockSkew = Long.parseLong(configService.getProperty(FDB_LOCK_SKEW_PROPERTY));
+            fdbDeleteGrace = Long.parseLong(configService.getProperty(FDB_DELETE_GRACE_PROPERTY));
+            nodeID = UUID.randomUUID().toString();
+        }
+
         registerSystemTables();
         listenerService.registerTableListener(this);
         listenerService.registerRowListener(this);
 
         backgroundInterval = Long.parseLong(configService.getProperty(BACKGROUND_INTERVAL_PROPERTY));
+        updateBatchSize = Integer.parseInt(configService.getProperty(UPDATE_BATCH_SIZE_PROPERTY));
+        lookaheadQuantum = Integer.parseInt(configService.getProperty(LOOKAHEAD_QUANTUM_PROPERTY));
+        updateWorkers = Executors.newFixedThreadPool(Integer.parseInt(configService.getProperty(UPDATE_THREADS_PROPERTY)),
+                                                     new WorkerThreadFactory("FullText_Worker"));
         enableUpdateWorker();
     }
 
     @Override
     public void stop() {
         disableUpdateWorker();
+        updateWorkers.shutdown();
+        updateWorkers = null;
 
         listenerService.deregisterTableListener(this);
         listenerService.deregisterRowListener(this);
@@ -195,6 +261,10 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
 
         backgroundInterval = 0;
         indexPath = null;
+        fdbHolder = null;
+        fdbSubspace = null;
+        fdbCache = null;
+        nodeID = null;
     }
 
     @Override
@@ -214,6 +284,28 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
         return schemaManager.getAis(session);
     }
 
+    @Override
+    protected Directory openDirectory(FullTextIndexShared index) throws IOException {
+        if(fdbHolder == null) {
+            return super.openDirectory(index);
+        }
+        return new FDBDirectory(fdbHolder.getDatabase(), fdbSubspace(index), fdbCache, nodeID,
+                                fdbLockLease, fdbLockSkew, fdbDeleteGrace);
+    }
+
+    @Override
+    protected void deleteDirectory(FullTextIndexShared index) {
+        if(fdbHolder == null) {
+            super.deleteDirectory(index);
+        } else {
+            FDBDirectory.clear(fdbHolder.getDatabase(), fdbSubspace(index));
+        }
+    }
+
+    private Subspace fdbSubspace(FullTextIndexShared index) {
+        return fdbSubspace.get(Tuple2.from(index.getStoragePath().getPath()));
+    }
+
     private void populateIndex(Session session, FullTextIndex index) {
         final FullTextIndexInfo indexInfo = getIndex(session, index.getIndexName(), index.getIndexedTable().getAIS());
         boolean success = false;
@@ -236,6 +328,7 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
                 public void run(Session session, long timestamp) {
                     try {
                         indexInfo.commitIndexer();
+                        indexInfo.refreshSearcher();
                     } catch(IOException e) {
                         logger.error("Error committing index {}", indexInfo.getIndex().getIndexName(), e);
                     }
@@ -258,24 +351,27 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
         }
     }
 
-    private void updateIndex(Session session, FullTextIndexInfo indexInfo, Iterable<byte[]> rows) throws IOException {
+    /**
+     * Re-read the rows for all of <code>hkeys</code> with one pipelined lookup
+     * plan and apply them to the index's writer.
+     */
+    private void updateIndex(Session session, FullTextIndexInfo indexInfo, List<byte[]> hkeys) throws IOException {
         StoreAdapter adapter = store.createAdapter(session);
         QueryContext queryContext = new SimpleQueryContext(adapter);
-        QueryBindings queryBindings = queryContext.createBindings();
+
+        List<BindableRow> hkeyRows = new ArrayList<>(hkeys.size());
+        for(byte[] hkey : hkeys) {
+            hkeyRows.add(BindableRow.of(toHKeyRow(hkey, indexInfo.getHKeyRowType(), adapter)));
+        }
+        Operator plan = API.map_NestedLoops(API.valuesScan_Default(hkeyRows, indexInfo.getHKeyRowType()),
+                                            indexInfo.getOperator(),
+                                            0, true, lookaheadQuantum);
 
         Cursor cursor = null;
         IndexWriter writer = indexInfo.getIndexer().getWriter();
         try(RowIndexer rowIndexer = new RowIndexer(indexInfo, writer, true)) {
-            Operator operator = indexInfo.getOperator();
-            Iterator<byte[]> it = rows.iterator();
-            while(it.hasNext()) {
-                byte[] row = it.next();
-                Row hkeyRow = toHKeyRow(row, indexInfo.getHKeyRowType(), adapter);
-                queryBindings.setRow(0, hkeyRow);
-                cursor = API.cursor(operator, queryContext, queryBindings);
-                rowIndexer.updateDocument(cursor, row);
-                it.remove();
-            }
+            cursor = API.cursor(plan, queryContext, queryContext.createBindings());
+            rowIndexer.updateDocuments(cursor, hkeys);
         } finally {
             if(cursor != null && !cursor.isClosed()) {
                 cursor.close();
@@ -373,7 +469,7 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
             backgroundUpdate = new BackgroundRunner("FullText_Update", backgroundInterval, new Runnable() {
                 @Override
                 public void run() {
-                runUpdate();
+                    runUpdate();
                 }
             });
             backgroundUpdate.start();
@@ -389,8 +485,11 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
     }
     
     private void runUpdate() {
-        // Consume and commit updates to each index in distinct blocks to keep r/w window small-ish
+        // Consume pending changes in blocks of at most updateBatchSize. Each index in a block is
+        // re-read and written by its own worker, but the changes are only removed, and the
+        // Lucene changes committed, once every index in the block has succeeded.
         for(;;) {
+            refreshSharedIndexes();
             try(Session session = sessionService.createSession();
                 CloseableTransaction txn = transactionService.beginCloseableTransaction(session)) {
                 // Quick exit if we won't see any
@@ -399,41 +498,137 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
                 }
                 // Only interact with FullTextIndexInfo under lock as to not fight concurrent DROP
                 synchronized(BACKGROUND_UPDATE_LOCK) {
-                    FullTextIndexInfo indexInfo = null;
+                    Map<FullTextIndexInfo,List<byte[]>> pending = new HashMap<>();
+                    int count = 0;
                     try(HKeyBytesStream rows = new HKeyBytesStream(session)) {
-                        if(rows.hasStream()) {
-                            IndexName name = rows.getIndexName();
-                            indexInfo = getIndexIfExists(session, name, null);
+                        while((count < updateBatchSize) && rows.hasStream()) {
+                            FullTextIndexInfo indexInfo = getIndexIfExists(session, rows.getIndexName(), null);
                             if(indexInfo == null) {
                                 // Index has been deleted. Will conflict on so give up.
-                                break;
-                            } else {
-                                updateIndex(session, indexInfo, rows);
+                                return;
                             }
+                            if(indexInfo.getIndexerIfAvailable() == null) {
+                                // Shared index that another node is updating. Leave its changes.
+                                rows.findNextIndex();
+                                continue;
+                            }
+                            List<byte[]> hkeys = pending.get(indexInfo);
+                            if(hkeys == null) {
+                                hkeys = new ArrayList<>();
+                                pending.put(indexInfo, hkeys);
+                            }
+                            Iterator<byte[]> it = rows.iterator();
+                            while((count < updateBatchSize) && it.hasNext()) {
+                                hkeys.add(it.next());
+                                it.remove();
+                                ++count;
+                            }
+                            if(count < updateBatchSize) {
+                                rows.findNextIndex();
+                            }
+                        }
+                    } catch(IOException e) {
+                        throw new AkibanInternalException("Error opening index", e);
+                    }
+                    boolean success = false;
+                    try {
+                        updateIndexes(pending);
+                        // Do not give up the changes unless still the writer of every shared index.
+                        for(FullTextIndexInfo indexInfo : pending.keySet()) {
+                            indexInfo.keepIndexerLock();
                         }
                         txn.commit();
                         // Only commit changes to Lucene after successful iteration
                         // and removal of pending update rows
-                        if(indexInfo != null) {
+                        for(FullTextIndexInfo indexInfo : pending.keySet()) {
                             indexInfo.commitIndexer();
-                            indexInfo = null;
                         }
+                        success = true;
                     } catch(IOException e) {
                         throw new AkibanInternalException("Error updating index", e);
                     } finally {
-                        if(indexInfo != null) {
-                            try {
-                                indexInfo.rollbackIndexer();
-                            } catch(IOException e) {
-                                logger.warn( "Error rolling back update to {}", indexInfo.getIndex().getIndexName(), e);
+                        if(!success) {
+                            for(FullTextIndexInfo indexInfo : pending.keySet()) {
+                                try {
+                                    indexInfo.rollbackIndexer();
+                                } catch(IOException e) {
+                                    logger.warn("Error rolling back update to {}", indexInfo.getIndex().getIndexName(), e);
+                                }
                             }
                         }
                     }
+                    // A partial block means everything pending has been seen.
+                    if(count < updateBatchSize) {
+                        break;
+                    }
                 }
             }
         }
     }
 
+    private void refreshSharedIndexes() {
+        if(fdbHolder == null) {
+            return;
+        }
+        synchronized(indexes) {
+            for(FullTextIndexShared index : indexes.values()) {
+                try {
+                    index.refreshShared();
+                } catch(IOException e) {
+                    logger.warn("Error refreshing index {}", index.getName(), e);
+                }
+            }
+        }
+    }
+
+    /** Apply each index's changes on a worker, with its own session, and wait for all of them. */
+    private void updateIndexes(Map<FullTextIndexInfo,List<byte[]>> pending) throws IOException {
+        List<Future<Void>> results = new ArrayList<>(pending.size());
+        for(final Map.Entry<FullTextIndexInfo,List<byte[]>> entry : pending.entrySet()) {
+            results.add(updateWorkers.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    try(Session session = sessionService.createSession();
+                        CloseableTransaction txn = transactionService.beginCloseableTransaction(session)) {
+                        updateIndex(session, entry.getKey(), entry.getValue());
+                        txn.commit();
+                    }
+                    entry.getKey().refreshSearcher();
+                    return null;
+                }
+            }));
+        }
+        IOException ioException = null;
+        RuntimeException runtimeException = null;
+        for(Future<Void> result : results) {
+            try {
+                result.get();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if(runtimeException == null) {
+                    runtimeException = new AkibanInternalException("Interrupted updating index", e);
+                }
+            } catch(ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof IOException) {
+                    if(ioException == null) {
+                        ioException = (IOException)cause;
+                    }
+                } else if(runtimeException == null) {
+                    runtimeException = (cause instanceof RuntimeException) ?
+                        (RuntimeException)cause :
+                        new AkibanInternalException("Error updating index", cause);
+                }
+            }
+        }
+        if(runtimeException != null) {
+            throw runtimeException;
+        }
+        if(ioException != null) {
+            throw ioException;
+        }
+    }
+
     private Row toHKeyRow(byte rowBytes[], HKeyRowType hKeyRowType, StoreAdapter store)
     {
         HKey hkey = store.getKeyCreator().newHKey(hKeyRowType.hKey());
@@ -452,6 +647,8 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
         private final Session session;
         private Cursor cursor;
         private Row row;
+        private Row lookahead;
+        private boolean exhausted;
 
         private HKeyBytesStream(Session session) {
             this.session = session;
@@ -465,9 +662,10 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
             findNextIndex();
         }
 
-        private void findNextIndex() {
+        /** Advance to the next run of changes, which may be for another index. */
+        public void findNextIndex() {
             indexName = null;
-            while((row = cursor.next()) != null) {
+            while((row = nextRow()) != null) {
                 String schema = row.value(0).getString();
                 String tableName = row.value(1).getString();
                 String iName = row.value(2).getString();
@@ -487,6 +685,16 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
             }
         }
 
+        private Row nextRow() {
+            Row next = lookahead;
+            lookahead = null;
+            if(next == null && !exhausted) {
+                next = cursor.next();
+                exhausted = (next == null);
+            }
+            return next;
+        }
+
         public boolean hasStream() {
             return indexName != null;
         }
@@ -520,7 +728,7 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
             }
 
             private void advance() {
-                row = cursor.next();
+                row = nextRow();
                 if(row != null &&
                    indexName.getSchemaName().equals(row.value(0).getString()) &&
                    indexName.getTableName().equals(row.value(1).getString()) &&
@@ -528,7 +736,9 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
                    indexID == row.value(3).getInt32()) {
                     hasNext = true;
                 } else {
+                    // Start of the next run, if any
                     hasNext = false;
+                    lookahead = row;
                     row = null;
                 }
             }
@@ -613,6 +823,22 @@ public class FullTextIndexServiceImpl extends FullTextIndexInfosImpl
     }
 
 
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "_" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     public enum STATE {
         NOT_STARTED,
         RUNNING,
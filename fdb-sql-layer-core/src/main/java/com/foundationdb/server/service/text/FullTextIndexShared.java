@@ -23,9 +23,10 @@ import com.foundationdb.ais.model.IndexName;
 import com.foundationdb.server.store.format.FullTextIndexFileStorageDescription;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
 
 import java.io.*;
 import java.util.Set;
@@ -33,6 +34,8 @@ import java.util.Set;
 public class FullTextIndexShared implements CacheValueGenerator<FullTextIndexInfo>, Closeable
 {
     private final IndexName name;
+    private FullTextIndexInfosImpl infos;
+    private File storagePath;
     private File path;
     private Set<String> casePreservingFieldNames;
     private String defaultFieldName;
@@ -47,9 +50,11 @@ public class FullTextIndexShared implements CacheValueGenerator<FullTextIndexInf
     }
 
     public FullTextIndexInfo init(AkibanInformationSchema ais, final FullTextIndexInfo info, 
-                                  File basepath) {
+                                  FullTextIndexInfosImpl infos) {
         FullTextIndexFileStorageDescription storage = (FullTextIndexFileStorageDescription)info.getIndex().getStorageDescription();
-        path = storage.mergePath(basepath);
+        this.infos = infos;
+        storagePath = storage.getPath();
+        path = storage.mergePath(infos.getIndexPath());
         casePreservingFieldNames = info.getCasePreservingFieldNames();
         defaultFieldName = info.getDefaultFieldName();
         // Put into cache.
@@ -65,6 +70,11 @@ public class FullTextIndexShared implements CacheValueGenerator<FullTextIndexInf
         return name;
     }
 
+    /** The index's own path, relative to the configured base path. */
+    public File getStoragePath() {
+        return storagePath;
+    }
+
     public File getPath() {
         return path;
     }
@@ -77,23 +87,90 @@ public class FullTextIndexShared implements CacheValueGenerator<FullTextIndexInf
         return defaultFieldName;
     }
 
+    public void deleteDirectory() {
+        infos.deleteDirectory(this);
+    }
+
+    /**
+     * For an index kept in FDB, hold on to this node's write lock and make
+     * changes committed by whichever node is indexing visible here.
+     */
+    public synchronized void refreshShared() throws IOException {
+        if (directory instanceof FDBDirectory) {
+            FDBDirectory fdbDirectory = (FDBDirectory)directory;
+            if (fdbDirectory.holdsLocks() && !fdbDirectory.renewLocks()) {
+                lostLock();
+            }
+            if (searcher != null) {
+                searcher.refresh();
+            }
+        }
+    }
+
+    /**
+     * Called periodically while writing, so that a shared index's write lock
+     * is kept for the duration. If it has been lost, the writer is abandoned
+     * and an exception thrown, so that the changes are not committed.
+     */
+    public synchronized void keepLock() throws IOException {
+        if ((directory instanceof FDBDirectory) && (indexer != null) &&
+            !((FDBDirectory)directory).renewLocksIfDue()) {
+            lostLock();
+            throw new LockObtainFailedException("Lost write lock on " + name);
+        }
+    }
+
+    /** Is this a shared index whose writer is on another node? Checked
+     * before making an <code>IndexWriter</code> just to be refused. */
+    public synchronized boolean isLockedElsewhere() throws IOException {
+        Directory directory = open();
+        return (indexer == null) &&
+            (directory instanceof FDBDirectory) &&
+            ((FDBDirectory)directory).isLockedElsewhere(IndexWriter.WRITE_LOCK_NAME);
+    }
+
+    /** Another node may now be writing: discard anything not committed and
+     * only follow the directory from here on. */
+    protected void lostLock() throws IOException {
+        try {
+            // Searcher is bound to the writer.
+            if (searcher != null) {
+                searcher.close();
+            }
+            if (indexer != null) {
+                indexer.getWriter().rollback();
+            }
+        }
+        finally {
+            searcher = null;
+            indexer = null;
+        }
+        try {
+            searcher = new Searcher(this, directory);
+        }
+        catch (IOException ex) {
+            // Nothing committed yet; left for the next search to open.
+        }
+    }
+
     public synchronized Directory open() throws IOException {
         if (directory == null) {
-            directory = FSDirectory.open(path);
+            directory = infos.openDirectory(this);
         }
         return directory;
     }
 
     @Override
     public synchronized void close() throws IOException {
-        if (indexer != null) {
-            indexer.close();
-            indexer = null;
-        }
+        // Searcher reads from the writer, so release it first.
         if (searcher != null) {
             searcher.close();
             searcher = null;
         }
+        if (indexer != null) {
+            indexer.close();
+            indexer = null;
+        }
         if (directory != null) {
             directory.close();
             directory = null;
@@ -35,7 +35,10 @@ public class Indexer implements Closeable
     
     public Indexer(FullTextIndexShared index, Analyzer analyzer) throws IOException {
         IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_40, analyzer);
-        iwc.setMaxBufferedDeleteTerms(1); // The deletion needs to be reflected immediately (on disk)
+        // Deletions become visible through the near-real-time Searcher, which
+        // applies them on refresh, so they can be buffered like additions.
+        // Do not wait for a lock held by another node; it may hold it indefinitely.
+        iwc.setWriteLockTimeout(0);
         this.index = index;
         this.writer = new IndexWriter(index.open(),  iwc);
 
@@ -40,6 +40,7 @@ import org.apache.lucene.document.StringField;
 /** Given <code>Row</code>s in hkey order, create <code>Document</code>s. */
 public class RowIndexer implements Closeable
 {
+    private FullTextIndexInfo index;
     private Map<RowType,Integer> ancestorRowTypes;
     private Row[] ancestors;
     private Set<RowType> descendantRowTypes;
@@ -49,6 +50,7 @@ public class RowIndexer implements Closeable
     private long documentCount;
     private String keyEncodedString;
     private boolean updating;
+    private Set<String> documentKeys;
 
     private static final Logger logger = LoggerFactory.getLogger(RowIndexer.class);
 
@@ -73,6 +75,7 @@ public class RowIndexer implements Closeable
                 assert false : "Not ancestor or descendant " + rowType;
             }
         }
+        this.index = index;
         this.writer = writer;
         this.updating = updating;
         currentDocument = null;
@@ -137,8 +140,36 @@ public class RowIndexer implements Closeable
         }
     }
 
+    /**
+     * Index all of the documents for a batch of pending hkeys, which were
+     * looked up together by <code>cursor</code>. Any hkey that did not
+     * produce a document has had its row deleted.
+     */
+    protected void updateDocuments(Cursor cursor, Collection<byte[]> hkeys) throws IOException
+    {
+        documentKeys = new HashSet<>();
+        try {
+            indexRows(cursor);
+            for (byte[] hkeyBytes : hkeys) {
+                String encoded = encodeBytes(hkeyBytes, 0, hkeyBytes.length);
+                if (!documentKeys.contains(encoded)) {
+                    writer.deleteDocuments(new Term(IndexedField.KEY_FIELD, encoded));
+                    logger.debug("Deleted documents with encoded bytes: {}", encoded);
+                }
+            }
+        }
+        finally {
+            documentKeys = null;
+        }
+    }
+
     protected void addDocument() throws IOException {
         if (currentDocument != null) {
+            // A large population or update may outlast a shared index's lease.
+            index.keepIndexerLock();
+            if (documentKeys != null) {
+                documentKeys.add(keyEncodedString);
+            }
             if (updating) {
                 
                 writer.updateDocument(new Term(IndexedField.KEY_FIELD, keyEncodedString), 
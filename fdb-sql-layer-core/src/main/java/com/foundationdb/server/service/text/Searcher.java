@@ -21,12 +21,13 @@ import com.foundationdb.qp.operator.RowCursor;
 import com.foundationdb.qp.operator.QueryContext;
 import com.foundationdb.qp.rowtype.HKeyRowType;
 
-import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -40,19 +41,32 @@ public class Searcher implements Closeable
     private final FullTextIndexShared index;
     private final SearcherManager searcherManager;
 
-    public Searcher(FullTextIndexShared index, Analyzer analyzer) throws IOException {
+    /** Open near-real-time searchers from <code>writer</code>, which see its
+     * changes as soon as they are refreshed, without waiting for a commit. */
+    public Searcher(FullTextIndexShared index, IndexWriter writer) throws IOException {
         this.index = index;
-        this.searcherManager = new SearcherManager(index.open(), new SearcherFactory());
+        this.searcherManager = new SearcherManager(writer, true, new SearcherFactory());
+    }
+
+    /** Open searchers from <code>directory</code>, which only see its
+     * committed changes. */
+    public Searcher(FullTextIndexShared index, Directory directory) throws IOException {
+        this.index = index;
+        this.searcherManager = new SearcherManager(directory, new SearcherFactory());
     }
 
     public RowCursor search(QueryContext context, HKeyRowType rowType,
                             Query query, int limit)
             throws IOException {
-        searcherManager.maybeRefresh(); // TODO: Move to better place.
         if (limit <= 0) limit = DEFAULT_LIMIT;
         return new FullTextCursor(context, rowType, searcherManager, query, limit);
     }
 
+    /** Make changes from the writer visible to subsequent searches. */
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
     @Override
     public void close() throws IOException {
         searcherManager.close();
@@ -59,6 +59,24 @@ public interface TransactionService extends Service {
     /** Begin a new transaction. */
     void beginTransaction(Session session);
 
+    /**
+     * Begin a new transaction that is not expected to write.
+     * Implementations may start it from a slightly older snapshot
+     * that is cheaper to acquire, but always one that includes anything
+     * this session has already committed.
+     */
+    void beginReadOnlyTransaction(Session session);
+
+    /**
+     * Begin a new read-only transaction that sees exactly the snapshot of
+     * the open transaction of <code>parent</code>, so that several sessions
+     * can work on parts of one query.
+     * @return <code>false</code>, without beginning anything, if the
+     * implementation cannot share snapshots or <code>parent</code> has
+     * uncommitted writes the new transaction would not see.
+     */
+    boolean beginSnapshotTransaction(Session session, Session parent);
+
     /** Begin a new transaction that will rollback upon close if not committed. */
     CloseableTransaction beginCloseableTransaction(Session session);
 
@@ -79,6 +97,16 @@ public interface TransactionService extends Service {
      */
     boolean commitOrRetryTransaction(Session session);
 
+    /** Are small autocommit transactions allowed to commit as part of a group? */
+    boolean isGroupCommitEnabled();
+
+    /**
+     * As {@link #commitOrRetryTransaction}, but the transaction's writes may
+     * be committed together with those of other sessions' concurrent
+     * transactions, if none of them conflict.
+     */
+    boolean groupCommitOrRetryTransaction(Session session);
+
     /** Rollback an open transaction. */
     void rollbackTransaction(Session session);
 
@@ -121,7 +149,9 @@ public interface TransactionService extends Service {
 
     enum SessionOption { 
         /** Control when / how constraints like uniqueness are checked. */
-        CONSTRAINT_CHECK_TIME
+        CONSTRAINT_CHECK_TIME,
+        /** Require read-only transactions to start from the latest snapshot. */
+        STRICT_READ_VERSION
     }
 
     /** Set user option on <code>Session</code>. */
@@ -519,6 +519,7 @@ public abstract class AbstractStore<SType extends AbstractStore,SDType,SSDType e
 
     @Override
     public void truncateGroup(final Session session, final Group group) {
+        trackTableWrite(session, group.getRoot());
         group.getRoot().visit(new AbstractVisitor() {
             @Override
             public void visit(Table table) {
@@ -906,7 +907,8 @@ public abstract class AbstractStore<SType extends AbstractStore,SDType,SSDType e
                              final WriteIndexRow indexRowBuffer) {
         int nkeys = index.getKeyColumns().size();
         IndexRowComposition indexRowComposition = index.indexRowComposition();
-        if(!fieldsEqual(oldRow, newRow, nkeys, indexRowComposition)) {
+        if(!fieldsEqual(oldRow, newRow, nkeys, indexRowComposition) ||
+           !includedFieldsEqual(oldRow, newRow, index)) {
             UPDATE_INDEX_TAP.in();
             try {
                 if (index.isSpatial()) {
@@ -1049,6 +1051,17 @@ public abstract class AbstractStore<SType extends AbstractStore,SDType,SSDType e
         return true;
     }
     
+    /** Included columns are stored in the index too, so changing them changes the entry. */
+    protected static boolean includedFieldsEqual(Row a, Row b, TableIndex index) {
+        for (Column column : index.getIncludedColumns()) {
+            int fieldIndex = column.getPosition();
+            if (!TClass.areEqual(a.value(fieldIndex), b.value(fieldIndex))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static BitSet changedColumnPositions (Row a, Row b) {
         int fields = a.rowType().nFields();
         BitSet differences = new BitSet(fields);
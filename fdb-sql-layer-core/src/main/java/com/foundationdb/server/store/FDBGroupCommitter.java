@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.server.store;
+
+import com.foundationdb.FDBException;
+import com.foundationdb.Range;
+import com.foundationdb.Transaction;
+import com.foundationdb.async.Future;
+import com.foundationdb.async.SettableFuture;
+import com.foundationdb.tuple.ByteArrayUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide merging of small autocommit transactions from different
+ * sessions into a single FDB commit.
+ *
+ * <p>
+ *     The first commit to arrive leads a group and waits up to
+ *     <code>windowMillis</code> (or until <code>maxMembers</code> have
+ *     joined) for others. The leader then admits members in arrival order,
+ *     as long as each one read nothing that an earlier admitted member
+ *     wrote, so that arrival order is a valid serial order. The admitted
+ *     members' recorded writes and conflict ranges are replayed into one
+ *     new transaction at the oldest of their read versions, which is
+ *     committed once; every admitted member is acked with its version.
+ * </p>
+ * <p>
+ *     A member that cannot be admitted commits its own transaction. If the
+ *     merged commit fails (for instance because one member conflicts with
+ *     another session), each admitted member falls back to committing its
+ *     own transaction, so that a conflict only fails the statement that
+ *     caused it and is retried by that session alone. An unknown result
+ *     is reported to every member, as it would have been for each.
+ * </p>
+ */
+public abstract class FDBGroupCommitter
+{
+    static final int COMMIT_UNKNOWN_RESULT = 1021;
+
+    private final long windowNanos;
+    private final int maxMembers;
+    private final AtomicLong groups = new AtomicLong(), members = new AtomicLong(),
+                             merged = new AtomicLong();
+    private Group forming;      // Guarded by this
+
+    static class Member {
+        final FDBRecordingTransaction transaction;
+        final SettableFuture<Long> committed = new SettableFuture<>();
+
+        Member(FDBRecordingTransaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+
+    static class Group {
+        final List<Member> members = new ArrayList<>();
+    }
+
+    protected FDBGroupCommitter(long windowMillis, int maxMembers) {
+        this.windowNanos = windowMillis * 1000000L;
+        this.maxMembers = maxMembers;
+    }
+
+    /** Create the transaction into which a group is merged. */
+    protected abstract Transaction createTransaction();
+
+    /**
+     * Add <code>transaction</code> to the forming group, or lead a new one,
+     * and return its eventual commit version.
+     */
+    public Future<Long> commit(FDBRecordingTransaction transaction) {
+        Member member = new Member(transaction);
+        Group group;
+        boolean leader = false;
+        synchronized (this) {
+            group = forming;
+            if (group == null) {
+                group = forming = new Group();
+                leader = true;
+            }
+            group.members.add(member);
+            if (group.members.size() >= maxMembers) {
+                forming = null;
+                notifyAll();
+            }
+        }
+        if (leader) {
+            awaitWindow(group);
+            List<Member> toCommit;
+            synchronized (this) {
+                toCommit = new ArrayList<>(group.members);
+            }
+            groups.incrementAndGet();
+            members.addAndGet(toCommit.size());
+            commitGroup(toCommit);
+        }
+        return member.committed;
+    }
+
+    public long getGroups() {
+        return groups.get();
+    }
+
+    public long getMembers() {
+        return members.get();
+    }
+
+    /** Number of members that were committed as part of a merged transaction. */
+    public long getMerged() {
+        return merged.get();
+    }
+
+    synchronized int formingSize() {
+        return (forming == null) ? 0 : forming.members.size();
+    }
+
+    /** Wait until the window closes or the group fills. An interrupt
+     * just closes the window early; it is left for the commit itself. */
+    protected synchronized void awaitWindow(Group group) {
+        long deadline = System.nanoTime() + windowNanos;
+        boolean interrupted = false;
+        while (forming == group) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                wait(remaining / 1000000L, (int)(remaining % 1000000L));
+            }
+            catch (InterruptedException ex) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (forming == group) {
+            forming = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void commitGroup(List<Member> group) {
+        List<Member> admitted = new ArrayList<>(group.size());
+        List<Range> written = new ArrayList<>();
+        for (Member member : group) {
+            FDBRecordingTransaction tr = member.transaction;
+            if (tr.isReplayable() && !overlaps(tr.getReadRanges(), written)) {
+                admitted.add(member);
+                written.addAll(tr.getWriteRanges());
+            }
+            else {
+                commitAlone(member);
+            }
+        }
+        if (admitted.size() < 2) {
+            for (Member member : admitted) {
+                commitAlone(member);
+            }
+        }
+        else {
+            commitTogether(admitted);
+        }
+    }
+
+    protected void commitTogether(List<Member> admitted) {
+        Transaction tr = null;
+        try {
+            tr = createTransaction();
+            long readVersion = Long.MAX_VALUE;
+            for (Member member : admitted) {
+                readVersion = Math.min(readVersion, member.transaction.getReadVersion().get());
+            }
+            tr.setReadVersion(readVersion);
+            for (Member member : admitted) {
+                member.transaction.replay(tr);
+            }
+            tr.commit().get();
+            Long commitVersion = tr.getCommittedVersion();
+            merged.addAndGet(admitted.size());
+            for (Member member : admitted) {
+                member.committed.set(commitVersion);
+            }
+        }
+        catch (FDBException ex) {
+            if (ex.getCode() == COMMIT_UNKNOWN_RESULT) {
+                for (Member member : admitted) {
+                    member.committed.setError(ex);
+                }
+            }
+            else {
+                for (Member member : admitted) {
+                    commitAlone(member);
+                }
+            }
+        }
+        catch (RuntimeException ex) {
+            for (Member member : admitted) {
+                member.committed.setError(ex);
+            }
+        }
+        finally {
+            if (tr != null) {
+                tr.dispose();
+            }
+        }
+    }
+
+    protected void commitAlone(final Member member) {
+        final Future<Void> commit;
+        try {
+            commit = member.transaction.commit();
+        }
+        catch (RuntimeException ex) {
+            member.committed.setError(ex);
+            return;
+        }
+        commit.onReady(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        commit.get();
+                        member.committed.set(member.transaction.getCommittedVersion());
+                    }
+                    catch (RuntimeException ex) {
+                        member.committed.setError(ex);
+                    }
+                }
+            });
+    }
+
+    protected static boolean overlaps(List<Range> ranges, List<Range> others) {
+        for (Range range : ranges) {
+            for (Range other : others) {
+                if ((ByteArrayUtil.compareUnsigned(range.begin, other.end) < 0) &&
+                    (ByteArrayUtil.compareUnsigned(other.begin, range.end) < 0)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store;
+
+import com.foundationdb.async.Future;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide source of recent read versions for read-only transactions.
+ *
+ * <p>
+ *     Acquiring a read version is a round trip to the cluster. A
+ *     version whose fetch began no more than <code>stalenessMillis</code>
+ *     ago is handed out again instead, and concurrent requests that miss
+ *     share a single fetch. A version is never reused once anything
+ *     committed through this node at a later version, so a session
+ *     always sees its own earlier commits.
+ * </p>
+ * <p>
+ *     Once a version is more than half way to expiry, the next request
+ *     that uses it also starts a replacement fetch in the background, so
+ *     steady traffic rarely has to wait.
+ * </p>
+ */
+public abstract class FDBReadVersionCache
+{
+    private final long stalenessNanos;
+    private final AtomicLong minimumVersion = new AtomicLong(-1);
+    private final AtomicLong hits = new AtomicLong(), fetches = new AtomicLong();
+    private final Object lock = new Object();
+    private volatile Cached cached;
+    private Fetch inFlight;     // Guarded by lock
+
+    protected FDBReadVersionCache(long stalenessMillis) {
+        this.stalenessNanos = stalenessMillis * 1000000L;
+    }
+
+    /** Start getting a new read version from the cluster. */
+    protected abstract Future<Long> fetchReadVersion();
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Get a recent read version or <code>-1</code> if the caller should
+     * acquire its own, because the fetch failed or was interrupted.
+     */
+    public long getReadVersion() {
+        long required = minimumVersion.get();
+        long now = nanoTime();
+        Cached current = cached;
+        if (isUsable(current, now, required)) {
+            hits.incrementAndGet();
+            if (now - current.fetchStarted > stalenessNanos / 2) {
+                refresh(current, now);
+            }
+            return current.version;
+        }
+        Fetch fetch;
+        synchronized (lock) {
+            current = cached;
+            if (isUsable(current, now, required)) {
+                hits.incrementAndGet();
+                return current.version;
+            }
+            fetch = inFlight;
+            if (fetch == null) {
+                fetch = startFetch(now);
+            }
+        }
+        long version = fetch.await();
+        if ((version >= 0) && (version < required)) {
+            // A shared fetch that began before a local commit finished.
+            synchronized (lock) {
+                fetch = startFetch(nanoTime());
+            }
+            version = fetch.await();
+        }
+        return version;
+    }
+
+    /** Note that a transaction committed through this node at <code>version</code>. */
+    public void committed(long version) {
+        long current;
+        do {
+            current = minimumVersion.get();
+            if (version <= current) {
+                return;
+            }
+        } while (!minimumVersion.compareAndSet(current, version));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getFetches() {
+        return fetches.get();
+    }
+
+    //
+    // Internal
+    //
+
+    private boolean isUsable(Cached current, long now, long required) {
+        return (current != null) &&
+               (now - current.fetchStarted <= stalenessNanos) &&
+               (current.version >= required);
+    }
+
+    /** Fetch ahead of expiry, unless someone else already is. */
+    private void refresh(Cached current, long now) {
+        synchronized (lock) {
+            if ((inFlight == null) && (cached == current)) {
+                startFetch(now);
+            }
+        }
+    }
+
+    /** Must hold lock. */
+    private Fetch startFetch(long now) {
+        fetches.incrementAndGet();
+        final Fetch fetch = new Fetch(now, fetchReadVersion());
+        inFlight = fetch;
+        fetch.future.onReady(new Runnable() {
+                @Override
+                public void run() {
+                    fetchDone(fetch);
+                }
+            });
+        return fetch;
+    }
+
+    private void fetchDone(Fetch fetch) {
+        long version = fetch.version();
+        synchronized (lock) {
+            if (version >= 0) {
+                Cached current = cached;
+                if ((current == null) || (current.version < version) ||
+                    ((current.version == version) && (current.fetchStarted < fetch.started))) {
+                    cached = new Cached(version, fetch.started);
+                }
+            }
+            if (inFlight == fetch) {
+                inFlight = null;
+            }
+        }
+    }
+
+    static final class Cached {
+        final long version, fetchStarted;
+
+        Cached(long version, long fetchStarted) {
+            this.version = version;
+            this.fetchStarted = fetchStarted;
+        }
+    }
+
+    static final class Fetch {
+        final long started;
+        final Future<Long> future;
+
+        Fetch(long started, Future<Long> future) {
+            this.started = started;
+            this.future = future;
+        }
+
+        long await() {
+            try {
+                future.blockInterruptibly();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+            return version();
+        }
+
+        long version() {
+            if (future.isError()) {
+                return -1;
+            }
+            return future.get();
+        }
+    }
+}
@@ -0,0 +1,481 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.server.store;
+
+import com.foundationdb.Database;
+import com.foundationdb.KeySelector;
+import com.foundationdb.KeyValue;
+import com.foundationdb.MutationType;
+import com.foundationdb.Range;
+import com.foundationdb.ReadTransaction;
+import com.foundationdb.StreamingMode;
+import com.foundationdb.Transaction;
+import com.foundationdb.TransactionOptions;
+import com.foundationdb.async.AsyncIterable;
+import com.foundationdb.async.Function;
+import com.foundationdb.async.Future;
+import com.foundationdb.async.PartialFunction;
+import com.foundationdb.async.PartialFuture;
+import com.foundationdb.async.ReadyFuture;
+import com.foundationdb.async.ReadyPartialFuture;
+import com.foundationdb.tuple.ByteArrayUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A transaction that also records its mutations and conflict ranges, so
+ * that {@link FDBGroupCommitter} can replay them into a transaction shared
+ * with other sessions.
+ *
+ * <p>
+ *     Reads record the whole range asked for, whatever limit is given, so
+ *     the recorded read conflicts are never narrower than the real ones.
+ *     Anything whose conflicts cannot be known this way (selectors that do
+ *     not resolve forward, <code>getKey</code>, watches and options) leaves
+ *     the transaction to commit on its own, as does recording more than
+ *     <code>maxRecordedBytes</code>.
+ * </p>
+ */
+public class FDBRecordingTransaction implements Transaction
+{
+    enum OpType { SET, CLEAR, CLEAR_RANGE, MUTATE, READ_CONFLICT_RANGE, WRITE_CONFLICT_RANGE }
+
+    static class Op {
+        final OpType type;
+        final byte[] key, param;
+        final MutationType mutationType;
+
+        Op(OpType type, byte[] key, byte[] param, MutationType mutationType) {
+            this.type = type;
+            this.key = key;
+            this.param = param;
+            this.mutationType = mutationType;
+        }
+    }
+
+    private final Transaction transaction;
+    private final int maxRecordedBytes;
+    private final List<Op> ops = new ArrayList<>();
+    private final List<Range> readRanges = new ArrayList<>();
+    private final List<Range> writeRanges = new ArrayList<>();
+    private int recordedBytes;
+    private boolean replayable = true, optionsChanged;
+
+    public FDBRecordingTransaction(Transaction transaction, int maxRecordedBytes) {
+        this.transaction = transaction;
+        this.maxRecordedBytes = maxRecordedBytes;
+    }
+
+    /** Can this transaction's effects be committed as part of another? */
+    public boolean isReplayable() {
+        return replayable && !optionsChanged;
+    }
+
+    public boolean hasWrites() {
+        return !writeRanges.isEmpty();
+    }
+
+    /** The ranges read since the last reset. */
+    public List<Range> getReadRanges() {
+        return readRanges;
+    }
+
+    /** The ranges written since the last reset. */
+    public List<Range> getWriteRanges() {
+        return writeRanges;
+    }
+
+    /** Apply everything recorded since the last reset to <code>tr</code>, in order. */
+    public void replay(Transaction tr) {
+        assert isReplayable();
+        for (Op op : ops) {
+            switch (op.type) {
+            case SET:
+                tr.set(op.key, op.param);
+                break;
+            case CLEAR:
+                tr.clear(op.key);
+                break;
+            case CLEAR_RANGE:
+                tr.clear(op.key, op.param);
+                break;
+            case MUTATE:
+                tr.mutate(op.mutationType, op.key, op.param);
+                break;
+            case READ_CONFLICT_RANGE:
+                tr.addReadConflictRange(op.key, op.param);
+                break;
+            case WRITE_CONFLICT_RANGE:
+                tr.addWriteConflictRange(op.key, op.param);
+                break;
+            }
+        }
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /* Recording */
+
+    protected void recordRead(byte[] begin, byte[] end) {
+        if (record(OpType.READ_CONFLICT_RANGE, begin, end, null)) {
+            readRanges.add(new Range(begin, end));
+        }
+    }
+
+    protected void recordRead(KeySelector begin, KeySelector end) {
+        // A selector with offset 1 resolves to its key or later, so the
+        // keys from the begin key to just past the end key cover the read.
+        if ((begin.getOffset() == 1) && (end.getOffset() == 1)) {
+            recordRead(begin.getKey(), keyAfter(end.getKey()));
+        }
+        else {
+            replayable = false;
+        }
+    }
+
+    protected void recordWrite(OpType type, byte[] key, byte[] param, MutationType mutationType,
+                               byte[] begin, byte[] end) {
+        if (record(type, key, param, mutationType)) {
+            writeRanges.add(new Range(begin, end));
+        }
+    }
+
+    protected boolean record(OpType type, byte[] key, byte[] param, MutationType mutationType) {
+        if (!replayable) {
+            return false;
+        }
+        recordedBytes += key.length + ((param == null) ? 0 : param.length);
+        if (recordedBytes > maxRecordedBytes) {
+            replayable = false;
+            clearRecorded();
+            return false;
+        }
+        ops.add(new Op(type, copy(key), copy(param), mutationType));
+        return true;
+    }
+
+    protected void clearRecorded() {
+        ops.clear();
+        readRanges.clear();
+        writeRanges.clear();
+        recordedBytes = 0;
+    }
+
+    protected void resetRecorded() {
+        clearRecorded();
+        replayable = true;
+    }
+
+    protected static byte[] copy(byte[] bytes) {
+        return (bytes == null) ? null : Arrays.copyOf(bytes, bytes.length);
+    }
+
+    protected static byte[] keyAfter(byte[] key) {
+        return ByteArrayUtil.join(key, new byte[1]);
+    }
+
+    /* ReadTransaction */
+
+    @Override
+    public Future<Long> getReadVersion() {
+        return transaction.getReadVersion();
+    }
+
+    @Override
+    public Future<byte[]> get(byte[] key) {
+        recordRead(key, keyAfter(key));
+        return transaction.get(key);
+    }
+
+    @Override
+    public Future<byte[]> getKey(KeySelector selector) {
+        replayable = false;
+        return transaction.getKey(selector);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(KeySelector begin, KeySelector end) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(KeySelector begin, KeySelector end, int limit) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(KeySelector begin, KeySelector end, int limit, boolean reverse) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit, reverse);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(KeySelector begin, KeySelector end, int limit, boolean reverse,
+                                            StreamingMode mode) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit, reverse, mode);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(byte[] begin, byte[] end) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(byte[] begin, byte[] end, int limit) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(byte[] begin, byte[] end, int limit, boolean reverse) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit, reverse);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(byte[] begin, byte[] end, int limit, boolean reverse,
+                                            StreamingMode mode) {
+        recordRead(begin, end);
+        return transaction.getRange(begin, end, limit, reverse, mode);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(Range range) {
+        recordRead(range.begin, range.end);
+        return transaction.getRange(range);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(Range range, int limit) {
+        recordRead(range.begin, range.end);
+        return transaction.getRange(range, limit);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(Range range, int limit, boolean reverse) {
+        recordRead(range.begin, range.end);
+        return transaction.getRange(range, limit, reverse);
+    }
+
+    @Override
+    public AsyncIterable<KeyValue> getRange(Range range, int limit, boolean reverse, StreamingMode mode) {
+        recordRead(range.begin, range.end);
+        return transaction.getRange(range, limit, reverse, mode);
+    }
+
+    /* Transaction */
+
+    @Override
+    public ReadTransaction snapshot() {
+        // Snapshot reads do not conflict.
+        return transaction.snapshot();
+    }
+
+    @Override
+    public void setReadVersion(long version) {
+        transaction.setReadVersion(version);
+    }
+
+    @Override
+    public void addReadConflictRange(byte[] begin, byte[] end) {
+        recordRead(begin, end);
+        transaction.addReadConflictRange(begin, end);
+    }
+
+    @Override
+    public void addReadConflictKey(byte[] key) {
+        recordRead(key, keyAfter(key));
+        transaction.addReadConflictKey(key);
+    }
+
+    @Override
+    public void addWriteConflictRange(byte[] begin, byte[] end) {
+        recordWrite(OpType.WRITE_CONFLICT_RANGE, begin, end, null, begin, end);
+        transaction.addWriteConflictRange(begin, end);
+    }
+
+    @Override
+    public void addWriteConflictKey(byte[] key) {
+        byte[] end = keyAfter(key);
+        recordWrite(OpType.WRITE_CONFLICT_RANGE, key, end, null, key, end);
+        transaction.addWriteConflictKey(key);
+    }
+
+    @Override
+    public void set(byte[] key, byte[] value) {
+        recordWrite(OpType.SET, key, value, null, key, keyAfter(key));
+        transaction.set(key, value);
+    }
+
+    @Override
+    public void clear(byte[] key) {
+        recordWrite(OpType.CLEAR, key, null, null, key, keyAfter(key));
+        transaction.clear(key);
+    }
+
+    @Override
+    public void clear(byte[] begin, byte[] end) {
+        recordWrite(OpType.CLEAR_RANGE, begin, end, null, begin, end);
+        transaction.clear(begin, end);
+    }
+
+    @Override
+    public void clear(Range range) {
+        recordWrite(OpType.CLEAR_RANGE, range.begin, range.end, null, range.begin, range.end);
+        transaction.clear(range);
+    }
+
+    @Override
+    @Deprecated
+    public void clearRangeStartsWith(byte[] prefix) {
+        clear(Range.startsWith(prefix));
+    }
+
+    @Override
+    public void mutate(MutationType optype, byte[] key, byte[] param) {
+        recordWrite(OpType.MUTATE, key, param, optype, key, keyAfter(key));
+        transaction.mutate(optype, key, param);
+    }
+
+    @Override
+    public TransactionOptions options() {
+        // Options stay set through a reset and would not carry over.
+        optionsChanged = true;
+        return transaction.options();
+    }
+
+    @Override
+    public Future<Void> commit() {
+        return transaction.commit();
+    }
+
+    @Override
+    public Long getCommittedVersion() {
+        return transaction.getCommittedVersion();
+    }
+
+    @Override
+    public Future<Void> onError(RuntimeException e) {
+        resetRecorded();
+        return transaction.onError(e);
+    }
+
+    @Override
+    public PartialFuture<Void> onError(Exception e) {
+        resetRecorded();
+        return transaction.onError(e);
+    }
+
+    @Override
+    public void reset() {
+        resetRecorded();
+        transaction.reset();
+    }
+
+    @Override
+    public void cancel() {
+        replayable = false;
+        transaction.cancel();
+    }
+
+    @Override
+    public Future<Void> watch(byte[] key) {
+        // The watch is only set by this transaction's own commit.
+        replayable = false;
+        return transaction.watch(key);
+    }
+
+    @Override
+    public Database getDatabase() {
+        return transaction.getDatabase();
+    }
+
+    @Override
+    public void dispose() {
+        transaction.dispose();
+    }
+
+    /* TransactionContext, applied to this transaction as it is */
+
+    @Override
+    public <T> T run(Function<? super Transaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    @Override
+    public <T> T run(PartialFunction<? super Transaction, T> retryable) throws Exception {
+        return retryable.apply(this);
+    }
+
+    @Override
+    public <T> Future<T> runAsync(Function<? super Transaction, Future<T>> retryable) {
+        try {
+            return retryable.apply(this);
+        }
+        catch (RuntimeException ex) {
+            return new ReadyFuture<>(ex);
+        }
+    }
+
+    @Override
+    public <T> PartialFuture<T> runAsync(PartialFunction<? super Transaction, ? extends PartialFuture<T>> retryable) {
+        try {
+            return retryable.apply(this);
+        }
+        catch (Exception ex) {
+            return new ReadyPartialFuture<>(ex);
+        }
+    }
+
+    @Override
+    public <T> T read(Function<? super ReadTransaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    @Override
+    public <T> T read(PartialFunction<? super ReadTransaction, T> retryable) throws Exception {
+        return retryable.apply(this);
+    }
+
+    @Override
+    public <T> Future<T> readAsync(Function<? super ReadTransaction, Future<T>> retryable) {
+        try {
+            return retryable.apply(this);
+        }
+        catch (RuntimeException ex) {
+            return new ReadyFuture<>(ex);
+        }
+    }
+
+    @Override
+    public <T> PartialFuture<T> readAsync(PartialFunction<? super ReadTransaction, ? extends PartialFuture<T>> retryable) {
+        try {
+            return retryable.apply(this);
+        }
+        catch (Exception ex) {
+            return new ReadyPartialFuture<>(ex);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import com.foundationdb.ais.util.TableChangeValidator.ChangeLevel;
 import com.foundationdb.async.AsyncIterator;
 import com.foundationdb.directory.DirectorySubspace;
 import com.foundationdb.directory.PathUtil;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.row.IndexRow;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.WriteIndexRow;
@@ -44,6 +45,7 @@ import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.qp.storeadapter.FDBAdapter;
 import com.foundationdb.qp.storeadapter.indexrow.FDBIndexRow;
 import com.foundationdb.qp.storeadapter.indexrow.SpatialColumnHandler;
+import com.foundationdb.qp.util.PersistitKey;
 import com.foundationdb.qp.util.SchemaCache;
 import com.foundationdb.server.error.*;
 import com.foundationdb.server.service.Service;
@@ -64,6 +66,7 @@ import com.foundationdb.server.types.aksql.aktypes.AkBlob;
 import com.foundationdb.server.types.aksql.aktypes.AkGUID;
 import com.foundationdb.server.types.service.TypesRegistryService;
 import com.foundationdb.server.util.ReadWriteMap;
+import com.foundationdb.tuple.ByteArrayUtil;
 import com.foundationdb.tuple.Tuple2;
 import com.foundationdb.tuple.Tuple;
 import com.google.inject.Inject;
@@ -71,6 +74,8 @@ import com.persistit.Key;
 import com.persistit.Persistit;
 import com.persistit.Value;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -101,10 +106,15 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
     private static final String ROWS_STORED_METRIC = "SQLLayerRowsStored";
     private static final String ROWS_CLEARED_METRIC = "SQLLayerRowsCleared";
     private static final String CONFIG_SEQUENCE_CACHE_SIZE = "fdbsql.fdb.sequence_cache_size";
+    private static final String CONFIG_TRACK_GROUP_VERSIONS = "fdbsql.fdb.track_group_versions";
+    private static final List<String> GROUP_VERSION_DIR_PATH = Arrays.asList("groupVersion");
+    private static final byte[] GROUP_VERSION_INCREMENT = { 1, 0, 0, 0, 0, 0, 0, 0 };
 
     private LongMetric rowsFetchedMetric, rowsStoredMetric, rowsClearedMetric;
     private DirectorySubspace rootDir;
     private int sequenceCacheSize;
+    private boolean trackGroupVersions;
+    private byte[] packedGroupVersionPrefix;
 
 
     @Inject
@@ -203,6 +213,10 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
 
         boolean withConcurrentDML = Boolean.parseBoolean(configService.getProperty(FEATURE_DDL_WITH_DML_PROP));
         this.sequenceCacheSize = Integer.parseInt(configService.getProperty(CONFIG_SEQUENCE_CACHE_SIZE));
+        this.trackGroupVersions = Boolean.parseBoolean(configService.getProperty(CONFIG_TRACK_GROUP_VERSIONS));
+        if (trackGroupVersions) {
+            packedGroupVersionPrefix = txnService.dirPathPrefix(GROUP_VERSION_DIR_PATH);
+        }
         this.constraintHandler = new FDBConstraintHandler(this, configService, typesRegistryService, serviceManager, txnService);
         this.onlineHelper = new OnlineHelper(txnService, schemaManager, this, typesRegistryService, constraintHandler, withConcurrentDML);
         listenerService.registerRowListener(onlineHelper);
@@ -311,7 +325,7 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
         if (!pkValue.isEmpty()) {
             assert pkValue.size() == 1 : parentPKIndex;
             KeyValue kv = pkValue.get(0);
-            assert kv.getValue().length == 0 : parentPKIndex + ", " + kv;
+            assert kv.getValue().length == 0 || parentPKIndex.getValueColumnCount() > 0 : parentPKIndex + ", " + kv;
             indexRow = new FDBIndexRow(this);
             FDBStoreDataHelper.unpackTuple(parentPKIndex, parentPkKey, kv.getKey());
             indexRow.resetForRead(parentPKIndex, parentPkKey, null);
@@ -334,8 +348,12 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
         constructIndexRow(session, indexKey, row, index, hKey, indexRow, spatialColumnHandler, zValue, true);
         checkUniqueness(session, txn, index, row, indexKey);
 
+        byte[] packedValue = EMPTY_BYTE_ARRAY;
+        if (index.getValueColumnCount() > 0) {
+            packedValue = PersistitKey.removeTrailingFields(indexKey, index.getValueColumnCount());
+        }
         byte[] packedKey = packedTuple(index, indexKey);
-        txn.setBytes(packedKey, EMPTY_BYTE_ARRAY);
+        txn.setBytes(packedKey, packedValue);
         
     }
     
@@ -345,6 +363,9 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
         TransactionState txn = txnService.getTransaction(session);
         Key indexKey = createKey();
         constructIndexRow(session, indexKey, row, index, hKey, indexRow, spatialColumnHandler, zValue, false);
+        if (index.getValueColumnCount() > 0) {
+            PersistitKey.removeTrailingFields(indexKey, index.getValueColumnCount());
+        }
         byte[] packed = packedTuple(index, indexKey);
         txn.clearKey(packed);
     }
@@ -361,7 +382,36 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
     
     @Override
     protected void trackTableWrite(Session session, Table table) {
-        // None
+        Group group = table.getGroup();
+        if (trackGroupVersions && !group.isVirtual()) {
+            TransactionState txn = txnService.getTransaction(session);
+            if (txn.addWrittenGroup(group)) {
+                // Atomic, so concurrent writers do not conflict on it.
+                txn.mutate(MutationType.ADD, groupVersionKey(group), GROUP_VERSION_INCREMENT);
+            }
+        }
+    }
+
+    @Override
+    public long getGroupVersion(Session session, Group group) {
+        if (!trackGroupVersions || group.isVirtual()) {
+            return -1;
+        }
+        TransactionState txn = txnService.getTransaction(session);
+        if (txn.hasWrittenGroup(group)) {
+            return -1;
+        }
+        byte[] value = txn.getSnapshotValue(groupVersionKey(group));
+        if (value == null) {
+            return 0;
+        }
+        return ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    private byte[] groupVersionKey(Group group) {
+        TableName name = group.getName();
+        return ByteArrayUtil.join(packedGroupVersionPrefix,
+                                  Tuple2.from(name.getSchemaName(), name.getTableName()).pack());
     }
 
 
@@ -748,7 +798,7 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
     public static UUID writeDataToNewBlob(Session session, byte[] data) {
         UUID id = UUID.randomUUID();
         lobService.createNewLob(session, id);
-        lobService.writeBlob(session, id, 0, data);
+        lobService.appendBlob(session, id, data);
         return id;
     }
     
@@ -877,6 +927,24 @@ public class FDBStore extends AbstractStore<FDBStore,FDBStoreData,FDBStorageDesc
                       Transaction.ROW_LIMIT_UNLIMITED, transactionOptions);
     }
 
+    /** Split the group into <code>nPartitions</code> disjoint parts. */
+    public List<GroupPartition> partitionGroup(Session session, Group group, int nPartitions) {
+        FDBStoreData storeData = createStoreData(session, group);
+        try {
+            return storeData.storageDescription.partitionGroup(this, session, storeData, nPartitions);
+        } finally {
+            releaseStoreData(session, storeData);
+        }
+    }
+
+    /** Iterate over one part of the group from {@link #partitionGroup}. */
+    public void groupPartitionIterator(Session session, FDBStoreData storeData,
+                                       GroupPartition partition,
+                                       FDBScanTransactionOptions transactionOptions) {
+        storeData.storageDescription.groupPartitionIterator(this, session, storeData,
+                                                            partition, transactionOptions);
+    }
+
     public void groupIterator(Session session, FDBStoreData storeData,
                               GroupIteratorBoundary left, GroupIteratorBoundary right,
                               int limit, FDBScanTransactionOptions transactionOptions) {
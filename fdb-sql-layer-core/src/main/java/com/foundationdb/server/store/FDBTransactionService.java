@@ -18,6 +18,7 @@
 package com.foundationdb.server.store;
 
 import com.foundationdb.ais.model.ForeignKey;
+import com.foundationdb.ais.model.Group;
 import com.foundationdb.qp.storeadapter.FDBAdapter;
 import com.foundationdb.server.error.AkibanInternalException;
 import com.foundationdb.server.error.FDBCommitUnknownResultException;
@@ -27,6 +28,7 @@ import com.foundationdb.server.error.QueryCanceledException;
 import com.foundationdb.server.service.config.ConfigurationService;
 import com.foundationdb.server.service.metrics.LongMetric;
 import com.foundationdb.server.service.metrics.MetricsService;
+import com.foundationdb.server.service.monitor.StatementResources;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.service.transaction.TransactionService;
 import com.foundationdb.sql.parser.IsolationLevel;
@@ -49,10 +51,12 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.Random;
+import java.util.Set;
 
 import static com.foundationdb.server.service.session.Session.Key;
 import static com.foundationdb.server.service.session.Session.StackKey;
@@ -78,6 +82,7 @@ public class FDBTransactionService implements TransactionService {
     protected static final Key<Boolean> ROLLBACK_KEY = Key.named("TXN_ROLLBACK");
     protected static final Key<FDBPendingIndexChecks.CheckTime> CONSTRAINT_CHECK_TIME_KEY = Key.named("CONSTRAINT_CHECK_TIME");
     protected static final Key<TransactionCheckCounter> TXN_CHECK_KEY = Key.named("TXN_CHECK_KEY");
+    protected static final Key<Boolean> STRICT_READ_VERSION_KEY = Key.named("STRICT_READ_VERSION");
     protected static final StackKey<Callback> PRE_COMMIT_KEY = StackKey.stackNamed("TXN_PRE_COMMIT");
     protected static final StackKey<Callback> AFTER_END_KEY = StackKey.stackNamed("TXN_AFTER_END");
     protected static final StackKey<Callback> AFTER_COMMIT_KEY = StackKey.stackNamed("TXN_AFTER_COMMIT");
@@ -87,6 +92,10 @@ public class FDBTransactionService implements TransactionService {
     protected static final String CONFIG_COMMIT_SCAN_LIMIT = "fdbsql.fdb.periodically_commit.scan_limit";
     protected static final String CONFIG_READ_AHEAD_DISABLE = "fdbsql.fdb.xact.read_ahead_disable";
     protected static final String CONFIG_READ_YOUR_WRITES_DISABLE = "fdbsql.fdb.xact.read_your_writes_disable";
+    protected static final String CONFIG_READ_VERSION_CACHE_MILLIS = "fdbsql.fdb.xact.read_version_cache_millis";
+    protected static final String CONFIG_GROUP_COMMIT_MILLIS = "fdbsql.fdb.xact.group_commit_millis";
+    protected static final String CONFIG_GROUP_COMMIT_MAX_SIZE = "fdbsql.fdb.xact.group_commit_max_size";
+    protected static final String CONFIG_GROUP_COMMIT_MAX_BYTES = "fdbsql.fdb.xact.group_commit_max_bytes";
     protected static final String UNIQUENESS_CHECKS_METRIC = "SQLLayerUniquenessPending";
 
     protected static final List<String> TRANSACTION_CHECK_DIR_PATH = Arrays.asList("transactionCheck");
@@ -99,6 +108,9 @@ public class FDBTransactionService implements TransactionService {
     private int commitScanLimit;
     private boolean readAheadDisable, readYourWritesDisable;
     private LongMetric uniquenessChecksMetric;
+    private FDBReadVersionCache readVersionCache;
+    private FDBGroupCommitter groupCommitter;
+    private int groupCommitMaxBytes;
     private byte[] packedTransactionCheckPrefix;
 
     @Inject
@@ -116,14 +128,19 @@ public class FDBTransactionService implements TransactionService {
         FDBPendingIndexChecks indexChecks;
         long startTime;
         long bytesSet;
+        boolean written;
         public long uniquenessTime;
         Map<ForeignKey,Boolean> deferredForeignKeys;
+        Set<Group> writtenGroups;
         boolean forceImmediateForeignKeyCheck;
         int resetCount;
         FDBScanTransactionOptions scanOptions = FDBScanTransactionOptions.NORMAL;
 
         public TransactionState(FDBPendingIndexChecks.CheckTime checkTime, Session session) {
-            this.transaction = createTransaction();
+            if (groupCommitter != null)
+                this.transaction = new FDBRecordingTransaction(createTransaction(), groupCommitMaxBytes);
+            else
+                this.transaction = createTransaction();
             this.session = session;
             if ((checkTime != null) && checkTime.isDelayed())
                 this.indexChecks = new FDBPendingIndexChecks(checkTime,
@@ -148,11 +165,11 @@ public class FDBTransactionService implements TransactionService {
         }
 
         public Future<byte[]> getFuture(byte[] key) {
-            return transaction.get(key);
+            return countRead(transaction.get(key));
         }
 
         public Future<byte[]> getSnapshotFuture(byte[] key) {
-            return transaction.snapshot().get(key);
+            return countRead(transaction.snapshot().get(key));
         }
 
         public Future<byte[]> getFuture(byte[] key, FDBScanTransactionOptions transactionOptions) {
@@ -188,11 +205,11 @@ public class FDBTransactionService implements TransactionService {
         }
         
         public Future<List<KeyValue>> getSnapshotRangeAsFutureList (byte[] start, byte[] end, int limit, boolean reverse) {
-            return transaction.snapshot().getRange(start, end, limit, reverse).asList();
+            return countReadList(transaction.snapshot().getRange(start, end, limit, reverse).asList());
         }
         
         public Future<List<KeyValue>> getRangeAsFutureList(byte[] start, byte[] end, int limit) {
-            return transaction.getRange(start, end, limit).asList();
+            return countReadList(transaction.getRange(start, end, limit).asList());
         }
         
         public List<KeyValue> getRangeAsValueList(byte[] start, byte[] end) {
@@ -204,15 +221,15 @@ public class FDBTransactionService implements TransactionService {
         }
 
         public AsyncIterator<KeyValue> getSnapshotRangeIterator(KeySelector start, KeySelector end, int limit, boolean reverse) {
-            return transaction.snapshot().getRange(start, end, limit, reverse).iterator();
+            return countReadIterator(transaction.snapshot().getRange(start, end, limit, reverse).iterator());
         }
 
         public AsyncIterator<KeyValue> getRangeIterator(KeySelector start, KeySelector end, int limit, boolean reverse) {
-            return transaction.getRange(start, end, limit, reverse).iterator();
+            return countReadIterator(transaction.getRange(start, end, limit, reverse).iterator());
         }
         
         public AsyncIterator<KeyValue> getRangeIterator(byte[] start, byte[] end) {
-            return transaction.getRange(start, end, Transaction.ROW_LIMIT_UNLIMITED, false).iterator();
+            return countReadIterator(transaction.getRange(start, end, Transaction.ROW_LIMIT_UNLIMITED, false).iterator());
         }
 
         public AsyncIterable<KeyValue> getRangeIterator(Range range) {
@@ -258,6 +275,8 @@ public class FDBTransactionService implements TransactionService {
             }
             bytesSet += key.length;
             bytesSet += value.length;
+            written = true;
+            countWrite(key.length + value.length);
         }
 
         public void clearKey (byte[] key) {
@@ -266,6 +285,8 @@ public class FDBTransactionService implements TransactionService {
             } catch (RuntimeException e) {
                 throw FDBAdapter.wrapFDBException(session, e);
             }
+            written = true;
+            countWrite(key.length);
         }
         
         public void clearRange(byte[] start, byte[] end) {
@@ -274,6 +295,8 @@ public class FDBTransactionService implements TransactionService {
             } catch (RuntimeException e) {
                 throw FDBAdapter.wrapFDBException(session, e);
             }
+            written = true;
+            countWrite(start.length + end.length);
         }
 
         public void clearRange(Range range) {
@@ -282,6 +305,8 @@ public class FDBTransactionService implements TransactionService {
             } catch (RuntimeException e) {
                 throw FDBAdapter.wrapFDBException(session, e);
             }
+            written = true;
+            countWrite(range.begin.length + range.end.length);
         }
         
         public void mutate (MutationType type, byte[] key, byte[] value) {
@@ -290,6 +315,57 @@ public class FDBTransactionService implements TransactionService {
             } catch (RuntimeException e) {
                 throw FDBAdapter.wrapFDBException(session, e);
             }
+            written = true;
+            countWrite(key.length + value.length);
+        }
+
+        /* Resource accounting for the current statement, if monitored. */
+
+        protected Future<byte[]> countRead(Future<byte[]> future) {
+            final StatementResources resources = StatementResources.forSession(session);
+            if (resources == null) {
+                return future;
+            }
+            return future.map(new Function<byte[],byte[]>() {
+                    @Override
+                    public byte[] apply(byte[] value) {
+                        resources.read(1, (value == null) ? 0 : value.length);
+                        return value;
+                    }
+                });
+        }
+
+        protected Future<List<KeyValue>> countReadList(Future<List<KeyValue>> future) {
+            final StatementResources resources = StatementResources.forSession(session);
+            if (resources == null) {
+                return future;
+            }
+            return future.map(new Function<List<KeyValue>,List<KeyValue>>() {
+                    @Override
+                    public List<KeyValue> apply(List<KeyValue> kvs) {
+                        long bytes = 0;
+                        for (KeyValue kv : kvs) {
+                            bytes += kv.getKey().length + kv.getValue().length;
+                        }
+                        resources.read(kvs.size(), bytes);
+                        return kvs;
+                    }
+                });
+        }
+
+        protected AsyncIterator<KeyValue> countReadIterator(AsyncIterator<KeyValue> iterator) {
+            StatementResources resources = StatementResources.forSession(session);
+            if (resources == null) {
+                return iterator;
+            }
+            return new ReadCountingIterator(iterator, resources);
+        }
+
+        protected void countWrite(long bytes) {
+            StatementResources resources = StatementResources.forSession(session);
+            if (resources != null) {
+                resources.written(1, bytes);
+            }
         }
 
         public FDBPendingIndexChecks getIndexChecks(boolean create) {
@@ -303,12 +379,20 @@ public class FDBTransactionService implements TransactionService {
         public void reset() {
             this.startTime = System.currentTimeMillis();
             this.bytesSet = 0;
+            this.written = false;
             this.forceImmediateForeignKeyCheck = false;
             if (indexChecks != null)
                 indexChecks.clear();
+            if (writtenGroups != null)
+                writtenGroups.clear();
             resetCount++;
         }
 
+        /** Have there been any writes since the last reset? */
+        public boolean hasWrites() {
+            return written;
+        }
+
         public boolean timeToCommit() {
             long dt = System.currentTimeMillis() - startTime;
             if ((dt > commitAfterMillis) ||
@@ -355,6 +439,17 @@ public class FDBTransactionService implements TransactionService {
             return forceImmediateForeignKeyCheck;
         }
 
+        /** Note a write to <code>group</code>, returning <code>true</code> if the first since the last reset. */
+        public boolean addWrittenGroup(Group group) {
+            if (writtenGroups == null)
+                writtenGroups = new HashSet<>();
+            return writtenGroups.add(group);
+        }
+
+        public boolean hasWrittenGroup(Group group) {
+            return (writtenGroups != null) && writtenGroups.contains(group);
+        }
+
         public boolean setForceImmediateForeignKeyCheck(boolean force) {
             boolean old = this.forceImmediateForeignKeyCheck;
             this.forceImmediateForeignKeyCheck = force;
@@ -387,12 +482,41 @@ public class FDBTransactionService implements TransactionService {
         commitScanLimit =  Integer.parseInt(configService.getProperty(CONFIG_COMMIT_SCAN_LIMIT));
         readAheadDisable = Boolean.parseBoolean(configService.getProperty(CONFIG_READ_AHEAD_DISABLE));
         readYourWritesDisable = Boolean.parseBoolean(configService.getProperty(CONFIG_READ_YOUR_WRITES_DISABLE));
+        long readVersionCacheMillis = Long.parseLong(configService.getProperty(CONFIG_READ_VERSION_CACHE_MILLIS));
+        if (readVersionCacheMillis > 0) {
+            readVersionCache = new FDBReadVersionCache(readVersionCacheMillis) {
+                    @Override
+                    protected Future<Long> fetchReadVersion() {
+                        final Transaction transaction = fdbHolder.getDatabase().createTransaction();
+                        return transaction.getReadVersion().map(new Function<Long,Long>() {
+                                @Override
+                                public Long apply(Long version) {
+                                    transaction.dispose();
+                                    return version;
+                                }
+                            });
+                    }
+                };
+        }
+        long groupCommitMillis = Long.parseLong(configService.getProperty(CONFIG_GROUP_COMMIT_MILLIS));
+        if (groupCommitMillis > 0) {
+            int groupCommitMaxSize = Integer.parseInt(configService.getProperty(CONFIG_GROUP_COMMIT_MAX_SIZE));
+            groupCommitMaxBytes = Integer.parseInt(configService.getProperty(CONFIG_GROUP_COMMIT_MAX_BYTES));
+            groupCommitter = new FDBGroupCommitter(groupCommitMillis, groupCommitMaxSize) {
+                    @Override
+                    protected Transaction createTransaction() {
+                        return fdbHolder.getDatabase().createTransaction();
+                    }
+                };
+        }
         uniquenessChecksMetric = metricsService.addLongMetric(UNIQUENESS_CHECKS_METRIC);
         packedTransactionCheckPrefix = dirPathPrefix(TRANSACTION_CHECK_DIR_PATH);
     }
 
     @Override
     public void stop() {
+        readVersionCache = null;
+        groupCommitter = null;
     }
 
     @Override
@@ -431,6 +555,31 @@ public class FDBTransactionService implements TransactionService {
         session.put(TXN_KEY, txn);
     }
 
+    @Override
+    public void beginReadOnlyTransaction(Session session) {
+        beginTransaction(session);
+        FDBReadVersionCache cache = readVersionCache;
+        if ((cache != null) && (session.get(STRICT_READ_VERSION_KEY) != Boolean.TRUE)) {
+            long readVersion = cache.getReadVersion();
+            if (readVersion >= 0) {
+                getTransactionInternal(session).getTransaction().setReadVersion(readVersion);
+            }
+        }
+    }
+
+    @Override
+    public boolean beginSnapshotTransaction(Session session, Session parent) {
+        TransactionState parentTxn = getTransactionInternal(parent);
+        requireActive(parentTxn);
+        if (parentTxn.hasWrites()) {
+            return false;
+        }
+        long readVersion = parentTxn.getTransaction().getReadVersion().get();
+        beginTransaction(session);
+        getTransactionInternal(session).getTransaction().setReadVersion(readVersion);
+        return true;
+    }
+
     @Override
     public CloseableTransaction beginCloseableTransaction(final Session session) {
         beginTransaction(session);
@@ -468,7 +617,24 @@ public class FDBTransactionService implements TransactionService {
         return commitInternal(session, true, true);
     }
 
+    @Override
+    public boolean isGroupCommitEnabled() {
+        return (groupCommitter != null);
+    }
+
+    @Override
+    public boolean groupCommitOrRetryTransaction(Session session) {
+        if(isRollbackPending(session)) {
+            throw new IllegalStateException("Rollback is pending");
+        }
+        return commitInternal(session, true, true, true);
+    }
+
     protected boolean commitInternal(Session session, boolean retry, boolean clearState) {
+        return commitInternal(session, retry, clearState, false);
+    }
+
+    protected boolean commitInternal(Session session, boolean retry, boolean clearState, boolean group) {
         TransactionState txn = getTransactionInternal(session);
         requireActive(txn);
         boolean retried = false;
@@ -484,14 +650,26 @@ public class FDBTransactionService implements TransactionService {
             }
             long startTime = txn.getTransaction().getReadVersion().get();
             runCallbacks(session, PRE_COMMIT_KEY, startTime, null);
-            txn.getTransaction().commit().get();
-            long commitTime = txn.getTransaction().getCommittedVersion();
+            long commitTime;
+            FDBGroupCommitter committer = groupCommitter;
+            if (group && (committer != null) && txn.hasWrites() &&
+                (txn.getTransaction() instanceof FDBRecordingTransaction)) {
+                commitTime = committer.commit((FDBRecordingTransaction)txn.getTransaction()).get();
+            }
+            else {
+                txn.getTransaction().commit().get();
+                commitTime = txn.getTransaction().getCommittedVersion();
+            }
+            if (readVersionCache != null) {
+                readVersionCache.committed(commitTime);
+            }
             runCallbacks(session, AFTER_COMMIT_KEY, commitTime, null);
         } catch(RuntimeException e1) {
             if (retry) {
                 try {
                     txn.getTransaction().onError(e1).get();
                     // Getting here means retry.
+                    countRetry(session);
                     runCallbacks(session, AFTER_ROLLBACK_KEY, -1, null);
                     txn.reset();
                     clearState = false;
@@ -596,6 +774,7 @@ public class FDBTransactionService implements TransactionService {
                 }
                 // Back-off, via onError(), is already provided in commitTransaction[Internal]
                 LOG.debug("Retry attempt {} due to rollback", tries, e);
+                countRetry(session);
             } catch(RuntimeException e) {
                 throw  FDBAdapter.wrapFDBException(session, e);
             } catch(Exception e) {
@@ -628,6 +807,14 @@ public class FDBTransactionService implements TransactionService {
             }
             session.put(CONSTRAINT_CHECK_TIME_KEY, checkTime);
             break;
+        case STRICT_READ_VERSION:
+            if (value == null) {
+                session.remove(STRICT_READ_VERSION_KEY);
+            }
+            else {
+                session.put(STRICT_READ_VERSION_KEY, Boolean.parseBoolean(value));
+            }
+            break;
         }
     }
 
@@ -827,6 +1014,56 @@ public class FDBTransactionService implements TransactionService {
         throw new IllegalArgumentException("Unknown CallbackType: " + type);
     }
 
+    protected static void countRetry(Session session) {
+        StatementResources resources = StatementResources.forSession(session);
+        if (resources != null) {
+            resources.retried();
+        }
+    }
+
+    /** Counts keys and bytes returned by a range read against a statement. */
+    static class ReadCountingIterator implements AsyncIterator<KeyValue> {
+        private final AsyncIterator<KeyValue> iterator;
+        private final StatementResources resources;
+
+        public ReadCountingIterator(AsyncIterator<KeyValue> iterator, StatementResources resources) {
+            this.iterator = iterator;
+            this.resources = resources;
+        }
+
+        @Override
+        public Future<Boolean> onHasNext() {
+            return iterator.onHasNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public KeyValue next() {
+            KeyValue kv = iterator.next();
+            resources.read(1, kv.getKey().length + kv.getValue().length);
+            return kv;
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        @Override
+        public void cancel() {
+            iterator.cancel();
+        }
+
+        @Override
+        public void dispose() {
+            iterator.dispose();
+        }
+    }
+
     static class TransactionCheckCounter {
         static final Random random = new Random();
         final long timestamp = System.currentTimeMillis();
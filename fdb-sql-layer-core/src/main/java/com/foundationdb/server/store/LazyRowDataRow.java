@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store;
+
+import com.foundationdb.qp.row.LazyRow;
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.server.rowdata.RowData;
+import com.foundationdb.server.rowdata.RowDataExtractor;
+import com.foundationdb.server.rowdata.RowDef;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.value.ValueTargets;
+
+/** A {@link LazyRow} over stored {@link RowData} bytes. */
+class LazyRowDataRow extends LazyRow
+{
+    private final RowData rowData;
+    private final RowDef rowDef;
+    private RowDataExtractor extractor;
+
+    public LazyRowDataRow(RowType rowType, RowData rowData, RowDef rowDef) {
+        super(rowType);
+        this.rowData = rowData;
+        this.rowDef = rowDef;
+    }
+
+    @Override
+    protected ValueSource decodeValue(int i) {
+        if (extractor == null) {
+            extractor = new RowDataExtractor(rowData, rowDef);
+        }
+        Value value = new Value(rowType().typeAt(i));
+        ValueTargets.copyFrom(extractor.getValueSource(rowDef.getFieldDef(i)), value);
+        return value;
+    }
+}
@@ -34,10 +34,11 @@ import com.foundationdb.qp.rowtype.Schema;
 import com.foundationdb.qp.storeadapter.MemoryAdapter;
 import com.foundationdb.qp.storeadapter.indexrow.SpatialColumnHandler;
 import com.foundationdb.qp.storeadapter.indexrow.MemoryIndexRow;
+import com.foundationdb.qp.util.PersistitKey;
 import com.foundationdb.qp.util.SchemaCache;
 import com.foundationdb.server.error.LobUnsupportedException;
 import com.foundationdb.server.error.DuplicateKeyException;
-import com.foundationdb.server.error.LockTimeoutException;
+import com.foundationdb.server.error.TransactionConflictException;
 import com.foundationdb.server.service.Service;
 import com.foundationdb.server.service.ServiceManager;
 import com.foundationdb.server.service.config.ConfigurationService;
@@ -219,7 +220,7 @@ public class MemoryStore extends AbstractStore<MemoryStore, MemoryStoreData, Mem
         if (it.hasNext()) {
             Entry<byte[], byte[]> entry = it.next();
             assert !it.hasNext() : parentPKIndex;
-            assert entry.getValue().length == 0 : parentPKIndex + ", " + Strings.hex(entry.getValue());
+            assert entry.getValue().length == 0 || parentPKIndex.getValueColumnCount() > 0 : parentPKIndex + ", " + Strings.hex(entry.getValue());
             indexRow = new MemoryIndexRow(this);
             unpackKey(parentPKIndex, entry.getKey(), parentPkKey);
             indexRow.resetForRead(parentPKIndex, parentPkKey, null);
@@ -239,6 +240,11 @@ public class MemoryStore extends AbstractStore<MemoryStore, MemoryStoreData, Mem
         // Needed?
     }
 
+    @Override
+    public long getGroupVersion(Session session, Group group) {
+        return -1;
+    }
+
     //
     // Store
     //
@@ -256,8 +262,12 @@ public class MemoryStore extends AbstractStore<MemoryStore, MemoryStoreData, Mem
         Key indexKey = createKey();
         constructIndexRow(session, indexKey, row, index, hKey, indexRow, spatialColumnHandler, zValue, true);
         checkUniqueness(session, txn, index, row, indexKey);
+        byte[] rawValue = BYTES_EMPTY;
+        if(index.getValueColumnCount() > 0) {
+            rawValue = PersistitKey.removeTrailingFields(indexKey, index.getValueColumnCount());
+        }
         byte[] rawKey = packKey(index, indexKey);
-        txn.set(rawKey, BYTES_EMPTY);
+        txn.set(rawKey, rawValue);
     }
 
     @Override
@@ -272,6 +282,9 @@ public class MemoryStore extends AbstractStore<MemoryStore, MemoryStoreData, Mem
         MemoryTransaction txn = getTransaction(session);
         Key indexKey = createKey();
         constructIndexRow(session, indexKey, row, index, hKey, indexRow, spatialColumnHandler, zValue, false);
+        if(index.getValueColumnCount() > 0) {
+            PersistitKey.removeTrailingFields(indexKey, index.getValueColumnCount());
+        }
         byte[] packed = packKey(index, indexKey);
         txn.clear(packed);
     }
@@ -407,7 +420,7 @@ public class MemoryStore extends AbstractStore<MemoryStore, MemoryStoreData, Mem
 
     @Override
     public Class<? extends Exception> getOnlineDMLFailureException() {
-        return LockTimeoutException.class;
+        return TransactionConflictException.class;
     }
     
     @Override
@@ -29,6 +29,8 @@ public interface MemoryTransaction
     Iterator<Entry<byte[], byte[]>> getRange(byte[] beginKey, byte[] endKey, boolean reverse);
 
     void set(byte[] key, byte[] value);
+    /** Add to a packed long value at commit, without conflicting with other adds. */
+    void addLong(byte[] key, long delta);
 
     void clear(byte[] key);
     void clearRange(byte[] beginKey, byte[] endKey);
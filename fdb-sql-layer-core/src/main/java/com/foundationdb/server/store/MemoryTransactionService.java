@@ -15,15 +15,15 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.foundationdb.server.store;
 
 import com.foundationdb.ais.model.ForeignKey;
 import com.foundationdb.server.error.AkibanInternalException;
 import com.foundationdb.server.error.InvalidOperationException;
-import com.foundationdb.server.error.LockTimeoutException;
 import com.foundationdb.server.error.NoTransactionInProgressException;
-import com.foundationdb.server.error.QueryCanceledException;
 import com.foundationdb.server.error.TransactionAbortedException;
+import com.foundationdb.server.error.TransactionConflictException;
 import com.foundationdb.server.error.TransactionInProgressException;
 import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.service.session.Session.Key;
@@ -37,40 +37,46 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.foundationdb.server.store.MemoryStore.packLong;
+import static com.foundationdb.server.store.MemoryStore.unpackLong;
 
 /**
- * KV storage (via TreeMap<byte[],byte[]) and transaction provider.
+ * KV storage (via ConcurrentSkipListMap<byte[],Version>) and transaction provider.
  *
- * Per-key locking providing repeatable read semantics. No gap locking.
+ * Multi-version concurrency control providing snapshot reads with
+ * serializable semantics for both keys and ranges read.
  *
- * gets() take read (shared) locks, sets() and clears() take write (exclusive) locks
- * and shared can be upgraded to exclusive 'optimistically' via tag (StampedLock-ish).
+ * Each key maps to a chain of committed versions, newest first. A transaction reads
+ * as of the commit version current when it began, without taking any locks or copying
+ * ranges, and buffers its own writes, which it sees ahead of the snapshot.
  *
- * Uncommitted writes go directly into master KV after (exclusive) lock is acquired and an
- * undo log is maintained to restore proper state on rollback.
- *
- * Lock acquisition has an aggressive (1s) timeout after which a retryable error is thrown.
+ * Commit is optimistic: if any key read or written, or any key at all within a range
+ * read, has a version newer than the snapshot, a retryable conflict is thrown. So a
+ * range that was read empty still conflicts with a concurrent insert into it. Otherwise, the writes are installed as
+ * new versions under a short commit lock, which readers never take. Versions no
+ * longer visible to any open transaction are dropped as keys are rewritten.
  */
 public class MemoryTransactionService implements TransactionService
 {
@@ -78,20 +84,29 @@ public class MemoryTransactionService implements TransactionService
 
     private static final int PERIODIC_COMMIT_MILLS = 500;
     private static final int PERIODIC_COMMIT_BYTES = 100000;
-    private static final int LOCK_TIMEOUT_MILLIS = 1 * 1000;
     private static final Key<MemoryTransactionImpl> TXN_KEY = Key.named("TXN");
     private static final StackKey<Callback> PRE_COMMIT_KEY = StackKey.stackNamed("TXN_PRE_COMMIT");
     private static final StackKey<Callback> AFTER_END_KEY = StackKey.stackNamed("TXN_AFTER_END");
     private static final StackKey<Callback> AFTER_COMMIT_KEY = StackKey.stackNamed("TXN_AFTER_COMMIT");
     private static final StackKey<Callback> AFTER_ROLLBACK_KEY = StackKey .stackNamed("TXN_AFTER_ROLLBACK");
 
-    private final ConcurrentMap<BytesHolder,TaggedLock> locks;
-    private final KVMap db;
+    private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+    /** Marks a key cleared in a transaction's write buffer. Compared by identity. */
+    private static final byte[] CLEARED = new byte[0];
+
+    private final ConcurrentSkipListMap<byte[],Version> db;
+    private final AtomicLong committedVersion;
+    private final ConcurrentMap<MemoryTransactionImpl,Long> activeVersions;
+    private final Lock commitLock;
+    private final Deque<Tombstone> tombstones;
 
     @Inject
     public MemoryTransactionService() {
-        this.locks = new ConcurrentHashMap<>();
-        this.db = new KVMap();
+        this.db = new ConcurrentSkipListMap<>(COMPARATOR);
+        this.committedVersion = new AtomicLong(0);
+        this.activeVersions = new ConcurrentHashMap<>();
+        this.commitLock = new ReentrantLock();
+        this.tombstones = new ArrayDeque<>();
     }
 
     //
@@ -105,9 +120,12 @@ public class MemoryTransactionService implements TransactionService
 
     @Override
     public void stop() {
-        locks.clear();
-        synchronized(db) {
+        commitLock.lock();
+        try {
             db.clear();
+            tombstones.clear();
+        } finally {
+            commitLock.unlock();
         }
     }
 
@@ -144,6 +162,16 @@ public class MemoryTransactionService implements TransactionService
         session.put(TXN_KEY, txn);
     }
 
+    @Override
+    public void beginReadOnlyTransaction(Session session) {
+        beginTransaction(session);
+    }
+
+    @Override
+    public boolean beginSnapshotTransaction(Session session, Session parent) {
+        return false;
+    }
+
     @Override
     public CloseableTransaction beginCloseableTransaction(final Session session) {
         beginTransaction(session);
@@ -182,6 +210,16 @@ public class MemoryTransactionService implements TransactionService
         return commitInternal(session, true, true);
     }
 
+    @Override
+    public boolean isGroupCommitEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean groupCommitOrRetryTransaction(Session session) {
+        return commitOrRetryTransaction(session);
+    }
+
     @Override
     public void rollbackTransaction(Session session) {
         MemoryTransactionImpl txn = getTransactionInternal(session);
@@ -395,9 +433,9 @@ public class MemoryTransactionService implements TransactionService
         private final byte[] key;
         private final byte[] value;
 
-        public CopiedEntry(Entry<byte[], byte[]> entry) {
-            this.key = copy(entry.getKey());
-            this.value = copy(entry.getValue());
+        public CopiedEntry(byte[] key, byte[] value) {
+            this.key = copy(key);
+            this.value = copy(value);
         }
 
         @Override
@@ -421,92 +459,156 @@ public class MemoryTransactionService implements TransactionService
         }
     }
 
-    private static class KVMap extends TreeMap<byte[], byte[]>
+    /** One committed value of a key, <code>null</code> if cleared, and the versions before it. */
+    private static class Version
     {
-        private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+        final long version;
+        final byte[] value;
+        volatile Version older;
 
-        private static final Comparator<byte[]> REVERSE_COMPARATOR = new Comparator<byte[]>() {
-            @Override
-            public int compare(byte[] o1, byte[] o2) {
-                return COMPARATOR.compare(o2, o1);
+        private Version(long version, byte[] value, Version older) {
+            this.version = version;
+            this.value = value;
+            this.older = older;
+        }
+
+        /** Newest value as of <code>readVersion</code>. */
+        public byte[] valueAt(long readVersion) {
+            Version v = this;
+            while((v != null) && (v.version > readVersion)) {
+                v = v.older;
             }
-        };
+            return (v == null) ? null : v.value;
+        }
 
-        public KVMap() {
-            this(Collections.<byte[],byte[]>emptyMap(), false);
+        /** Drop versions that no reader at or after <code>oldestVersion</code> can see. */
+        public void prune(long oldestVersion) {
+            Version v = this;
+            while((v != null) && (v.version > oldestVersion)) {
+                v = v.older;
+            }
+            if(v != null) {
+                v.older = null;
+            }
         }
 
-        public KVMap(Map<byte[], byte[]> map, boolean reverse) {
-            super(reverse ? REVERSE_COMPARATOR : COMPARATOR);
-            putAll(map);
+        @Override
+        public String toString() {
+            return version + ":" + (value == null ? null : Strings.hex(value));
         }
     }
 
-    private static class TaggedLock
+    /** A cleared key whose entry can be removed once no reader can see what was there. */
+    private static class Tombstone
     {
-        private final ReadWriteLock rwLock;
-        // ReadWriteLock does not support upgrading read to write.
-        // Tag is checked pre-read.unlock() and must match post-write.lock().
-        private final AtomicLong tag;
+        final byte[] key;
+        final Version version;
 
-        public TaggedLock() {
-            this.rwLock = new ReentrantReadWriteLock(true);
-            this.tag = new AtomicLong(0);
-        }
-
-        public void readUnlock() {
-            rwLock.readLock().unlock();
+        private Tombstone(byte[] key, Version version) {
+            this.key = key;
+            this.version = version;
         }
+    }
 
-        public void writeUnlock() {
-            rwLock.writeLock().unlock();
+    /**
+     * Merge a snapshot of committed entries with (a copy of) the transaction's own
+     * writes, which take precedence. Both must be in the same order.
+     */
+    private static class MergedIterator implements Iterator<Entry<byte[], byte[]>>
+    {
+        private final Iterator<Entry<byte[], Version>> committed;
+        private final Iterator<Entry<byte[], byte[]>> written;
+        private final Comparator<? super byte[]> comparator;
+        private final long readVersion;
+        private byte[] committedKey, committedValue, writtenKey, writtenValue;
+        private Entry<byte[], byte[]> next;
+
+        public MergedIterator(NavigableMap<byte[], Version> committed,
+                              NavigableMap<byte[], byte[]> written,
+                              long readVersion) {
+            this.committed = committed.entrySet().iterator();
+            this.written = written.entrySet().iterator();
+            this.comparator = committed.comparator();
+            this.readVersion = readVersion;
+            advanceCommitted();
+            advanceWritten();
         }
 
-        public void readLock(Session session) {
-            tryLock(session, rwLock.readLock(), "shared");
+        @Override
+        public boolean hasNext() {
+            while((next == null) && ((committedKey != null) || (writtenKey != null))) {
+                int c;
+                if(committedKey == null) {
+                    c = 1;
+                } else if(writtenKey == null) {
+                    c = -1;
+                } else {
+                    c = comparator.compare(committedKey, writtenKey);
+                }
+                if(c < 0) {
+                    next = new CopiedEntry(committedKey, committedValue);
+                    advanceCommitted();
+                } else {
+                    if(writtenValue != CLEARED) {
+                        next = new CopiedEntry(writtenKey, writtenValue);
+                    }
+                    if(c == 0) {
+                        advanceCommitted();
+                    }
+                    advanceWritten();
+                }
+            }
+            return (next != null);
         }
 
-        public void writeLock(Session session) {
-            tryLock(session, rwLock.writeLock(), "exclusive");
-            tag.incrementAndGet();
+        @Override
+        public Entry<byte[], byte[]> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<byte[], byte[]> entry = next;
+            next = null;
+            return entry;
         }
 
-        public void upgradeLock(Session session) {
-            final long saveTag = tag.get();
-            readUnlock();
-            tryLock(session, rwLock.writeLock(), "upgrade");
-            if(saveTag != tag.get()) {
-                writeUnlock();
-                throwTimeout(session, "optimistic upgrade");
-            }
-            tag.incrementAndGet();
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
 
-        private static void tryLock(Session session, Lock lock, String lockType) {
-            try {
-                if(!lock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
-                    throwTimeout(session, lockType);
+        private void advanceCommitted() {
+            committedKey = committedValue = null;
+            while(committed.hasNext()) {
+                Entry<byte[], Version> entry = committed.next();
+                byte[] value = entry.getValue().valueAt(readVersion);
+                if(value != null) {
+                    committedKey = entry.getKey();
+                    committedValue = value;
+                    break;
                 }
-            } catch(InterruptedException e) {
-                throw new QueryCanceledException(session);
             }
         }
 
-        private static void throwTimeout(Session session, String lockType) {
-            LOG.trace("lock timeout: {}", lockType);
-            // No telling where this happened, e.g. row could be half written.
-            getTransactionInternal(session).isRollbackPending = true;
-            throw new LockTimeoutException(LOCK_TIMEOUT_MILLIS, lockType, MemoryTransactionService.class.getSimpleName());
+        private void advanceWritten() {
+            writtenKey = writtenValue = null;
+            if(written.hasNext()) {
+                Entry<byte[], byte[]> entry = written.next();
+                writtenKey = entry.getKey();
+                writtenValue = entry.getValue();
+            }
         }
     }
 
     private class MemoryTransactionImpl implements MemoryTransaction
     {
         final Session session;
-        final List<UndoOp> undoLog;
-        final Set<BytesHolder> readLocked;
-        final Set<BytesHolder> writeLocked;
+        final TreeMap<byte[], byte[]> writes;
+        final TreeMap<byte[], Long> additions;
+        final Set<BytesHolder> readKeys;
+        /** <code>[begin,end)</code> of each range read. */
+        final List<byte[][]> readRanges;
 
+        long readVersion;
         long startMillis;
         long commitMillis;
         long bytesWritten;
@@ -516,51 +618,35 @@ public class MemoryTransactionService implements TransactionService
 
         private MemoryTransactionImpl(Session session) {
             this.session = session;
-            this.undoLog = new ArrayList<>();
-            this.readLocked = new HashSet<>();
-            this.writeLocked = new HashSet<>();
+            this.writes = new TreeMap<>(COMPARATOR);
+            this.additions = new TreeMap<>(COMPARATOR);
+            this.readKeys = new HashSet<>();
+            this.readRanges = new ArrayList<>();
+            beginSnapshot();
             reset();
         }
 
-        private void readLock(byte[] rawKey) {
-            BytesHolder key = new BytesHolder(rawKey);
-            if(readLocked.contains(key) || writeLocked.contains(key)) {
-                // Already locked
-                return;
-            }
-            TaggedLock lock = locks.get(key);
-            if(lock == null) {
-                lock = new TaggedLock();
-                TaggedLock prevLock = locks.putIfAbsent(key, lock);
-                if(prevLock != null) {
-                    lock = prevLock;
-                }
-            }
-            lock.readLock(session);
-            readLocked.add(key);
+        private void beginSnapshot() {
+            // Register before the version is final, so that a concurrent commit
+            // cannot prune anything this snapshot still needs.
+            long version;
+            do {
+                version = committedVersion.get();
+                activeVersions.put(this, version);
+            } while(version != committedVersion.get());
+            readVersion = version;
         }
 
-        private void writeLock(byte[] rawKey) {
-            BytesHolder key = new BytesHolder(rawKey);
-            if(writeLocked.contains(key)) {
-                // Already locked
-                return;
-            }
-            TaggedLock lock = locks.get(key);
-            if(lock == null) {
-                lock = new TaggedLock();
-                TaggedLock prevLock = locks.putIfAbsent(key, lock);
-                if(prevLock != null) {
-                    lock = prevLock;
-                }
-            }
-            if(readLocked.contains(key)) {
-                readLocked.remove(key);
-                lock.upgradeLock(session);
-            } else {
-                lock.writeLock(session);
-            }
-            writeLocked.add(key);
+        private void endSnapshot() {
+            activeVersions.remove(this);
+            discardWrites();
+        }
+
+        private void discardWrites() {
+            writes.clear();
+            additions.clear();
+            readKeys.clear();
+            readRanges.clear();
         }
 
         public boolean isTimeToCommit() {
@@ -574,9 +660,10 @@ public class MemoryTransactionService implements TransactionService
         }
 
         public void reset() {
-            assert undoLog.isEmpty();
-            assert readLocked.isEmpty();
-            assert writeLocked.isEmpty();
+            assert writes.isEmpty();
+            assert additions.isEmpty();
+            assert readKeys.isEmpty();
+            assert readRanges.isEmpty();
             startMillis = System.currentTimeMillis();
             commitMillis = -1;
             bytesWritten = 0;
@@ -589,57 +676,135 @@ public class MemoryTransactionService implements TransactionService
             }
         }
 
-        public void runUndo() {
-            if(undoLog.isEmpty()) {
+        /** Check for conflicts and install writes as a new version. */
+        public void commitWrites() {
+            if(writes.isEmpty() && additions.isEmpty()) {
+                // Read-only: the snapshot was consistent as of when it began.
                 return;
             }
-            // Undo in reverse order than applied
-            ListIterator<UndoOp> it = undoLog.listIterator(undoLog.size());
-            synchronized(db) {
-                while(it.hasPrevious()) {
-                    UndoOp op = it.previous();
-                    op.apply(db);
+            commitLock.lock();
+            try {
+                checkConflict(readKeys);
+                for(byte[][] range : readRanges) {
+                    checkConflict(range[0], range[1]);
+                }
+                for(byte[] key : writes.keySet()) {
+                    checkConflict(key);
+                }
+                long version = committedVersion.get() + 1;
+                for(Entry<byte[], byte[]> entry : writes.entrySet()) {
+                    byte[] value = entry.getValue();
+                    Long addition = additions.remove(entry.getKey());
+                    if(addition != null) {
+                        value = packLong(((value == CLEARED) ? 0 : unpackLong(value)) + addition);
+                    }
+                    install(entry.getKey(), (value == CLEARED) ? null : value, version);
+                }
+                for(Entry<byte[], Long> entry : additions.entrySet()) {
+                    // Atomic: applied to whatever is latest, without conflict.
+                    Version head = db.get(entry.getKey());
+                    byte[] value = (head == null) ? null : head.value;
+                    long base = (value == null) ? 0 : unpackLong(value);
+                    install(entry.getKey(), packLong(base + entry.getValue()), version);
+                }
+                committedVersion.set(version);
+                pruneVersions();
+            } finally {
+                commitLock.unlock();
+            }
+        }
+
+        private void checkConflict(Set<BytesHolder> keys) {
+            for(BytesHolder key : keys) {
+                checkConflict(key.bytes);
+            }
+        }
+
+        /** Anything written within the range since, including a key that was not there. */
+        private void checkConflict(byte[] beginKey, byte[] endKey) {
+            for(Entry<byte[], Version> entry : db.subMap(beginKey, endKey).entrySet()) {
+                if(entry.getValue().version > readVersion) {
+                    LOG.trace("conflict in [{},{}) on {}: {} > {}", Strings.hex(beginKey), Strings.hex(endKey),
+                              Strings.hex(entry.getKey()), entry.getValue().version, readVersion);
+                    throw new TransactionConflictException(MemoryTransactionService.class.getSimpleName());
                 }
             }
-            undoLog.clear();
         }
 
-        public void runUnlock() {
-            // Release all locks
-            for(BytesHolder key : readLocked) {
-                TaggedLock lock = locks.get(key);
-                lock.readUnlock();
+        private void checkConflict(byte[] key) {
+            Version head = db.get(key);
+            if((head != null) && (head.version > readVersion)) {
+                LOG.trace("conflict on {}: {} > {}", Strings.hex(key), head.version, readVersion);
+                throw new TransactionConflictException(MemoryTransactionService.class.getSimpleName());
             }
-            readLocked.clear();
-            for(BytesHolder key : writeLocked) {
-                TaggedLock lock = locks.get(key);
-                lock.writeUnlock();
+        }
+
+        private void install(byte[] key, byte[] value, long version) {
+            Version head = new Version(version, value, db.get(key));
+            db.put(key, head);
+            if(value == null) {
+                tombstones.add(new Tombstone(key, head));
             }
-            writeLocked.clear();
+        }
+
+        private void pruneVersions() {
+            long oldest = committedVersion.get();
+            for(Long version : activeVersions.values()) {
+                oldest = Math.min(oldest, version);
+            }
+            for(byte[] key : writes.keySet()) {
+                Version head = db.get(key);
+                if(head != null) {
+                    head.prune(oldest);
+                }
+            }
+            for(byte[] key : additions.keySet()) {
+                db.get(key).prune(oldest);
+            }
+            Tombstone tombstone;
+            while(((tombstone = tombstones.peek()) != null) && (tombstone.version.version <= oldest)) {
+                // Only if not since rewritten.
+                db.remove(tombstone.key, tombstone.version);
+                tombstones.remove();
+            }
+        }
+
+        private byte[] snapshotValue(byte[] key) {
+            Version head = db.get(key);
+            return (head == null) ? null : head.valueAt(readVersion);
+        }
+
+        private byte[] addition(byte[] key, byte[] value) {
+            Long addition = additions.get(key);
+            if(addition == null) {
+                return value;
+            }
+            return packLong(((value == null) ? 0 : unpackLong(value)) + addition);
         }
 
         //
-        // TreeMapTransaction
+        // MemoryTransaction
         //
 
         @Override
         public byte[] get(byte[] key) {
-            readLock(key);
-            byte[] value;
-            synchronized(db) {
-                value = db.get(key);
+            byte[] value = writes.get(key);
+            if(value != null) {
+                return (value == CLEARED) ? null : copy(value);
             }
-            return copy(value);
+            readKeys.add(new BytesHolder(copy(key)));
+            return copy(addition(key, snapshotValue(key)));
         }
 
         @Override
         public byte[] getUncommitted(byte[] key) {
-            // No lock
-            byte[] value;
-            synchronized(db) {
-                value = db.get(key);
+            // No conflict and latest, not snapshot.
+            byte[] value = writes.get(key);
+            if(value != null) {
+                return (value == CLEARED) ? null : copy(value);
             }
-            return copy(value);
+            Version head = db.get(key);
+            return copy(addition(key, (head == null) ? null : head.value));
         }
 
         @Override
@@ -649,99 +814,59 @@ public class MemoryTransactionService implements TransactionService
 
         @Override
         public Iterator<Entry<byte[], byte[]>> getRange(byte[] beginKey, byte[] endKey, boolean reverse) {
-            // Duplicate as some consumers want to iterate while calling set/clear
-            final KVMap subMap;
-            synchronized(db) {
-                subMap = new KVMap(db.subMap(beginKey, endKey), reverse);
-            }
-            for(byte[] key : subMap.keySet()) {
-                readLock(key);
-            }
-            final Iterator<Entry<byte[], byte[]>> it = subMap.entrySet().iterator();
-            return new Iterator<Entry<byte[], byte[]>>()  {
-                @Override
-                public boolean hasNext() {
-                    return it.hasNext();
-                }
-
-                @Override
-                public Entry<byte[], byte[]> next() {
-                    Entry<byte[], byte[]> entry = it.next();
-                    return new CopiedEntry(entry);
-                }
-
-                @Override
-                public void remove() {
-                    throw new UnsupportedOperationException();
-                }
-            };
+            // Committed versions are immutable and later writes are newer than the
+            // snapshot, so that side needs no copy. Own writes are copied, as some
+            // consumers want to iterate while calling set/clear.
+            readRanges.add(new byte[][] { copy(beginKey), copy(endKey) });
+            NavigableMap<byte[], Version> committed = db.subMap(beginKey, endKey);
+            NavigableMap<byte[], byte[]> written = new TreeMap<>(writes.subMap(beginKey, endKey));
+            for(Entry<byte[], Long> entry : additions.subMap(beginKey, endKey).entrySet()) {
+                byte[] key = entry.getKey();
+                written.put(key, addition(key, snapshotValue(key)));
+            }
+            if(reverse) {
+                committed = committed.descendingMap();
+                written = written.descendingMap();
+            }
+            return new MergedIterator(committed, written, readVersion);
         }
 
         @Override
         public void set(byte[] key, byte[] value) {
-            writeLock(key);
             byte[] k = copy(key);
-            byte[] v = copy(value);
-            byte[] prev;
-            synchronized(db) {
-                prev = db.put(k, v);
-            }
+            additions.remove(k);
+            writes.put(k, copy(value));
             bytesWritten += key.length;
             bytesWritten += value.length;
-            undoLog.add(new UndoOp(k, prev));
         }
 
         @Override
-        public void clear(byte[] key) {
-            writeLock(key);
-            byte[] prev;
-            synchronized(db) {
-                prev = db.remove(key);
+        public void addLong(byte[] key, long delta) {
+            byte[] value = writes.get(key);
+            if(value != null) {
+                set(key, packLong(((value == CLEARED) ? 0 : unpackLong(value)) + delta));
+            } else {
+                byte[] k = copy(key);
+                Long prev = additions.get(k);
+                additions.put(k, (prev == null) ? delta : prev + delta);
+                bytesWritten += key.length;
             }
-            bytesWritten += key.length;
-            undoLog.add(new UndoOp(copy(key), prev));
         }
 
         @Override
-        public void clearRange(byte[] beginKey, byte[] endKey) {
-            KVMap subMap;
-            synchronized(db) {
-                subMap = new KVMap(db.subMap(beginKey, endKey), false);
-            }
-            for(Entry<byte[], byte[]> entry : subMap.entrySet()) {
-                writeLock(entry.getKey());
-                undoLog.add(new UndoOp(entry.getKey(), entry.getValue()));
-                bytesWritten += entry.getKey().length;
-            }
-            synchronized(db) {
-                for(byte[] key : subMap.keySet()) {
-                    db.remove(key);
-                }
-            }
-        }
-    }
-
-    private static class UndoOp
-    {
-        private final byte[] key;
-        private final byte[] value;
-
-        private UndoOp(byte[] key, byte[] value) {
-            this.key = key;
-            this.value = value;
-        }
-
-        public void apply(KVMap map) {
-            if(value == null) {
-                map.remove(key);
-            } else {
-                map.put(key, value);
-            }
+        public void clear(byte[] key) {
+            byte[] k = copy(key);
+            additions.remove(k);
+            writes.put(k, CLEARED);
+            bytesWritten += key.length;
         }
 
         @Override
-        public String toString() {
-            return "UndoOp(" + Strings.hex(key) + "=" + (value == null ? null : Strings.hex(value)) + ")";
+        public void clearRange(byte[] beginKey, byte[] endKey) {
+            Iterator<Entry<byte[], byte[]>> it = getRange(beginKey, endKey);
+            while(it.hasNext()) {
+                clear(it.next().getKey());
+            }
         }
     }
 
@@ -762,15 +887,14 @@ public class MemoryTransactionService implements TransactionService
                 txn.pendingChecks.performChecks(session, txn, MemoryIndexChecks.CheckPass.TRANSACTION);
             }
             runCallbacks(session, PRE_COMMIT_KEY, txn.startMillis, null);
-            // Not much to do, locks are cleared in end().
-            txn.undoLog.clear();
+            txn.commitWrites();
             txn.commitMillis = System.currentTimeMillis();
             runCallbacks(session, AFTER_COMMIT_KEY, txn.commitMillis, null);
         } catch(RuntimeException e1) {
             try {
                 rollbackInternal(session, txn);
                 // Only retryable exception from this store
-                if(allowRetry && (e1 instanceof LockTimeoutException)) {
+                if(allowRetry && (e1 instanceof TransactionConflictException)) {
                     clearState = false;
                     shouldRetry = true;
                 } else {
@@ -793,10 +917,12 @@ public class MemoryTransactionService implements TransactionService
         RuntimeException re = cause;
         try {
             assert session.get(TXN_KEY) == txn;
+            txn.endSnapshot();
             if(clearState) {
                 session.remove(TXN_KEY);
+            } else {
+                txn.beginSnapshot();
             }
-            txn.runUnlock();
         } catch(RuntimeException e) {
             re = MultipleCauseException.combine(re, e);
         } finally {
@@ -826,7 +952,7 @@ public class MemoryTransactionService implements TransactionService
     }
 
     private static void rollbackInternal(Session session, MemoryTransactionImpl txn) {
-        txn.runUndo();
+        txn.discardWrites();
         runCallbacks(session, AFTER_ROLLBACK_KEY, -1, null);
     }
 
@@ -96,6 +96,14 @@ public interface Store extends KeyCreator {
      */
     void truncateGroup(Session session, Group group);
 
+    /**
+     * Get a number that changes whenever a transaction that wrote to the
+     * given group commits, as of the current transaction. Returns
+     * <code>-1</code> if writes are not being tracked for the group or the
+     * current transaction has itself written to it.
+     */
+    long getGroupVersion(Session session, Group group);
+
     void truncateTableStatus(Session session, int rowDefId);
 
     void deleteIndexes(Session session, Collection<? extends Index> indexes);
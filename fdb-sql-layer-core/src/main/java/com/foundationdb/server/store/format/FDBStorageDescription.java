@@ -17,16 +17,19 @@
 
 package com.foundationdb.server.store.format;
 
+import com.foundationdb.ais.model.Group;
 import com.foundationdb.ais.model.HasStorage;
 import com.foundationdb.ais.model.StorageDescription;
 import com.foundationdb.ais.model.validation.AISValidationFailure;
 import com.foundationdb.ais.model.validation.AISValidationOutput;
 import com.foundationdb.ais.protobuf.AISProtobuf.Storage;
 import com.foundationdb.ais.protobuf.FDBProtobuf;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.rowtype.Schema;
 import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.qp.row.OverlayingRow;
+import com.foundationdb.qp.storeadapter.FDBAdapter;
 import com.foundationdb.server.error.AkibanInternalException;
 import com.foundationdb.server.error.StorageDescriptionInvalidException;
 import com.foundationdb.server.service.session.Session;
@@ -41,6 +44,7 @@ import com.foundationdb.server.store.StoreStorageDescription;
 import com.foundationdb.server.types.aksql.aktypes.AkBlob;
 import com.foundationdb.server.service.blob.BlobRef;
 import com.foundationdb.KeySelector;
+import com.foundationdb.LocalityUtil;
 import com.foundationdb.Transaction;
 import com.foundationdb.async.Future;
 import com.foundationdb.server.types.value.ValueSource;
@@ -48,8 +52,11 @@ import com.foundationdb.tuple.ByteArrayUtil;
 import com.foundationdb.tuple.Tuple2;
 import com.google.protobuf.ByteString;
 import com.persistit.Key;
+import com.persistit.Persistit;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -306,6 +313,97 @@ public class FDBStorageDescription extends StoreStorageDescription<FDBStore,FDBS
             txnState.getRangeIterator(ksLeft, ksRight, limit, false, transactionOptions));
     }
 
+    /** Split the group into <code>nPartitions</code> disjoint key ranges
+     * that together cover it. The ranges are split at the storage shard
+     * boundaries as of now, so that each is mostly served by different
+     * storage servers. Shards can move at any time, so the split is only
+     * made once and then given to all the scans that share it. With fewer
+     * boundaries than partitions, some partitions are empty.
+     * Each boundary is moved back to the start of the root row it falls
+     * in, so that a row and all its descendants are in one partition,
+     * as anything flattening parents and children relies on.
+     */
+    public List<GroupPartition> partitionGroup(FDBStore store, Session session, FDBStoreData storeData,
+                                               int nPartitions) {
+        TransactionState txnState = store.getTransaction(session, storeData);
+        byte[] start = prefixBytes(storeData);
+        byte[] end = ByteArrayUtil.strinc(start);
+        List<byte[]> boundaries = new ArrayList<>();
+        try {
+            for (byte[] boundary : LocalityUtil.getBoundaryKeys(txnState.getTransaction(), start, end).asList().get()) {
+                if ((ByteArrayUtil.compareUnsigned(boundary, start) > 0) &&
+                    (ByteArrayUtil.compareUnsigned(boundary, end) < 0)) {
+                    boundaries.add(boundary);
+                }
+            }
+            List<GroupPartition> partitions = new ArrayList<>(nPartitions);
+            byte[] left = start;
+            for (int i = 1; i <= nPartitions; i++) {
+                byte[] right = partitionBoundary(boundaries, i, nPartitions, start, end);
+                if (right != end) {
+                    right = rootBoundary(txnState.getTransaction(), right, end);
+                }
+                partitions.add(new GroupPartition(left, right));
+                left = right;
+            }
+            return partitions;
+        }
+        catch (RuntimeException ex) {
+            throw FDBAdapter.wrapFDBException(session, ex);
+        }
+    }
+
+    /** The key of the root row of the first row at or after <code>boundary</code>,
+     * which sorts before that row and any other descendants. */
+    public byte[] rootBoundary(Transaction tr, byte[] boundary, byte[] end) {
+        byte[] rowKey = tr.snapshot().getKey(KeySelector.firstGreaterOrEqual(boundary)).get();
+        if (ByteArrayUtil.compareUnsigned(rowKey, end) >= 0) {
+            return end;
+        }
+        Key key = new Key((Persistit)null);
+        unpackTuple(this, key, rowKey);
+        int rootDepth = ((Group)object).getRoot().hKey().keyDepth()[1];
+        if (key.getDepth() > rootDepth) {
+            key.setDepth(rootDepth);
+        }
+        return packedTuple(this, key);
+    }
+
+    /** Set up <code>storeData.iterator</code> to iterate over one part of
+     * the group from {@link #partitionGroup}.
+     */
+    public void groupPartitionIterator(FDBStore store, Session session, FDBStoreData storeData,
+                                       GroupPartition partition,
+                                       FDBScanTransactionOptions transactionOptions) {
+        TransactionState txnState = store.getTransaction(session, storeData);
+        byte[] left = partition.getStart();
+        byte[] right = partition.getEnd();
+        if ((left == null) || (right == null)) {
+            byte[] prefix = prefixBytes(storeData);
+            if (left == null)
+                left = prefix;
+            if (right == null)
+                right = ByteArrayUtil.strinc(prefix);
+        }
+        storeData.iterator = new FDBStoreDataKeyValueIterator(storeData,
+            txnState.getRangeIterator(KeySelector.firstGreaterOrEqual(left),
+                                      KeySelector.firstGreaterOrEqual(right),
+                                      Transaction.ROW_LIMIT_UNLIMITED, false,
+                                      transactionOptions));
+    }
+
+    /** The <code>i</code>th of <code>n</code> about evenly spaced
+     * <code>boundaries</code> from <code>start</code> to <code>end</code>.
+     */
+    protected static byte[] partitionBoundary(List<byte[]> boundaries, int i, int n,
+                                              byte[] start, byte[] end) {
+        if (i == 0)
+            return start;
+        if ((i == n) || boundaries.isEmpty())
+            return end;
+        return boundaries.get((int)((long)i * boundaries.size() / n));
+    }
+
     /** Set up <code>storeData.iterator</code> to iterate over index.
      * @param key Start at <code>storeData.persistitKey</code>
      * @param startInclusive Include key itself in result.
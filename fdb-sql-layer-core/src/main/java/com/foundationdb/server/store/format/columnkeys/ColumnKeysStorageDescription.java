@@ -27,6 +27,7 @@ import com.foundationdb.ais.protobuf.AISProtobuf.Storage;
 import com.foundationdb.ais.protobuf.FDBProtobuf;
 import com.foundationdb.ais.protobuf.FDBProtobuf.ColumnKeys;
 import com.foundationdb.ais.protobuf.FDBProtobuf.TupleUsage;
+import com.foundationdb.qp.operator.GroupPartition;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.ValuesHolderRow;
 import com.foundationdb.qp.rowtype.RowType;
@@ -41,6 +42,7 @@ import com.foundationdb.server.store.format.FDBStorageDescription;
 import com.foundationdb.server.store.format.tuple.TupleRowDataConverter;
 import com.foundationdb.server.store.format.tuple.TupleStorageDescription;
 import com.foundationdb.server.types.value.ValueSources;
+import com.foundationdb.Transaction;
 import com.foundationdb.tuple.ByteArrayUtil;
 import com.foundationdb.tuple.Tuple2;
 import com.persistit.Key;
@@ -227,6 +229,28 @@ public class ColumnKeysStorageDescription extends FDBStorageDescription
                                           limit);
     }
 
+    /** A row is spread over several keys, which a shard boundary
+     * could separate, so the first partition gets the whole group.
+     */
+    @Override
+    public List<GroupPartition> partitionGroup(FDBStore store, Session session, FDBStoreData storeData,
+                                               int nPartitions) {
+        return GroupPartition.wholeInFirst(nPartitions);
+    }
+
+    @Override
+    public void groupPartitionIterator(FDBStore store, Session session, FDBStoreData storeData,
+                                       GroupPartition partition,
+                                       FDBScanTransactionOptions transactionOptions) {
+        byte[] begin = prefixBytes(storeData);
+        byte[] end = partition.isEmpty() ? begin : ByteArrayUtil.strinc(begin);
+        storeData.iterator = 
+            new ColumnKeysStorageIterator(storeData,
+                                          store.getTransaction(session, storeData)
+                                          .getRangeIterator(begin, end, transactionOptions),
+                                          Transaction.ROW_LIMIT_UNLIMITED);
+    }
+
     public void indexIterator(FDBStore store, Session session, FDBStoreData storeData,
                               boolean key, boolean inclusive, boolean reverse) {
         throw new UnsupportedOperationException();
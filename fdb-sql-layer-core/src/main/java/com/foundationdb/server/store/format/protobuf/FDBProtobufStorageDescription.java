@@ -30,7 +30,6 @@ import com.foundationdb.server.store.FDBStore;
 import com.foundationdb.server.store.FDBStoreData;
 import com.foundationdb.server.store.format.tuple.TupleStorageDescription;
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
-import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import static com.foundationdb.server.store.format.protobuf.ProtobufStorageDescriptionHelper.*;
@@ -114,23 +113,21 @@ public class FDBProtobufStorageDescription extends TupleStorageDescription imple
     public void packRow(FDBStore store, Session session,
                         FDBStoreData storeData, Row row) {
         ensureRowConverter();
-        DynamicMessage msg = rowConverter.encode(row);
-        storeData.rawValue = msg.toByteArray();
+        storeData.rawValue = rowConverter.encodeToBytes(row);
     }
     
     @Override 
     public Row expandRow (FDBStore store, Session session,
                             FDBStoreData storeData, Schema schema) {
         ensureRowConverter();
-        DynamicMessage msg;
+        Row row;
         try {
-            msg = DynamicMessage.parseFrom(rowConverter.getMessageType(), storeData.rawValue);
+            row = rowConverter.decodeLazily(storeData.rawValue);
         } catch (InvalidProtocolBufferException ex) {
-            ProtobufReadException nex = new ProtobufReadException(rowDataConverter.getMessageType().getName(), ex.getMessage());
+            ProtobufReadException nex = new ProtobufReadException(rowConverter.getMessageType().getName(), ex.getMessage());
             nex.initCause(ex);
             throw nex;
         }
-        Row row = rowConverter.decode(msg);
         row = overlayBlobData(row.rowType(), row, store, session);
         return row;
     }
@@ -30,7 +30,6 @@ import com.foundationdb.server.store.MemoryStore;
 import com.foundationdb.server.store.MemoryStoreData;
 import com.foundationdb.server.store.format.MemoryStorageDescription;
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
-import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import static com.foundationdb.server.store.format.protobuf.ProtobufStorageDescriptionHelper.*;
@@ -106,22 +105,19 @@ public class MemoryProtobufStorageDescription extends MemoryStorageDescription i
     @Override
     public Row expandRow(MemoryStore store, Session session, MemoryStoreData storeData, Schema schema) {
         ensureRowConverter();
-        DynamicMessage msg;
         try {
-            msg = DynamicMessage.parseFrom(rowConverter.getMessageType(), storeData.rawValue);
+            return rowConverter.decodeLazily(storeData.rawValue);
         } catch(InvalidProtocolBufferException ex) {
             ProtobufReadException nex = new ProtobufReadException(rowConverter.getMessageType().getName(), ex.getMessage());
             nex.initCause(ex);
             throw nex;
         }
-        return rowConverter.decode(msg);
     }
 
     @Override
     public void packRow(MemoryStore store, Session session, MemoryStoreData storeData, Row row) {
         ensureRowConverter();
-        DynamicMessage msg = rowConverter.encode(row);
-        storeData.rawValue = msg.toByteArray();
+        storeData.rawValue = rowConverter.encodeToBytes(row);
     }
 
     //
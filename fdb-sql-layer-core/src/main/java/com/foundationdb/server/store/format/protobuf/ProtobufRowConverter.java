@@ -21,18 +21,31 @@ import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Group;
 import com.foundationdb.ais.model.Join;
 import com.foundationdb.ais.model.Table;
+import com.foundationdb.qp.row.LazyRow;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.ValuesHolderRow;
 import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.qp.util.SchemaCache;
+import com.foundationdb.server.error.AkibanInternalException;
+import com.foundationdb.server.error.ProtobufReadException;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.value.ValueSources;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.Descriptors.FileDescriptor;
 import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.TextFormat;
+import com.google.protobuf.WireFormat;
 import com.foundationdb.server.store.format.protobuf.CustomOptions.TableOptions;
 import com.foundationdb.server.store.format.protobuf.CustomOptions.ColumnOptions;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
@@ -64,6 +77,44 @@ public abstract class ProtobufRowConverter
     /** Copy the given message into the given row data. */
     public abstract Row decode(DynamicMessage msg);
 
+    /**
+     * Serialize the given row to the same bytes as
+     * <code>encode(row).toByteArray()</code>, but without building a message.
+     */
+    public abstract byte[] encodeToBytes(Row row);
+
+    /**
+     * Decode a row straight from the serialized message, without
+     * building a message.
+     */
+    public Row decodeFromBytes(byte[] bytes) throws InvalidProtocolBufferException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        try {
+            Row row = decodeFrom(input);
+            input.checkLastTagWas(0);
+            return row;
+        }
+        catch (InvalidProtocolBufferException ex) {
+            throw ex;
+        }
+        catch (IOException ex) {
+            throw new InvalidProtocolBufferException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Like {@link #decodeFromBytes}, but the table's message is only parsed
+     * when a column is accessed, and only accessed columns are converted.
+     */
+    public Row decodeLazily(byte[] bytes) throws InvalidProtocolBufferException {
+        return decodeLazily(bytes, 0, bytes.length);
+    }
+
+    protected abstract Row decodeLazily(byte[] bytes, int offset, int length) throws InvalidProtocolBufferException;
+
+    /** Decode a row from the input, up to its end or current limit. */
+    protected abstract Row decodeFrom(CodedInputStream input) throws IOException;
+
     public String shortFormat(DynamicMessage msg) {
         return TextFormat.shortDebugString(msg);
     }
@@ -150,6 +201,93 @@ public abstract class ProtobufRowConverter
             assert !first;
             return row;
         }
+
+        @Override
+        public byte[] encodeToBytes(Row row) {
+            Integer tableId = row.rowType().table().getTableId();
+            TableConverter tableConverter = (TableConverter)tableConvertersByTableId.get(tableId);
+            int fieldNumber = groupFieldsByTabelId.get(tableId).getNumber();
+            Object[] raws = tableConverter.rawValues(row);
+            int insideSize = tableConverter.serializedSize(raws);
+            byte[] bytes = new byte[CodedOutputStream.computeTagSize(fieldNumber) +
+                                    CodedOutputStream.computeRawVarint32Size(insideSize) +
+                                    insideSize];
+            CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+            try {
+                output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeRawVarint32(insideSize);
+                tableConverter.writeTo(output, raws);
+            }
+            catch (IOException ex) {
+                throw new AkibanInternalException("Serializing to a byte array threw an IOException", ex);
+            }
+            output.checkNoSpaceLeft();
+            return bytes;
+        }
+
+        @Override
+        protected Row decodeFrom(CodedInputStream input) throws IOException {
+            Row row = null;
+            while (true) {
+                int tag = input.readTag();
+                if (tag == 0) {
+                    break;
+                }
+                ProtobufRowConverter tableConverter = null;
+                FieldDescriptor field = messageType.findFieldByNumber(WireFormat.getTagFieldNumber(tag));
+                if ((field != null) &&
+                    (tag == fieldTag(field))) {
+                    tableConverter = tableConvertersByField.get(field);
+                }
+                if (tableConverter != null) {
+                    assert (row == null);
+                    int length = input.readRawVarint32();
+                    int oldLimit = input.pushLimit(length);
+                    row = tableConverter.decodeFrom(input);
+                    input.checkLastTagWas(0);
+                    input.popLimit(oldLimit);
+                }
+                else if (!input.skipField(tag)) {
+                    break;
+                }
+            }
+            assert (row != null);
+            return row;
+        }
+
+        @Override
+        protected Row decodeLazily(byte[] bytes, int offset, int length) throws InvalidProtocolBufferException {
+            // Only find the table's submessage; it is parsed on demand.
+            CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+            try {
+                while (true) {
+                    int tag = input.readTag();
+                    if (tag == 0) {
+                        break;
+                    }
+                    ProtobufRowConverter tableConverter = null;
+                    FieldDescriptor field = messageType.findFieldByNumber(WireFormat.getTagFieldNumber(tag));
+                    if ((field != null) &&
+                        (tag == fieldTag(field))) {
+                        tableConverter = tableConvertersByField.get(field);
+                    }
+                    if (tableConverter != null) {
+                        int tableLength = input.readRawVarint32();
+                        return tableConverter.decodeLazily(bytes, offset + input.getTotalBytesRead(), tableLength);
+                    }
+                    else if (!input.skipField(tag)) {
+                        break;
+                    }
+                }
+            }
+            catch (InvalidProtocolBufferException ex) {
+                throw ex;
+            }
+            catch (IOException ex) {
+                throw new InvalidProtocolBufferException(ex.getMessage());
+            }
+            throw new InvalidProtocolBufferException("Message has no table field");
+        }
     }
 
     static class TableConverter extends ProtobufRowConverter {
@@ -160,6 +298,14 @@ public abstract class ProtobufRowConverter
         private final Map<FieldDescriptor,Integer> columnIndexesByField;
         private final Map<FieldDescriptor,Integer> nullableIndexesByField;
         private final RowType rowType;
+        // Serialization plan: every field in number order, as
+        // DynamicMessage would write them, with the column each is for.
+        private final FieldDescriptor[] encodeFields;
+        private final int[] encodeColumns;
+        private final boolean[] encodeNullFlags;
+        // For decoding: the expected tag and column for each field number.
+        private final int[] tagsByFieldNumber;
+        private final int[] columnsByFieldNumber;
         
         public TableConverter(Table table, Descriptor tableMessage) {
             super(table.getTableId(), tableMessage);
@@ -198,6 +344,45 @@ public abstract class ProtobufRowConverter
             this.nullFields = nullFields;
             this.nullableIndexesByField = nullableIndexesByField;
             this.rowType = SchemaCache.globalSchema(table.getAIS()).tableRowType(table);
+
+            List<FieldDescriptor> encoded = new ArrayList<>(nfields * 2);
+            int maxFieldNumber = 0;
+            for (int i = 0; i < nfields; i++) {
+                if (fields[i] != null) {
+                    encoded.add(fields[i]);
+                    maxFieldNumber = Math.max(maxFieldNumber, fields[i].getNumber());
+                }
+                if ((nullFields != null) && (nullFields[i] != null)) {
+                    encoded.add(nullFields[i]);
+                }
+            }
+            Collections.sort(encoded, new Comparator<FieldDescriptor>() {
+                    @Override
+                    public int compare(FieldDescriptor f1, FieldDescriptor f2) {
+                        return Integer.compare(f1.getNumber(), f2.getNumber());
+                    }
+                });
+            int nencoded = encoded.size();
+            encodeFields = encoded.toArray(new FieldDescriptor[nencoded]);
+            encodeColumns = new int[nencoded];
+            encodeNullFlags = new boolean[nencoded];
+            for (int i = 0; i < nencoded; i++) {
+                FieldDescriptor field = encodeFields[i];
+                Integer columnIndex = columnIndexesByField.get(field);
+                if (columnIndex == null) {
+                    columnIndex = nullableIndexesByField.get(field);
+                    encodeNullFlags[i] = true;
+                }
+                encodeColumns[i] = columnIndex;
+            }
+            tagsByFieldNumber = new int[maxFieldNumber + 1];
+            columnsByFieldNumber = new int[maxFieldNumber + 1];
+            for (int i = 0; i < nfields; i++) {
+                if (fields[i] != null) {
+                    tagsByFieldNumber[fields[i].getNumber()] = fieldTag(fields[i]);
+                    columnsByFieldNumber[fields[i].getNumber()] = i;
+                }
+            }
         }
 
         @Override
@@ -238,5 +423,260 @@ public abstract class ProtobufRowConverter
             ValuesHolderRow row = new ValuesHolderRow (rowType, objects);
             return row;
         }
+
+        @Override
+        public byte[] encodeToBytes(Row row) {
+            Object[] raws = rawValues(row);
+            byte[] bytes = new byte[serializedSize(raws)];
+            CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+            try {
+                writeTo(output, raws);
+            }
+            catch (IOException ex) {
+                throw new AkibanInternalException("Serializing to a byte array threw an IOException", ex);
+            }
+            output.checkNoSpaceLeft();
+            return bytes;
+        }
+
+        /** Get the raw field value for each of <code>encodeFields</code>, or <code>null</code> if absent. */
+        protected Object[] rawValues(Row row) {
+            Object[] raws = new Object[encodeFields.length];
+            for (int i = 0; i < raws.length; i++) {
+                ValueSource value = row.value(encodeColumns[i]);
+                if (encodeNullFlags[i]) {
+                    if (value.isNull()) {
+                        raws[i] = Boolean.TRUE;
+                    }
+                }
+                else if (!value.isNull()) {
+                    raws[i] = conversions[encodeColumns[i]].rawFromValue(value);
+                }
+            }
+            return raws;
+        }
+
+        protected int serializedSize(Object[] raws) {
+            int size = 0;
+            for (int i = 0; i < raws.length; i++) {
+                if (raws[i] != null) {
+                    size += fieldSize(encodeFields[i], raws[i]);
+                }
+            }
+            return size;
+        }
+
+        protected void writeTo(CodedOutputStream output, Object[] raws) throws IOException {
+            for (int i = 0; i < raws.length; i++) {
+                if (raws[i] != null) {
+                    writeField(output, encodeFields[i], raws[i]);
+                }
+            }
+        }
+
+        @Override
+        protected Row decodeFrom(CodedInputStream input) throws IOException {
+            Object[] objects = readRaws(input);
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] != null) {
+                    objects[i] = conversions[i].valueFromRaw(objects[i]);
+                }
+            }
+            return new ValuesHolderRow(rowType, objects);
+        }
+
+        @Override
+        protected Row decodeLazily(byte[] bytes, int offset, int length) {
+            return new LazyProtobufRow(bytes, offset, length);
+        }
+
+        /** Read the raw field value of each column, or <code>null</code> if absent. */
+        protected Object[] readRaws(CodedInputStream input) throws IOException {
+            Object[] raws = new Object[fields.length];
+            while (true) {
+                int tag = input.readTag();
+                if (tag == 0) {
+                    break;
+                }
+                int fieldNumber = WireFormat.getTagFieldNumber(tag);
+                if ((fieldNumber < tagsByFieldNumber.length) &&
+                    (tag == tagsByFieldNumber[fieldNumber])) {
+                    raws[columnsByFieldNumber[fieldNumber]] = readField(input, fields[columnsByFieldNumber[fieldNumber]]);
+                }
+                else if (!input.skipField(tag)) {
+                    break;
+                }
+                // Null flag fields are skipped: it's already null, because
+                // we aren't handling defaults yet.
+            }
+            return raws;
+        }
+
+        class LazyProtobufRow extends LazyRow {
+            private final byte[] bytes;
+            private final int offset, length;
+            private Object[] raws;
+
+            public LazyProtobufRow(byte[] bytes, int offset, int length) {
+                super(rowType);
+                this.bytes = bytes;
+                this.offset = offset;
+                this.length = length;
+            }
+
+            @Override
+            protected ValueSource decodeValue(int i) {
+                if (raws == null) {
+                    CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+                    try {
+                        raws = readRaws(input);
+                        input.checkLastTagWas(0);
+                    }
+                    catch (IOException ex) {
+                        ProtobufReadException nex = new ProtobufReadException(messageType.getName(), ex.getMessage());
+                        nex.initCause(ex);
+                        throw nex;
+                    }
+                }
+                Object raw = raws[i];
+                return ValueSources.valuefromObject((raw == null) ? null : conversions[i].valueFromRaw(raw),
+                                                    rowType().typeAt(i));
+            }
+        }
+    }
+
+    /* Direct wire format access for the scalar field types used for columns. */
+
+    protected static int fieldTag(FieldDescriptor field) {
+        return (field.getNumber() << 3) | field.getLiteType().getWireType();
+    }
+
+    protected static int fieldSize(FieldDescriptor field, Object raw) {
+        int number = field.getNumber();
+        switch (field.getType()) {
+        case BOOL:
+            return CodedOutputStream.computeBoolSize(number, (Boolean)raw);
+        case DOUBLE:
+            return CodedOutputStream.computeDoubleSize(number, (Double)raw);
+        case FLOAT:
+            return CodedOutputStream.computeFloatSize(number, (Float)raw);
+        case INT32:
+            return CodedOutputStream.computeInt32Size(number, (Integer)raw);
+        case SINT32:
+            return CodedOutputStream.computeSInt32Size(number, (Integer)raw);
+        case UINT32:
+            return CodedOutputStream.computeUInt32Size(number, (Integer)raw);
+        case FIXED32:
+            return CodedOutputStream.computeFixed32Size(number, (Integer)raw);
+        case SFIXED32:
+            return CodedOutputStream.computeSFixed32Size(number, (Integer)raw);
+        case INT64:
+            return CodedOutputStream.computeInt64Size(number, (Long)raw);
+        case SINT64:
+            return CodedOutputStream.computeSInt64Size(number, (Long)raw);
+        case UINT64:
+            return CodedOutputStream.computeUInt64Size(number, (Long)raw);
+        case FIXED64:
+            return CodedOutputStream.computeFixed64Size(number, (Long)raw);
+        case SFIXED64:
+            return CodedOutputStream.computeSFixed64Size(number, (Long)raw);
+        case STRING:
+            return CodedOutputStream.computeStringSize(number, (String)raw);
+        case BYTES:
+            return CodedOutputStream.computeBytesSize(number, (ByteString)raw);
+        default:
+            throw new AkibanInternalException("Unsupported field type for column: " + field);
+        }
+    }
+
+    protected static void writeField(CodedOutputStream output, FieldDescriptor field, Object raw) throws IOException {
+        int number = field.getNumber();
+        switch (field.getType()) {
+        case BOOL:
+            output.writeBool(number, (Boolean)raw);
+            break;
+        case DOUBLE:
+            output.writeDouble(number, (Double)raw);
+            break;
+        case FLOAT:
+            output.writeFloat(number, (Float)raw);
+            break;
+        case INT32:
+            output.writeInt32(number, (Integer)raw);
+            break;
+        case SINT32:
+            output.writeSInt32(number, (Integer)raw);
+            break;
+        case UINT32:
+            output.writeUInt32(number, (Integer)raw);
+            break;
+        case FIXED32:
+            output.writeFixed32(number, (Integer)raw);
+            break;
+        case SFIXED32:
+            output.writeSFixed32(number, (Integer)raw);
+            break;
+        case INT64:
+            output.writeInt64(number, (Long)raw);
+            break;
+        case SINT64:
+            output.writeSInt64(number, (Long)raw);
+            break;
+        case UINT64:
+            output.writeUInt64(number, (Long)raw);
+            break;
+        case FIXED64:
+            output.writeFixed64(number, (Long)raw);
+            break;
+        case SFIXED64:
+            output.writeSFixed64(number, (Long)raw);
+            break;
+        case STRING:
+            output.writeString(number, (String)raw);
+            break;
+        case BYTES:
+            output.writeBytes(number, (ByteString)raw);
+            break;
+        default:
+            throw new AkibanInternalException("Unsupported field type for column: " + field);
+        }
+    }
+
+    /** Read a field value, as the same type that <code>DynamicMessage.getField</code> would return. */
+    protected static Object readField(CodedInputStream input, FieldDescriptor field) throws IOException {
+        switch (field.getType()) {
+        case BOOL:
+            return input.readBool();
+        case DOUBLE:
+            return input.readDouble();
+        case FLOAT:
+            return input.readFloat();
+        case INT32:
+            return input.readInt32();
+        case SINT32:
+            return input.readSInt32();
+        case UINT32:
+            return input.readUInt32();
+        case FIXED32:
+            return input.readFixed32();
+        case SFIXED32:
+            return input.readSFixed32();
+        case INT64:
+            return input.readInt64();
+        case SINT64:
+            return input.readSInt64();
+        case UINT64:
+            return input.readUInt64();
+        case FIXED64:
+            return input.readFixed64();
+        case SFIXED64:
+            return input.readSFixed64();
+        case STRING:
+            return input.readString();
+        case BYTES:
+            return input.readBytes();
+        default:
+            throw new AkibanInternalException("Unsupported field type for column: " + field);
+        }
     }
 }
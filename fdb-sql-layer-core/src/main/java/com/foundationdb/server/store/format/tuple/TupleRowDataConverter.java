@@ -25,6 +25,7 @@ import com.foundationdb.ais.model.Join;
 import com.foundationdb.ais.model.PrimaryKey;
 import com.foundationdb.ais.model.Table;
 import com.foundationdb.ais.protobuf.FDBProtobuf.TupleUsage;
+import com.foundationdb.qp.row.LazyRow;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.ValuesHolderRow;
 import com.foundationdb.qp.rowtype.RowType;
@@ -38,6 +39,7 @@ import com.foundationdb.server.types.mcompat.mtypes.MBinary;
 import com.foundationdb.server.types.mcompat.mtypes.MDateAndTime;
 import com.foundationdb.server.types.mcompat.mtypes.MNumeric;
 import com.foundationdb.server.types.mcompat.mtypes.MString;
+import com.foundationdb.server.types.value.ValueSource;
 import com.foundationdb.server.types.value.ValueSources;
 import com.foundationdb.tuple.Tuple2;
 
@@ -128,4 +130,20 @@ public class TupleRowDataConverter
         ValuesHolderRow newRow = new ValuesHolderRow (rowType, objects);
         return newRow;
     }
+
+    /** Like {@link #tupleToRow} but only unpacks the tuple when a field is accessed. */
+    public static Row tupleBytesToRow (final byte[] tupleBytes, RowType rowType) {
+        return new LazyRow(rowType) {
+            private Tuple2 tuple;
+
+            @Override
+            protected ValueSource decodeValue(int i) {
+                if (tuple == null) {
+                    tuple = Tuple2.fromBytes(tupleBytes);
+                    assert tuple.size() == rowType().nFields() : "Row Type " + rowType() + " does not match tuple size: " + tuple.size();
+                }
+                return ValueSources.valuefromObject(tuple.get(i), rowType().typeAt(i));
+            }
+        };
+    }
 }
@@ -265,10 +265,9 @@ public class TupleStorageDescription extends FDBStorageDescription
     public Row expandRow(FDBStore store, Session session, 
                             FDBStoreData storeData, Schema schema) {
         if (usage == TupleUsage.KEY_AND_ROW) {
-            Tuple2 tuple = Tuple2.fromBytes(storeData.rawValue);
             Table table = tableFromOrdinals((Group)object, storeData.persistitKey);
             RowType rowType = schema.tableRowType(table);
-            Row row = TupleRowDataConverter.tupleToRow(tuple, rowType);
+            Row row = TupleRowDataConverter.tupleBytesToRow(storeData.rawValue, rowType);
             row = overlayBlobData(rowType, row, store, session);
             return row; 
         } else {
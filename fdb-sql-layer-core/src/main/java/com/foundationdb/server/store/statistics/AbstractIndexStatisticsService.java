@@ -37,6 +37,7 @@ import com.foundationdb.server.service.session.SessionService;
 import com.foundationdb.server.service.transaction.TransactionService;
 import com.foundationdb.server.store.SchemaManager;
 import com.foundationdb.server.store.Store;
+import com.foundationdb.server.types.aksql.aktypes.AkBlob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,11 +45,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
@@ -63,6 +66,9 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
     private static final String BUCKET_COUNT_PROPERTY = "fdbsql.index_statistics.bucket_count";
     private static final String BUCKET_TIME_PROPERTY = "fdbsql.index_statistics.time_limit";
     private static final String BACKGROUND_TIME_PROPERTY = "fdbsql.index_statistics.background";
+    private static final String COLUMN_STATISTICS_PROPERTY = "fdbsql.index_statistics.column_statistics";
+    // Longer values are not worth sampling and would not fit in key_bytes.
+    private static final long COLUMN_STATISTICS_MAX_STORAGE_SIZE = 1024;
     private static final long TIME_LIMIT_UNLIMITED = -1;
     private static final long TIME_LIMIT_DISABLED = -2;
 
@@ -75,6 +81,8 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
 
     private AbstractStoreIndexStatistics storeStats;
     private Map<Index,IndexStatistics> cache;
+    private Map<Column,ColumnStatistics> columnCache;
+    private boolean columnStatisticsEnabled;
     private BackgroundState backgroundState;
     private int bucketCount;
     private long scanTimeLimit, sleepTime, backgroundTimeLimit, backgroundSleepTime;
@@ -103,6 +111,8 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
     @Override
     public void start() {
         cache = Collections.synchronizedMap(new WeakHashMap<Index,IndexStatistics>());
+        columnCache = Collections.synchronizedMap(new WeakHashMap<Column,ColumnStatistics>());
+        columnStatisticsEnabled = Boolean.parseBoolean(configurationService.getProperty(COLUMN_STATISTICS_PROPERTY));
         storeStats = createStoreIndexStatistics();
         bucketCount = Integer.parseInt(configurationService.getProperty(BUCKET_COUNT_PROPERTY));
         parseTimeLimit(BUCKET_TIME_PROPERTY, false);
@@ -148,6 +158,7 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
     public void stop() {
         listenerService.deregisterTableListener(this);
         cache = null;
+        columnCache = null;
         storeStats = null;
         bucketCount = 0;
         backgroundState.stop();
@@ -268,9 +279,62 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
         deleteIndexStatistics(session, indexesInSchema(session, schema));
     }
 
+    @Override
+    public ColumnStatistics getColumnStatistics(Session session, Column column) {
+        if (!columnStatisticsEnabled)
+            return null;
+        ColumnStatistics result = columnCache.get(column);
+        if (result != null) {
+            if (result.isInvalid())
+                return null;
+            else
+                return result;
+        }
+        result = storeStats.loadColumnStatistics(session, column);
+        if (result != null) {
+            columnCache.put(column, result);
+            return result;
+        }
+        result = new ColumnStatistics(column);
+        result.setValidity(IndexStatistics.Validity.INVALID);
+        columnCache.put(column, result);
+        return null;
+    }
+
+    @Override
+    public void updateColumnStatistics(Session session, Table table) {
+        if (!columnStatisticsEnabled || table.isVirtual())
+            return;
+        List<Column> columns = columnStatisticsColumns(table);
+        if (columns.isEmpty())
+            return;
+        List<ColumnStatistics> statistics = storeStats.computeColumnStatistics(session, table, columns,
+                                                                               scanTimeLimit, sleepTime);
+        final Map<Column,ColumnStatistics> updates = new HashMap<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            storeStats.storeColumnStatistics(session, columns.get(i), statistics.get(i));
+            updates.put(columns.get(i), statistics.get(i));
+        }
+        txnService.addCallback(session, TransactionService.CallbackType.COMMIT, new TransactionService.Callback() {
+            @Override
+            public void run(Session session, long timestamp) {
+                columnCache.putAll(updates);
+            }
+        });
+    }
+
+    @Override
+    public void deleteColumnStatistics(Session session, Table table) {
+        for (Column column : table.getColumns()) {
+            storeStats.removeColumnStatistics(session, column);
+            columnCache.remove(column);
+        }
+    }
+
     @Override
     public void clearCache() {
         cache.clear();
+        columnCache.clear();
     }
 
     @Override
@@ -342,6 +406,7 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
     public void onDrop(Session session, Table table) {
         deleteIndexStatistics(session, table.getIndexesIncludingInternal());
         deleteIndexStatistics(session, table.getGroupIndexes());
+        deleteColumnStatistics(session, table);
     }
 
     @Override
@@ -389,6 +454,30 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
                 .on("table_id", "table_id")
                 .and("index_id", "index_id");
 
+        builder.table(COLUMN_STATISTICS_TABLE_NAME.getTableName())
+                .colBigInt("table_id", false)
+                .colInt("column_position", false)
+                .colSystemTimestamp("analysis_timestamp", true)
+                .colBigInt("row_count", true)
+                .colBigInt("sampled_count", true)
+                .colBigInt("null_count", true)
+                .colBigInt("distinct_count", true)
+                .colVarBinary("distinct_sketch", 4096, true)
+                .pk("table_id", "column_position");
+        builder.table(COLUMN_STATISTICS_ENTRY_TABLE_NAME.getTableName())
+                .colBigInt("table_id", false)
+                .colInt("column_position", false)
+                .colInt("item_number", false)
+                .colString("key_string", 2048, true, "latin1")
+                .colVarBinary("key_bytes", 4096, true)
+                .colBigInt("eq_count", true)
+                .colBigInt("lt_count", true)
+                .colBigInt("distinct_count", true)
+                .pk("table_id", "column_position", "item_number")
+                .joinTo(COLUMN_STATISTICS_TABLE_NAME.getSchemaName(), COLUMN_STATISTICS_TABLE_NAME.getTableName(), "fk_0")
+                .on("table_id", "table_id")
+                .and("column_position", "column_position");
+
         builder.procedure(TableName.SYS_SCHEMA, "index_stats_delete")
                .language("java", Routine.CallingConvention.JAVA)
                .paramStringIn("schema_name", 128)
@@ -417,6 +506,8 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
         AkibanInformationSchema ais = createStatsTables(schemaManager);
         schemaManager.registerStoredInformationSchemaTable(ais.getTable(INDEX_STATISTICS_TABLE_NAME), INDEX_STATISTICS_TABLE_VERSION);
         schemaManager.registerStoredInformationSchemaTable(ais.getTable(INDEX_STATISTICS_ENTRY_TABLE_NAME), INDEX_STATISTICS_TABLE_VERSION);
+        schemaManager.registerStoredInformationSchemaTable(ais.getTable(COLUMN_STATISTICS_TABLE_NAME), INDEX_STATISTICS_TABLE_VERSION);
+        schemaManager.registerStoredInformationSchemaTable(ais.getTable(COLUMN_STATISTICS_ENTRY_TABLE_NAME), INDEX_STATISTICS_TABLE_VERSION);
 
         for(Routine routine : ais.getRoutines().values()) {
             schemaManager.registerSystemRoutine(routine);
@@ -433,6 +524,26 @@ public abstract class AbstractIndexStatisticsService implements IndexStatisticsS
         return indexes;
     }
 
+    /** Columns that would not otherwise have statistics: those not leading any index. */
+    private static List<Column> columnStatisticsColumns(Table table) {
+        Set<Column> indexed = new HashSet<>();
+        for (Index index : table.getIndexes()) {
+            indexed.add(index.getKeyColumns().get(0).getColumn());
+        }
+        for (Index index : table.getGroupIndexes()) {
+            indexed.add(index.getKeyColumns().get(0).getColumn());
+        }
+        List<Column> columns = new ArrayList<>();
+        for (Column column : table.getColumns()) {
+            if (indexed.contains(column) ||
+                AkBlob.isBlob(column.getType().typeClass()) ||
+                (column.getMaxStorageSize() > COLUMN_STATISTICS_MAX_STORAGE_SIZE))
+                continue;
+            columns.add(column);
+        }
+        return columns;
+    }
+
     class BackgroundState implements Runnable {
         private final Queue<IndexName> queue = new ArrayDeque<>();
         private boolean active;
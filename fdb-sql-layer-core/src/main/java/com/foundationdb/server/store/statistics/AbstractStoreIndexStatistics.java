@@ -17,7 +17,9 @@
 
 package com.foundationdb.server.store.statistics;
 
+import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Index;
+import com.foundationdb.ais.model.Table;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.row.ValuesHolderRow;
 import com.foundationdb.qp.rowtype.RowType;
@@ -26,7 +28,10 @@ import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.store.Store;
 
 import java.util.ArrayList;
+import java.util.List;
 
+import static com.foundationdb.server.store.statistics.IndexStatisticsService.COLUMN_STATISTICS_ENTRY_TABLE_NAME;
+import static com.foundationdb.server.store.statistics.IndexStatisticsService.COLUMN_STATISTICS_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsService.INDEX_STATISTICS_ENTRY_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsService.INDEX_STATISTICS_TABLE_NAME;
 
@@ -44,6 +49,10 @@ import static com.foundationdb.server.store.statistics.IndexStatisticsService.IN
  * 3: (a, b, c)
  * -2: (b)
  * -3: (c)
+ *
+ * Column statistics for columns that do not lead any index are kept in
+ * column_statistics and column_statistics_entry, keyed by column position
+ * instead of index id, with the same entry format as a single-column histogram.
  */
 public abstract class AbstractStoreIndexStatistics<S extends Store> {
     private final S store;
@@ -61,6 +70,28 @@ public abstract class AbstractStoreIndexStatistics<S extends Store> {
     /** Sample index values and build statistics histograms. */
     public abstract IndexStatistics computeIndexStatistics(Session session, Index index, long scanTimeLimit, long sleepTime);
 
+    public abstract ColumnStatistics loadColumnStatistics(Session session, Column column);
+    public abstract void removeColumnStatistics(Session session, Column column);
+    /** Sample table rows and build statistics for the given columns of that table. */
+    public abstract List<ColumnStatistics> computeColumnStatistics(Session session, Table table, List<Column> columns, long scanTimeLimit, long sleepTime);
+
+    protected List<ColumnStatisticsGenerator> createColumnStatisticsGenerators(List<Column> columns) {
+        List<ColumnStatisticsGenerator> generators = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            generators.add(new ColumnStatisticsGenerator(store, column));
+        }
+        return generators;
+    }
+
+    protected static List<ColumnStatistics> finishColumnStatistics(List<ColumnStatisticsGenerator> generators,
+                                                                   int bucketCount) {
+        List<ColumnStatistics> result = new ArrayList<>(generators.size());
+        for (ColumnStatisticsGenerator generator : generators) {
+            result.add(generator.finish(bucketCount));
+        }
+        return result;
+    }
+
 
     protected long estimateIndexRowCount(Session session, Index index) {
         switch(index.getIndexType()) {
@@ -120,6 +151,85 @@ public abstract class AbstractStoreIndexStatistics<S extends Store> {
         histogram.getEntries().add(new HistogramEntry(keyString, keyBytes, eqCount, ltCount, distinctCount));
     }
     
+    // Column statistics, keyed by table_id, column_position.
+    private static final int NULL_COUNT_FIELD_INDEX = 5;
+    private static final int COLUMN_DISTINCT_COUNT_FIELD_INDEX = 6;
+    private static final int DISTINCT_SKETCH_FIELD_INDEX = 7;
+
+    private static final int COLUMN_ITEM_NUMBER_FIELD_INDEX = 2;
+    private static final int COLUMN_KEY_STRING_FIELD_INDEX = 3;
+    private static final int COLUMN_KEY_BYTES_FIELD_INDEX = 4;
+    private static final int COLUMN_EQ_COUNT_FIELD_INDEX = 5;
+    private static final int COLUMN_LT_COUNT_FIELD_INDEX = 6;
+    private static final int COLUMN_ENTRY_DISTINCT_COUNT_FIELD_INDEX = 7;
+
+    protected final ColumnStatistics decodeColumnStatisticsRow(Row row, Column column) {
+        long analysisTimeStamp = (long)row.value(ANALYSIS_TIMESTAMP_FIELD_INDEX).getInt32();
+        long rowCount = row.value(ROW_COUNT_FIELD_INDEX).getInt64();
+        long sampledCount = row.value(SAMPLED_COUNT_FIELD_INDEX).getInt64();
+        long nullCount = row.value(NULL_COUNT_FIELD_INDEX).getInt64();
+        long distinctCount = row.value(COLUMN_DISTINCT_COUNT_FIELD_INDEX).getInt64();
+        ColumnStatistics columnStatistics = new ColumnStatistics(column, analysisTimeStamp * 1000,
+                                                                 rowCount, sampledCount,
+                                                                 nullCount, distinctCount);
+        if (!row.value(DISTINCT_SKETCH_FIELD_INDEX).isNull()) {
+            columnStatistics.setDistinctSketch(HyperLogLog.fromBytes(row.value(DISTINCT_SKETCH_FIELD_INDEX).getBytes()));
+        }
+        return columnStatistics;
+    }
+
+    protected final void decodeColumnStatisticsEntryRow(Row row, ColumnStatistics columnStatistics) {
+        String keyString = row.value(COLUMN_KEY_STRING_FIELD_INDEX).getString();
+        byte[] keyBytes = row.value(COLUMN_KEY_BYTES_FIELD_INDEX).getBytes();
+        long eqCount = row.value(COLUMN_EQ_COUNT_FIELD_INDEX).getInt64();
+        long ltCount = row.value(COLUMN_LT_COUNT_FIELD_INDEX).getInt64();
+        long distinctCount = row.value(COLUMN_ENTRY_DISTINCT_COUNT_FIELD_INDEX).getInt64();
+        Histogram histogram = columnStatistics.getHistogram();
+        if (histogram == null) {
+            histogram = new Histogram(0, 1, new ArrayList<HistogramEntry>());
+            columnStatistics.addHistogram(histogram);
+        }
+        histogram.getEntries().add(new HistogramEntry(keyString, keyBytes, eqCount, ltCount, distinctCount));
+    }
+
+    /** Store column statistics into database. */
+    public final void storeColumnStatistics(Session session, Column column, ColumnStatistics columnStatistics) {
+        int tableId = column.getTable().getTableId();
+        RowType columnStatisticsRowType = SchemaCache.globalSchema(column.getTable().getAIS()).tableRowType(store.getAIS(session).getTable(COLUMN_STATISTICS_TABLE_NAME));
+        RowType columnStatisticsEntryRowType = SchemaCache.globalSchema(column.getTable().getAIS()).tableRowType(store.getAIS(session).getTable(COLUMN_STATISTICS_ENTRY_TABLE_NAME));
+
+        removeColumnStatistics(session, column);
+
+        HyperLogLog distinctSketch = columnStatistics.getDistinctSketch();
+        Row row = new ValuesHolderRow(columnStatisticsRowType,
+                        tableId,
+                        column.getPosition(),
+                        columnStatistics.getAnalysisTimestamp() / 1000,
+                        columnStatistics.getRowCount(),
+                        columnStatistics.getSampledCount(),
+                        columnStatistics.getNullCount(),
+                        columnStatistics.getDistinctCount(),
+                        (distinctSketch == null) ? null : distinctSketch.toBytes());
+        store.writeRow(session, row, null, null);
+
+        Histogram histogram = columnStatistics.getHistogram();
+        if (histogram != null) {
+            int itemNumber = 0;
+            for (HistogramEntry entry : histogram.getEntries()) {
+                row = new ValuesHolderRow(columnStatisticsEntryRowType,
+                            tableId,
+                            column.getPosition(),
+                            ++itemNumber,
+                            entry.getKeyString(),
+                            entry.getKeyBytes(),
+                            entry.getEqualCount(),
+                            entry.getLessCount(),
+                            entry.getDistinctCount());
+                store.writeRow(session, row, null, null);
+            }
+        }
+    }
+
     /** Store statistics into database. */
     public final void storeIndexStatistics(Session session, Index index, IndexStatistics indexStatistics) {
         int tableId = index.leafMostTable().getTableId();
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store.statistics;
+
+import com.foundationdb.ais.model.Column;
+
+/** Statistics for a single column gathered by sampling table rows
+ * instead of scanning an index.
+ *
+ * The histogram (<code>getHistogram(0, 1)</code>) is built from the
+ * sampled rows, as for an index. The null and distinct counts come
+ * from every row, the latter as estimated by a {@link HyperLogLog}
+ * sketch of the non-null values.
+ */
+public class ColumnStatistics extends IndexStatistics
+{
+    private final int columnPosition;
+    private long nullCount, distinctCount;
+    private HyperLogLog distinctSketch;
+
+    protected ColumnStatistics(Column column) {
+        super(column.getName(), 1);
+        this.columnPosition = column.getPosition();
+    }
+
+    protected ColumnStatistics(Column column, long analysisTimestamp, long rowCount, long sampledCount,
+                               long nullCount, long distinctCount) {
+        this(column);
+        setAnalysisTimestamp(analysisTimestamp);
+        setRowCount(rowCount);
+        setSampledCount(sampledCount);
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+    }
+
+    public int getColumnPosition() {
+        return columnPosition;
+    }
+
+    public Histogram getHistogram() {
+        return getHistogram(0, 1);
+    }
+
+    /** The number of rows whose value was null when analyzed. */
+    public long getNullCount() {
+        return nullCount;
+    }
+    protected void setNullCount(long nullCount) {
+        this.nullCount = nullCount;
+    }
+
+    public double getNullFraction() {
+        return (getRowCount() > 0) ? (double)nullCount / getRowCount() : 0.0;
+    }
+
+    /** The estimated number of distinct non-null values when analyzed. */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+    protected void setDistinctCount(long distinctCount) {
+        this.distinctCount = distinctCount;
+    }
+
+    /** The sketch that estimated the distinct count, if available. */
+    public HyperLogLog getDistinctSketch() {
+        return distinctSketch;
+    }
+    protected void setDistinctSketch(HyperLogLog distinctSketch) {
+        this.distinctSketch = distinctSketch;
+    }
+
+    /** The fraction of rows equal to a value not known in advance. */
+    public double getEqualSelectivity() {
+        return (1.0 - getNullFraction()) / Math.max(distinctCount, 1);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[nulls=" + nullCount + ", distinct=" + distinctCount + "]";
+    }
+}
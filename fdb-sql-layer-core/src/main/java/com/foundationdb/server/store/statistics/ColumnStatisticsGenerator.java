@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store.statistics;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.PersistitKeyValueTarget;
+import com.foundationdb.server.service.tree.KeyCreator;
+import com.foundationdb.server.store.statistics.histograms.Bucket;
+import com.foundationdb.server.store.statistics.histograms.Sampler;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.util.Flywheel;
+import com.persistit.Key;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Build {@link ColumnStatistics} for one column from table rows.
+ *
+ * Values are encoded the same way as an index key would be, so that
+ * the cost estimator can compare against them in the same way.
+ * Every row feeds the null count and distinct sketch; only sampled
+ * rows are buffered for the histogram.
+ */
+class ColumnStatisticsGenerator
+{
+    private final Column column;
+    private final int field;
+    private final TInstance type;
+    private final Flywheel<Key> keysFlywheel;
+    private final Key extractKey;
+    private final PersistitKeyValueTarget keyTarget;
+    private final Map<Key,int[]> countMap = new TreeMap<>();
+    private final HyperLogLog distinctSketch = new HyperLogLog();
+    private final long timestamp;
+    private long rowCount, sampledCount, nullCount;
+
+    public ColumnStatisticsGenerator(KeyCreator keyCreator, Column column) {
+        this.column = column;
+        this.field = column.getPosition();
+        this.type = column.getType();
+        this.keysFlywheel = new PersistitKeyFlywheel(keyCreator);
+        this.extractKey = keyCreator.createKey();
+        this.keyTarget = new PersistitKeyValueTarget(getClass().getSimpleName());
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public void visit(Row row, boolean sampled) {
+        ValueSource value = row.value(field);
+        rowCount++;
+        extractKey.clear();
+        keyTarget.attach(extractKey);
+        type.writeCollating(value, keyTarget);
+        if (value.isNull()) {
+            nullCount++;
+        }
+        else {
+            distinctSketch.add(extractKey.getEncodedBytes(), 0, extractKey.getEncodedSize());
+        }
+        if (sampled) {
+            sampledCount++;
+            int[] curCount = countMap.get(extractKey);
+            if (curCount == null) {
+                curCount = new int[1];
+                countMap.put(new Key(extractKey), curCount);
+            }
+            curCount[0] += 1;
+        }
+    }
+
+    public ColumnStatistics finish(int bucketCount) {
+        Sampler<Key> keySampler = new Sampler<>(new PersistitKeySplitter(1, keysFlywheel),
+                                                bucketCount,
+                                                sampledCount,
+                                                keysFlywheel);
+        keySampler.init();
+        for (Map.Entry<Key,int[]> entry : countMap.entrySet()) {
+            int keyCount = entry.getValue()[0];
+            for (int i = 0; i < keyCount; i++) {
+                for (Key recycle : keySampler.visit(entry.getKey())) {
+                    keysFlywheel.recycle(recycle);
+                }
+            }
+        }
+        keySampler.finish();
+        countMap.clear();
+        List<Bucket<Key>> buckets = keySampler.toBuckets().get(0);
+        List<HistogramEntry> entries = new ArrayList<>(buckets.size());
+        for (Bucket<Key> bucket : buckets) {
+            Key key = bucket.value();
+            byte[] keyBytes = new byte[key.getEncodedSize()];
+            System.arraycopy(key.getEncodedBytes(), 0, keyBytes, 0, keyBytes.length);
+            entries.add(new HistogramEntry(key.toString(),
+                                           keyBytes,
+                                           bucket.getEqualsCount(),
+                                           bucket.getLessThanCount(),
+                                           bucket.getLessThanDistinctsCount()));
+        }
+        ColumnStatistics columnStatistics = new ColumnStatistics(column, timestamp,
+                                                                 rowCount, sampledCount,
+                                                                 nullCount, distinctSketch.estimate());
+        columnStatistics.setDistinctSketch(distinctSketch);
+        columnStatistics.addHistogram(new Histogram(0, 1, entries));
+        return columnStatistics;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.foundationdb.server.store.statistics;
 
+import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Index;
 import com.foundationdb.ais.model.IndexColumn;
 import com.foundationdb.ais.model.Table;
@@ -33,6 +34,9 @@ import com.persistit.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
+import static com.foundationdb.server.store.statistics.IndexStatisticsService.COLUMN_STATISTICS_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsService.INDEX_STATISTICS_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsVisitor.VisitorCreator;
 
@@ -147,6 +151,88 @@ public class FDBStoreIndexStatistics extends AbstractStoreIndexStatistics<FDBSto
         return indexStatistics;
     }
 
+    @Override
+    public ColumnStatistics loadColumnStatistics(Session session, Column column) {
+        Table columnStatisticsTable = getStore().getAIS(session).getTable(COLUMN_STATISTICS_TABLE_NAME);
+        Schema schema = SchemaCache.globalSchema(getStore().getAIS(session));
+        FDBStoreData storeData = getStore().createStoreData(session, columnStatisticsTable.getGroup());
+        storeData.persistitKey.append(columnStatisticsTable.getOrdinal())
+        .append((long) column.getTable().getTableId())
+        .append((long) column.getPosition());
+
+        ColumnStatistics result = null;
+        getStore().groupKeyAndDescendantsIterator(session, storeData, FDBScanTransactionOptions.SNAPSHOT);
+        while(storeData.next()) {
+            Row row = getStore().expandGroupData(session, storeData, schema);
+            if(result == null) {
+                result = decodeColumnStatisticsRow(row, column);
+            } else {
+                decodeColumnStatisticsEntryRow(row, result);
+            }
+        }
+        if ((result != null) && logger.isDebugEnabled()) {
+            logger.debug("Loaded: " + result);
+        }
+        return result;
+    }
+
+    @Override
+    public void removeColumnStatistics(Session session, Column column) {
+        Table table = getStore().getAIS(session).getTable(COLUMN_STATISTICS_TABLE_NAME);
+        FDBStoreData storeData = getStore().createStoreData(session, table.getGroup());
+        storeData.persistitKey.clear();
+
+        storeData.persistitKey.append(table.getOrdinal())
+            .append((long) column.getTable().getTableId())
+            .append((long) column.getPosition());
+        getStore().groupKeyAndDescendantsIterator(session, storeData, FDBScanTransactionOptions.NORMAL);
+        while(storeData.next()) {
+            Row row = getStore().expandGroupData(session, storeData, SchemaCache.globalSchema(column.getTable().getAIS()));
+            getStore().deleteRow(session, row, false);
+        }
+    }
+
+    @Override
+    public List<ColumnStatistics> computeColumnStatistics(Session session, Table table, List<Column> columns,
+                                                          long scanTimeLimit, long sleepTime) {
+        FDBScanTransactionOptions transactionOptions;
+        if (scanTimeLimit > 0) {
+            transactionOptions = new FDBScanTransactionOptions(true, -1,
+                                                               scanTimeLimit, sleepTime);
+        }
+        else {
+            transactionOptions = FDBScanTransactionOptions.SNAPSHOT;
+        }
+        // Every row goes into the distinct sketches, but only every few rows are
+        // retained for the histograms, keeping the total below samplerCountLimit.
+        long tableRowCount = table.tableStatus().getApproximateRowCount(session);
+        long sampleRate = (tableRowCount * columns.size() + samplerCountLimit - 1) / samplerCountLimit; // Round up.
+        if (sampleRate > 1) {
+            logger.debug("Sampling rate for {} is {}", table, sampleRate);
+        }
+        long skippedSamples = 0;
+        List<ColumnStatisticsGenerator> generators = createColumnStatisticsGenerators(columns);
+        Schema schema = SchemaCache.globalSchema(table.getAIS());
+        FDBStoreData storeData = getStore().createStoreData(session, table.getGroup());
+        getStore().groupIterator(session, storeData, transactionOptions);
+        while(storeData.next()) {
+            Row row = getStore().expandGroupData(session, storeData, schema);
+            if (row.rowType().table() != table)
+                continue;       // Another table in the group.
+            boolean sampled = (++skippedSamples >= sampleRate);
+            if (sampled)
+                skippedSamples = 0;
+            for (ColumnStatisticsGenerator generator : generators) {
+                generator.visit(row, sampled);
+            }
+        }
+        List<ColumnStatistics> result = finishColumnStatistics(generators, indexStatisticsService.bucketCount());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Analyzed {}: {}", table, result);
+        }
+        return result;
+    }
+
 
     //
     // VisitorCreator
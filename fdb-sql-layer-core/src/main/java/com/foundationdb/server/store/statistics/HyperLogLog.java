@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store.statistics;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Arrays;
+
+/** A HyperLogLog sketch for estimating the number of distinct values
+ * seen without remembering them.
+ *
+ * With the default precision, there are 2048 one-byte registers and
+ * the standard error of the estimate is about 2.3%. The serialized
+ * form is the precision followed by the registers, so sketches can be
+ * stored and later merged.
+ */
+public class HyperLogLog
+{
+    public static final int DEFAULT_PRECISION = 11;
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if ((precision < MIN_PRECISION) || (precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException("Precision out of range: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(byte[] bytes) {
+        add(bytes, 0, bytes.length);
+    }
+
+    public void add(byte[] bytes, int offset, int length) {
+        addHash(HASH.hashBytes(bytes, offset, length).asLong());
+    }
+
+    protected void addHash(long hash) {
+        // Leading bits pick the register, the position of the first
+        // one bit in the rest is the rank.
+        int index = (int)(hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision) + 1,
+                            64 - precision + 1);
+        if (rank > registers[index]) {
+            registers[index] = (byte)rank;
+        }
+    }
+
+    /** Combine <code>other</code> into this sketch, as though all its
+     * values had been added here too.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Precision mismatch: " + other.precision + " != " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /** Estimated number of distinct values added. */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if ((estimate <= 2.5 * m) && (zeros > 0)) {
+            // Small range correction: linear counting is more accurate.
+            estimate = m * Math.log((double)m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1.0 + 1.079 / m);
+        }
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte)precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog result = new HyperLogLog(bytes[0]);
+        if (bytes.length != result.registers.length + 1) {
+            throw new IllegalArgumentException("Wrong sketch length: " + bytes.length);
+        }
+        System.arraycopy(bytes, 1, result.registers, 0, result.registers.length);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HyperLogLog)) return false;
+        HyperLogLog other = (HyperLogLog)o;
+        return (precision == other.precision) && Arrays.equals(registers, other.registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + estimate() + ")";
+    }
+}
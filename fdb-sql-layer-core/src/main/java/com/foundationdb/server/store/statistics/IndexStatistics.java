@@ -46,10 +46,14 @@ public class IndexStatistics
     private Histogram[] singleColumnHistograms;
 
     protected IndexStatistics(Index index) {
-        this.indexName = index.getIndexName().getName();
+        this(index.getIndexName().getName(), index.getKeyColumns().size());
+    }
+
+    protected IndexStatistics(String indexName, int columnCount) {
+        this.indexName = indexName;
         this.validity = Validity.VALID;
-        this.multiColumnHistograms = new Histogram[index.getKeyColumns().size()];
-        this.singleColumnHistograms = new Histogram[index.getKeyColumns().size()];
+        this.multiColumnHistograms = new Histogram[columnCount];
+        this.singleColumnHistograms = new Histogram[columnCount];
     }
     
     protected IndexStatistics (Index index, long analysisTimeStamp, long rowCount, long sampledCount) {
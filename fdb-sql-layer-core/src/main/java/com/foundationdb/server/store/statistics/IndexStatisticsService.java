@@ -32,6 +32,8 @@ public interface IndexStatisticsService
 {
     public final static TableName INDEX_STATISTICS_TABLE_NAME = new TableName(TableName.INFORMATION_SCHEMA, "index_statistics");
     public final static TableName INDEX_STATISTICS_ENTRY_TABLE_NAME = new TableName(INDEX_STATISTICS_TABLE_NAME.getSchemaName(), "index_statistics_entry");
+    public final static TableName COLUMN_STATISTICS_TABLE_NAME = new TableName(INDEX_STATISTICS_TABLE_NAME.getSchemaName(), "column_statistics");
+    public final static TableName COLUMN_STATISTICS_ENTRY_TABLE_NAME = new TableName(INDEX_STATISTICS_TABLE_NAME.getSchemaName(), "column_statistics_entry");
 
     /** Get available statistics for the given index. */
     public IndexStatistics getIndexStatistics(Session session, Index index);
@@ -56,6 +58,17 @@ public interface IndexStatisticsService
     public void deleteIndexStatistics(Session session,
                                       String schema) throws IOException;
 
+    /** Get available statistics for the given column, gathered from table rows. */
+    public ColumnStatistics getColumnStatistics(Session session, Column column);
+
+    /** Update statistics for columns of the given table that do not lead an index.
+     * Does nothing unless column statistics are enabled.
+     */
+    public void updateColumnStatistics(Session session, Table table);
+
+    /** Delete stored column statistics for the given table. */
+    public void deleteColumnStatistics(Session session, Table table);
+
     /** Clear the in-memory cache. */
     public void clearCache();
 
@@ -17,6 +17,7 @@
 
 package com.foundationdb.server.store.statistics;
 
+import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Index;
 import com.foundationdb.ais.model.IndexColumn;
 import com.foundationdb.ais.model.Table;
@@ -31,6 +32,9 @@ import com.persistit.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
+import static com.foundationdb.server.store.statistics.IndexStatisticsService.COLUMN_STATISTICS_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsService.INDEX_STATISTICS_TABLE_NAME;
 import static com.foundationdb.server.store.statistics.IndexStatisticsVisitor.VisitorCreator;
 
@@ -112,6 +116,68 @@ public class MemoryStoreIndexStatistics extends AbstractStoreIndexStatistics<Mem
         }
         return indexStatistics;
     }
+    @Override
+    public ColumnStatistics loadColumnStatistics(Session session, Column column) {
+        Table columnStatisticsTable = getStore().getAIS(session).getTable(COLUMN_STATISTICS_TABLE_NAME);
+        Schema schema = SchemaCache.globalSchema(getStore().getAIS(session));
+        MemoryStoreData storeData = getStore().createStoreData(session, columnStatisticsTable.getGroup());
+        storeData.persistitKey.append(columnStatisticsTable.getOrdinal())
+                              .append((long)column.getTable().getTableId())
+                              .append((long)column.getPosition());
+        ColumnStatistics result = null;
+        getStore().groupKeyAndDescendantsIterator(session, storeData);
+        while(storeData.next()) {
+            Row row = getStore().expandRow(session, storeData, schema);
+            if(result == null) {
+                result = decodeColumnStatisticsRow(row, column);
+            } else {
+                decodeColumnStatisticsEntryRow(row, result);
+            }
+        }
+        if((result != null) && LOG.isDebugEnabled()) {
+            LOG.debug("Loaded: {}", result);
+        }
+        return result;
+    }
+
+    @Override
+    public void removeColumnStatistics(Session session, Column column) {
+        Table table = getStore().getAIS(session).getTable(COLUMN_STATISTICS_TABLE_NAME);
+        MemoryStoreData storeData = getStore().createStoreData(session, table.getGroup());
+        storeData.persistitKey.clear();
+        storeData.persistitKey.append(table.getOrdinal())
+                              .append((long)column.getTable().getTableId())
+                              .append((long)column.getPosition());
+        getStore().groupKeyAndDescendantsIterator(session, storeData);
+        while(storeData.next()) {
+            Row row = getStore().expandRow(session, storeData, SchemaCache.globalSchema(column.getTable().getAIS()));
+            getStore().deleteRow(session, row, false);
+        }
+    }
+
+    @Override
+    public List<ColumnStatistics> computeColumnStatistics(Session session, Table table, List<Column> columns,
+                                                          long scanTimeLimit, long sleepTime) {
+        // Every row is sampled, as for indexes.
+        List<ColumnStatisticsGenerator> generators = createColumnStatisticsGenerators(columns);
+        Schema schema = SchemaCache.globalSchema(table.getAIS());
+        MemoryStoreData storeData = getStore().createStoreData(session, table.getGroup());
+        getStore().groupIterator(session, storeData);
+        while(storeData.next()) {
+            Row row = getStore().expandGroupData(session, storeData, schema);
+            if(row.rowType().table() != table) {
+                continue;
+            }
+            for(ColumnStatisticsGenerator generator : generators) {
+                generator.visit(row, true);
+            }
+        }
+        List<ColumnStatistics> result = finishColumnStatistics(generators, indexStatisticsService.bucketCount());
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("Analyzed {}: {}", table, result);
+        }
+        return result;
+    }
 
     //
     // VisitorCreator
@@ -31,4 +31,6 @@ public interface TScalar extends TOverload {
     void evaluate(TExecutionContext context, LazyList<? extends ValueSource> inputs, ValueTarget output);
     String toString(List<? extends TPreparedExpression> inputs, TInstance resultType);
     CompoundExplainer getExplainer(ExplainContext context, List<? extends TPreparedExpression> inputs, TInstance resultType);
+    /** Whether the same inputs always produce the same result, regardless of when or by whom evaluated. */
+    boolean isDeterministic();
 }
@@ -22,13 +22,92 @@ import com.foundationdb.server.error.InvalidParameterValueException;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 public final class Matchers
 {
+    /** Compiled matchers are immutable, so the most recent ones are shared. */
+    private static final int CACHE_SIZE = 256;
+    private static final Map<String, Matcher> CACHE = new LinkedHashMap<String, Matcher>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Matcher> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     public static Matcher getMatcher(String pattern, char escape, boolean ignoreCase) {
+        String key = cacheKey(pattern, escape, ignoreCase);
+        Matcher matcher;
+        synchronized(CACHE) {
+            matcher = CACHE.get(key);
+        }
+        if(matcher == null) {
+            matcher = compileMatcher(pattern, escape, ignoreCase);
+            synchronized(CACHE) {
+                CACHE.put(key, matcher);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * Get the literal characters that every string matching {@code pattern}
+     * must start with, that is, everything before the first unescaped wildcard.
+     */
+    public static String literalPrefix(String pattern, char escape) {
+        StringBuilder prefix = new StringBuilder();
+        literalPrefixEnd(pattern, escape, prefix);
+        return prefix.toString();
+    }
+
+    /** Check whether {@code pattern} is a literal prefix followed only by {@code %}. */
+    public static boolean isPrefixPattern(String pattern, char escape) {
+        int end = literalPrefixEnd(pattern, escape, null);
+        if((end < 0) || (end >= pattern.length())) {
+            return false;
+        }
+        for(int n = end; n < pattern.length(); ++n) {
+            if(pattern.charAt(n) != '%') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the pattern index of the first wildcard, or -1 if the pattern cannot be analyzed. */
+    private static int literalPrefixEnd(String pattern, char escape, StringBuilder prefix) {
+        if((escape == '%') || (escape == '_')) {
+            return -1;
+        }
+        final int patLength = pattern.length();
+        int n = 0;
+        for(; n < patLength; ++n) {
+            char ch = pattern.charAt(n);
+            if(ch == escape) {
+                if((n + 1) >= patLength) {
+                    return -1;
+                }
+                ch = pattern.charAt(++n);
+            } else if((ch == '%') || (ch == '_')) {
+                break;
+            }
+            if(prefix != null) {
+                prefix.append(ch);
+            }
+        }
+        return n;
+    }
+
+    private static String cacheKey(String pattern, char escape, boolean ignoreCase) {
+        StringBuilder key = new StringBuilder(pattern.length() + 2);
+        key.append(ignoreCase ? 'i' : 'c').append(escape).append(pattern);
+        return key.toString();
+    }
+
+    private static Matcher compileMatcher(String pattern, char escape, boolean ignoreCase) {
         if(pattern.isEmpty()) {
             return new EmptyMatcher();
         }
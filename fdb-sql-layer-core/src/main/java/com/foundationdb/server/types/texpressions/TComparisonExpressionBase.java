@@ -131,6 +131,18 @@ public abstract class TComparisonExpressionBase implements TPreparedExpression {
         return result;
     }
 
+    TPreparedExpression getLeft() {
+        return left;
+    }
+
+    Comparison getComparison() {
+        return comparison;
+    }
+
+    TPreparedExpression getRight() {
+        return right;
+    }
+
     private final Comparison comparison;
     private final TPreparedExpression left;
     private final TPreparedExpression right;
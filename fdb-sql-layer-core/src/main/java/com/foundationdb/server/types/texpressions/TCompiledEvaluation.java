@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.types.texpressions;
+
+import com.foundationdb.qp.operator.QueryBindings;
+import com.foundationdb.qp.operator.QueryContext;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.types.aksql.aktypes.AkBool;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+
+/**
+ * Base class of the evaluations generated by {@link TExpressionCompiler}.
+ * Generated subclasses only implement {@link #evaluate}, reading the current row directly
+ * and delegating any subexpressions that could not be compiled to {@link #fallbacks}.
+ * Everything here is public or protected, since generated classes live in their own class loader.
+ */
+public abstract class TCompiledEvaluation implements TEvaluatableExpression {
+
+    @Override
+    public ValueSource resultValue() {
+        return value;
+    }
+
+    @Override
+    public void with(Row row) {
+        this.row = row;
+        for (TEvaluatableExpression fallback : fallbacks)
+            fallback.with(row);
+    }
+
+    @Override
+    public void with(QueryContext context) {
+        for (TEvaluatableExpression fallback : fallbacks)
+            fallback.with(context);
+    }
+
+    @Override
+    public void with(QueryBindings bindings) {
+        for (TEvaluatableExpression fallback : fallbacks)
+            fallback.with(bindings);
+    }
+
+    protected final void setResult(boolean isNull, boolean result) {
+        if (isNull)
+            value.putNull();
+        else
+            value.putBool(result);
+    }
+
+    protected TCompiledEvaluation(Object[] constants, TEvaluatableExpression[] fallbacks) {
+        this.constants = constants;
+        this.fallbacks = fallbacks;
+        this.value = new Value(AkBool.INSTANCE.instance(true));
+    }
+
+    protected final Object[] constants;
+    protected final TEvaluatableExpression[] fallbacks;
+    protected Row row;
+    private final Value value;
+}
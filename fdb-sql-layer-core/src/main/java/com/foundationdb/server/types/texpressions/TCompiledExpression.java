@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.types.texpressions;
+
+import com.foundationdb.qp.operator.QueryContext;
+import com.foundationdb.server.error.AkibanInternalException;
+import com.foundationdb.server.explain.CompoundExplainer;
+import com.foundationdb.server.explain.ExplainContext;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.TPreptimeValue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * A prepared expression whose evaluation is a class generated by {@link TExpressionCompiler}.
+ * Everything but {@link #build} is answered by the original, interpreted expression.
+ */
+final class TCompiledExpression implements TPreparedExpression {
+
+    @Override
+    public TPreptimeValue evaluateConstant(QueryContext queryContext) {
+        return interpreted.evaluateConstant(queryContext);
+    }
+
+    @Override
+    public TInstance resultType() {
+        return interpreted.resultType();
+    }
+
+    @Override
+    public TEvaluatableExpression build() {
+        TEvaluatableExpression[] evals = new TEvaluatableExpression[fallbacks.size()];
+        for (int i = 0; i < evals.length; i++)
+            evals[i] = fallbacks.get(i).build();
+        return newEvaluation(evals);
+    }
+
+    @Override
+    public boolean isLiteral() {
+        return interpreted.isLiteral();
+    }
+
+    @Override
+    public CompoundExplainer getExplainer(ExplainContext context) {
+        return interpreted.getExplainer(context);
+    }
+
+    @Override
+    public String toString() {
+        return interpreted.toString();
+    }
+
+    TPreparedExpression getInterpreted() {
+        return interpreted;
+    }
+
+    TCompiledEvaluation newEvaluation(TEvaluatableExpression[] evals) {
+        try {
+            return constructor.newInstance(constants, evals);
+        }
+        catch (InstantiationException | IllegalAccessException ex) {
+            throw new AkibanInternalException("Cannot instantiate compiled " + interpreted, ex);
+        }
+        catch (InvocationTargetException ex) {
+            throw new AkibanInternalException("Cannot instantiate compiled " + interpreted, ex.getCause());
+        }
+    }
+
+    TCompiledExpression(TPreparedExpression interpreted,
+                        Constructor<? extends TCompiledEvaluation> constructor,
+                        Object[] constants,
+                        List<TPreparedExpression> fallbacks) {
+        this.interpreted = interpreted;
+        this.constructor = constructor;
+        this.constants = constants;
+        this.fallbacks = fallbacks;
+    }
+
+    private final TPreparedExpression interpreted;
+    private final Constructor<? extends TCompiledEvaluation> constructor;
+    private final Object[] constants;
+    private final List<TPreparedExpression> fallbacks;
+}
@@ -0,0 +1,685 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.types.texpressions;
+
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.collation.AkCollator;
+import com.foundationdb.server.types.TClass;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.common.funcs.BoolLogic;
+import com.foundationdb.server.types.common.funcs.IsNull;
+import com.foundationdb.server.types.value.UnderlyingType;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.util.SparseArray;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles boolean {@link TPreparedExpression} trees into bytecode, so that filters no longer
+ * pay for a virtual call, a {@link com.foundationdb.server.types.value.Value} copy and a
+ * {@link com.foundationdb.server.types.LazyList} per node per row.
+ *
+ * <p>Comparisons of integer, date / time, boolean and floating point columns, collated string
+ * comparisons, <code>AND</code>, <code>OR</code>, <code>NOT</code>, <code>IS NULL</code> and
+ * <code>IN</code> against a literal list are generated inline, with the same null handling as
+ * their interpreted counterparts. Any other subexpression (casts, parameters, other functions,
+ * decimals, uncollated strings, ...) is built as usual and called from the generated code.
+ * Expressions with nothing to compile at the root are returned unchanged.</p>
+ */
+public final class TExpressionCompiler {
+
+    public static TPreparedExpression compile(TPreparedExpression expression) {
+        if ((expression instanceof TCompiledExpression) || !isOperator(expression))
+            return expression;
+        try {
+            return new Generator(expression).generate();
+        }
+        catch (RuntimeException | LinkageError ex) {
+            logger.warn("Could not compile {}, interpreting instead", expression, ex);
+            return expression;
+        }
+    }
+
+    public static List<? extends TPreparedExpression> compile(List<? extends TPreparedExpression> expressions) {
+        List<TPreparedExpression> result = new ArrayList<>(expressions.size());
+        for (TPreparedExpression expression : expressions)
+            result.add(compile(expression));
+        return result;
+    }
+
+    private TExpressionCompiler() {
+    }
+
+    /** How a value is held in a local of the generated method. */
+    private enum Kind { BOOL, LONG, DOUBLE, STRING }
+
+    private static Kind kindOf(TInstance type) {
+        if (type == null)
+            return null;
+        switch (TInstance.underlyingType(type)) {
+        case BOOL:
+            return Kind.BOOL;
+        case INT_8:
+        case INT_16:
+        case UINT_16:
+        case INT_32:
+        case INT_64:
+            return Kind.LONG;
+        case FLOAT:
+        case DOUBLE:
+            return Kind.DOUBLE;
+        case STRING:
+            return Kind.STRING;
+        default:
+            return null;
+        }
+    }
+
+    /** Can <code>expression</code> itself be generated inline? */
+    private static boolean isOperator(TPreparedExpression expression) {
+        if (expression instanceof TComparisonExpression) {
+            TComparisonExpression comparison = (TComparisonExpression)expression;
+            TInstance leftType = comparison.getLeft().resultType();
+            TInstance rightType = comparison.getRight().resultType();
+            Kind kind = kindOf(leftType);
+            if ((kind == null) || (kind != kindOf(rightType)) ||
+                (leftType.typeClass() != rightType.typeClass()))
+                return false;
+            if (comparison.getCollator() != null)
+                return (kind == Kind.STRING);
+            return (kind != Kind.STRING) && !overridesCompare(leftType.typeClass());
+        }
+        if (expression instanceof TPreparedFunction) {
+            TPreparedFunction function = (TPreparedFunction)expression;
+            TValidatedScalar overload = function.getOverload();
+            Object scalar = overload.getUnderlying();
+            List<? extends TPreparedExpression> inputs = function.getInputs();
+            if ((scalar == BoolLogic.AND) || (scalar == BoolLogic.OR)) {
+                // A defined preptime value means the result was already decided.
+                SparseArray<Object> preptimeValues = function.getPreptimeValues();
+                return (inputs.size() == 2) &&
+                    ((preptimeValues == null) || preptimeValues.isEmpty()) &&
+                    (kindOf(inputs.get(0).resultType()) == Kind.BOOL) &&
+                    (kindOf(inputs.get(1).resultType()) == Kind.BOOL);
+            }
+            if (scalar == BoolLogic.NOT) {
+                return (inputs.size() == 1) &&
+                    (kindOf(inputs.get(0).resultType()) == Kind.BOOL);
+            }
+            if (scalar instanceof IsNull) {
+                return (inputs.size() == 1);
+            }
+            if (overload == TInExpression.noKey) {
+                return (inListValues(function) != null);
+            }
+        }
+        return false;
+    }
+
+    /** Sorted <code>long[]</code> or <code>double[]</code> of a literal <code>IN</code> list, or <code>null</code>. */
+    private static Object inListValues(TPreparedFunction function) {
+        List<? extends TPreparedExpression> inputs = function.getInputs();
+        if (inputs.size() < 2)
+            return null;
+        TInstance lhsType = inputs.get(0).resultType();
+        Kind kind = kindOf(lhsType);
+        if (((kind != Kind.LONG) && (kind != Kind.DOUBLE)) || overridesCompare(lhsType.typeClass()))
+            return null;
+        List<ValueSource> values = new ArrayList<>(inputs.size() - 1);
+        for (int i = 1; i < inputs.size(); i++) {
+            if (!(inputs.get(i) instanceof TPreparedLiteral))
+                return null;
+            ValueSource value = ((TPreparedLiteral)inputs.get(i)).getValue();
+            if (value.isNull())
+                continue;       // Compares unequal to everything.
+            if ((value.getType() == null) ||
+                (value.getType().typeClass() != lhsType.typeClass()) ||
+                !value.canGetRawValue())
+                return null;
+            values.add(value);
+        }
+        if (kind == Kind.LONG) {
+            long[] longs = new long[values.size()];
+            for (int i = 0; i < longs.length; i++)
+                longs[i] = getLong(values.get(i));
+            Arrays.sort(longs);
+            return longs;
+        }
+        else {
+            double[] doubles = new double[values.size()];
+            for (int i = 0; i < doubles.length; i++)
+                doubles[i] = getDouble(values.get(i));
+            Arrays.sort(doubles);
+            return doubles;
+        }
+    }
+
+    /** Does <code>tClass</code> compare other than by its underlying type? */
+    private static boolean overridesCompare(TClass tClass) {
+        for (Class<?> clazz = tClass.getClass(); clazz != TClass.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("doCompare",
+                                        TInstance.class, ValueSource.class,
+                                        TInstance.class, ValueSource.class);
+                return true;
+            }
+            catch (NoSuchMethodException ex) {
+                // Keep looking.
+            }
+        }
+        return false;
+    }
+
+    private static long getLong(ValueSource value) {
+        switch (TInstance.underlyingType(value.getType())) {
+        case INT_8:
+            return value.getInt8();
+        case INT_16:
+            return value.getInt16();
+        case UINT_16:
+            return value.getUInt16();
+        case INT_32:
+            return value.getInt32();
+        default:
+            return value.getInt64();
+        }
+    }
+
+    private static double getDouble(ValueSource value) {
+        if (TInstance.underlyingType(value.getType()) == UnderlyingType.FLOAT)
+            return value.getFloat();
+        else
+            return value.getDouble();
+    }
+
+    /** The locals holding one subexpression's result. */
+    private static final class Slot {
+        final Kind kind;
+        final int value, isNull;
+
+        Slot(Kind kind, int value, int isNull) {
+            this.kind = kind;
+            this.value = value;
+            this.isNull = isNull;
+        }
+    }
+
+    private static final class Generator implements Opcodes {
+        private final TPreparedExpression expression;
+        private final String className;
+        private final List<Object> constants = new ArrayList<>();
+        private final List<TPreparedExpression> fallbacks = new ArrayList<>();
+        private MethodVisitor mv;
+        private int nextLocal = 1;
+
+        Generator(TPreparedExpression expression) {
+            this.expression = expression;
+            this.className = GENERATED_PREFIX + classCounter.incrementAndGet();
+        }
+
+        TPreparedExpression generate() {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+                @Override
+                protected String getCommonSuperClass(String type1, String type2) {
+                    // Locals are never reused with different types, so this is only a fallback.
+                    return OBJECT;
+                }
+            };
+            cw.visit(V1_7, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, BASE, null);
+
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKESPECIAL, BASE, "<init>", CONSTRUCTOR_DESC, false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "evaluate", "()V", null, null);
+            mv.visitCode();
+            Slot result = generate(expression, true);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, result.isNull);
+            mv.visitVarInsn(ILOAD, result.value);
+            mv.visitMethodInsn(INVOKEVIRTUAL, BASE, "setResult", "(ZZ)V", false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+            cw.visitEnd();
+
+            GeneratedClassLoader loader = new GeneratedClassLoader(TExpressionCompiler.class.getClassLoader());
+            Class<? extends TCompiledEvaluation> clazz =
+                loader.define(className.replace('/', '.'), cw.toByteArray()).asSubclass(TCompiledEvaluation.class);
+            Constructor<? extends TCompiledEvaluation> constructor;
+            try {
+                constructor = clazz.getConstructor(Object[].class, TEvaluatableExpression[].class);
+            }
+            catch (NoSuchMethodException ex) {
+                throw new IllegalStateException(ex);
+            }
+            TCompiledExpression compiled = new TCompiledExpression(expression, constructor,
+                                                                   constants.toArray(),
+                                                                   fallbacks);
+            // Instantiate once now so that any verification problem surfaces here, not mid-query.
+            compiled.newEvaluation(new TEvaluatableExpression[fallbacks.size()]);
+            return compiled;
+        }
+
+        private Slot generate(TPreparedExpression expr, boolean needValue) {
+            if (isOperator(expr)) {
+                if (expr instanceof TComparisonExpression)
+                    return generateComparison((TComparisonExpression)expr);
+                TPreparedFunction function = (TPreparedFunction)expr;
+                Object scalar = function.getOverload().getUnderlying();
+                if (scalar == BoolLogic.AND)
+                    return generateLogic(function, false);
+                if (scalar == BoolLogic.OR)
+                    return generateLogic(function, true);
+                if (scalar == BoolLogic.NOT)
+                    return generateNot(function);
+                if (scalar instanceof IsNull)
+                    return generateIsNull(function);
+                return generateIn(function);
+            }
+            Kind kind = needValue ? kindOf(expr.resultType()) : null;
+            if (expr instanceof TPreparedField) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, BASE, "row", ROW_DESC);
+                pushInt(((TPreparedField)expr).getFieldIndex());
+                mv.visitMethodInsn(INVOKEINTERFACE, ROW, "value", "(I)" + VALUE_SOURCE_DESC, true);
+                return generateValueSource(expr.resultType(), kind);
+            }
+            if ((expr instanceof TPreparedLiteral) &&
+                (!needValue || (kind == Kind.STRING) ||
+                 ((TPreparedLiteral)expr).getValue().isNull() ||
+                 ((kind != null) && ((TPreparedLiteral)expr).getValue().canGetRawValue()))) {
+                return generateLiteral(((TPreparedLiteral)expr).getValue(), kind);
+            }
+            if (needValue && (kind == null))
+                throw new IllegalArgumentException("Unsupported type " + expr.resultType() + " for " + expr);
+            // Interpret this subtree: fallbacks[n].evaluate(); fallbacks[n].resultValue()
+            int index = fallbacks.size();
+            fallbacks.add(expr);
+            int eval = newLocal(1);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, BASE, "fallbacks", FALLBACKS_DESC);
+            pushInt(index);
+            mv.visitInsn(AALOAD);
+            mv.visitVarInsn(ASTORE, eval);
+            mv.visitVarInsn(ALOAD, eval);
+            mv.visitMethodInsn(INVOKEINTERFACE, EVALUATABLE, "evaluate", "()V", true);
+            mv.visitVarInsn(ALOAD, eval);
+            mv.visitMethodInsn(INVOKEINTERFACE, EVALUATABLE, "resultValue", "()" + VALUE_SOURCE_DESC, true);
+            return generateValueSource(expr.resultType(), kind);
+        }
+
+        /** Unpack the <code>ValueSource</code> on the stack. */
+        private Slot generateValueSource(TInstance type, Kind kind) {
+            int source = newLocal(1);
+            mv.visitVarInsn(ASTORE, source);
+            Slot slot = newSlot(kind);
+            Label end = new Label();
+            mv.visitVarInsn(ALOAD, source);
+            mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "isNull", "()Z", true);
+            mv.visitInsn(DUP);
+            mv.visitVarInsn(ISTORE, slot.isNull);
+            if (kind != null) {
+                mv.visitJumpInsn(IFNE, end);
+                mv.visitVarInsn(ALOAD, source);
+                UnderlyingType underlying = TInstance.underlyingType(type);
+                switch (underlying) {
+                case BOOL:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getBoolean", "()Z", true);
+                    break;
+                case INT_8:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getInt8", "()B", true);
+                    mv.visitInsn(I2L);
+                    break;
+                case INT_16:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getInt16", "()S", true);
+                    mv.visitInsn(I2L);
+                    break;
+                case UINT_16:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getUInt16", "()C", true);
+                    mv.visitInsn(I2L);
+                    break;
+                case INT_32:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getInt32", "()I", true);
+                    mv.visitInsn(I2L);
+                    break;
+                case INT_64:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getInt64", "()J", true);
+                    break;
+                case FLOAT:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getFloat", "()F", true);
+                    mv.visitInsn(F2D);
+                    break;
+                case DOUBLE:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getDouble", "()D", true);
+                    break;
+                case STRING:
+                    mv.visitMethodInsn(INVOKEINTERFACE, VALUE_SOURCE, "getString", "()Ljava/lang/String;", true);
+                    break;
+                default:
+                    throw new IllegalArgumentException(underlying.name());
+                }
+                mv.visitVarInsn(storeOpcode(kind), slot.value);
+            }
+            else {
+                mv.visitInsn(POP);
+            }
+            mv.visitLabel(end);
+            return slot;
+        }
+
+        private Slot generateLiteral(ValueSource value, Kind kind) {
+            Slot slot = newSlot(kind);
+            if (value.isNull()) {
+                mv.visitInsn(ICONST_1);
+                mv.visitVarInsn(ISTORE, slot.isNull);
+            }
+            else if (kind != null) {
+                switch (kind) {
+                case BOOL:
+                    pushInt(value.getBoolean() ? 1 : 0);
+                    break;
+                case LONG:
+                    mv.visitLdcInsn(getLong(value));
+                    break;
+                case DOUBLE:
+                    mv.visitLdcInsn(getDouble(value));
+                    break;
+                case STRING:
+                    mv.visitLdcInsn(value.getString());
+                    break;
+                }
+                mv.visitVarInsn(storeOpcode(kind), slot.value);
+            }
+            return slot;
+        }
+
+        private Slot generateComparison(TComparisonExpression comparison) {
+            Slot slot = newSlot(Kind.BOOL);
+            Label setNull = new Label(), end = new Label();
+            // Like the interpreter, only evaluate the right side when the left is not null.
+            Slot left = generate(comparison.getLeft(), true);
+            mv.visitVarInsn(ILOAD, left.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            Slot right = generate(comparison.getRight(), true);
+            mv.visitVarInsn(ILOAD, right.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            switch (left.kind) {
+            case BOOL:
+                mv.visitVarInsn(ILOAD, left.value);
+                mv.visitVarInsn(ILOAD, right.value);
+                mv.visitInsn(ISUB);
+                break;
+            case LONG:
+                mv.visitVarInsn(LLOAD, left.value);
+                mv.visitVarInsn(LLOAD, right.value);
+                mv.visitInsn(LCMP);
+                break;
+            case DOUBLE:
+                mv.visitVarInsn(DLOAD, left.value);
+                mv.visitVarInsn(DLOAD, right.value);
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+                break;
+            case STRING:
+                pushConstant(comparison.getCollator(), COLLATOR);
+                mv.visitVarInsn(ALOAD, left.value);
+                mv.visitVarInsn(ALOAD, right.value);
+                mv.visitMethodInsn(INVOKEVIRTUAL, COLLATOR, "compare",
+                                   "(Ljava/lang/String;Ljava/lang/String;)I", false);
+                break;
+            }
+            // Skip setting true when the comparison does not hold.
+            int unless;
+            switch (comparison.getComparison()) {
+            case EQ:
+                unless = IFNE;
+                break;
+            case NE:
+                unless = IFEQ;
+                break;
+            case LT:
+                unless = IFGE;
+                break;
+            case LE:
+                unless = IFGT;
+                break;
+            case GT:
+                unless = IFLE;
+                break;
+            case GE:
+                unless = IFLT;
+                break;
+            default:
+                throw new IllegalArgumentException(comparison.getComparison().name());
+            }
+            mv.visitJumpInsn(unless, end);
+            mv.visitInsn(ICONST_1);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            generateSetNull(slot, setNull, end);
+            return slot;
+        }
+
+        /** Three-valued <code>AND</code> / <code>OR</code>, as {@link BoolLogic}. */
+        private Slot generateLogic(TPreparedFunction function, boolean contaminant) {
+            Slot slot = newSlot(Kind.BOOL);
+            int contaminantValue = contaminant ? ICONST_1 : ICONST_0;
+            Label firstNotDecisive = new Label(), secondNotDecisive = new Label();
+            Label setNull = new Label(), end = new Label();
+            Slot first = generate(function.getInputs().get(0), true);
+            mv.visitVarInsn(ILOAD, first.isNull);
+            mv.visitJumpInsn(IFNE, firstNotDecisive);
+            mv.visitVarInsn(ILOAD, first.value);
+            mv.visitInsn(contaminantValue);
+            mv.visitJumpInsn(IF_ICMPNE, firstNotDecisive);
+            mv.visitInsn(contaminantValue);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(firstNotDecisive);
+            Slot second = generate(function.getInputs().get(1), true);
+            mv.visitVarInsn(ILOAD, second.isNull);
+            mv.visitJumpInsn(IFNE, secondNotDecisive);
+            mv.visitVarInsn(ILOAD, second.value);
+            mv.visitInsn(contaminantValue);
+            mv.visitJumpInsn(IF_ICMPNE, secondNotDecisive);
+            mv.visitInsn(contaminantValue);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(secondNotDecisive);
+            mv.visitVarInsn(ILOAD, first.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            mv.visitVarInsn(ILOAD, second.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            mv.visitVarInsn(ILOAD, second.value);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            generateSetNull(slot, setNull, end);
+            return slot;
+        }
+
+        private Slot generateNot(TPreparedFunction function) {
+            Slot slot = newSlot(Kind.BOOL);
+            Label setNull = new Label(), end = new Label();
+            Slot input = generate(function.getInputs().get(0), true);
+            mv.visitVarInsn(ILOAD, input.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            mv.visitVarInsn(ILOAD, input.value);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IXOR);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            generateSetNull(slot, setNull, end);
+            return slot;
+        }
+
+        private Slot generateIsNull(TPreparedFunction function) {
+            Slot slot = newSlot(Kind.BOOL);
+            Slot input = generate(function.getInputs().get(0), false);
+            mv.visitVarInsn(ILOAD, input.isNull);
+            mv.visitVarInsn(ISTORE, slot.value);
+            return slot;
+        }
+
+        /** <code>IN</code> against literals, as a binary search of the sorted values. */
+        private Slot generateIn(TPreparedFunction function) {
+            Object values = inListValues(function);
+            Slot slot = newSlot(Kind.BOOL);
+            Label setNull = new Label(), end = new Label();
+            Slot lhs = generate(function.getInputs().get(0), true);
+            mv.visitVarInsn(ILOAD, lhs.isNull);
+            mv.visitJumpInsn(IFNE, setNull);
+            if (values instanceof long[]) {
+                pushConstant(values, "[J");
+                mv.visitVarInsn(LLOAD, lhs.value);
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "binarySearch", "([JJ)I", false);
+            }
+            else {
+                pushConstant(values, "[D");
+                mv.visitVarInsn(DLOAD, lhs.value);
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "binarySearch", "([DD)I", false);
+            }
+            mv.visitJumpInsn(IFLT, end);
+            mv.visitInsn(ICONST_1);
+            mv.visitVarInsn(ISTORE, slot.value);
+            mv.visitJumpInsn(GOTO, end);
+            generateSetNull(slot, setNull, end);
+            return slot;
+        }
+
+        private void generateSetNull(Slot slot, Label setNull, Label end) {
+            mv.visitLabel(setNull);
+            mv.visitInsn(ICONST_1);
+            mv.visitVarInsn(ISTORE, slot.isNull);
+            mv.visitLabel(end);
+        }
+
+        /**
+         * Allocate and initialize the locals for a result. They are initialized before
+         * any branch, so that they are definitely assigned wherever they are read.
+         */
+        private Slot newSlot(Kind kind) {
+            int value = -1;
+            if (kind != null) {
+                value = newLocal(((kind == Kind.LONG) || (kind == Kind.DOUBLE)) ? 2 : 1);
+                switch (kind) {
+                case BOOL:
+                    mv.visitInsn(ICONST_0);
+                    break;
+                case LONG:
+                    mv.visitInsn(LCONST_0);
+                    break;
+                case DOUBLE:
+                    mv.visitInsn(DCONST_0);
+                    break;
+                case STRING:
+                    mv.visitInsn(ACONST_NULL);
+                    break;
+                }
+                mv.visitVarInsn(storeOpcode(kind), value);
+            }
+            int isNull = newLocal(1);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, isNull);
+            return new Slot(kind, value, isNull);
+        }
+
+        private int newLocal(int size) {
+            int local = nextLocal;
+            nextLocal += size;
+            return local;
+        }
+
+        private void pushConstant(Object constant, String type) {
+            int index = constants.size();
+            constants.add(constant);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, BASE, "constants", "[Ljava/lang/Object;");
+            pushInt(index);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, type);
+        }
+
+        private void pushInt(int value) {
+            if ((value >= -1) && (value <= 5))
+                mv.visitInsn(ICONST_0 + value);
+            else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE))
+                mv.visitIntInsn(BIPUSH, value);
+            else if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE))
+                mv.visitIntInsn(SIPUSH, value);
+            else
+                mv.visitLdcInsn(value);
+        }
+
+        private static int storeOpcode(Kind kind) {
+            switch (kind) {
+            case LONG:
+                return LSTORE;
+            case DOUBLE:
+                return DSTORE;
+            case STRING:
+                return ASTORE;
+            default:
+                return ISTORE;
+            }
+        }
+    }
+
+    /** A loader per generated class, so that the class goes away with its plan. */
+    private static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(TExpressionCompiler.class);
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String BASE = Type.getInternalName(TCompiledEvaluation.class);
+    private static final String GENERATED_PREFIX =
+        BASE.substring(0, BASE.lastIndexOf('/') + 1) + "TGeneratedEvaluation";
+    private static final String ROW = Type.getInternalName(Row.class);
+    private static final String ROW_DESC = Type.getDescriptor(Row.class);
+    private static final String VALUE_SOURCE = Type.getInternalName(ValueSource.class);
+    private static final String VALUE_SOURCE_DESC = Type.getDescriptor(ValueSource.class);
+    private static final String EVALUATABLE = Type.getInternalName(TEvaluatableExpression.class);
+    private static final String FALLBACKS_DESC = Type.getDescriptor(TEvaluatableExpression[].class);
+    private static final String COLLATOR = Type.getInternalName(AkCollator.class);
+    private static final String CONSTRUCTOR_DESC = "([Ljava/lang/Object;" + FALLBACKS_DESC + ")V";
+}
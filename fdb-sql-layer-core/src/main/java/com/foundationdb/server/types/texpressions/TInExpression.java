@@ -17,6 +17,7 @@
 package com.foundationdb.server.types.texpressions;
 
 import com.foundationdb.qp.operator.QueryContext;
+import com.foundationdb.server.collation.AkCollator;
 import com.foundationdb.server.types.LazyList;
 import com.foundationdb.server.types.TClass;
 import com.foundationdb.server.types.TComparison;
@@ -25,11 +26,18 @@ import com.foundationdb.server.types.TInstance;
 import com.foundationdb.server.types.TKeyComparable;
 import com.foundationdb.server.types.TOverloadResult;
 import com.foundationdb.server.types.aksql.aktypes.AkBool;
+import com.foundationdb.server.types.common.types.TString;
+import com.foundationdb.server.types.value.UnderlyingType;
+import com.foundationdb.server.types.value.Value;
 import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.value.ValueSources;
 import com.foundationdb.server.types.value.ValueTarget;
+import com.foundationdb.server.types.value.ValueTargets;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class TInExpression {
 
@@ -53,8 +61,11 @@ public final class TInExpression {
             nullable |= r.resultType().nullability();
         }
         TValidatedScalar overload;        
-        if (comparable == null)
-            overload = noKey;
+        if (comparable == null) {
+            overload = hashed(lhs, rhs, queryContext);
+            if (overload == null)
+                overload = noKey;
+        }
         else {
             TInstance lhsInstance = lhs.resultType();
             boolean reverse;
@@ -78,6 +89,83 @@ public final class TInExpression {
         return new TPreparedFunction(overload, AkBool.INSTANCE.instance(nullable), all);
     }
     
+    /** Lists of at least this many literals are checked by hashing rather than one by one. */
+    static final int HASH_MIN_COUNT = 8;
+
+    /** Get an overload that checks membership by hashing the
+     * right-hand side, or <code>null</code> if it is not all literals
+     * whose hash is consistent with comparing to the left-hand side.
+     */
+    static TValidatedScalar hashed(TPreparedExpression lhs, List<? extends TPreparedExpression> rhs,
+                                   QueryContext queryContext) {
+        if (rhs.size() < HASH_MIN_COUNT)
+            return null;
+        TInstance lhsInstance = lhs.resultType();
+        if (lhsInstance == null)
+            return null;
+        UnderlyingType lhsUnderlying = TInstance.underlyingType(lhsInstance);
+        boolean integral = isIntegral(lhsUnderlying);
+        AkCollator collator = null;
+        if (lhsUnderlying == UnderlyingType.STRING) {
+            if (!(lhsInstance.typeClass() instanceof TString))
+                return null;
+            collator = TString.getCollator(lhsInstance);
+        }
+        else if (!integral && (lhsUnderlying != UnderlyingType.BOOL)) {
+            return null;
+        }
+        Map<Integer,List<ValueSource>> members = new HashMap<>();
+        for (TPreparedExpression r : rhs) {
+            if (!r.isLiteral())
+                return null;
+            TInstance rhsInstance = r.resultType();
+            if (rhsInstance == null)
+                continue;       // Literal NULL never matches.
+            if (integral) {
+                // Integers of any width hash by their value.
+                if (!isIntegral(TInstance.underlyingType(rhsInstance)))
+                    return null;
+            }
+            else {
+                if (rhsInstance.typeClass() != lhsInstance.typeClass())
+                    return null;
+                if (collator != null) {
+                    AkCollator rhsCollator = TString.getCollator(rhsInstance);
+                    if ((rhsCollator != null) && (rhsCollator != collator))
+                        return null;
+                }
+            }
+            ValueSource value = r.evaluateConstant(queryContext).value();
+            if (value == null)
+                return null;
+            if (value.isNull())
+                continue;
+            Value copy = new Value(value.getType());
+            ValueTargets.copyFrom(value, copy);
+            Integer hash = ValueSources.hash(copy, collator);
+            List<ValueSource> bucket = members.get(hash);
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                members.put(hash, bucket);
+            }
+            bucket.add(copy);
+        }
+        return new TValidatedScalar(new InHashedScalar(members, collator));
+    }
+
+    private static boolean isIntegral(UnderlyingType underlying) {
+        switch (underlying) {
+        case INT_8:
+        case INT_16:
+        case UINT_16:
+        case INT_32:
+        case INT_64:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     static abstract class InScalarBase extends TScalarBase {
         protected abstract int doCompare(TInstance lhsInstance, ValueSource lhsSource,
                                          TInstance rhsInstance, ValueSource rhsSource);
@@ -118,7 +206,7 @@ public final class TInExpression {
         }
     }
 
-    private static final TValidatedScalar noKey = new TValidatedScalar(new InScalarBase() {
+    static final TValidatedScalar noKey = new TValidatedScalar(new InScalarBase() {
         @Override
         protected int doCompare(TInstance lhsInstance, ValueSource lhsSource,
                                 TInstance rhsInstance, ValueSource rhsSource) {
@@ -126,6 +214,58 @@ public final class TInExpression {
         }
     });
 
+    static class InHashedScalar extends InScalarBase {
+        private final Map<Integer,List<ValueSource>> members;
+        private final AkCollator collator;
+
+        InHashedScalar(Map<Integer,List<ValueSource>> members, AkCollator collator) {
+            this.members = members;
+            this.collator = collator;
+        }
+
+        @Override
+        protected void doEvaluate(TExecutionContext context, LazyList<? extends ValueSource> inputs, ValueTarget output) {
+            // Only the left-hand side needs to be evaluated.
+            ValueSource lhsSource = inputs.get(0);
+            TInstance lhsInstance = lhsSource.getType();
+            List<ValueSource> bucket = members.get(ValueSources.hash(lhsSource, collator));
+            if (bucket != null) {
+                for (ValueSource member : bucket) {
+                    if (0 == doCompare(lhsInstance, lhsSource, member.getType(), member)) {
+                        output.putBool(true);
+                        return;
+                    }
+                }
+            }
+            output.putBool(false);
+        }
+
+        /** Consistent with the hash: integers of any width by their
+         * value and strings by the one collator, rather than by type
+         * class, whose compare requires both sides to be the same.
+         */
+        @Override
+        protected int doCompare(TInstance lhsInstance, ValueSource lhsSource,
+                                TInstance rhsInstance, ValueSource rhsSource) {
+            switch (TInstance.underlyingType(lhsInstance)) {
+            case STRING:
+                if (collator == null)
+                    return lhsSource.getString().compareTo(rhsSource.getString());
+                return collator.compare(lhsSource, rhsSource);
+            case BOOL:
+                return Boolean.compare(lhsSource.getBoolean(), rhsSource.getBoolean());
+            default:
+                return Long.compare(integralValue(lhsSource), integralValue(rhsSource));
+            }
+        }
+
+        private static long integralValue(ValueSource source) {
+            if (TInstance.underlyingType(source.getType()) == UnderlyingType.UINT_16)
+                return source.getUInt16();
+            return ValueSources.getLong(source);
+        }
+    }
+
     static class InKeyScalar extends InScalarBase {
         protected final TComparison comparison;
 
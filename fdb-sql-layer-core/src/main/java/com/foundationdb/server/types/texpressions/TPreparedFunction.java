@@ -115,6 +115,18 @@ public final class TPreparedFunction implements TPreparedExpression {
         this.preptimeValues = preptimeValues;
     }
 
+    TValidatedScalar getOverload() {
+        return overload;
+    }
+
+    List<? extends TPreparedExpression> getInputs() {
+        return inputs;
+    }
+
+    SparseArray<Object> getPreptimeValues() {
+        return preptimeValues;
+    }
+
     private final TValidatedScalar overload;
     private final TInstance resultType;
     private final List<TInstance> inputTypes;
@@ -92,6 +92,10 @@ public final class TPreparedLiteral implements TPreparedExpression {
         this.value = value;
     }
 
+    ValueSource getValue() {
+        return value;
+    }
+
     private final TInstance type;
     private final ValueSource value;
 
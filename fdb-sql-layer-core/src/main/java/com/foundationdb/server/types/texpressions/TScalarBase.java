@@ -214,6 +214,11 @@ public abstract class TScalarBase implements TScalar {
         return false;
     }
 
+    @Override
+    public boolean isDeterministic() {
+        return !neverConstant();
+    }
+
     public boolean allContaminatingNulls(int ninputs) {
         for (int i = 0; i < ninputs; i++) {
             if (!nullContaminates(i)) {
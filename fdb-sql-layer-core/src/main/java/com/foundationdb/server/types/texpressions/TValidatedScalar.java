@@ -60,6 +60,11 @@ public final class TValidatedScalar extends TValidatedOverload implements TScala
         return scalar.getExplainer(context, inputs, resultType);
     }
 
+    @Override
+    public boolean isDeterministic() {
+        return scalar.isDeterministic();
+    }
+
     public TValidatedScalar(TScalar scalar) {
         this(scalar, scalar.inputSets());
     }
@@ -628,6 +628,12 @@ public class AlterTableDDL {
                     indexViable = false;
                 }
             }
+            for(Column includedColumn : origIndex.getIncludedColumns()) {
+                String newName = findNewName(columnChanges, includedColumn.getName());
+                if(newName != null) {
+                    indexCopy.addIncludedColumn(tableCopy.getColumn(newName));
+                }
+            }
             // DROP and MODIFY detection for indexes handled downstream
             if(indexCopy.getKeyColumns().isEmpty()) {
                 indexViable = false;
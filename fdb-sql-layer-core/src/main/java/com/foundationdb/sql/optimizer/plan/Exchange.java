@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.optimizer.plan;
+
+/** Run several partitions of the input in parallel and gather their results. */
+public class Exchange extends BasePlanWithInput
+{
+    private int degree;
+
+    public Exchange(PlanNode input, int degree) {
+        super(input);
+        this.degree = degree;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    @Override
+    public String summaryString(SummaryConfiguration configuration) {
+        return super.summaryString(configuration) + "(PARALLEL " + degree + ")";
+    }
+}
@@ -22,6 +22,7 @@ package com.foundationdb.sql.optimizer.plan;
 public class HashTable extends BaseHashTable
 {
     private long estimatedSize;
+    private boolean deferred;
 
     public HashTable(long estimatedSize) {
         this.estimatedSize = estimatedSize;
@@ -31,4 +32,13 @@ public class HashTable extends BaseHashTable
         return estimatedSize;
     }
 
+    /** Whether the table is only loaded once a lookup decides it is worth it. */
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
 }
\ No newline at end of file
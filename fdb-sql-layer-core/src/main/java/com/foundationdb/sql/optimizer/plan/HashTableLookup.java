@@ -21,12 +21,15 @@ import java.util.Collection;
 import java.util.List;
 
 /** Application of a Hash Table. */
-public class HashTableLookup extends BaseJoinable
+public class HashTableLookup extends BaseJoinable implements PlanWithInput
 {
     private HashTable hashTable;
     private List<ExpressionNode> lookupExpressions;
     private List<ConditionExpression> conditions;
     private Collection<? extends ColumnSource> tables;
+    // Nested-loop way of getting the same rows, used until the outer side is big enough.
+    private PlanNode nestedAlternative;
+    private long switchRowCount;
 
     public HashTableLookup(HashTable hashTable,
                            List<ExpressionNode> lookupExpressions,
@@ -54,15 +57,46 @@ public class HashTableLookup extends BaseJoinable
         return tables;
     }
 
+    public PlanNode getNestedAlternative() {
+        return nestedAlternative;
+    }
+
+    public long getSwitchRowCount() {
+        return switchRowCount;
+    }
+
+    /** Run <code>nestedAlternative</code> for the first <code>switchRowCount</code>
+     * outer rows before loading the hash table.
+     */
+    public void setNestedAlternative(PlanNode nestedAlternative, long switchRowCount) {
+        this.nestedAlternative = nestedAlternative;
+        this.switchRowCount = switchRowCount;
+        nestedAlternative.setOutput(this);
+        hashTable.setDeferred(true);
+    }
+
+    @Override
+    public void replaceInput(PlanNode oldInput, PlanNode newInput) {
+        if (nestedAlternative == oldInput) {
+            nestedAlternative = newInput;
+            nestedAlternative.setOutput(this);
+        }
+    }
+
     @Override
     public boolean accept(PlanVisitor v) {
         if (v.visitEnter(this)) {
+            boolean more = true;
             if (tables != null) {
                 for (ColumnSource table : tables) {
-                    if (!table.accept(v))
+                    if (!table.accept(v)) {
+                        more = false;
                         break;
+                    }
                 }
             }
+            if (more && (nestedAlternative != null))
+                nestedAlternative.accept(v);
         }
         return v.visitLeave(this);
     }
@@ -71,6 +105,8 @@ public class HashTableLookup extends BaseJoinable
     protected void deepCopy(DuplicateMap map) {
         super.deepCopy(map);
         tables = duplicateList(tables, map);
+        if (nestedAlternative != null)
+            nestedAlternative = (PlanNode)nestedAlternative.duplicate(map);
     }
 
     @Override
@@ -80,6 +116,11 @@ public class HashTableLookup extends BaseJoinable
         str.append(hashTable);
         str.append(", ");
         str.append(lookupExpressions);
+        if (nestedAlternative != null) {
+            str.append(", ADAPTIVE(");
+            str.append(switchRowCount);
+            str.append(")");
+        }
         str.append(")");
         return str.toString();
     }
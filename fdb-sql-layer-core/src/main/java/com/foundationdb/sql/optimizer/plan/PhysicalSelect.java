@@ -22,6 +22,7 @@ import com.foundationdb.qp.operator.Operator;
 import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.server.explain.ExplainContext;
 import com.foundationdb.server.explain.format.DefaultFormatter;
+import com.foundationdb.sql.optimizer.rule.cost.CardinalityFeedback;
 import com.foundationdb.sql.types.DataTypeDescriptor;
 
 import java.util.List;
@@ -49,12 +50,31 @@ public class PhysicalSelect extends BasePlannable
         }
     }
 
+    private final boolean deterministic;
+    private CardinalityFeedback.Plan feedbackPlan;
+
     public PhysicalSelect(Operator resultOperator, RowType rowType,
                           List<PhysicalResultColumn> resultColumns,
                           ParameterType[] parameterTypes,
                           CostEstimate costEstimate,
-                          Set<Table> affectedTables) {
+                          Set<Table> affectedTables,
+                          boolean deterministic) {
         super(resultOperator, parameterTypes, rowType, resultColumns, costEstimate, affectedTables);
+        this.deterministic = deterministic;
+    }
+
+    /** Whether running again against unchanged tables gives the same results. */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /** Staleness of this plan according to observed selectivities, if being tracked. */
+    public CardinalityFeedback.Plan getFeedbackPlan() {
+        return feedbackPlan;
+    }
+
+    public void setFeedbackPlan(CardinalityFeedback.Plan feedbackPlan) {
+        this.feedbackPlan = feedbackPlan;
     }
 
     public Operator getResultOperator() {
@@ -35,6 +35,7 @@ public final class SingleIndexScan extends IndexScan implements EqualityColumnsS
 
     private Index index;
     private ColumnRanges conditionRange;
+    private boolean multiRange;
     // First equalities in the order of the index.
     private List<ExpressionNode> equalityComparands;
 
@@ -103,6 +104,18 @@ public final class SingleIndexScan extends IndexScan implements EqualityColumnsS
         internalGetConditions().addAll(range.getConditions());
     }
 
+    /** Whether the range segments are read by a single scan in
+     * segment order rather than a union of separate scans, which
+     * means that they are not like an equality for ordering.
+     */
+    public boolean isMultiRange() {
+        return multiRange;
+    }
+
+    public void setMultiRange(boolean multiRange) {
+        this.multiRange = multiRange;
+    }
+
     public List<ExpressionNode> getEqualityComparands() {
         return equalityComparands;
     }
@@ -233,7 +246,8 @@ public final class SingleIndexScan extends IndexScan implements EqualityColumnsS
     }
 
     public boolean hasConditions() {
-        return ((conditions != null) && !conditions.isEmpty());
+        // A range can restrict the scan without fully implementing any condition.
+        return ((conditions != null) && !conditions.isEmpty()) || (conditionRange != null);
     }
 
     @Override
@@ -317,7 +331,7 @@ public final class SingleIndexScan extends IndexScan implements EqualityColumnsS
 
     @Override
     public int getNUnions() {
-        if ((conditionRange != null) && conditionRange.isAllSingle())
+        if ((conditionRange != null) && conditionRange.isAllSingle() && !multiRange)
             return 1;
         else
             return 0;
@@ -367,7 +381,7 @@ public final class SingleIndexScan extends IndexScan implements EqualityColumnsS
     @Override
     protected void describeConditionRange(StringBuilder output) {
         if (conditionRange != null) {
-            output.append(", UNIONs of ");
+            output.append(multiRange ? ", RANGES of " : ", UNIONs of ");
             output.append(conditionRange.describeRanges());
         }
     }
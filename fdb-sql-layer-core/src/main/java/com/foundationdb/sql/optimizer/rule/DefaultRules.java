@@ -43,6 +43,7 @@ public class DefaultRules
             new MapFolder(),
             new ExpressionCompactor(),
             new HalloweenRecognizer(),
+            new ParallelPlanner(),
             new OperatorAssembler()
     );
 
@@ -103,6 +103,7 @@ class ExpressionAssembler
     private final SchemaRulesContext rulesContext;
     private final TypesRegistryService registryService;
     private final QueryContext queryContext;
+    private boolean deterministic = true;
 
     public ExpressionAssembler(PlanContext planContext) {
         this.planContext = planContext;
@@ -115,6 +116,11 @@ class ExpressionAssembler
         queryContext = planContext.getQueryContext();
     }
 
+    /** Whether all the functions assembled so far always give the same result for the same inputs. */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
     public TPreparedExpression assembleExpression(ExpressionNode node,
                                                   ColumnExpressionContext columnContext,
                                                   SubqueryOperatorAssembler subqueryAssembler)  {
@@ -262,6 +268,8 @@ class ExpressionAssembler
         else {
             throw new AssertionError(functionNode);
         }
+         if (!overload.isDeterministic())
+             deterministic = false;
          TInstance resultInstance = functionNode.getType();
          return new TPreparedFunction(overload, resultInstance, arguments, preptimeValues);
     }
@@ -365,6 +373,8 @@ class ExpressionAssembler
                                                 ColumnExpressionContext columnContext,
                                                 SubqueryOperatorAssembler subqueryAssembler) {
         List<TPreparedExpression> inputs = assembleExpressions(operandNodes, columnContext, subqueryAssembler);
+        if (!routine.isDeterministic())
+            deterministic = false;
         switch (routine.getCallingConvention()) {
         case JAVA:
             return new ServerJavaMethodTExpression(routine, inputs);
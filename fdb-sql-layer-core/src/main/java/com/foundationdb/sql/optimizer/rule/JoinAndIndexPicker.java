@@ -1002,6 +1002,8 @@ public class JoinAndIndexPicker extends BaseRule
         List<ExpressionNode> hashColumns, matchColumns;
         List<TKeyComparable> tKeyComparables ;
         List<AkCollator> collators;
+        Plan nestedAlternative; // Used for a small enough outer side.
+        long switchRowCount;
         
         public HashJoinPlan(Plan loader, Plan input, Plan check,
                             JoinType joinType, JoinNode.Implementation joinImplementation,
@@ -1044,6 +1046,15 @@ public class JoinAndIndexPicker extends BaseRule
                                                  joinType, hashTable, hashColumns, matchColumns, tKeyComparables, collators);
             join.setJoinConditions(joinConditions);
             join.setImplementation(joinImplementation);
+            if (nestedAlternative != null) {
+                JoinableWithConditionsToRemove nestedJoinable = nestedAlternative.install(true, false);
+                HashTableLookup lookup = (HashTableLookup)checkJoinable.getJoinable();
+                // The hash key conditions are checked again, since
+                // the nested plan need not use all of them.
+                PlanNode nested = new Select(nestedJoinable.getJoinable(),
+                                             new ConditionList(lookup.getConditions()));
+                lookup.setNestedAlternative(nested, switchRowCount);
+            }
             if (joinType == JoinType.SEMI)
                 InConditionReverser.cleanUpSemiJoin(join, checkJoinable.getJoinable());
             return new JoinableWithConditionsToRemove(join, new ConditionList());
@@ -1232,6 +1243,7 @@ public class JoinAndIndexPicker extends BaseRule
                 Plan loaderPlan = right.bestPlan(condJoins, outsideJoins, false);
                 JoinPlan hashPlan = buildHashTableJoin(loaderPlan, joinPlan, joinOperators);
                 if (hashPlan != null) {
+                    considerAdaptiveJoin((HashJoinPlan)hashPlan, joinPlan);
                     if (sortAllowed) {
                         planClass.consider(hashPlan);
                     } else {
@@ -1399,6 +1411,35 @@ public class JoinAndIndexPicker extends BaseRule
         }
 
 
+        /** If enabled, let the hash join do the nested plan's lookups
+         * until enough outer rows have been seen to pay for loading
+         * the hash table. Since it then costs at most about twice the
+         * better of the two, whatever the actual outer row count
+         * turns out to be, it is priced as the better one.
+         */
+        public void considerAdaptiveJoin(HashJoinPlan hashPlan, JoinPlan joinPlan) {
+            if (!Boolean.parseBoolean(picker.rulesContext.getProperty("adaptive_join", "false")))
+                return;
+            if ((joinPlan.joinType != JoinType.INNER) || joinPlan.needDistinct)
+                return;
+            HashLookupPlan lookupPlan = (HashLookupPlan)hashPlan.right;
+            Plan nestedPlan = joinPlan.right;
+            Collection<? extends ConditionExpression> nestedConditions = nestedPlan.getConditions();
+            if ((nestedConditions != null) &&
+                !lookupPlan.hashTableColumns.conditions.containsAll(nestedConditions))
+                // Would also need to keep its other conditions for the hash lookup.
+                return;
+            double lookupCost = nestedPlan.costEstimate.getCost();
+            double probeCost = lookupPlan.costEstimate.getCost();
+            if (lookupCost <= probeCost)
+                return;
+            double rows = Math.ceil(hashPlan.loader.costEstimate.getCost() / (lookupCost - probeCost));
+            hashPlan.nestedAlternative = nestedPlan;
+            hashPlan.switchRowCount = (rows >= Long.MAX_VALUE) ? Long.MAX_VALUE : Math.max(1, (long)rows);
+            if (joinPlan.costEstimate.compareTo(hashPlan.costEstimate) < 0)
+                hashPlan.costEstimate = joinPlan.costEstimate;
+        }
+
         int MAX_COL_COUNT = 5000;
         int DEFAULT_COLUMN_COUNT = 5;
 
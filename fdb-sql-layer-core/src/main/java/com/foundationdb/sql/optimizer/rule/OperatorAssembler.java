@@ -30,6 +30,7 @@ import com.foundationdb.sql.optimizer.plan.UpdateStatement.UpdateColumn;
 import com.foundationdb.sql.optimizer.rule.ExpressionAssembler.ColumnExpressionContext;
 import com.foundationdb.sql.optimizer.rule.ExpressionAssembler.ColumnExpressionToIndex;
 import com.foundationdb.sql.optimizer.rule.ExpressionAssembler.SubqueryOperatorAssembler;
+import com.foundationdb.sql.optimizer.rule.cost.CardinalityFeedback;
 import com.foundationdb.sql.optimizer.rule.range.ColumnRanges;
 import com.foundationdb.sql.optimizer.rule.range.RangeSegment;
 import com.foundationdb.sql.types.DataTypeDescriptor;
@@ -53,6 +54,7 @@ import com.foundationdb.server.types.texpressions.ResultSetSubqueryTExpression;
 import com.foundationdb.server.types.texpressions.ScalarSubqueryTExpression;
 import com.foundationdb.server.types.texpressions.TCastExpression;
 import com.foundationdb.server.types.texpressions.TNullExpression;
+import com.foundationdb.server.types.texpressions.TExpressionCompiler;
 import com.foundationdb.server.types.texpressions.TPreparedExpression;
 import com.foundationdb.server.types.texpressions.TPreparedField;
 import com.foundationdb.server.types.value.ValueSource;
@@ -63,6 +65,7 @@ import com.foundationdb.qp.operator.API;
 import com.foundationdb.qp.operator.API.IntersectOption;
 import com.foundationdb.qp.operator.IndexScanSelector;
 import com.foundationdb.qp.operator.Operator;
+import com.foundationdb.qp.operator.SelectivityFeedback;
 import com.foundationdb.qp.operator.UpdateFunction;
 import com.foundationdb.qp.row.BindableRow;
 import com.foundationdb.qp.row.Row;
@@ -116,6 +119,10 @@ public class OperatorAssembler extends BaseRule
         private final Schema schema;
         private final ExpressionAssembler expressionAssembler;
         private final Set<Table> affectedTables;
+        private CardinalityFeedback.Plan feedbackPlan;
+        // Where the exchange being assembled binds the partition of its group scan.
+        private int exchangeBindingPosition = -1;
+        private Group exchangeGroup;
 
         public Assembler(PlanContext planContext) {
             this.planContext = planContext;
@@ -160,10 +167,13 @@ public class OperatorAssembler extends BaseRule
                 explainSelectQuery(stream.operator, selectQuery);
             List<ParameterNode> parameters = getParameters();
             setReturnOutputParameterType(stream, parameters);
-            return new PhysicalSelect(stream.operator, stream.rowType, resultColumns, 
-                                      getParameterTypes(parameters),
-                                      selectQuery.getCostEstimate(),
-                                      affectedTables);
+            PhysicalSelect select = new PhysicalSelect(stream.operator, stream.rowType, resultColumns,
+                                                       getParameterTypes(parameters),
+                                                       selectQuery.getCostEstimate(),
+                                                       affectedTables,
+                                                       expressionAssembler.isDeterministic());
+            select.setFeedbackPlan(feedbackPlan);
+            return select;
         }
 
         private void setReturnOutputParameterType(RowStream stream, List<ParameterNode> parameters) {
@@ -487,6 +497,8 @@ public class OperatorAssembler extends BaseRule
                 return assembleUpdateInput((UpdateInput)node);
             else if (node instanceof Buffer)
                 return assembleBuffer((Buffer)node);
+            else if (node instanceof Exchange)
+                return assembleExchange((Exchange)node);
             else if (node instanceof ExpressionsHKeyScan)
                 return assembleExpressionsHKeyScan((ExpressionsHKeyScan) node);
             else if (node instanceof CreateAs)
@@ -616,6 +628,19 @@ public class OperatorAssembler extends BaseRule
                                                         rulesContext.getPipelineConfiguration().getIndexScanLookaheadQuantum());
                 stream.rowType = indexRowType;
             }
+            else if (indexScan.isMultiRange()) {
+                List<RangeSegment> segments = indexScan.getConditionRange().getSegments();
+                List<IndexKeyRange> keyRanges = new ArrayList<>(segments.size());
+                for (RangeSegment rangeSegment : segments) {
+                    keyRanges.add(assembleIndexKeyRange(indexScan, null, rangeSegment));
+                }
+                stream.operator = API.indexScan_MultiRange(indexRowType,
+                                                           keyRanges,
+                                                           assembleIndexOrdering(indexScan, indexRowType),
+                                                           selector,
+                                                           rulesContext.getPipelineConfiguration().getIndexScanLookaheadQuantum());
+                stream.rowType = indexRowType;
+            }
             else {
                 ColumnRanges range = indexScan.getConditionRange();
                 // Non-single-point ranges are ordered by the ranges
@@ -700,6 +725,18 @@ public class OperatorAssembler extends BaseRule
          */
         public static final int SKIP_SCAN_MIN_COUNT_DEFAULT = 3;
 
+        /** Whether filter and projection expressions are compiled to bytecode. */
+        protected boolean compileExpressions() {
+            return Boolean.parseBoolean(rulesContext.getProperty("compile_expressions", "true"));
+        }
+
+        protected TPreparedExpression compileExpression(TPreparedExpression expression) {
+            if (compileExpressions())
+                return TExpressionCompiler.compile(expression);
+            else
+                return expression;
+        }
+
         protected boolean useSkipScan(IndexScan index) {
             if (!(index instanceof MultiIndexIntersectScan))
                 return false;
@@ -733,7 +770,12 @@ public class OperatorAssembler extends BaseRule
         protected RowStream assembleGroupScan(GroupScan groupScan) {
             RowStream stream = new RowStream();
             Group group = groupScan.getGroup().getGroup();
-            stream.operator = API.groupScan_Default(group);
+            if ((exchangeBindingPosition >= 0) && (exchangeGroup == null)) {
+                stream.operator = API.groupScan_Default(group, exchangeBindingPosition);
+                exchangeGroup = group;
+            }
+            else
+                stream.operator = API.groupScan_Default(group);
             stream.unknownTypesPresent = true;
             return stream;
         }
@@ -797,12 +839,60 @@ public class OperatorAssembler extends BaseRule
                 }
                 stream.operator = API.select_HKeyOrdered(stream.operator,
                         rowType,
-                        assembleExpression(condition,
-                                fieldOffsets));
+                        compileExpression(assembleExpression(condition,
+                                fieldOffsets)),
+                        selectivityFeedback(condition));
             }
             return stream;
         }
 
+        /** Observe the actual selectivity of a simple condition on
+         * a column, so that future estimates can be corrected.
+         */
+        protected SelectivityFeedback selectivityFeedback(ConditionExpression condition) {
+            if (explainContext != null)
+                return null;
+            CardinalityFeedback feedback = rulesContext.getCostEstimator().getCardinalityFeedback();
+            if (feedback == null)
+                return null;
+            ExpressionNode operand;
+            if (condition instanceof ComparisonCondition) {
+                ComparisonCondition ccond = (ComparisonCondition)condition;
+                if (!feedbackComparand(ccond.getRight()))
+                    return null;
+                operand = ccond.getLeft();
+            }
+            else if (condition instanceof InListCondition) {
+                InListCondition incond = (InListCondition)condition;
+                for (ExpressionNode expr : incond.getExpressions()) {
+                    if (!feedbackComparand(expr))
+                        return null;
+                }
+                operand = incond.getOperand();
+            }
+            else
+                return null;
+            if (!(operand instanceof ColumnExpression))
+                return null;
+            Column column = ((ColumnExpression)operand).getColumn();
+            if (column == null)
+                return null;
+            List<ConditionExpression> conditions = Collections.singletonList(condition);
+            String key = CardinalityFeedback.conditionsKey(column, conditions);
+            double baseSelectivity = rulesContext.getCostEstimator().columnSelectivity(column, conditions);
+            if (feedbackPlan == null)
+                feedbackPlan = new CardinalityFeedback.Plan();
+            return feedback.observer(feedbackPlan, key, baseSelectivity,
+                                     feedback.correct(key, baseSelectivity));
+        }
+
+        // Only literals and parameters give a selectivity that is
+        // stable from one execution to the next.
+        protected boolean feedbackComparand(ExpressionNode expr) {
+            return ((expr instanceof ConstantExpression) ||
+                    (expr instanceof ParameterExpression));
+        }
+
         protected RowStream assembleFlatten(Flatten flatten) {
             RowStream stream = assembleStream(flatten.getInput());
             List<TableNode> tableNodes = flatten.getTableNodes();
@@ -1377,14 +1467,20 @@ public class OperatorAssembler extends BaseRule
 
         protected void assembleSort(RowStream stream, int nkeys, PlanNode input,
                                     API.SortOption sortOption) {
+            API.Ordering ordering = createKeyOrdering(stream.rowType, nkeys, input);
+            assembleSort(stream, ordering, input, null, sortOption);
+        }
+
+        // Ascending on the first nkeys fields.
+        protected API.Ordering createKeyOrdering(RowType rowType, int nkeys, PlanNode input) {
             List<AkCollator> collators = findCollators(input);
             API.Ordering ordering = createOrdering();
             for (int i = 0; i < nkeys; i++) {
-                TPreparedExpression tExpr = field(stream.rowType, i);
+                TPreparedExpression tExpr = field(rowType, i);
                 ordering.append(tExpr, true,
                                 (collators == null) ? null : collators.get(i));
             }
-            assembleSort(stream, ordering, input, null, sortOption);
+            return ordering;
         }
 
         protected RowStream assembleBuffer(Buffer buffer) {
@@ -1393,6 +1489,92 @@ public class OperatorAssembler extends BaseRule
             return stream;
         }
 
+        protected RowStream assembleExchange(Exchange exchange) {
+            PlanNode input = exchange.getInput();
+            int degree = exchange.getDegree();
+            int partitionPosition = assignBindingPosition(exchange);
+            RowStream stream;
+            Group group;
+            exchangeBindingPosition = partitionPosition;
+            try {
+                if (input instanceof Sort)
+                    stream = assembleSort((Sort)input, exchange.getOutput(),
+                                          API.SortOption.PRESERVE_DUPLICATES);
+                else
+                    stream = assembleStream(input);
+                group = exchangeGroup;
+            }
+            finally {
+                exchangeBindingPosition = -1;
+                exchangeGroup = null;
+            }
+            if ((stream.rowType == null) || stream.unknownTypesPresent || (group == null)) {
+                // Only whole rows can be passed back.
+                return assembleStream(input);
+            }
+            if (input instanceof Sort) {
+                API.Ordering ordering = createOrdering();
+                for (OrderByExpression orderBy : ((Sort)input).getOrderBy()) {
+                    ordering.append(assembleExpression(orderBy.getExpression(), stream.fieldOffsets),
+                                    orderBy.isAscending(), orderBy.getCollator());
+                }
+                stream.operator = API.exchange_Parallel(stream.operator, degree, group, partitionPosition,
+                                                        stream.rowType, ordering);
+            }
+            else if (input instanceof AggregateSource) {
+                AggregateSource aggregateSource = (AggregateSource)input;
+                int nkeys = aggregateSource.getNGroupBy();
+                API.Ordering ordering = null;
+                if (nkeys > 0)
+                    ordering = createKeyOrdering(stream.rowType, nkeys, aggregateSource.getInput());
+                stream.operator = API.exchange_Parallel(stream.operator, degree, group, partitionPosition,
+                                                        stream.rowType, ordering);
+                stream.operator = assembleMergeAggregates(stream.operator, stream.rowType, nkeys,
+                                                          aggregateSource);
+                stream.rowType = stream.operator.rowType();
+                stream.fieldOffsets = new ColumnSourceFieldOffsets(aggregateSource,
+                                                                   stream.rowType);
+            }
+            else {
+                stream.operator = API.exchange_Parallel(stream.operator, degree, group, partitionPosition,
+                                                        stream.rowType, null);
+            }
+            return stream;
+        }
+
+        // Combine the partial results of each partition's aggregation.
+        protected Operator assembleMergeAggregates(Operator inputOperator, RowType rowType, int nkeys,
+                                                   AggregateSource aggregateSource) {
+            List<String> functions;
+            List<TInstance> outputInstances = new ArrayList<>();
+            if (aggregateSource.getImplementation() == AggregateSource.Implementation.COUNT_STAR) {
+                functions = Collections.singletonList("COUNT(*)");
+                outputInstances.add(rowType.typeAt(0));
+            }
+            else {
+                functions = aggregateSource.getAggregateFunctions();
+                for (ResolvableExpression<?> aggr : aggregateSource.getResolved()) {
+                    outputInstances.add(aggr.getType());
+                }
+            }
+            TypesRegistryService registry = rulesContext.getTypesRegistry();
+            List<TAggregator> aggregators = new ArrayList<>(functions.size());
+            List<Object> options = new ArrayList<>(functions.size());
+            for (int i = 0; i < functions.size(); i++) {
+                String function = functions.get(i);
+                // Counts are merged by adding them up; the rest by applying themselves again.
+                if ("COUNT".equals(function) || "COUNT(*)".equals(function))
+                    function = "SUM";
+                TPreptimeValue partial = new TPreptimeValue(rowType.typeAt(nkeys + i));
+                aggregators.add(registry.getAggregatesResolver()
+                                .get(function, Collections.singletonList(partial))
+                                .getOverload());
+                options.add(null);
+            }
+            return API.aggregate_Partial(inputOperator, rowType, nkeys,
+                                         aggregators, outputInstances, options);
+        }
+
         protected RowStream assembleLimit(Limit limit) {
             RowStream stream = assembleStream(limit.getInput());
             int nlimit = limit.getLimit();
@@ -1500,7 +1682,8 @@ public class OperatorAssembler extends BaseRule
                     pos,
                     stream.operator,
                     tComparisons,
-                    collators);
+                    collators,
+                    hashTable.isDeferred());
             return stream;
         }
 
@@ -1514,6 +1697,20 @@ public class OperatorAssembler extends BaseRule
             RowStream stream = new RowStream();
             stream.rowType = lstream.rowType;
             stream.fieldOffsets = lstream.fieldOffsets;
+            PlanNode nestedAlternative = hashTableLookup.getNestedAlternative();
+            if (nestedAlternative != null) {
+                RowStream nstream = assembleStream(nestedAlternative);
+                if (nstream.rowType == stream.rowType) {
+                    stream.operator = API.hashTableLookup_Adaptive(
+                            stream.rowType,
+                            tFields,
+                            tablePos,
+                            nstream.operator,
+                            hashTableLookup.getSwitchRowCount());
+                    return stream;
+                }
+                // Otherwise cannot stand in for hash lookup; just use table.
+            }
             stream.operator = API.hashTableLookup_Default(
                     stream.rowType,
                     tFields,
@@ -1525,6 +1722,8 @@ public class OperatorAssembler extends BaseRule
             RowStream stream = assembleStream(project.getInput());
             List<? extends TPreparedExpression> pExpressions;
             pExpressions = assembleExpressions(project.getFields(), stream.fieldOffsets);
+            if (compileExpressions())
+                pExpressions = TExpressionCompiler.compile(pExpressions);
             stream.operator = API.project_Default(stream.operator,
                                                   stream.rowType,
                                                   pExpressions);
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.optimizer.rule;
+
+import com.foundationdb.sql.optimizer.plan.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/** Run expensive scans of a whole group in parallel.
+ * <ul>
+ * <li>A plain scan (with its selects, flattens and projects) is
+ * gathered as the partitions return rows.</li>
+ * <li>A sort of one sorts each partition and merges them.</li>
+ * <li>An aggregation of one aggregates each partition and then
+ * combines the partial results, which limits it to aggregates that
+ * can be combined that way.</li>
+ * </ul>
+ * The degree of parallelism grows with the estimated cost, up to
+ * the <code>parallel_max_degree</code> property, which defaults to
+ * <code>1</code>, that is, off.
+ */
+public class ParallelPlanner extends BaseRule
+{
+    private static final Logger logger = LoggerFactory.getLogger(ParallelPlanner.class);
+
+    @Override
+    protected Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    public void apply(PlanContext plan) {
+        if (!(plan.getPlan() instanceof SelectQuery))
+            return;
+        RulesContext rulesContext = plan.getRulesContext();
+        int maxDegree = Integer.parseInt(rulesContext.getProperty("parallel_max_degree", "1"));
+        if (maxDegree < 2)
+            return;
+        double costPerWorker = Double.parseDouble(rulesContext.getProperty("parallel_cost_per_worker", "100000"));
+        SelectQuery query = (SelectQuery)plan.getPlan();
+        PlanNode node = query.getQuery();
+        while ((node instanceof ResultSet) ||
+               (node instanceof Limit) ||
+               ((node instanceof Project) && (fragmentScan(node) == null)))
+            node = ((BasePlanWithInput)node).getInput();
+        GroupScan scan = candidateScan(node);
+        if ((scan == null) || new SubqueryFinder().find(node))
+            return;
+        CostEstimate costEstimate = query.getCostEstimate();
+        if (costEstimate == null)
+            costEstimate = scan.getCostEstimate();
+        if (costEstimate == null)
+            return;
+        int degree = (int)Math.min(maxDegree, Math.floor(costEstimate.getCost() / costPerWorker));
+        if (degree < 2)
+            return;
+        PlanWithInput output = node.getOutput();
+        output.replaceInput(node, new Exchange(node, degree));
+    }
+
+    /** The group scan whose partitions <code>node</code> can be run over, if any. */
+    protected GroupScan candidateScan(PlanNode node) {
+        if (node instanceof Sort) {
+            PlanNode input = ((Sort)node).getInput();
+            if (input instanceof Project)
+                return fragmentScan(input);
+        }
+        else if (node instanceof AggregateSource) {
+            AggregateSource aggregateSource = (AggregateSource)node;
+            if (!mergeableAggregates(aggregateSource))
+                return null;
+            PlanNode input = aggregateSource.getInput();
+            if ((input instanceof Project) ||
+                (aggregateSource.getImplementation() == AggregateSource.Implementation.COUNT_STAR))
+                return fragmentScan(input);
+        }
+        else if (node instanceof Project) {
+            return fragmentScan(node);
+        }
+        return null;
+    }
+
+    protected boolean mergeableAggregates(AggregateSource aggregateSource) {
+        AggregateSource.Implementation impl = aggregateSource.getImplementation();
+        if (impl != null) {
+            switch (impl) {
+            case SORT:
+            case PREAGGREGATE_RESORT:
+            case HASH:
+            case TREE:
+            case UNGROUPED:
+            case COUNT_STAR:
+                break;
+            default:
+                return false;
+            }
+        }
+        for (AggregateFunctionExpression aggregate : aggregateSource.getAggregates()) {
+            if (aggregate.isDistinct() || (aggregate.getOption() != null))
+                return false;
+            String function = aggregate.getFunction();
+            if (!("COUNT".equals(function) || "SUM".equals(function) ||
+                  "MIN".equals(function) || "MAX".equals(function)))
+                return false;
+        }
+        return true;
+    }
+
+    /** The group scan at the bottom of a chain of projects, selects
+     * and flattens without subqueries, if that is what
+     * <code>node</code> is.
+     */
+    protected GroupScan fragmentScan(PlanNode node) {
+        while ((node instanceof Project) ||
+               (node instanceof Select) ||
+               (node instanceof Flatten))
+            node = ((BasePlanWithInput)node).getInput();
+        if (!(node instanceof GroupScan))
+            return null;
+        GroupScan scan = (GroupScan)node;
+        if (scan.getGroup().getGroup().isVirtual())
+            return null;
+        return scan;
+    }
+
+    /** Whether there are subqueries, which the partitions cannot share. */
+    static class SubqueryFinder implements PlanVisitor, ExpressionVisitor {
+        private boolean found;
+
+        public boolean find(PlanNode root) {
+            found = false;
+            root.accept(this);
+            return found;
+        }
+
+        @Override
+        public boolean visitEnter(PlanNode n) {
+            return visit(n);
+        }
+
+        @Override
+        public boolean visitLeave(PlanNode n) {
+            return !found;
+        }
+
+        @Override
+        public boolean visit(PlanNode n) {
+            return !found;
+        }
+
+        @Override
+        public boolean visitEnter(ExpressionNode n) {
+            return visit(n);
+        }
+
+        @Override
+        public boolean visitLeave(ExpressionNode n) {
+            return !found;
+        }
+
+        @Override
+        public boolean visit(ExpressionNode n) {
+            if (n instanceof SubqueryExpression)
+                found = true;
+            return !found;
+        }
+    }
+}
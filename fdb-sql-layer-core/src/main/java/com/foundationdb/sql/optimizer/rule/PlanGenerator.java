@@ -25,6 +25,9 @@ import java.util.List;
 
 import com.foundationdb.ais.model.AbstractVisitor;
 import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.HKey;
+import com.foundationdb.ais.model.HKeyColumn;
+import com.foundationdb.ais.model.HKeySegment;
 import com.foundationdb.ais.model.Sequence;
 import com.foundationdb.qp.operator.QueryContext;
 import com.foundationdb.qp.rowtype.TableRowType;
@@ -53,6 +56,7 @@ import com.foundationdb.qp.expression.RowBasedUnboundExpressions;
 import com.foundationdb.qp.operator.API;
 import com.foundationdb.qp.operator.Operator;
 import com.foundationdb.qp.operator.API.Ordering;
+import com.foundationdb.qp.rowtype.HKeyRowType;
 import com.foundationdb.qp.rowtype.IndexRowType;
 import com.foundationdb.qp.rowtype.RowType;
 import com.foundationdb.qp.rowtype.Schema;
@@ -125,12 +129,7 @@ public class PlanGenerator {
 
     public static Operator generateBranchPlan (Table table, Operator scan, RowType scanType) {
         final Schema schema = (Schema)scanType.schema();
-        final TableRowType tableType = schema.tableRowType(table);
-        final List<TableRowType> tableTypes = new ArrayList<>();
-        tableTypes.add(tableType);
-        for (RowType rowType : Schema.descendentTypes(tableType, schema.userTableTypes())) {
-            tableTypes.add((TableRowType)rowType);
-        }
+        final List<TableRowType> tableTypes = branchTableTypes(schema, table);
         Operator plan = API.groupLookup_Default(scan, table.getGroup(), 
                                                 scanType, tableTypes, 
                                                 API.InputPreservationOption.DISCARD_INPUT, 1);
@@ -143,6 +142,53 @@ public class PlanGenerator {
         return plan;
     }
 
+    /**
+     * Get a table's rows and all of their children directly by hkey, without
+     * going through the primary key index. Each lookup is then a single
+     * read of the contiguous range of the group under that hkey.
+     * Primary key is set as parameters to the query context, as for
+     * {@link #generateBranchPlan(AkibanInformationSchema,Table)}.
+     * Returns <code>null</code> if the primary key does not determine
+     * the whole hkey.
+     *
+     * Generates a plan:
+     * Group Lookup
+     *   HKeyRow (table, pk-> ?[, ?...])
+     */
+    public static Operator generateBranchHKeyPlan (AkibanInformationSchema ais, Table table,
+                                                   int lookaheadQuantum) {
+        final Schema schema = SchemaCache.globalSchema(ais);
+        List<Column> pkColumns = table.getPrimaryKeyIncludingInternal().getColumns();
+        HKey hKey = table.hKey();
+        List<TPreparedExpression> pexprs = new ArrayList<>(hKey.nColumns());
+        for (HKeySegment segment : hKey.segments()) {
+            for (HKeyColumn hKeyColumn : segment.columns()) {
+                Column pkColumn = null;
+                for (Column column : hKeyColumn.equivalentColumns()) {
+                    if (column.getTable() == table) {
+                        pkColumn = column;
+                        break;
+                    }
+                }
+                int position = (pkColumn == null) ? -1 : pkColumns.indexOf(pkColumn);
+                if (position < 0) return null;
+                pexprs.add(new TPreparedParameter(position, pkColumn.getType()));
+            }
+        }
+        HKeyRowType hKeyType = schema.newHKeyRowType(hKey);
+        Operator plan = API.groupLookup_Default(API.hKeyRow_Default(hKeyType, pexprs),
+                                                table.getGroup(),
+                                                hKeyType, branchTableTypes(schema, table),
+                                                API.InputPreservationOption.DISCARD_INPUT,
+                                                lookaheadQuantum);
+        if (logger.isDebugEnabled()) {
+            DefaultFormatter formatter = new DefaultFormatter(table.getName().getSchemaName());
+            logger.debug("Branch HKey Plan for {}:\n{}", table,
+                         join(formatter.format(plan.getExplainer(new ExplainContext()))));
+        }
+        return plan;
+    }
+
     /**
      * Scan a table starting with the primary key and return the full data row 
      * Generates a plan like
@@ -173,6 +219,16 @@ public class PlanGenerator {
         return lookup;
     }
     
+    private static List<TableRowType> branchTableTypes(Schema schema, Table table) {
+        final TableRowType tableType = schema.tableRowType(table);
+        final List<TableRowType> tableTypes = new ArrayList<>();
+        tableTypes.add(tableType);
+        for (RowType rowType : Schema.descendentTypes(tableType, schema.userTableTypes())) {
+            tableTypes.add((TableRowType)rowType);
+        }
+        return tableTypes;
+    }
+
     /**
      * Generate an index scan of the table based upon the table's primary key
      * Values for the scan are set as parameters in the PK order. 
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.optimizer.rule.cost;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.qp.operator.SelectivityFeedback;
+import com.foundationdb.server.util.LRUCacheMap;
+import com.foundationdb.sql.optimizer.plan.ComparisonCondition;
+import com.foundationdb.sql.optimizer.plan.ConditionExpression;
+import com.foundationdb.sql.optimizer.plan.InListCondition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded store of observed predicate selectivities, used to correct
+ * the estimates derived from statistics.
+ *
+ * Entries are keyed by predicate shape (column and comparison
+ * operators, but not the compared values) and hold a smoothed ratio
+ * of actual to estimated selectivity. A {@link Plan} is marked stale
+ * when one of its predicates turns out to be off by more than the
+ * error threshold, so that cached statements get recompiled with the
+ * corrected estimates.
+ */
+public class CardinalityFeedback
+{
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final double DEFAULT_ERROR_THRESHOLD = 10.0;
+    /** Fewer rows than this are too noisy to learn from. */
+    public static final long MIN_OBSERVED_ROWS = 100;
+    /** Weight of a new observation against the accumulated correction. */
+    private static final double SMOOTHING = 0.5;
+    private static final double MIN_SELECTIVITY = 1.0e-9;
+
+    private final LRUCacheMap<String,Entry> entries;
+    private final double errorThreshold;
+
+    public CardinalityFeedback(int capacity, double errorThreshold) {
+        this.entries = new LRUCacheMap<>(capacity);
+        this.errorThreshold = errorThreshold;
+    }
+
+    public int getCapacity() {
+        return entries.getCapacity();
+    }
+
+    public double getErrorThreshold() {
+        return errorThreshold;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** Key identifying the shape of the given conditions on <code>column</code>. */
+    public static String conditionsKey(Column column, Collection<? extends ConditionExpression> conditions) {
+        List<String> operations = new ArrayList<>(conditions.size());
+        for (ConditionExpression condition : conditions) {
+            if (condition instanceof ComparisonCondition)
+                operations.add(((ComparisonCondition)condition).getOperation().name());
+            else if (condition instanceof InListCondition)
+                operations.add("IN");
+            else
+                operations.add(condition.getClass().getSimpleName());
+        }
+        Collections.sort(operations);
+        StringBuilder str = new StringBuilder();
+        str.append(column.getTable().getName().getSchemaName())
+           .append('.').append(column.getTable().getName().getTableName())
+           .append('.').append(column.getName());
+        for (String operation : operations) {
+            str.append(' ').append(operation);
+        }
+        return str.toString();
+    }
+
+    /** Apply any learned correction to the estimated <code>selectivity</code>. */
+    public double correct(String key, double selectivity) {
+        double correction;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null)
+                return selectivity;
+            correction = entry.correction;
+        }
+        return Math.min(1.0, selectivity * correction);
+    }
+
+    /** Record an observed selectivity against the statistics-only estimate. */
+    public void observed(String key, double baseSelectivity, double actualSelectivity) {
+        double ratio = Math.max(actualSelectivity, MIN_SELECTIVITY) / 
+                       Math.max(baseSelectivity, MIN_SELECTIVITY);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entry.correction = ratio;
+                entries.put(key, entry);
+            }
+            else {
+                // Geometric mean so that over- and under-estimates count alike.
+                entry.correction = Math.exp((1.0 - SMOOTHING) * Math.log(entry.correction) +
+                                            SMOOTHING * Math.log(ratio));
+            }
+        }
+    }
+
+    /** Factor by which <code>estimated</code> missed <code>actual</code>, always &gt;= 1. */
+    public static double estimationError(double estimated, double actual) {
+        estimated = Math.max(estimated, MIN_SELECTIVITY);
+        actual = Math.max(actual, MIN_SELECTIVITY);
+        return (estimated > actual) ? estimated / actual : actual / estimated;
+    }
+
+    /** Create an observer for one predicate of a compiled plan.
+     * @param baseSelectivity the estimate from statistics alone
+     * @param plannedSelectivity the (possibly corrected) estimate the plan was costed with
+     */
+    public Observer observer(Plan plan, String key, double baseSelectivity, double plannedSelectivity) {
+        return new Observer(plan, key, baseSelectivity, plannedSelectivity);
+    }
+
+    /** Staleness of a single compiled plan. */
+    public static class Plan {
+        private volatile boolean stale;
+
+        public boolean isStale() {
+            return stale;
+        }
+
+        public void markStale() {
+            stale = true;
+        }
+    }
+
+    public class Observer implements SelectivityFeedback {
+        private final Plan plan;
+        private final String key;
+        private final double baseSelectivity, plannedSelectivity;
+
+        Observer(Plan plan, String key, double baseSelectivity, double plannedSelectivity) {
+            this.plan = plan;
+            this.key = key;
+            this.baseSelectivity = baseSelectivity;
+            this.plannedSelectivity = plannedSelectivity;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public void observed(long tested, long passed) {
+            if (tested < MIN_OBSERVED_ROWS) return;
+            // Count none passing as half a row, which keeps the ratio finite.
+            double actual = Math.max(passed, 0.5) / tested;
+            CardinalityFeedback.this.observed(key, baseSelectivity, actual);
+            if (estimationError(plannedSelectivity, actual) > errorThreshold)
+                plan.markStale();
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    static class Entry {
+        double correction;
+    }
+}
@@ -18,6 +18,7 @@
 package com.foundationdb.sql.optimizer.rule.cost;
 
 import com.foundationdb.server.PersistitKeyValueTarget;
+import com.foundationdb.server.store.statistics.ColumnStatistics;
 import com.foundationdb.server.store.statistics.Histogram;
 import com.foundationdb.server.store.statistics.HistogramEntry;
 import com.foundationdb.server.types.value.ValueSource;
@@ -99,6 +100,16 @@ public abstract class CostEstimator implements TableRowCounts
 
     public abstract IndexStatistics getIndexStatistics(Index index);
 
+    /** Get statistics gathered for a column that does not lead any index. */
+    public ColumnStatistics getColumnStatistics(Column column) {
+        return null;
+    }
+
+    /** Observed selectivities used to correct estimates, if enabled. */
+    public CardinalityFeedback getCardinalityFeedback() {
+        return null;
+    }
+
     public void getIndexColumnStatistics(Index index, Index[] indexColumnsIndexes, Histogram[] histograms) {
         List<IndexColumn> allIndexColumns = index.getAllColumns();
         IndexStatistics statsForRequestedIndex = getIndexStatistics(index);
@@ -148,6 +159,14 @@ public abstract class CostEstimator implements TableRowCounts
                         }
                     }
                 }
+                // If none, use statistics for the column itself.
+                if (histogram == null) {
+                    ColumnStatistics columnStatistics = getColumnStatistics(leadingColumn);
+                    if (columnStatistics != null) {
+                        indexColumnsIndex = null;
+                        histogram = columnStatistics.getHistogram();
+                    }
+                }
             }
             indexColumnsIndexes[i] = indexColumnsIndex;
             histograms[i] = histogram;
@@ -330,9 +349,12 @@ public abstract class CostEstimator implements TableRowCounts
                 key.clear();
                 keyPTarget.attach(key);
                 // encodeKeyValue evaluates non-null iff node is a constant expression. key is initialized as a side-effect.
-                byte[] columnValue = encodeKeyValue(expr, index, histogram.getFirstColumn()) ? keyCopy() : null;
+                byte[] columnValue = encodeKeyValue(expr, column, index, histogram.getFirstColumn()) ? keyCopy() : null;
                 if (columnValue == null) {
                     // Variable expression. Use average selectivity for histogram.
+                    if (histogram.getIndexStatistics() instanceof ColumnStatistics)
+                        // Distinct count covers all rows, not just those sampled.
+                        return ((ColumnStatistics)histogram.getIndexStatistics()).getEqualSelectivity();
                     return
                         mostlyDistinct(histogram)
                         ? 1.0 / indexStatsSampledCount
@@ -373,9 +395,9 @@ public abstract class CostEstimator implements TableRowCounts
         }
         keyPTarget.attach(key);
         key.clear();
-        byte[] loBytes = encodeKeyValue(lo, index, histogram.getFirstColumn()) ? keyCopy() : null;
+        byte[] loBytes = encodeKeyValue(lo, column, index, histogram.getFirstColumn()) ? keyCopy() : null;
         key.clear();
-        byte[] hiBytes = encodeKeyValue(hi, index, histogram.getFirstColumn()) ? keyCopy() : null;
+        byte[] hiBytes = encodeKeyValue(hi, column, index, histogram.getFirstColumn()) ? keyCopy() : null;
         if (loBytes == null && hiBytes == null) {
             return missingStatsSelectivity();
         }
@@ -489,13 +511,13 @@ public abstract class CostEstimator implements TableRowCounts
         int i = 0;
         if (fields != null) {
             for (ExpressionNode field : fields) {
-                if (!encodeKeyValue(field, index, i++)) {
+                if (!encodeKeyValue(field, null, index, i++)) {
                     return null;
                 }
             }
         }
         if (anotherField != null) {
-            if (!encodeKeyValue(anotherField, index, i++)) {
+            if (!encodeKeyValue(anotherField, null, index, i++)) {
                 return null;
             }
         }
@@ -510,7 +532,11 @@ public abstract class CostEstimator implements TableRowCounts
         return node.isConstant();
     }
 
-    protected boolean encodeKeyValue(ExpressionNode node, Index index, int column) {
+    /** Encode <code>node</code> as it would appear in the histogram of <code>column</code>.
+     * That is the <code>column</code>th column of <code>index</code>, or, if the histogram
+     * is from column statistics, <code>histogramColumn</code> itself.
+     */
+    protected boolean encodeKeyValue(ExpressionNode node, Column histogramColumn, Index index, int column) {
         ValueSource value = null;
         if (node instanceof ConstantExpression) {
             if (node.getPreptimeValue() != null) {
@@ -538,6 +564,10 @@ public abstract class CostEstimator implements TableRowCounts
         TInstance type;
         determine_type:
         {
+            if (index == null) {
+                type = histogramColumn.getType();
+                break determine_type;
+            }
             if (index.isSpatial()) {
                 int firstSpatialColumn = index.firstSpatialArgument();
                 if (column == firstSpatialColumn) {
@@ -895,89 +925,105 @@ public abstract class CostEstimator implements TableRowCounts
     }
 
     public double conditionsSelectivity(SelectivityConditions conditions) {
+        CardinalityFeedback feedback = getCardinalityFeedback();
         double selectivity = 1.0;
         for (ColumnExpression entry : conditions.getColumns()) {
-            Index index = null;
-            IndexStatistics indexStatistics = null;
             Column column = entry.getColumn();
-            // Find a TableIndex whose first column is leadingColumn
-            for (TableIndex tableIndex : column.getTable().getIndexes()) {
-                if (!tableIndex.isSpatial() && tableIndex.getKeyColumns().get(0).getColumn() == column) {
-                    indexStatistics = getIndexStatistics(tableIndex);
-                    if (indexStatistics != null) {
-                        index = tableIndex;
-                        break;
-                    }
+            Collection<ConditionExpression> columnConditions = conditions.getConditions(entry);
+            double columnSelectivity = columnSelectivity(column, columnConditions);
+            if (feedback != null)
+                columnSelectivity = feedback.correct(CardinalityFeedback.conditionsKey(column, columnConditions),
+                                                     columnSelectivity);
+            selectivity *= columnSelectivity;
+        }
+        return selectivity;
+    }
+
+    /** Selectivity of the given conditions on <code>column</code> from statistics alone. */
+    public double columnSelectivity(Column column, Collection<ConditionExpression> conditions) {
+        Index index = null;
+        IndexStatistics indexStatistics = null;
+        // Find a TableIndex whose first column is leadingColumn
+        for (TableIndex tableIndex : column.getTable().getIndexes()) {
+            if (!tableIndex.isSpatial() && tableIndex.getKeyColumns().get(0).getColumn() == column) {
+                indexStatistics = getIndexStatistics(tableIndex);
+                if (indexStatistics != null) {
+                    index = tableIndex;
+                    break;
                 }
             }
-            // If none, find a GroupIndex whose first column is leadingColumn
-            if (indexStatistics == null) {
-                groupLoop: for (Group group : schema.ais().getGroups().values()) {
-                    for (GroupIndex groupIndex : group.getIndexes()) {
-                        if (!groupIndex.isSpatial() && groupIndex.getKeyColumns().get(0).getColumn() == column) {
-                            indexStatistics = getIndexStatistics(groupIndex);
-                            if (indexStatistics != null) {
-                                index = groupIndex;
-                                break groupLoop;
-                            }
+        }
+        // If none, find a GroupIndex whose first column is leadingColumn
+        if (indexStatistics == null) {
+            groupLoop: for (Group group : schema.ais().getGroups().values()) {
+                for (GroupIndex groupIndex : group.getIndexes()) {
+                    if (!groupIndex.isSpatial() && groupIndex.getKeyColumns().get(0).getColumn() == column) {
+                        indexStatistics = getIndexStatistics(groupIndex);
+                        if (indexStatistics != null) {
+                            index = groupIndex;
+                            break groupLoop;
                         }
                     }
                 }
             }
-            if (indexStatistics == null) continue;
-            ExpressionNode eq = null, ne = null, lo = null, hi = null;
-            boolean loInc = false, hiInc = false;
-            List<ExpressionNode> in = null;
-            for (ConditionExpression cond : conditions.getConditions(entry)) {
-                if (cond instanceof ComparisonCondition) {
-                    ComparisonCondition ccond = (ComparisonCondition)cond;
-                    switch (ccond.getOperation()) {
-                    case EQ:
-                        eq = ccond.getRight();
-                        break;
-                    case NE:
-                        ne = ccond.getRight();
-                        break;
-                    case LT:
-                        hi = ccond.getRight();
-                        hiInc = false;
-                        break;
-                    case LE:
-                        hi = ccond.getRight();
-                        hiInc = true;
-                        break;
-                    case GT:
-                        lo = ccond.getRight();
-                        loInc = false;
-                        break;
-                    case GE:
-                        lo = ccond.getRight();
-                        loInc = true;
-                        break;
-                    }
-                }
-                else if (cond instanceof InListCondition) {
-                    in = ((InListCondition)cond).getExpressions();
+        }
+        // If none, use statistics for the column itself.
+        if (indexStatistics == null) {
+            indexStatistics = getColumnStatistics(column);
+        }
+        if (indexStatistics == null) return 1.0;
+        ExpressionNode eq = null, ne = null, lo = null, hi = null;
+        boolean loInc = false, hiInc = false;
+        List<ExpressionNode> in = null;
+        for (ConditionExpression cond : conditions) {
+            if (cond instanceof ComparisonCondition) {
+                ComparisonCondition ccond = (ComparisonCondition)cond;
+                switch (ccond.getOperation()) {
+                case EQ:
+                    eq = ccond.getRight();
+                    break;
+                case NE:
+                    ne = ccond.getRight();
+                    break;
+                case LT:
+                    hi = ccond.getRight();
+                    hiInc = false;
+                    break;
+                case LE:
+                    hi = ccond.getRight();
+                    hiInc = true;
+                    break;
+                case GT:
+                    lo = ccond.getRight();
+                    loInc = false;
+                    break;
+                case GE:
+                    lo = ccond.getRight();
+                    loInc = true;
+                    break;
                 }
             }
-            Histogram histogram = indexStatistics.getHistogram(0, 1);
-            if (eq != null) {
-                selectivity *= fractionEqual(column, index, histogram, eq);
+            else if (cond instanceof InListCondition) {
+                in = ((InListCondition)cond).getExpressions();
             }
-            else if (ne != null) 
-                selectivity *= (1.0 - fractionEqual(column, index, histogram, eq));
-            else if ((lo != null) || (hi != null))
-                selectivity *= fractionBetween(column, index, histogram, lo, loInc, hi, hiInc);
-            else if (in != null) {
-                double fraction = 0.0;
-                for (ExpressionNode expr : in) {
-                    fraction += fractionEqual(column, index, histogram, expr);
-                }
-                if (fraction > 1.0) fraction = 1.0;
-                selectivity *= fraction;
+        }
+        Histogram histogram = indexStatistics.getHistogram(0, 1);
+        if (eq != null) {
+            return fractionEqual(column, index, histogram, eq);
+        }
+        else if (ne != null) 
+            return (1.0 - fractionEqual(column, index, histogram, eq));
+        else if ((lo != null) || (hi != null))
+            return fractionBetween(column, index, histogram, lo, loInc, hi, hiInc);
+        else if (in != null) {
+            double fraction = 0.0;
+            for (ExpressionNode expr : in) {
+                fraction += fractionEqual(column, index, histogram, expr);
             }
+            if (fraction > 1.0) fraction = 1.0;
+            return fraction;
         }
-        return selectivity;
+        return 1.0;
     }
 
     /** Estimate the cost of a sort of the given size. */
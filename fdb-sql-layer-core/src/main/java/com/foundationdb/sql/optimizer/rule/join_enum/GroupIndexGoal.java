@@ -317,10 +317,12 @@ public class GroupIndexGoal implements Comparator<BaseScan>
      */
     public boolean usable(SingleIndexScan index) {
         setColumnsAndOrdering(index);
-        int nequals = insertLeadingEqualities(index, conditions);
-        if (index.getIndex().isSpatial()) return spatialUsable(index, nequals);
         List<ExpressionNode> indexExpressions = index.getColumns();
-        if (nequals < indexExpressions.size()) {
+        // Included columns are stored in the value, so they cannot bound the scan.
+        int nkeys = indexExpressions.size() - index.getIndex().getValueColumnCount();
+        int nequals = insertLeadingEqualities(index, conditions, nkeys);
+        if (index.getIndex().isSpatial()) return spatialUsable(index, nequals);
+        if (nequals < nkeys) {
             ExpressionNode indexExpression = indexExpressions.get(nequals);
             if (indexExpression != null) {
                 boolean foundInequalityCondition = false;
@@ -341,8 +343,11 @@ public class GroupIndexGoal implements Comparator<BaseScan>
                 }
                 if (!foundInequalityCondition) {
                     ColumnRanges range = rangeForIndex(indexExpression);
-                    if (range != null)
+                    if (range != null) {
                         index.addRangeCondition(range);
+                        if (range.getSegments().size() > columnRangeMaxSegments())
+                            index.setMultiRange(true);
+                    }
                 }
             }
         }
@@ -356,10 +361,10 @@ public class GroupIndexGoal implements Comparator<BaseScan>
         return true;
     }
 
-    private int insertLeadingEqualities(EqualityColumnsScan index, List<ConditionExpression> localConds) {
+    private int insertLeadingEqualities(EqualityColumnsScan index, List<ConditionExpression> localConds,
+                                        int ncols) {
         int nequals = 0;
         List<ExpressionNode> indexExpressions = index.getColumns();
-        int ncols = indexExpressions.size();
         while (nequals < ncols) {
             ExpressionNode indexExpression = indexExpressions.get(nequals);
             if (indexExpression == null) break;
@@ -1177,7 +1182,7 @@ public class GroupIndexGoal implements Comparator<BaseScan>
             columns.add(column);
         }
         scan.setColumns(columns);
-        int nequals = insertLeadingEqualities(scan, conditions);
+        int nequals = insertLeadingEqualities(scan, conditions, ncols);
         if (nequals != ncols) return null;
         required = new HashSet<>(required);
         // We do not handle any actual data columns.
@@ -1607,6 +1612,25 @@ public class GroupIndexGoal implements Comparator<BaseScan>
     // Too-many-way UNION can consume too many resources (and overflow
     // the stack explaining).
     protected static int COLUMN_RANGE_MAX_SEGMENTS_DEFAULT = 16;
+    // Beyond that, points (as from a long IN list) are read by a
+    // single multi-range scan.
+    protected static int COLUMN_RANGE_MAX_POINTS_DEFAULT = 4096;
+
+    protected int columnRangeMaxSegments() {
+        String prop = queryGoal.getRulesContext().getProperty("columnRangeMaxSegments");
+        if (prop != null)
+            return Integer.parseInt(prop);
+        else
+            return COLUMN_RANGE_MAX_SEGMENTS_DEFAULT;
+    }
+
+    protected int columnRangeMaxPoints() {
+        String prop = queryGoal.getRulesContext().getProperty("columnRangeMaxPoints");
+        if (prop != null)
+            return Integer.parseInt(prop);
+        else
+            return COLUMN_RANGE_MAX_POINTS_DEFAULT;
+    }
 
     // Get Range-expressible conditions for given column.
     protected ColumnRanges rangeForIndex(ExpressionNode expressionNode) {
@@ -1624,15 +1648,14 @@ public class GroupIndexGoal implements Comparator<BaseScan>
                     }
                 }
                 if (!columnsToRanges.isEmpty()) {
-                    int maxSegments;
-                    String prop = queryGoal.getRulesContext().getProperty("columnRangeMaxSegments");
-                    if (prop != null)
-                        maxSegments = Integer.parseInt(prop);
-                    else
-                        maxSegments = COLUMN_RANGE_MAX_SEGMENTS_DEFAULT;
+                    int maxSegments = columnRangeMaxSegments();
+                    int maxPoints = columnRangeMaxPoints();
                     Iterator<ColumnRanges> iter = columnsToRanges.values().iterator();
                     while (iter.hasNext()) {
-                        if (iter.next().getSegments().size() > maxSegments) {
+                        ColumnRanges range = iter.next();
+                        int nsegments = range.getSegments().size();
+                        if ((nsegments > maxSegments) &&
+                            !((nsegments <= maxPoints) && range.isAllSingle())) {
                             iter.remove();
                         }
                     }
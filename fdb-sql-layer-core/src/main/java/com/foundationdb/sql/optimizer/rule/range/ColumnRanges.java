@@ -17,7 +17,11 @@
 
 package com.foundationdb.sql.optimizer.rule.range;
 
+import com.foundationdb.server.collation.AkCollator;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.common.types.TString;
 import com.foundationdb.server.types.texpressions.Comparison;
+import com.foundationdb.server.types.texpressions.Matchers;
 import com.foundationdb.sql.optimizer.plan.ColumnExpression;
 import com.foundationdb.sql.optimizer.plan.ComparisonCondition;
 import com.foundationdb.sql.optimizer.plan.ConditionExpression;
@@ -50,7 +54,13 @@ public final class ColumnRanges {
             if (leftRange != null && rightRange != null) {
                 List<RangeSegment> combinedSegments = combineBool(leftRange, rightRange, condition.getFunction());
                 if (combinedSegments != null) {
-                    return new ColumnRanges(leftRange.getColumnExpression(), condition, combinedSegments);
+                    // Only exact when both sides are.
+                    Set<? extends ConditionExpression> rootConditions;
+                    if (leftRange.getConditions().isEmpty() || rightRange.getConditions().isEmpty())
+                        rootConditions = Collections.<ConditionExpression>emptySet();
+                    else
+                        rootConditions = Collections.singleton(condition);
+                    return new ColumnRanges(leftRange.getColumnExpression(), rootConditions, combinedSegments);
                 }
             }
         }
@@ -66,6 +76,9 @@ public final class ColumnRanges {
                     }
                 }
             }
+            else if (isLikeFunction(condition.getFunction())) {
+                return likeToRange(condition);
+            }
         }
         else if (node instanceof InListCondition) {
             InListCondition inListCondition = (InListCondition) node;
@@ -108,6 +121,11 @@ public final class ColumnRanges {
             return null;
     }
 
+    /**
+     * The conditions that the ranges fully implement. Empty when the ranges
+     * are only a superset, such as the literal prefix of a {@code LIKE}
+     * pattern, and the original condition must still be checked.
+     */
     public Collection<? extends ConditionExpression> getConditions() {
         return rootConditions;
     }
@@ -235,9 +253,164 @@ public final class ColumnRanges {
                 return null;
             }
         }
+        // Sorted and without duplicates, like an OR of equalities.
+        List<RangeSegment> combined = RangeSegment.sortAndCombine(rangeSegments);
+        if (combined != null)
+            rangeSegments = combined;
         return new ColumnRanges(columnExpression, inListCondition, rangeSegments);
     }
 
+    private static boolean isLikeFunction(String function) {
+        return "like".equalsIgnoreCase(function) ||
+            "ilike".equalsIgnoreCase(function) ||
+            "blike".equalsIgnoreCase(function);
+    }
+
+    /**
+     * Turn the literal prefix of a constant {@code LIKE} pattern into a range.
+     * The range is exact when the pattern is just a prefix followed by
+     * {@code %} and the index orders the column by its characters.
+     * Otherwise it is a superset and the condition is left in place.
+     */
+    private static ColumnRanges likeToRange(FunctionCondition condition) {
+        List<ExpressionNode> operands = condition.getOperands();
+        if ((operands.size() < 2) ||
+            !(operands.get(0) instanceof ColumnExpression) ||
+            !(operands.get(1) instanceof ConstantExpression))
+            return null;
+        ColumnExpression columnExpression = (ColumnExpression)operands.get(0);
+        ConstantExpression patternExpression = (ConstantExpression)operands.get(1);
+        TInstance type = patternExpression.getType();
+        if ((type == null) || !(type.typeClass() instanceof TString) ||
+            (columnExpression.getType() == null) ||
+            !(columnExpression.getType().typeClass() instanceof TString))
+            return null;
+        Object pattern = patternExpression.getValue();
+        if (!(pattern instanceof String))
+            return null;
+        char escape = '\\';
+        if (operands.size() > 2) {
+            if (!(operands.get(2) instanceof ConstantExpression))
+                return null;
+            Object escapeValue = ((ConstantExpression)operands.get(2)).getValue();
+            if (!(escapeValue instanceof String) || (((String)escapeValue).length() != 1))
+                return null;
+            escape = ((String)escapeValue).charAt(0);
+        }
+        String prefix = Matchers.literalPrefix((String)pattern, escape);
+        boolean exact = Matchers.isPrefixPattern((String)pattern, escape);
+
+        AkCollator collator = TString.getCollator(columnExpression.getType());
+        boolean binaryOrder = (collator == null) || collator.isRecoverable();
+        boolean ignoreCase;
+        if ("ilike".equalsIgnoreCase(condition.getFunction()))
+            ignoreCase = true;
+        else if ("blike".equalsIgnoreCase(condition.getFunction()))
+            ignoreCase = false;
+        else
+            ignoreCase = (collator != null) && !collator.isCaseSensitive();
+
+        final String upper;
+        if (binaryOrder) {
+            if (ignoreCase) {
+                // Case variants of a letter are nowhere near each other.
+                prefix = caseInvariantPrefix(prefix);
+                exact = false;
+            }
+            upper = binaryUpperBound(prefix);
+        }
+        else {
+            // Only simple characters are known to sort the same
+            // way with the collator, and it decides case, so fold it.
+            if (!collatorOrdersAscii(collator))
+                return null;
+            if (ignoreCase && collator.isCaseSensitive())
+                prefix = caseInvariantPrefix(prefix);
+            prefix = asciiAlphanumericPrefix(prefix);
+            if (ignoreCase)
+                prefix = prefix.toLowerCase();
+            upper = asciiUpperBound(prefix);
+            exact = false;
+        }
+        if (prefix.isEmpty())
+            return null;
+        RangeEndpoint start = RangeEndpoint.inclusive(new ConstantExpression(prefix, type));
+        RangeEndpoint end = (upper == null) ?
+            RangeEndpoint.UPPER_WILD :
+            RangeEndpoint.exclusive(new ConstantExpression(upper, type));
+        Set<? extends ConditionExpression> rootConditions;
+        if (exact)
+            rootConditions = Collections.singleton(condition);
+        else
+            rootConditions = Collections.<ConditionExpression>emptySet();
+        return new ColumnRanges(columnExpression, rootConditions,
+                                Collections.singletonList(new RangeSegment(start, end)));
+    }
+
+    private static String caseInvariantPrefix(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            char ch = prefix.charAt(i);
+            if (Character.toLowerCase(ch) != Character.toUpperCase(ch))
+                return prefix.substring(0, i);
+        }
+        return prefix;
+    }
+
+    private static String asciiAlphanumericPrefix(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            char ch = prefix.charAt(i);
+            if (!(((ch >= 'a') && (ch <= 'z')) ||
+                  ((ch >= 'A') && (ch <= 'Z')) ||
+                  ((ch >= '0') && (ch <= '9'))))
+                return prefix.substring(0, i);
+        }
+        return prefix;
+    }
+
+    private static boolean collatorOrdersAscii(AkCollator collator) {
+        // Other languages have contractions and reorderings among
+        // even plain letters.
+        String scheme = collator.getScheme().toLowerCase();
+        return scheme.startsWith("en_") || scheme.startsWith("root");
+    }
+
+    /** The least string greater than everything starting with {@code prefix}
+     * in character order, or <code>null</code> if there is none.
+     */
+    private static String binaryUpperBound(String prefix) {
+        StringBuilder str = new StringBuilder(prefix);
+        while (str.length() > 0) {
+            int last = str.length() - 1;
+            char ch = str.charAt(last);
+            // Stay clear of surrogates, whose UTF-8 order differs.
+            if (ch < Character.MIN_SURROGATE - 1) {
+                str.setCharAt(last, (char)(ch + 1));
+                return str.toString();
+            }
+            str.setLength(last);
+        }
+        return null;
+    }
+
+    /** Like {@link #binaryUpperBound} but staying within letters and digits,
+     * whose relative order collators agree on.
+     */
+    private static String asciiUpperBound(String prefix) {
+        StringBuilder str = new StringBuilder(prefix);
+        while (str.length() > 0) {
+            int last = str.length() - 1;
+            char ch = str.charAt(last);
+            if (((ch >= 'a') && (ch < 'z')) ||
+                ((ch >= 'A') && (ch < 'Z')) ||
+                ((ch >= '0') && (ch < '9'))) {
+                str.setCharAt(last, (char)(ch + 1));
+                return str.toString();
+            }
+            str.setLength(last);
+        }
+        return null;
+    }
+
     private ColumnExpression columnExpression;
     private Set<? extends ConditionExpression> rootConditions;
     private List<RangeSegment> segments;
@@ -17,12 +17,14 @@
 
 package com.foundationdb.sql.server;
 
+import com.foundationdb.sql.optimizer.rule.cost.CardinalityFeedback;
 import com.foundationdb.sql.optimizer.rule.cost.CostEstimator;
 
 import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Index;
 import com.foundationdb.ais.model.Table;
 import com.foundationdb.server.service.tree.KeyCreator;
+import com.foundationdb.server.store.statistics.ColumnStatistics;
 import com.foundationdb.server.store.statistics.IndexStatistics;
 import com.foundationdb.server.store.statistics.IndexStatisticsService;
 
@@ -32,12 +34,21 @@ public class ServerCostEstimator extends CostEstimator
     private IndexStatisticsService indexStatistics;
     private boolean scaleIndexStatistics;
     private boolean testMode;
+    private CardinalityFeedback cardinalityFeedback;
 
     public ServerCostEstimator(ServerSession session,
                                ServerServiceRequirements reqs,
                                ServerOperatorCompiler compiler, KeyCreator keyCreator) {
+        this(session, reqs, compiler, keyCreator, null);
+    }
+
+    public ServerCostEstimator(ServerSession session,
+                               ServerServiceRequirements reqs,
+                               ServerOperatorCompiler compiler, KeyCreator keyCreator,
+                               CardinalityFeedback cardinalityFeedback) {
         super(compiler, keyCreator, reqs.costModel());
         this.session = session;
+        this.cardinalityFeedback = cardinalityFeedback;
         indexStatistics = reqs.indexStatistics();
         scaleIndexStatistics = Boolean.parseBoolean(getProperty("scaleIndexStatistics", "true"));
         testMode = reqs.config().testing();
@@ -48,6 +59,16 @@ public class ServerCostEstimator extends CostEstimator
         return indexStatistics.getIndexStatistics(session.getSession(), index);
     }
 
+    @Override
+    public ColumnStatistics getColumnStatistics(Column column) {
+        return indexStatistics.getColumnStatistics(session.getSession(), column);
+    }
+
+    @Override
+    public CardinalityFeedback getCardinalityFeedback() {
+        return cardinalityFeedback;
+    }
+
     @Override
     public long getTableRowCount(Table table) {
         if (!scaleIndexStatistics) {
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.server;
+
+import com.foundationdb.qp.row.ImmutableRow;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.value.ValueSources;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Cache of the complete results of deterministic read-only queries.
+ *
+ * <p>
+ *     Entries are keyed by whatever identifies the statement and its
+ *     parameter values and remember the version of each group that the
+ *     query read, as returned by
+ *     {@link com.foundationdb.server.store.Store#getGroupVersion}. An
+ *     entry is only returned while those versions are still current, so
+ *     any committed write to one of the groups invalidates it.
+ * </p>
+ * <p>
+ *     Eviction is least recently used, by estimated size in bytes. A
+ *     single result larger than a quarter of the capacity is not kept.
+ * </p>
+ */
+public class ServerResultCache
+{
+    private static final int MAX_ENTRY_FRACTION = 4;
+    private static final long ROW_OVERHEAD = 32;
+    private static final long VALUE_OVERHEAD = 16;
+    private static final long OBJECT_OVERHEAD = 32;
+
+    private final CacheCounters counters;
+    private final LinkedHashMap<Object,Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long capacity;
+    private long size;
+
+    public ServerResultCache(CacheCounters counters, long capacity) {
+        this.counters = counters;
+        this.capacity = capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public CacheCounters getCounters() {
+        return counters;
+    }
+
+    /** Whether a result of the given estimated size would be kept. */
+    public boolean fits(long resultSize) {
+        return resultSize <= capacity / MAX_ENTRY_FRACTION;
+    }
+
+    /** Get the rows cached for <code>key</code> if they were read at <code>groupVersions</code>. */
+    public synchronized List<Row> get(Object key, long[] groupVersions) {
+        Entry entry = cache.get(key);
+        if ((entry != null) && !Arrays.equals(entry.groupVersions, groupVersions)) {
+            cache.remove(key);
+            size -= entry.size;
+            entry = null;
+        }
+        if (entry != null) {
+            counters.incrementHits();
+            return entry.rows;
+        }
+        else {
+            counters.incrementMisses();
+            return null;
+        }
+    }
+
+    /** Cache <code>rows</code>, which must be immutable, as read at <code>groupVersions</code>. */
+    public synchronized void put(Object key, long[] groupVersions, List<Row> rows, long resultSize) {
+        if (!fits(resultSize)) {
+            return;
+        }
+        Entry old = cache.put(key, new Entry(groupVersions, rows, resultSize));
+        if (old != null) {
+            size -= old.size;
+        }
+        size += resultSize;
+        evict();
+    }
+
+    public synchronized void invalidate() {
+        cache.clear();
+        size = 0;
+    }
+
+    public synchronized void reset() {
+        invalidate();
+        counters.reset();
+    }
+
+    private void evict() {
+        Iterator<Entry> iter = cache.values().iterator();
+        while ((size > capacity) && iter.hasNext()) {
+            size -= iter.next().size;
+            iter.remove();
+        }
+    }
+
+    /** Copy <code>row</code> so that it can be held after its cursor moves on. */
+    public static Row copyRow(Row row) {
+        return new ImmutableRow(row);
+    }
+
+    /** Rough number of bytes used to hold <code>row</code>. */
+    public static long estimateSize(Row row) {
+        long result = ROW_OVERHEAD;
+        int nfields = row.rowType().nFields();
+        for (int i = 0; i < nfields; i++) {
+            ValueSource value = row.value(i);
+            result += VALUE_OVERHEAD;
+            if (value.isNull()) {
+                continue;
+            }
+            if (value.hasCacheValue()) {
+                result += OBJECT_OVERHEAD;
+            }
+            else {
+                switch (ValueSources.underlyingType(value)) {
+                case STRING:
+                    result += 2L * value.getString().length();
+                    break;
+                case BYTES:
+                    result += value.getBytes().length;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Turn a parameter value into something with value equality, suitable for a key. */
+    public static Object keyValue(ValueSource value) {
+        Object object = ValueSources.toObject(value);
+        if (object instanceof byte[]) {
+            object = ByteBuffer.wrap(((byte[])object).clone());
+        }
+        return object;
+    }
+
+    static final class Entry {
+        final long[] groupVersions;
+        final List<Row> rows;
+        final long size;
+
+        Entry(long[] groupVersions, List<Row> rows, long size) {
+            this.groupVersions = groupVersions;
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+}
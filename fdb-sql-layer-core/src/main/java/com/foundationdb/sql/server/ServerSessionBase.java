@@ -161,6 +161,12 @@ public abstract class ServerSessionBase extends AISBinderContext implements Serv
                                                value);
             return true;
         }
+        if ("strictReadVersion".equals(key)) {
+            reqs.txnService().setSessionOption(session,
+                                               TransactionService.SessionOption.STRICT_READ_VERSION,
+                                               value);
+            return true;
+        }
         return false;
     }
 
@@ -482,6 +488,28 @@ public abstract class ServerSessionBase extends AISBinderContext implements Serv
         }
     }
 
+    /** Can local transactions commit together with other sessions'? */
+    protected boolean isGroupCommitEnabled() {
+        return reqs.txnService().isGroupCommitEnabled();
+    }
+
+    /** Commit the local transaction started by {@link #beforeExecute}
+     * as part of a group, instead of in {@link #afterExecute}.
+     * @return <code>true</code> if the statement should be run again
+     * in the same, now reset, transaction because of a retryable conflict.
+     */
+    protected boolean groupCommitOrRetryTransaction() {
+        boolean retry = false;
+        try {
+            retry = transaction.groupCommitOrRetry();
+        }
+        finally {
+            if (!retry)
+                transaction = null;
+        }
+        return retry;
+    }
+
     /** Should be called when embedded connection is opened, possibly
      * within a routine call. */
     protected void inheritFromCall() {
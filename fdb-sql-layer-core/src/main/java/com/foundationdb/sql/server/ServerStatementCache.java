@@ -24,6 +24,11 @@ import com.foundationdb.server.util.LRUCacheMap;
  */
 public class ServerStatementCache<T extends ServerStatement>
 {
+    /** A cached statement that can find out it should be compiled again. */
+    public interface Recompilable {
+        public boolean isStale();
+    }
+
     private final CacheCounters counters;
     private final LRUCacheMap<String,T> cache;
 
@@ -43,6 +48,10 @@ public class ServerStatementCache<T extends ServerStatement>
 
     public synchronized T get(String sql) {
         T entry = cache.get(sql);
+        if ((entry instanceof Recompilable) && ((Recompilable)entry).isStale()) {
+            cache.remove(sql);
+            entry = null;
+        }
         if (entry != null)
             counters.incrementHits();
         else
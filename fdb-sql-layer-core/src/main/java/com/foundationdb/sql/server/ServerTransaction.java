@@ -57,7 +57,10 @@ public class ServerTransaction
                              PeriodicallyCommit periodicallyCommit) {
         this.session = server.getSession();
         this.txnService = server.getTransactionService();
-        txnService.beginTransaction(session);
+        if (readOnly)
+            txnService.beginReadOnlyTransaction(session);
+        else
+            txnService.beginTransaction(session);
         this.isolationLevel = txnService.setIsolationLevel(session, isolationLevel);
         this.readOnly = readOnly || txnService.isolationLevelRequiresReadOnly(session, false);
         this.periodicallyCommit = periodicallyCommit;
@@ -123,6 +126,13 @@ public class ServerTransaction
         txnService.commitTransaction(session);
     }
 
+    /** Commit transaction along with others', if enabled.
+     * @return <code>true</code> if the transaction was reset to be retried.
+     */
+    public boolean groupCommitOrRetry() {
+        return txnService.groupCommitOrRetryTransaction(session);
+    }
+
     /** Rollback transaction. */
     public void rollback() {
         txnService.rollbackTransaction(session);
@@ -20,6 +20,7 @@ package com.foundationdb.sql.server;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.operator.QueryContext;
 import com.foundationdb.server.error.AkibanInternalException;
+import com.foundationdb.server.error.InvalidParameterValueException;
 import com.foundationdb.server.error.UnknownDataTypeException;
 import com.foundationdb.server.error.UnsupportedCharsetException;
 import com.foundationdb.server.types.TCast;
@@ -37,10 +38,13 @@ import com.foundationdb.server.types.mcompat.mtypes.MString;
 import com.foundationdb.server.types.service.TypesRegistryService;
 import com.foundationdb.server.types.value.Value;
 import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.server.types.value.ValueSources;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.sql.Types;
 import java.util.Collections;
 import java.io.*;
@@ -65,14 +69,29 @@ public class ServerValueDecoder
         if (targetType == null && encoded != null) {
             throw new UnknownDataTypeException(null);
         }
-        ValueSource source;
         if (encoded == null) {
             Value value = new Value(targetType);
             value.putNull();
             bindings.setValue(index, value);
             return;
         }
-        else if (!binary) {
+        ValueSource source = decodeSource(encoded, type, binary);
+        TCast cast = typesRegistryService.getCastsResolver().cast(source.getType(), targetType);
+        TExecutionContext context =
+                new TExecutionContext(Collections.singletonList(source.getType()),
+                        targetType,
+                        queryContext);
+        Value target = new Value(targetType);
+        cast.evaluate(context, source, target);
+        bindings.setValue(index, target);
+    }
+
+    /** Decode the given non-null value into its wire type, which may
+     * then need to be cast to <code>type</code>'s own type.
+     */
+    public ValueSource decodeSource(byte[] encoded, ServerType type, boolean binary) {
+        ValueSource source;
+        if (!binary) {
             try {
                 source = new Value(MString.varchar(), new String(encoded, encoding));
             }
@@ -116,14 +135,18 @@ public class ServerValueDecoder
                     source = new Value(MString.VARCHAR.instance(s.length(), false), s);
                     break;
                 }
+                case DAYS_2000: // DATE
+                    source = decodeDays2000(encoded);
+                    break;
+                case DECIMAL_PG_NUMERIC_VAR:
+                    source = ValueSources.fromObject(decodePgNumericVar(encoded));
+                    break;
                 // Note: these types had previous implementations, but I couldn't exercise them in tests to verify
                 // either with jdbc or pg8000. If you run into them, try looking at the log for this file, it most
                 // likely has a correct starting point
                 case TIMESTAMP_FLOAT64_SECS_2000_NOTZ: // Types.TIMESTAMP
-                case DAYS_2000: // DATE
                 case TIME_FLOAT64_SECS_NOTZ: // TIME
                 case TIME_INT64_MICROS_NOTZ: // TIME
-                case DECIMAL_PG_NUMERIC_VAR:
                 default:
                     throw new UnknownDataTypeException(type.toString());
                 }
@@ -135,14 +158,7 @@ public class ServerValueDecoder
                 throw new AkibanInternalException("IO error reading from byte array", ex);
             }
         }
-        TCast cast = typesRegistryService.getCastsResolver().cast(source.getType(), targetType);
-        TExecutionContext context =
-                new TExecutionContext(Collections.singletonList(source.getType()),
-                        targetType,
-                        queryContext);
-        Value target = new Value(targetType);
-        cast.evaluate(context, source, target);
-        bindings.setValue(index, target);
+        return source;
     }
 
     private ValueSource decodeTimestampInt64Micros2000NoTZ(byte[] encoded) throws IOException {
@@ -155,6 +171,33 @@ public class ServerValueDecoder
         return source;
     }
 
+    private ValueSource decodeDays2000(byte[] encoded) throws IOException {
+        int days = getDataStream(encoded).readInt();
+        Value source = new Value(MDateAndTime.TIMESTAMP.instance(false));
+        typesTranslator.setTimestampMillisValue(source, seconds2000NoTZ(days * 86400L), 0);
+        return source;
+    }
+
+    /** Inverse of {@link ServerValueEncoder#pgNumericVar}. */
+    public static BigDecimal decodePgNumericVar(byte[] encoded) throws IOException {
+        DataInputStream dstr = getDataStream(encoded);
+        int ndigits = dstr.readShort();
+        int weight = dstr.readShort();
+        int sign = dstr.readShort() & 0xFFFF;
+        int dscale = dstr.readShort();
+        if (sign == NUMERIC_NAN)
+            throw new InvalidParameterValueException("NaN");
+        BigInteger unscaled = BigInteger.ZERO;
+        for (int i = 0; i < ndigits; i++) {
+            unscaled = unscaled.multiply(NBASE).add(BigInteger.valueOf(dstr.readShort()));
+        }
+        // The digits give the value in units of NBASE^(weight - ndigits + 1).
+        BigDecimal result = new BigDecimal(unscaled, (ndigits - weight - 1) * 4);
+        if (sign == NUMERIC_NEG)
+            result = result.negate();
+        return result.setScale(dscale, RoundingMode.HALF_UP);
+    }
+
     public ValueSource decodeIntegerType(byte[] encoded) throws IOException {
         switch (encoded.length) {
         case 1:
@@ -170,6 +213,10 @@ public class ServerValueDecoder
         }
     }
 
+    private static final int NUMERIC_NEG = 0x4000;
+    private static final int NUMERIC_NAN = 0xC000;
+    private static final BigInteger NBASE = BigInteger.valueOf(10000);
+
     private static DataInputStream getDataStream(byte[] bytes) {
         return new DataInputStream(new ByteArrayInputStream(bytes));
     }
@@ -116,6 +116,14 @@ public class ServerValueEncoder
         return encoding;
     }
 
+    public TypesTranslator getTypesTranslator() {
+        return typesTranslator;
+    }
+
+    public ZeroDateTimeBehavior getZeroDateTimeBehavior() {
+        return zeroDateTimeBehavior;
+    }
+
     public ByteArrayOutputStream getByteStream() {
         printWriter.flush();
         return byteStream;
@@ -324,7 +332,7 @@ public class ServerValueEncoder
      * conversion from local time to timezoneless just removes the
      * zone as though all days were the same length.
      */
-    private static long seconds2000NoTZ(long millis) {
+    public static long seconds2000NoTZ(long millis) {
         DateTimeZone dtz = DateTimeZone.getDefault();
         millis += dtz.getOffset(millis);
         return millis / 1000 - 946684800; // 2000-01-01 00:00:00-UTC.
@@ -344,7 +352,7 @@ public class ServerValueEncoder
     private static final short NUMERIC_NEG = 0x4000;
     private static final short NUMERIC_NAN = (short)0xC000;
 
-    private static short[] pgNumericVar(BigDecimal n) {
+    public static short[] pgNumericVar(BigDecimal n) {
         short ndigits, weight, sign, dscale;
         dscale = (short)n.scale();
         if (dscale < 0) dscale = 0;
@@ -118,11 +118,32 @@ public class ProtobufReaderWriterTest {
                         type.nullability());
         column.setType(type);
         inAIS.freeze();
-        
+
         final AkibanInformationSchema outAIS = writeAndRead(inAIS);
         compareAndAssert(inAIS, outAIS, false);
     }
 
+    @Test
+    public void tableIndexIncludedColumns() {
+        final AkibanInformationSchema inAIS = CAOIBuilderFiller.createAndFillBuilder(SCHEMA).ais(false);
+        Table component = inAIS.getTable(SCHEMA, CAOIBuilderFiller.COMPONENT_TABLE);
+        TableIndex xk = component.getIndex("xk");
+        xk.addIncludedColumn(component.getColumn("description"));
+        xk.addIncludedColumn(component.getColumn("unique_id"));
+        inAIS.freeze();
+
+        final AkibanInformationSchema outAIS = writeAndRead(inAIS);
+        compareAndAssert(inAIS, outAIS, false);
+
+        Table outComponent = outAIS.getTable(SCHEMA, CAOIBuilderFiller.COMPONENT_TABLE);
+        TableIndex outXk = outComponent.getIndex("xk");
+        assertEquals("included count", 2, outXk.getIncludedColumns().size());
+        assertSame("included 0", outComponent.getColumn("description"), outXk.getIncludedColumns().get(0));
+        assertSame("included 1", outComponent.getColumn("unique_id"), outXk.getIncludedColumns().get(1));
+        assertEquals("key columns", 1, outXk.getKeyColumns().size());
+        assertTrue("uk has none", outComponent.getIndex("uk").getIncludedColumns().isEmpty());
+    }
+
     /*
      * Stubbed out parent, similar to how table creation from the adapter works
      */
@@ -157,6 +157,12 @@ public final class OperatorTestHelper {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public List<GroupPartition> partitionGroup(Group group, int nPartitions)
+        {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public Cursor newIndexCursor(QueryContext context,
                                      IndexRowType indexType,
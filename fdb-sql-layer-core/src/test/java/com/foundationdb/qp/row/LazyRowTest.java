@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.qp.row;
+
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.qp.rowtype.ValuesRowType;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.mcompat.mtypes.MNumeric;
+import com.foundationdb.server.types.mcompat.mtypes.MString;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public final class LazyRowTest {
+    static class CountingRow extends LazyRow {
+        final int[] decodes;
+
+        CountingRow(RowType rowType) {
+            super(rowType);
+            decodes = new int[rowType.nFields()];
+        }
+
+        @Override
+        protected ValueSource decodeValue(int i) {
+            decodes[i]++;
+            if (i == 0) {
+                return new Value(rowType().typeAt(i), 1L);
+            }
+            else {
+                return new Value(rowType().typeAt(i), "v" + i);
+            }
+        }
+    }
+
+    @Test
+    public void decodesOnlyAccessedFields() {
+        CountingRow row = new CountingRow(rowType(MNumeric.BIGINT.instance(false),
+                                                  MString.varchar(),
+                                                  MString.varchar()));
+        assertEquals("v2", row.value(2).getString());
+        assertEquals("v2", row.value(2).getString());
+        assertEquals(1L, row.value(0).getInt64());
+        assertEquals("0 decodes", 1, row.decodes[0]);
+        assertEquals("1 decodes", 0, row.decodes[1]);
+        assertEquals("2 decodes", 1, row.decodes[2]);
+    }
+
+    private RowType rowType(TInstance... types) {
+        return new ValuesRowType (null, 1, types);
+    }
+}
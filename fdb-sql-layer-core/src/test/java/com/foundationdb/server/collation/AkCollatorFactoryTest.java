@@ -45,7 +45,7 @@ public class AkCollatorFactoryTest {
                 public void run() {
                     int index = threadIndex.getAndIncrement();
                     AkCollatorICU icu = (AkCollatorICU) (AkCollatorFactory.getAkCollator("sv_se_ci"));
-                    array[index] = icu.collator.get();
+                    array[index] = icu.collator();
                 }
             });
         }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.collation;
+
+import com.ibm.icu.text.Collator;
+import com.google.common.primitives.UnsignedBytes;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AkCollatorICUTest {
+    private static final String[] VALUES = {
+        "abc", "ABC", "Abc", "abd", "ab", "a-b", "a b", "", "\u00e5sa", "Asa", "\u00c5SA", "zebra", "10", "9",
+        "a much longer string that is well past the cache threshold", "A MUCH LONGER STRING THAT IS WELL PAST THE CACHE THRESHOLD",
+        "id", "ID", "Id", "\u0130D", "\u0131d"
+    };
+
+    private static AkCollatorICU collator(String scheme) {
+        return (AkCollatorICU)AkCollatorFactory.getAkCollator(scheme);
+    }
+
+    private static int sign(int n) {
+        return Integer.signum(n);
+    }
+
+    private static void checkAgainstICU(AkCollatorICU collator) {
+        Collator icu = collator.collator();
+        for (int pass = 0; pass < 2; pass++) { // Second pass hits the sort key cache.
+            for (String s1 : VALUES) {
+                byte[] expected = icu.getCollationKey(s1).toByteArray();
+                expected = Arrays.copyOf(expected, expected.length - 1);
+                assertArrayEquals(s1, expected, collator.encodeSortKeyBytes(s1));
+                assertEquals(s1, collator.hashCode(expected), collator.hashCode(s1));
+                for (String s2 : VALUES) {
+                    assertEquals(s1 + " vs " + s2,
+                                 sign(icu.compare(s1, s2)), sign(collator.compare(s1, s2)));
+                    assertEquals(s1 + " vs " + s2,
+                                 sign(icu.compare(s1, s2)),
+                                 sign(UnsignedBytes.lexicographicalComparator().compare(collator.encodeSortKeyBytes(s1),
+                                                                                        collator.encodeSortKeyBytes(s2))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void caseInsensitive() {
+        AkCollatorICU collator = collator("sv_se_ci");
+        assertEquals(false, collator.isCaseSensitive());
+        checkAgainstICU(collator);
+    }
+
+    @Test
+    public void caseSensitive() {
+        AkCollatorICU collator = collator("en_us_cs");
+        assertEquals(true, collator.isCaseSensitive());
+        checkAgainstICU(collator);
+    }
+
+    @Test
+    public void caseSensitiveAccentInsensitive() {
+        AkCollatorICU collator = collator("en_us_cs_cx");
+        assertEquals(true, collator.isCaseSensitive());
+        assertEquals(1, sign(Math.abs(collator.compare("abc", "ABC"))));
+        assertEquals(0, collator.compare("\u00e5sa", "asa"));
+        checkAgainstICU(collator);
+    }
+
+    @Test
+    public void caseInsensitiveTurkish() {
+        AkCollatorICU collator = collator("tr_tr_ci");
+        assertEquals(false, collator.isCaseSensitive());
+        // Upper case of i is dotted, so I is a different letter.
+        assertEquals(sign(collator.collator().compare("id", "ID")), sign(collator.compare("id", "ID")));
+        assertEquals(1, Math.abs(sign(collator.compare("id", "ID"))));
+        assertEquals(0, collator.compare("abc", "ABC"));
+        checkAgainstICU(collator);
+    }
+
+    @Test
+    public void cachedSortKeys() {
+        AkCollatorICU collator = collator("en_us_ci");
+        AkCollatorICU.PerThread local = collator.perThread.get();
+        byte[] first = collator.encodeSortKeyBytes("dimension");
+        int hits = local.cacheHits;
+        assertSame("Cached", first, collator.encodeSortKeyBytes("dimension"));
+        assertEquals("Hit", hits + 1, local.cacheHits);
+        for (int i = 0; i < AkCollatorICU.SORT_KEY_CACHE_SIZE + 10; i++) {
+            collator.encodeSortKeyBytes("v" + i);
+        }
+        assertEquals("Bounded", AkCollatorICU.SORT_KEY_CACHE_SIZE, local.sortKeys.size());
+    }
+}
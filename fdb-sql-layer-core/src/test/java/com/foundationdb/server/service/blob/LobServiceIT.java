@@ -17,10 +17,17 @@
 
 package com.foundationdb.server.service.blob;
 
+import com.foundationdb.server.error.FDBNotCommittedException;
+import com.foundationdb.server.service.session.Session;
 import com.foundationdb.server.service.transaction.*;
 import com.foundationdb.server.store.FDBTransactionService;
 import com.foundationdb.server.test.it.ITBase;
 import com.foundationdb.Transaction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.junit.*;
@@ -64,6 +71,77 @@ public class LobServiceIT extends ITBase {
         commit();
     }
     
+    @Test
+    public void streamLargeBlob() throws IOException {
+        byte[] large = new byte[1000000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte)(i % 251);
+        }
+        UUID id = UUID.randomUUID();
+        getOrBeginTransaction();
+        ls.createNewLob(session(), id);
+        try (OutputStream out = ls.appendBlobStream(session(), id)) {
+            out.write(large, 0, 12345);
+            out.write(large, 12345, large.length - 12345);
+        }
+        Assert.assertEquals(large.length, ls.sizeBlob(session(), id));
+        commit();
+
+        // Twice, to also read back through the chunk cache
+        for (int pass = 0; pass < 2; pass++) {
+            getOrBeginTransaction();
+            Assert.assertArrayEquals(large, ls.readBlob(session(), id));
+            Assert.assertArrayEquals(Arrays.copyOfRange(large, 70000, 70100),
+                                     ls.readBlob(session(), id, 70000, 100));
+            try (InputStream in = ls.readBlobStream(session(), id, 999990)) {
+                byte[] tail = new byte[20];
+                Assert.assertEquals(10, in.read(tail));
+                Assert.assertEquals(-1, in.read());
+            }
+            commit();
+        }
+
+        // A change is seen by the next read, not the cached chunks
+        getOrBeginTransaction();
+        ls.writeBlob(session(), id, 0, data);
+        Assert.assertArrayEquals(data, ls.readBlob(session(), id, 0, data.length));
+        commit();
+        getOrBeginTransaction();
+        Assert.assertArrayEquals(data, ls.readBlob(session(), id, 0, data.length));
+        commit();
+    }
+
+    @Test
+    public void concurrentChangesConflict() {
+        UUID id = UUID.randomUUID();
+        getOrBeginTransaction();
+        ls.createNewLob(session(), id);
+        ls.appendBlob(session(), id, new byte[200000]);
+        commit();
+
+        // Different chunks, so only the version key is shared.
+        Session other = createNewSession();
+        TransactionService ts = txnService();
+        try {
+            getOrBeginTransaction();
+            ts.beginTransaction(other);
+            ls.writeBlob(session(), id, 0, data);
+            ls.writeBlob(other, id, 150000, data);
+            commit();
+            try {
+                ts.commitTransaction(other);
+                Assert.fail("both changes committed");
+            }
+            catch (FDBNotCommittedException ex) {
+                // expected
+            }
+        }
+        finally {
+            ts.rollbackTransactionIfOpen(other);
+            other.close();
+        }
+    }
+
     @Before
     public void setUp(){
         // registration
@@ -21,6 +21,7 @@ import com.foundationdb.ais.model.AkibanInformationSchema;
 import com.foundationdb.ais.model.Column;
 import com.foundationdb.ais.model.Table;
 import com.foundationdb.ais.model.TableName;
+import com.foundationdb.server.error.InvalidParameterValueException;
 import com.foundationdb.server.service.ServiceManager;
 import com.foundationdb.server.service.config.ConfigurationService;
 import com.foundationdb.server.service.servicemanager.GuicedServiceManager;
@@ -123,6 +124,74 @@ public class ExternalDataServiceIT extends ITBase
         assertEquals(C13, str.toString());
     }
 
+    static final String C31 = "[\n" +
+        "{\"cid\":3,\"name\":\"Adams\",\"o\":[{\"oid\":301,\"cid\":3,\"order_date\":\"2010-04-01\"}]},\n" +
+        "{\"cid\":1,\"name\":\"Smith\",\"o\":[{\"oid\":101,\"cid\":1,\"order_date\":\"2012-12-12\",\"i\":[{\"iid\":10101,\"oid\":101,\"sku\":\"ABCD\"},{\"iid\":10102,\"oid\":101,\"sku\":\"1234\"}]},{\"oid\":102,\"cid\":1,\"order_date\":\"2013-01-01\"}],\"a\":[{\"aid\":101,\"cid\":1,\"state\":\"MA\"}]}\n" +
+        "]";
+
+    @Test
+    public void dumpJsonC31ByHKey() throws IOException {
+        // Root table: fetched by hkey, several keys in flight, kept in request order.
+        AkibanInformationSchema ais = ais();
+        assertNotNull(com.foundationdb.sql.optimizer.rule.PlanGenerator.generateBranchHKeyPlan(ais, ais.getTable(SCHEMA, "c"), 4));
+        assertNull(com.foundationdb.sql.optimizer.rule.PlanGenerator.generateBranchHKeyPlan(ais, ais.getTable(SCHEMA, "o"), 4));
+        ExternalDataService external =
+            serviceManager().getServiceByClass(ExternalDataService.class);
+        StringWriter str = new StringWriter();
+        PrintWriter pw = new PrintWriter(str);
+        external.dumpBranchAsJson(session(), pw, SCHEMA, "c",
+                                  Arrays.asList(Collections.singletonList((Object)"3"),
+                                                Collections.singletonList((Object)"666"),
+                                                Collections.singletonList((Object)"1")),
+                                  -1,
+                                  WITH_TXN,
+                                  options);
+        assertEquals(C31, str.toString());
+    }
+
+    @Test
+    public void dumpJsonOrphansByHKey() throws IOException {
+        // Orders and items of a customer that does not exist are in its
+        // range of the group, but are not part of any branch.
+        writeRow(tableId(SCHEMA, "o"), 401, 4, "2011-01-01");
+        writeRow(tableId(SCHEMA, "i"), 40101, 401, "WXYZ");
+        ExternalDataService external =
+            serviceManager().getServiceByClass(ExternalDataService.class);
+        StringWriter str = new StringWriter();
+        PrintWriter pw = new PrintWriter(str);
+        external.dumpBranchAsJson(session(), pw, SCHEMA, "c",
+                                  Arrays.asList(Collections.singletonList((Object)"4"),
+                                                Collections.singletonList((Object)"3")),
+                                  -1,
+                                  WITH_TXN,
+                                  options);
+        assertEquals("[\n" +
+                     "{\"cid\":3,\"name\":\"Adams\",\"o\":[{\"oid\":301,\"cid\":3,\"order_date\":\"2010-04-01\"}]}\n" +
+                     "]",
+                     str.toString());
+        str = new StringWriter();
+        pw = new PrintWriter(str);
+        external.dumpBranchAsJson(session(), pw, SCHEMA, "c",
+                                  Collections.singletonList(Collections.singletonList((Object)"4")),
+                                  -1,
+                                  WITH_TXN,
+                                  options);
+        assertEquals("[]", str.toString());
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void dumpJsonNonNumericKey() throws IOException {
+        ExternalDataService external =
+            serviceManager().getServiceByClass(ExternalDataService.class);
+        StringWriter str = new StringWriter();
+        PrintWriter pw = new PrintWriter(str);
+        external.dumpBranchAsJson(session(), pw, SCHEMA, "c",
+                                  Collections.singletonList(Collections.singletonList((Object)"abc")),
+                                  -1,
+                                  WITH_TXN,
+                                  options);
+    }
+
     static final String O101 = "[\n" +
         "{\"oid\":101,\"cid\":1,\"order_date\":\"2012-12-12\",\"i\":[{\"iid\":10101,\"oid\":101,\"sku\":\"ABCD\"},{\"iid\":10102,\"oid\":101,\"sku\":\"1234\"}]}\n" +
         "]";
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2009-2013 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.externaldata;
+
+import com.foundationdb.ais.model.AkibanInformationSchema;
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Table;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.error.ExternalRowReaderException;
+import com.foundationdb.server.rowdata.SchemaFactory;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.mcompat.mtypes.MTypesTranslator;
+import com.foundationdb.server.types.service.TypesRegistryServiceImpl;
+import com.foundationdb.server.types.value.ValueSources;
+import com.foundationdb.sql.server.ServerType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+public final class PostgresBinaryRowReaderTest {
+    public static final Object[][] ROWS = {
+        { 1, "foo" },
+        { 2, null },
+        { 3, "\u2603" }
+    };
+
+    public static final String DDL =
+        "CREATE TABLE t1(id INT NOT NULL PRIMARY KEY, s VARCHAR(32))";
+
+    static class TestType extends ServerType {
+        private final BinaryEncoding encoding;
+
+        public TestType(TInstance type, BinaryEncoding encoding) {
+            super(type);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public BinaryEncoding getBinaryEncoding() {
+            return encoding;
+        }
+    }
+
+    @Test
+    public void reader() throws Exception {
+        InputStream istr = new ByteArrayInputStream(encode(ROWS));
+        PostgresBinaryRowReader reader = reader(istr);
+        List<Row> rows = new ArrayList<>();
+        Row row;
+        while ((row = reader.nextRow()) != null)
+            rows.add(row);
+        istr.close();
+        assertEquals("number of rows", ROWS.length, rows.size());
+        for (int i = 0; i < ROWS.length; i++) {
+            Object[] orow = ROWS[i];
+            row = rows.get(i);
+            assertEquals("row " + i + " size", orow.length, row.rowType().nFields());
+            for (int j = 0; j < orow.length; j++) {
+                assertEquals("row " + i + " col " + j, orow[j], ValueSources.toObject(row.value(j)));
+            }
+        }
+    }
+
+    @Test(expected = ExternalRowReaderException.class)
+    public void badSignature() throws Exception {
+        InputStream istr = new ByteArrayInputStream("1,foo\n".getBytes("UTF-8"));
+        PostgresBinaryRowReader reader = reader(istr);
+        reader.nextRow();
+    }
+
+    private static PostgresBinaryRowReader reader(InputStream istr) {
+        SchemaFactory schemaFactory = new SchemaFactory("test");
+        AkibanInformationSchema ais = schemaFactory.aisWithRowDefs(DDL);
+        Table t1 = ais.getTable("test", "t1");
+        List<Column> columns = t1.getColumns();
+        List<ServerType> types = new ArrayList<>();
+        types.add(new TestType(columns.get(0).getType(), ServerType.BinaryEncoding.INT_32));
+        types.add(new TestType(columns.get(1).getType(), ServerType.BinaryEncoding.STRING_BYTES));
+        return new PostgresBinaryRowReader(t1, columns, types, istr, "UTF-8",
+                                           null, MTypesTranslator.INSTANCE,
+                                           TypesRegistryServiceImpl.createRegistryService());
+    }
+
+    private static byte[] encode(Object[][] rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream ostr = new DataOutputStream(bytes);
+        ostr.write(PostgresBinaryRowReader.SIGNATURE);
+        ostr.writeInt(0);
+        ostr.writeInt(0);
+        for (Object[] row : rows) {
+            ostr.writeShort(row.length);
+            ostr.writeInt(4);
+            ostr.writeInt((Integer)row[0]);
+            if (row[1] == null) {
+                ostr.writeInt(-1);
+            }
+            else {
+                byte[] s = ((String)row[1]).getBytes("UTF-8");
+                ostr.writeInt(s.length);
+                ostr.write(s);
+            }
+        }
+        ostr.writeShort(-1);
+        ostr.close();
+        return bytes.toByteArray();
+    }
+
+}
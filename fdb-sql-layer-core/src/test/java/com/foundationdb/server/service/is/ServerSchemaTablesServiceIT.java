@@ -33,6 +33,7 @@ import com.foundationdb.qp.rowtype.Schema;
 import com.foundationdb.qp.rowtype.TableRowType;
 import com.foundationdb.qp.rowtype.ValuesRowType;
 import com.foundationdb.qp.util.SchemaCache;
+import com.foundationdb.server.service.monitor.MonitorService;
 import com.foundationdb.server.service.servicemanager.GuicedServiceManager;
 import com.foundationdb.server.test.it.ITBase;
 import com.foundationdb.server.test.it.qp.TestRow;
@@ -40,6 +41,7 @@ import com.foundationdb.server.types.value.Value;
 import com.foundationdb.server.types.TPreptimeValue;
 import com.foundationdb.server.types.texpressions.TPreparedExpression;
 import com.foundationdb.server.types.texpressions.TPreparedLiteral;
+import com.foundationdb.sql.server.ServerSessionMonitor;
 
 import org.junit.Test;
 
@@ -48,7 +50,9 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class ServerSchemaTablesServiceIT extends ITBase
 {
@@ -66,7 +70,7 @@ public class ServerSchemaTablesServiceIT extends ITBase
     @Test
     public void examine() {
         AkibanInformationSchema ais = ais();
-        assertEquals ("Table count", 13, ServerSchemaTablesServiceImpl.createTablesToRegister(ddl().getTypesTranslator()).getTables().size());
+        assertEquals ("Table count", 14, ServerSchemaTablesServiceImpl.createTablesToRegister(ddl().getTypesTranslator()).getTables().size());
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.ERROR_CODES));
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.ERROR_CODE_CLASSES));
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.SERVER_INSTANCE_SUMMARY));
@@ -80,6 +84,7 @@ public class ServerSchemaTablesServiceIT extends ITBase
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.SERVER_PREPARED_STATEMENTS));
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.SERVER_CURSORS));
         assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.SERVER_USERS));
+        assertNotNull (ais.getTable(ServerSchemaTablesServiceImpl.SERVER_STATEMENT_RESOURCES));
     }
     
     @Test
@@ -165,6 +170,34 @@ public class ServerSchemaTablesServiceIT extends ITBase
         checkTable(expected,ServerSchemaTablesServiceImpl.SERVER_USERS);
     }
     
+    @Test
+    public void testServerStatementResources() {
+        int tid = createTable("test", "t", "id int not null primary key", "name varchar(16)");
+        MonitorService monitor = serviceManager().getMonitorService();
+        ServerSessionMonitor sessionMonitor = new ServerSessionMonitor("test", monitor.allocateSessionId());
+        monitor.registerSessionMonitor(sessionMonitor, session());
+        try {
+            sessionMonitor.startStatement("INSERT INTO t VALUES(1, 'a')", System.currentTimeMillis());
+            writeRow(tid, 1, "a");
+            sessionMonitor.endStatement(1);
+        }
+        finally {
+            monitor.deregisterSessionMonitor(sessionMonitor, session());
+        }
+
+        List<Row> rows = scanTable(ServerSchemaTablesServiceImpl.SERVER_STATEMENT_RESOURCES);
+        assertEquals(1, rows.size());
+        Row row = rows.get(0);
+        assertEquals(sessionMonitor.getSessionId(), row.value(0).getInt64());
+        assertEquals("INSERT INTO t VALUES(1, 'a')", row.value(1).getString());
+        assertFalse("end_time", row.value(3).isNull());
+        assertEquals(1, row.value(4).getInt64());
+        assertTrue("keys_written", row.value(9).getInt64() >= 1);
+        assertTrue("bytes_written", row.value(10).getInt64() > 0);
+        assertEquals("retries", 0, row.value(11).getInt64());
+        assertEquals("sort_spill_bytes", 0, row.value(12).getInt64());
+    }
+
     @Test
     public void testServerPreparedStatements() {
         final Object[][] expected = { 
@@ -228,6 +261,26 @@ public class ServerSchemaTablesServiceIT extends ITBase
         compareRows(rows, cursor, true);
     }
 
+    private List<Row> scanTable(TableName tableName) {
+        Table table = ais().getTable(tableName);
+        VirtualAdapter adapter = new VirtualAdapter(session(), configService());
+        QueryContext queryContext = new SimpleQueryContext(adapter);
+        Cursor cursor = API.cursor(API.groupScan_Default(table.getGroup()),
+                                   queryContext, queryContext.createBindings());
+        List<Row> rows = new ArrayList<>();
+        cursor.openTopLevel();
+        try {
+            Row row;
+            while ((row = cursor.next()) != null) {
+                rows.add(row);
+            }
+        }
+        finally {
+            cursor.closeTopLevel();
+        }
+        return rows;
+    }
+
     private void checkTable (Object[][] expected, TableName table) {
         Table serverTable = ais().getTable(table);
         Schema schema = SchemaCache.globalSchema(ais());
@@ -102,6 +102,29 @@ public class MonitorServiceIT extends ITBase {
         assertEquals(0, getMonitorService().getSessionMonitors().size());
     }
 
+    @Test
+    public void testStatementResources() throws Exception {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT c.name, o.oid FROM c, o WHERE c.cid = o.cid")) {
+            int count = 0;
+            while (rs.next()) count++;
+            assertEquals(3, count);
+        }
+        StatementResources resources = null;
+        for (StatementResources recent : getMonitorService().getRecentStatementResources()) {
+            if (recent.getStatement().startsWith("SELECT c.name")) {
+                resources = recent;
+            }
+        }
+        assertNotNull("recent statement", resources);
+        assertTrue("ended", resources.getEndTimeMillis() > 0);
+        assertTrue("rows scanned", resources.getTotalRowsScanned() > 0);
+        assertTrue("keys read", resources.getKeysRead() > 0);
+        assertTrue("bytes read", resources.getBytesRead() > 0);
+        assertEquals("keys written", 0, resources.getKeysWritten());
+    }
+
     @Test
     public void testDDL() throws Exception {
         long count = getMonitorService().getCount(StatementTypes.STATEMENT);
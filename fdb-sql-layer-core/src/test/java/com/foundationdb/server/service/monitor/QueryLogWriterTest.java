@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.monitor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.foundationdb.util.JsonUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class QueryLogWriterTest
+{
+    private File dir;
+    private File file;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("querylog").toFile();
+        file = new File(dir, "queries.log");
+    }
+
+    @After
+    public void deleteDir() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static QueryLogWriter.Entry entry(int n) {
+        return new QueryLogWriter.Entry(1000000L + n, n, "user" + n, n * 10, n, null,
+                                        "SELECT " + n);
+    }
+
+    @Test
+    public void text() throws IOException {
+        QueryLogWriter writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.TEXT, 16, 0, 0, 10);
+        assertTrue(writer.open());
+        assertTrue(writer.offer(entry(1)));
+        assertTrue(writer.offer(new QueryLogWriter.Entry(0, 2, null, 5, -1, "Failed", "SELECT x")));
+        writer.close();
+        List<String> lines = readLines(file);
+        assertEquals(12, lines.size());
+        assertEquals("# session_id=1", lines.get(1));
+        assertEquals("# execution_time=10", lines.get(2));
+        assertEquals("# rows_processed=1", lines.get(3));
+        assertEquals("SELECT 1", lines.get(4));
+        assertEquals("# error_msg=Failed", lines.get(9));
+    }
+
+    @Test
+    public void json() throws IOException {
+        QueryLogWriter writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.JSON, 16, 0, 0, 10);
+        assertTrue(writer.open());
+        for (int i = 0; i < 100; i++) {
+            writer.offer(entry(i));
+        }
+        writer.close();
+        List<String> lines = readLines(file);
+        assertEquals(100 - writer.getDropped(), lines.size());
+        for (String line : lines) {
+            JsonNode node = JsonUtils.readTree(line);
+            int n = node.get("session_id").asInt();
+            assertEquals("user" + n, node.get("user").asText());
+            assertEquals("SELECT " + n, node.get("sql").asText());
+        }
+    }
+
+    @Test
+    public void binary() throws IOException {
+        QueryLogWriter writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.BINARY, 1024, 0, 0, 10);
+        assertTrue(writer.open());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.offer(entry(i)));
+        }
+        writer.close();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] magic = new byte[QueryLogWriter.BINARY_MAGIC.length];
+            in.readFully(magic);
+            assertTrue(Arrays.equals(QueryLogWriter.BINARY_MAGIC, magic));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(1000000L + i, in.readLong());
+                assertEquals(i, in.readInt());
+                assertEquals(i * 10, in.readLong());
+                assertEquals(i, in.readInt());
+                assertEquals("user" + i, readString(in));
+                assertEquals(null, readString(in));
+                assertEquals("SELECT " + i, readString(in));
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void rotate() throws IOException {
+        QueryLogWriter writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.JSON, 1024, 200, 2, 10);
+        assertTrue(writer.open());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(writer.offer(entry(i)));
+        }
+        writer.close();
+        assertTrue(file.exists());
+        assertTrue(new File(file.getPath() + ".1").exists());
+        assertTrue(new File(file.getPath() + ".2").exists());
+        assertFalse(new File(file.getPath() + ".3").exists());
+        List<String> lines = readLines(file);
+        assertEquals("SELECT 99", JsonUtils.readTree(lines.get(lines.size() - 1)).get("sql").asText());
+    }
+
+    @Test
+    public void rotateAppended() throws IOException {
+        QueryLogWriter writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.JSON, 1024, 50, 2, 10);
+        assertTrue(writer.open());
+        assertTrue(writer.offer(entry(1)));
+        writer.close();
+        assertTrue(file.length() >= 50);
+        assertFalse(new File(file.getPath() + ".1").exists());
+        // Reopening appends, but the existing contents count toward the limit.
+        writer = new QueryLogWriter(file.getPath(), QueryLogWriter.Format.JSON, 1024, 50, 2, 10);
+        assertTrue(writer.open());
+        assertTrue(writer.offer(entry(2)));
+        writer.close();
+        assertEquals(1, readLines(new File(file.getPath() + ".1")).size());
+        List<String> lines = readLines(file);
+        assertEquals(1, lines.size());
+        assertEquals("SELECT 2", JsonUtils.readTree(lines.get(0)).get("sql").asText());
+    }
+
+    @Test
+    public void rateLimit() {
+        MonitorServiceImpl.RateLimit rate = new MonitorServiceImpl.RateLimit();
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (rate.tryAcquire(5)) allowed++;
+        }
+        // Could straddle a second boundary.
+        assertTrue(allowed >= 5 && allowed <= 10);
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
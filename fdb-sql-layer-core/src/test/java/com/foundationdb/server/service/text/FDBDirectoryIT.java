@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.service.text;
+
+import com.foundationdb.Transaction;
+import com.foundationdb.async.Function;
+import com.foundationdb.directory.PathUtil;
+import com.foundationdb.server.test.it.FDBITBase;
+import com.foundationdb.subspace.Subspace;
+import com.foundationdb.tuple.Tuple2;
+
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FDBDirectoryIT extends FDBITBase
+{
+    private Subspace subspace;
+    private FDBDirectoryCache cache;
+
+    @Before
+    public void createSubspace() {
+        subspace = fdbHolder().getRootDirectory().createOrOpen(fdbHolder().getTransactionContext(),
+                                                               PathUtil.from("fdb_directory_test")).get();
+        FDBDirectory.clear(fdbHolder().getDatabase(), subspace);
+        cache = new FDBDirectoryCache(1024 * 1024);
+    }
+
+    @After
+    public void clearSubspace() {
+        FDBDirectory.clear(fdbHolder().getDatabase(), subspace);
+    }
+
+    private FDBDirectory directory(String nodeID) {
+        return directory(nodeID, 60000, 0);
+    }
+
+    private FDBDirectory directory(String nodeID, long leaseMillis, long skewMillis) {
+        return directory(nodeID, leaseMillis, skewMillis, 60000);
+    }
+
+    private FDBDirectory directory(String nodeID, long leaseMillis, long skewMillis, long deleteGraceMillis) {
+        return new FDBDirectory(fdbHolder().getDatabase(), subspace, cache,
+                                nodeID, leaseMillis, skewMillis, deleteGraceMillis);
+    }
+
+    @Test
+    public void writeRead() throws Exception {
+        FDBDirectory dir = directory("node1");
+        byte[] small = generateBytes(100);
+        byte[] large = generateBytes(3 * FDBDirectory.BLOCK_SIZE + 17);
+        writeFile(dir, "small", small);
+        writeFile(dir, "large", large);
+        String[] names = dir.listAll();
+        Arrays.sort(names);
+        assertArrayEquals(new String[] { "large", "small" }, names);
+        assertEquals(large.length, dir.fileLength("large"));
+        assertArrayEquals(small, readFile(dir, "small"));
+        assertArrayEquals(large, readFile(dir, "large"));
+        // Again, now from the cache and through another node's directory
+        assertArrayEquals(large, readFile(directory("node2"), "large"));
+    }
+
+    @Test
+    public void overwrite() throws Exception {
+        FDBDirectory dir = directory("node1");
+        writeFile(dir, "segments.gen", generateBytes(50));
+        assertEquals(50, readFile(dir, "segments.gen").length);
+        byte[] replacement = generateBytes(20);
+        writeFile(dir, "segments.gen", replacement);
+        assertArrayEquals(replacement, readFile(dir, "segments.gen"));
+    }
+
+    @Test(expected=FileNotFoundException.class)
+    public void delete() throws Exception {
+        FDBDirectory dir = directory("node1");
+        writeFile(dir, "f", generateBytes(10));
+        assertTrue(dir.fileExists("f"));
+        dir.deleteFile("f");
+        assertFalse(dir.fileExists("f"));
+        dir.openInput("f", IOContext.DEFAULT);
+    }
+
+    @Test
+    public void deletedContentsKeptForOpenInputs() throws Exception {
+        FDBDirectory writer = directory("node1", 60000, 0, 200);
+        FDBDirectory reader = directory("node2", 60000, 0, 200);
+        byte[] bytes = generateBytes(100);
+        writeFile(writer, "f", bytes);
+        IndexInput open = reader.openInput("f", IOContext.DEFAULT);
+        writer.deleteFile("f");
+        assertFalse(reader.fileExists("f"));
+        byte[] read = new byte[bytes.length];
+        open.readBytes(read, 0, read.length);
+        open.close();
+        assertArrayEquals(bytes, read);
+        assertTrue(hasContents("f"));
+        // Once past the grace period, the next delete clears them.
+        Thread.sleep(300);
+        writeFile(writer, "g", generateBytes(10));
+        writer.deleteFile("g");
+        assertFalse(hasContents("f"));
+        assertTrue(hasContents("g"));
+    }
+
+    @Test
+    public void lockHeldByOneNode() throws Exception {
+        Lock lock1 = directory("node1").makeLock("write.lock");
+        Lock lock2 = directory("node2").makeLock("write.lock");
+        assertTrue(lock1.obtain());
+        assertTrue(lock2.isLocked());
+        assertFalse(lock2.obtain());
+        lock1.release();
+        assertTrue(lock2.obtain());
+        lock2.release();
+        assertFalse(lock1.isLocked());
+    }
+
+    @Test
+    public void expiredLockTakenOverAfterSkew() throws Exception {
+        FDBDirectory dir1 = directory("node1", 100, 400);
+        FDBDirectory dir2 = directory("node2", 100, 400);
+        assertTrue(dir1.makeLock("write.lock").obtain());
+        assertTrue(dir1.holdsLocks());
+        Thread.sleep(200);
+        // Expired by node1's clock, but maybe not by node2's.
+        assertTrue(dir2.isLockedElsewhere("write.lock"));
+        assertFalse(dir2.makeLock("write.lock").obtain());
+        Thread.sleep(400);
+        assertFalse(dir2.isLockedElsewhere("write.lock"));
+        assertTrue(dir2.makeLock("write.lock").obtain());
+        assertFalse(dir1.renewLocks());
+        assertFalse(dir1.holdsLocks());
+        assertTrue(dir1.isLockedElsewhere("write.lock"));
+    }
+
+    @Test
+    public void renewKeepsLock() throws Exception {
+        FDBDirectory dir1 = directory("node1", 500, 0);
+        FDBDirectory dir2 = directory("node2", 500, 0);
+        assertTrue(dir1.makeLock("write.lock").obtain());
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(200);
+            assertTrue(dir1.renewLocks());
+        }
+        assertFalse(dir2.makeLock("write.lock").obtain());
+    }
+
+    @Test
+    public void writesFencedByOtherNodesLock() throws Exception {
+        FDBDirectory dir1 = directory("node1");
+        FDBDirectory dir2 = directory("node2");
+        writeFile(dir1, "f", generateBytes(10));
+        IndexOutput pending = dir1.createOutput("g", IOContext.DEFAULT);
+        pending.writeBytes(generateBytes(10), 10);
+        assertTrue(dir2.makeLock("write.lock").obtain());
+        try {
+            dir1.createOutput("h", IOContext.DEFAULT);
+            fail("created while locked elsewhere");
+        }
+        catch (LockObtainFailedException ex) {
+            // expected
+        }
+        try {
+            dir1.deleteFile("f");
+            fail("deleted while locked elsewhere");
+        }
+        catch (LockObtainFailedException ex) {
+            // expected
+        }
+        try {
+            pending.close();
+            fail("finished while locked elsewhere");
+        }
+        catch (LockObtainFailedException ex) {
+            // expected
+        }
+        // The lock holder itself can still write.
+        writeFile(dir2, "h", generateBytes(5));
+        dir2.deleteFile("f");
+    }
+
+    private boolean hasContents(final String name) {
+        return fdbHolder().getDatabase().run(new Function<Transaction,Boolean>() {
+            @Override
+            public Boolean apply(Transaction tr) {
+                return tr.getRange(subspace.get("D").range(Tuple2.from(name)), 1).iterator().hasNext();
+            }
+        });
+    }
+
+    private static void writeFile(FDBDirectory dir, String name, byte[] bytes) throws Exception {
+        IndexOutput output = dir.createOutput(name, IOContext.DEFAULT);
+        output.writeBytes(bytes, bytes.length);
+        output.close();
+    }
+
+    private static byte[] readFile(FDBDirectory dir, String name) throws Exception {
+        IndexInput input = dir.openInput(name, IOContext.DEFAULT);
+        byte[] bytes = new byte[(int)input.length()];
+        input.readBytes(bytes, 0, bytes.length);
+        input.close();
+        return bytes;
+    }
+
+    private static byte[] generateBytes(int len) {
+        byte[] bytes = new byte[len];
+        for(int i = 0; i < len; ++i) {
+            bytes[i] = (byte)(i % 251);
+        }
+        return bytes;
+    }
+}
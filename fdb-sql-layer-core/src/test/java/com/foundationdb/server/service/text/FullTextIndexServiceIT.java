@@ -162,6 +162,31 @@ public class FullTextIndexServiceIT extends FullTextIndexServiceITBase
         ftScanAndCompare(builder, "flintstone", 15, expected3);
     }
 
+    @Test
+    public void updateSeveralIndexes() throws InterruptedException {
+        FullTextIndex cIndex = createFullTextIndex(SCHEMA, "c", "idx_c", "name");
+        FullTextIndex aIndex = createFullTextIndex(SCHEMA, "a", "idx_a", "state");
+        RowType cRowType = rowType("c");
+        RowType aRowType = rowType("a");
+        FullTextQueryBuilder cBuilder = new FullTextQueryBuilder(cIndex, ais(), queryContext);
+        FullTextQueryBuilder aBuilder = new FullTextQueryBuilder(aIndex, ais(), queryContext);
+
+        // Interleave changes to both indexes, including a removal
+        writeRow(c, 4, "Pebbles Flintstone");
+        writeRow(a, 401, 4, "VT");
+        writeRow(c, 5, "Bamm-Bamm Rubble");
+        writeRow(a, 501, 5, "VT");
+        deleteRow(a, 301, 3, "MA");
+        waitUpdate();
+
+        ftScanAndCompare(cBuilder, "flintstone", 15,
+                         new Row[] { row(cRowType, 1L), row(cRowType, 3L), row(cRowType, 4L) });
+        ftScanAndCompare(aBuilder, "VT", 15,
+                         new Row[] { row(aRowType, 4L, 401L), row(aRowType, 5L, 501L) });
+        ftScanAndCompare(aBuilder, "MA", 15,
+                         new Row[] { row(aRowType, 1L, 101L) });
+    }
+
     @Test
     public void cDown() throws InterruptedException {
         FullTextIndex index = createFullTextIndex(
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.server.store;
+
+import com.foundationdb.FDBException;
+import com.foundationdb.Transaction;
+import com.foundationdb.async.ReadyFuture;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class FDBGroupCommitterTest
+{
+    static final int MAX_BYTES = 1000;
+
+    /** Logs commits, and writes if it is a group's, to a shared list, prefixed with its name. */
+    static class FakeTransaction implements InvocationHandler {
+        final String name;
+        final long readVersion, committedVersion;
+        final List<String> log;
+        FDBException commitError;
+
+        FakeTransaction(String name, long readVersion, long committedVersion, List<String> log) {
+            this.name = name;
+            this.readVersion = readVersion;
+            this.committedVersion = committedVersion;
+            this.log = log;
+        }
+
+        Transaction create() {
+            return (Transaction)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                       new Class<?>[] { Transaction.class },
+                                                       this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+            case "getReadVersion":
+                return new ReadyFuture<>(readVersion);
+            case "get":
+                return new ReadyFuture<>((byte[])null);
+            case "getCommittedVersion":
+                return committedVersion;
+            case "commit":
+                log.add(name + ".commit");
+                if (commitError != null) {
+                    return new ReadyFuture<Void>(commitError);
+                }
+                return new ReadyFuture<>((Void)null);
+            case "setReadVersion":
+            case "set":
+            case "clear":
+            case "addReadConflictRange":
+                if (!"group".equals(name)) {
+                    return null;
+                }
+                StringBuilder str = new StringBuilder(name).append('.').append(method.getName());
+                for (Object arg : args) {
+                    str.append(' ').append((arg instanceof byte[]) ? new String((byte[])arg) : arg);
+                }
+                log.add(str.toString());
+                return null;
+            default:
+                return null;
+            }
+        }
+    }
+
+    static class TestCommitter extends FDBGroupCommitter {
+        final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        final FakeTransaction group = new FakeTransaction("group", 0, 100, log);
+
+        TestCommitter(long windowMillis, int maxMembers) {
+            super(windowMillis, maxMembers);
+        }
+
+        @Override
+        protected Transaction createTransaction() {
+            return group.create();
+        }
+
+        FDBRecordingTransaction member(String name, long readVersion) {
+            FakeTransaction fake = new FakeTransaction(name, readVersion, readVersion + 1, log);
+            return new FDBRecordingTransaction(fake.create(), MAX_BYTES);
+        }
+
+        List<Long> commitGroup(FDBRecordingTransaction... transactions) {
+            List<Member> members = new ArrayList<>();
+            for (FDBRecordingTransaction transaction : transactions) {
+                members.add(new Member(transaction));
+            }
+            commitGroup(members);
+            List<Long> versions = new ArrayList<>();
+            for (Member member : members) {
+                versions.add(member.committed.get());
+            }
+            return versions;
+        }
+    }
+
+    static byte[] bytes(String str) {
+        return str.getBytes();
+    }
+
+    @Test
+    public void mergesIndependentWrites() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        FDBRecordingTransaction a = committer.member("a", 20);
+        a.get(bytes("x"));
+        a.set(bytes("a"), bytes("1"));
+        FDBRecordingTransaction b = committer.member("b", 10);
+        b.clear(bytes("b"));
+        assertEquals(Arrays.asList(100L, 100L), committer.commitGroup(a, b));
+        assertEquals(Arrays.asList("group.setReadVersion 10",
+                                   "group.addReadConflictRange x x\0",
+                                   "group.set a 1",
+                                   "group.clear b",
+                                   "group.commit"),
+                     committer.log);
+        assertEquals(2, committer.getMerged());
+    }
+
+    @Test
+    public void laterReaderCommitsAlone() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.set(bytes("k"), bytes("1"));
+        FDBRecordingTransaction b = committer.member("b", 10);
+        b.getRange(bytes("j"), bytes("l"));
+        b.set(bytes("m"), bytes("2"));
+        FDBRecordingTransaction c = committer.member("c", 10);
+        c.set(bytes("n"), bytes("3"));
+        assertEquals(Arrays.asList(100L, 11L, 100L), committer.commitGroup(a, b, c));
+        assertEquals(Arrays.asList("b.commit",
+                                   "group.setReadVersion 10",
+                                   "group.set k 1",
+                                   "group.set n 3",
+                                   "group.commit"),
+                     committer.log);
+    }
+
+    @Test
+    public void conflictFallsBackToMembers() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        committer.group.commitError = new FDBException("not_committed", 1020);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.set(bytes("a"), bytes("1"));
+        FDBRecordingTransaction b = committer.member("b", 20);
+        b.set(bytes("b"), bytes("2"));
+        assertEquals(Arrays.asList(11L, 21L), committer.commitGroup(a, b));
+        assertTrue(committer.log.containsAll(Arrays.asList("group.commit", "a.commit", "b.commit")));
+        assertEquals(0, committer.getMerged());
+    }
+
+    @Test
+    public void unknownResultFailsEveryMember() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        committer.group.commitError = new FDBException("commit_unknown_result", 1021);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.set(bytes("a"), bytes("1"));
+        FDBRecordingTransaction b = committer.member("b", 10);
+        b.set(bytes("b"), bytes("2"));
+        try {
+            committer.commitGroup(a, b);
+            fail("expected exception");
+        }
+        catch (FDBException ex) {
+            assertEquals(1021, ex.getCode());
+        }
+        assertTrue(!committer.log.contains("a.commit") && !committer.log.contains("b.commit"));
+    }
+
+    @Test
+    public void unreplayableCommitsAlone() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.options();
+        a.set(bytes("a"), bytes("1"));
+        FDBRecordingTransaction b = committer.member("b", 10);
+        b.set(bytes("b"), new byte[MAX_BYTES]);
+        assertEquals(Arrays.asList(11L, 11L), committer.commitGroup(a, b));
+        assertEquals(Arrays.asList("a.commit", "b.commit"), committer.log);
+    }
+
+    @Test
+    public void resetRecordsAgain() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.set(bytes("old"), new byte[MAX_BYTES]);
+        assertTrue(!a.isReplayable());
+        a.reset();
+        a.set(bytes("a"), bytes("1"));
+        assertTrue(a.isReplayable());
+        FDBRecordingTransaction b = committer.member("b", 10);
+        b.set(bytes("b"), bytes("2"));
+        assertEquals(Arrays.asList(100L, 100L), committer.commitGroup(a, b));
+        assertEquals(Arrays.asList("group.setReadVersion 10",
+                                   "group.set a 1",
+                                   "group.set b 2",
+                                   "group.commit"),
+                     committer.log);
+    }
+
+    @Test
+    public void fullGroupCommitsEarly() throws Exception {
+        final TestCommitter committer = new TestCommitter(60000, 4);
+        final List<Long> versions = Collections.synchronizedList(new ArrayList<Long>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final FDBRecordingTransaction member = committer.member("m" + i, 10);
+            member.set(bytes("k" + i), bytes("v"));
+            threads.add(new Thread() {
+                    @Override
+                    public void run() {
+                        versions.add(committer.commit(member).get());
+                    }
+                });
+        }
+        long start = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertTrue("waited for window", System.currentTimeMillis() - start < 10000);
+        assertEquals(Arrays.asList(100L, 100L, 100L, 100L), versions);
+        assertEquals(1, committer.getGroups());
+        assertEquals(4, committer.getMembers());
+        assertEquals(4, committer.getMerged());
+        assertEquals(0, committer.formingSize());
+    }
+
+    @Test
+    public void singleCommitsAlone() {
+        TestCommitter committer = new TestCommitter(1, 10);
+        FDBRecordingTransaction a = committer.member("a", 10);
+        a.set(bytes("a"), bytes("1"));
+        assertEquals(11L, (long)committer.commit(a).get());
+        assertEquals(Arrays.asList("a.commit"), committer.log);
+        assertEquals(0, committer.getMerged());
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store;
+
+import com.foundationdb.FDBException;
+import com.foundationdb.async.Future;
+import com.foundationdb.async.ReadyFuture;
+import com.foundationdb.async.SettableFuture;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public final class FDBReadVersionCacheTest
+{
+    private static final long MILLIS = 1000000L;
+
+    /** Hands out queued futures and reads a manual clock. */
+    static class TestCache extends FDBReadVersionCache {
+        final Deque<Future<Long>> futures = new ArrayDeque<>();
+        long now = 1000 * MILLIS;
+
+        TestCache() {
+            super(10);
+        }
+
+        @Override
+        protected synchronized Future<Long> fetchReadVersion() {
+            return futures.removeFirst();
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+
+        synchronized void next(long version) {
+            futures.addLast(new ReadyFuture<>(version));
+        }
+
+        synchronized SettableFuture<Long> nextPending() {
+            SettableFuture<Long> future = new SettableFuture<>();
+            futures.addLast(future);
+            return future;
+        }
+    }
+
+    @Test
+    public void reuseWithinStaleness() {
+        TestCache cache = new TestCache();
+        cache.next(100);
+        assertEquals(100, cache.getReadVersion());
+        cache.now += 2 * MILLIS;
+        assertEquals(100, cache.getReadVersion());
+        assertEquals(1, cache.getFetches());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void expired() {
+        TestCache cache = new TestCache();
+        cache.next(100);
+        cache.next(200);
+        assertEquals(100, cache.getReadVersion());
+        cache.now += 11 * MILLIS;
+        assertEquals(200, cache.getReadVersion());
+        assertEquals(2, cache.getFetches());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void notBeforeLocalCommit() {
+        TestCache cache = new TestCache();
+        cache.next(100);
+        cache.next(200);
+        assertEquals(100, cache.getReadVersion());
+        cache.committed(150);
+        assertEquals(200, cache.getReadVersion());
+        cache.committed(120);
+        assertEquals(200, cache.getReadVersion());
+        assertEquals(2, cache.getFetches());
+    }
+
+    @Test
+    public void refreshAhead() {
+        TestCache cache = new TestCache();
+        cache.next(100);
+        assertEquals(100, cache.getReadVersion());
+        SettableFuture<Long> pending = cache.nextPending();
+        cache.now += 6 * MILLIS;
+        assertEquals(100, cache.getReadVersion());
+        assertEquals(100, cache.getReadVersion());
+        assertEquals(2, cache.getFetches());
+        pending.set(300L);
+        cache.now += 3 * MILLIS;
+        assertEquals(300, cache.getReadVersion());
+        assertEquals(2, cache.getFetches());
+    }
+
+    @Test
+    public void fetchFailed() {
+        TestCache cache = new TestCache();
+        cache.futures.addLast(new ReadyFuture<Long>(new FDBException("test", 1020)));
+        cache.next(100);
+        assertEquals(-1, cache.getReadVersion());
+        assertEquals(100, cache.getReadVersion());
+    }
+
+    @Test
+    public void concurrentMissesShareFetch() throws Exception {
+        final TestCache cache = new TestCache();
+        SettableFuture<Long> pending = cache.nextPending();
+        final AtomicLong first = new AtomicLong(), second = new AtomicLong();
+        Thread t1 = new Thread() {
+            @Override
+            public void run() {
+                first.set(cache.getReadVersion());
+            }
+        };
+        t1.start();
+        while (cache.getFetches() == 0) {
+            Thread.sleep(1);
+        }
+        Thread t2 = new Thread() {
+            @Override
+            public void run() {
+                second.set(cache.getReadVersion());
+            }
+        };
+        t2.start();
+        Thread.sleep(50);
+        pending.set(400L);
+        t1.join(10000);
+        t2.join(10000);
+        assertEquals(400, first.get());
+        assertEquals(400, second.get());
+        assertEquals(1, cache.getFetches());
+    }
+}
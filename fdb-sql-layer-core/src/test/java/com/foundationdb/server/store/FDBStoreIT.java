@@ -17,13 +17,21 @@
 
 package com.foundationdb.server.store;
 
+import com.foundationdb.KeyValue;
+import com.foundationdb.Transaction;
 import com.foundationdb.ais.model.Sequence;
 import com.foundationdb.ais.model.TableName;
+import com.foundationdb.server.store.format.FDBStorageDescription;
 import com.foundationdb.server.test.it.FDBITBase;
+import com.foundationdb.tuple.ByteArrayUtil;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.hamcrest.number.OrderingComparison.greaterThan;
 import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 public class FDBStoreIT extends FDBITBase
@@ -40,6 +48,37 @@ public class FDBStoreIT extends FDBITBase
         });
     }
 
+    @Test
+    public void partitionBoundariesAtRootRows() {
+        final int pid = createTable(SCHEMA, "p", "id INT NOT NULL PRIMARY KEY");
+        int cid = createTable(SCHEMA, "c", "id INT NOT NULL PRIMARY KEY, pid INT", akibanFK("pid", "p", "id"));
+        writeRow(pid, 1L);
+        writeRow(cid, 10L, 1L);
+        writeRow(cid, 11L, 1L);
+        writeRow(pid, 2L);
+        writeRow(cid, 20L, 2L);
+        txnService().run(session(), new Runnable() {
+            @Override
+            public void run() {
+                FDBStorageDescription storage = (FDBStorageDescription)getTable(pid).getGroup().getStorageDescription();
+                byte[] start = storage.getPrefixBytes();
+                byte[] end = ByteArrayUtil.strinc(start);
+                Transaction tr = fdbTxnService().getTransaction(session()).getTransaction();
+                List<KeyValue> kvs = tr.getRange(start, end).asList().get();
+                assertEquals("p1, c10, c11, p2, c20", 5, kvs.size());
+                byte[] p1 = kvs.get(0).getKey(), p2 = kvs.get(3).getKey();
+                assertArrayEquals(p1, storage.rootBoundary(tr, p1, end));
+                assertArrayEquals(p1, storage.rootBoundary(tr, kvs.get(1).getKey(), end));
+                assertArrayEquals(p1, storage.rootBoundary(tr, kvs.get(2).getKey(), end));
+                assertArrayEquals(p2, storage.rootBoundary(tr, p2, end));
+                assertArrayEquals(p2, storage.rootBoundary(tr, kvs.get(4).getKey(), end));
+                // Between rows goes to the root of the next one.
+                assertArrayEquals(p2, storage.rootBoundary(tr, ByteArrayUtil.join(kvs.get(2).getKey(), new byte[1]), end));
+                assertArrayEquals(end, storage.rootBoundary(tr, ByteArrayUtil.join(kvs.get(4).getKey(), new byte[1]), end));
+            }
+        });
+    }
+
     @Test
     public void dropSequenceMaintainsSequenceCache() {
         int initial = fdbStore().getSequenceCacheMapSize();
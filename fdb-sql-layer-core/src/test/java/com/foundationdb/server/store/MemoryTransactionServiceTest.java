@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store;
+
+import com.foundationdb.server.error.TransactionConflictException;
+import com.foundationdb.server.service.session.Session;
+import com.foundationdb.server.service.session.TestSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import static com.foundationdb.server.store.MemoryStore.packLong;
+import static com.foundationdb.server.store.MemoryStore.unpackLong;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public final class MemoryTransactionServiceTest
+{
+    private MemoryTransactionService txnService;
+    private Session s1, s2;
+
+    @Before
+    public void start() {
+        txnService = new MemoryTransactionService();
+        txnService.start();
+        s1 = TestSessionFactory.get().createSession();
+        s2 = TestSessionFactory.get().createSession();
+    }
+
+    @After
+    public void stop() {
+        txnService.rollbackTransactionIfOpen(s1);
+        txnService.rollbackTransactionIfOpen(s2);
+        txnService.stop();
+    }
+
+    @Test
+    public void snapshotRead() {
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        txn(s2).set(key("a"), value("1"));
+        txnService.commitTransaction(s2);
+        assertNull(txn(s1).get(key("a")));
+        txnService.commitTransaction(s1);
+
+        txnService.beginTransaction(s1);
+        assertArrayEquals(value("1"), txn(s1).get(key("a")));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void oldVersionsKeptForOpenSnapshot() {
+        write("a", "1");
+        txnService.beginTransaction(s1);
+        write("a", "2");
+        write("a", "3");
+        assertArrayEquals(value("1"), txn(s1).get(key("a")));
+        txnService.commitTransaction(s1);
+        txnService.beginTransaction(s1);
+        assertArrayEquals(value("3"), txn(s1).get(key("a")));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void readWriteConflict() {
+        write("a", "1");
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        txn(s1).get(key("a"));
+        txn(s1).set(key("b"), value("1"));
+        txn(s2).set(key("a"), value("2"));
+        txnService.commitTransaction(s2);
+        try {
+            txnService.commitTransaction(s1);
+            fail("expected conflict");
+        } catch(TransactionConflictException e) {
+            // Expected
+        }
+        assertFalse(txnService.isTransactionActive(s1));
+        txnService.beginTransaction(s1);
+        assertNull(txn(s1).get(key("b")));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void commitOrRetryAfterConflict() {
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        txn(s1).set(key("a"), value("1"));
+        txn(s2).set(key("a"), value("2"));
+        txnService.commitTransaction(s2);
+        assertEquals(true, txnService.commitOrRetryTransaction(s1));
+        // Retry sees the conflicting commit.
+        assertArrayEquals(value("2"), txn(s1).get(key("a")));
+        txn(s1).set(key("a"), value("1"));
+        assertEquals(false, txnService.commitOrRetryTransaction(s1));
+    }
+
+    @Test
+    public void addLongDoesNotConflict() {
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        txn(s1).addLong(key("n"), 2);
+        txn(s2).addLong(key("n"), 3);
+        txn(s2).addLong(key("n"), 4);
+        txnService.commitTransaction(s1);
+        txnService.commitTransaction(s2);
+        txnService.beginTransaction(s1);
+        assertEquals(9, unpackLong(txn(s1).get(key("n"))));
+        txn(s1).set(key("n"), packLong(1));
+        txn(s1).addLong(key("n"), 1);
+        assertEquals(2, unpackLong(txn(s1).get(key("n"))));
+        txnService.commitTransaction(s1);
+        txnService.beginTransaction(s1);
+        assertEquals(2, unpackLong(txn(s1).get(key("n"))));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void rangeMergesOwnWrites() {
+        write("a", "1");
+        write("c", "1");
+        write("e", "1");
+        txnService.beginTransaction(s1);
+        txn(s1).set(key("b"), value("2"));
+        txn(s1).set(key("c"), value("2"));
+        txn(s1).clear(key("e"));
+        assertEquals(Arrays.asList("a=1", "b=2", "c=2"),
+                     entries(txn(s1).getRange(key("a"), key("z"))));
+        assertEquals(Arrays.asList("c=2", "b=2", "a=1"),
+                     entries(txn(s1).getRange(key("a"), key("z"), true)));
+        // Writes while iterating are not seen by the iterator.
+        Iterator<Entry<byte[], byte[]>> it = txn(s1).getRange(key("a"), key("z"));
+        txn(s1).set(key("d"), value("2"));
+        assertEquals(Arrays.asList("a=1", "b=2", "c=2"), entries(it));
+        txn(s1).clearRange(key("b"), key("d"));
+        assertEquals(Arrays.asList("a=1", "d=2"),
+                     entries(txn(s1).getRange(key("a"), key("z"))));
+        txnService.commitTransaction(s1);
+        txnService.beginTransaction(s1);
+        assertEquals(Arrays.asList("a=1", "d=2"),
+                     entries(txn(s1).getRange(key("a"), key("z"))));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void concurrentUniqueInsertsConflict() {
+        // Each checks, as a unique index does, that no entry has the value yet.
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        assertFalse(txn(s1).getRange(key("u/x/"), key("u/x0")).hasNext());
+        txn(s1).set(key("u/x/1"), value(""));
+        assertFalse(txn(s2).getRange(key("u/x/"), key("u/x0")).hasNext());
+        txn(s2).set(key("u/x/2"), value(""));
+        txnService.commitTransaction(s2);
+        try {
+            txnService.commitTransaction(s1);
+            fail("expected conflict");
+        } catch(TransactionConflictException e) {
+            // Expected
+        }
+        txnService.beginTransaction(s1);
+        assertEquals(Arrays.asList("u/x/2="), entries(txn(s1).getRange(key("u/x/"), key("u/x0"))));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void rangeReadDoesNotConflictOutsideRange() {
+        txnService.beginTransaction(s1);
+        txnService.beginTransaction(s2);
+        assertFalse(txn(s1).getRange(key("u/x/"), key("u/x0")).hasNext());
+        txn(s1).set(key("u/x/1"), value(""));
+        txn(s2).set(key("u/y/2"), value(""));
+        txnService.commitTransaction(s2);
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void concurrentIncrementsNotLost() throws Exception {
+        final int nthreads = 4, nincrements = 200;
+        final byte[] counter = key("counter");
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < nthreads; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    final Session session = TestSessionFactory.get().createSession();
+                    for(int j = 0; j < nincrements; j++) {
+                        txnService.run(session, new Runnable() {
+                            @Override
+                            public void run() {
+                                byte[] value = txn(session).get(counter);
+                                long n = (value == null) ? 0 : unpackLong(value);
+                                txn(session).set(counter, packLong(n + 1));
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        txnService.beginTransaction(s1);
+        assertEquals(nthreads * nincrements, unpackLong(txn(s1).get(counter)));
+        txnService.commitTransaction(s1);
+    }
+
+    @Test
+    public void rollbackDiscardsWrites() {
+        txnService.beginTransaction(s1);
+        txn(s1).set(key("a"), value("1"));
+        txnService.rollbackTransaction(s1);
+        txnService.beginTransaction(s1);
+        assertNull(txn(s1).get(key("a")));
+        txnService.commitTransaction(s1);
+    }
+
+    //
+    // Helpers
+    //
+
+    private MemoryTransaction txn(Session session) {
+        return txnService.getTransaction(session);
+    }
+
+    private void write(String k, String v) {
+        txnService.beginTransaction(s2);
+        txn(s2).set(key(k), value(v));
+        txnService.commitTransaction(s2);
+    }
+
+    private static byte[] key(String k) {
+        return k.getBytes();
+    }
+
+    private static byte[] value(String v) {
+        return v.getBytes();
+    }
+
+    private static List<String> entries(Iterator<Entry<byte[], byte[]>> it) {
+        List<String> result = new ArrayList<>();
+        while(it.hasNext()) {
+            Entry<byte[], byte[]> entry = it.next();
+            result.add(new String(entry.getKey()) + "=" + new String(entry.getValue()));
+        }
+        return result;
+    }
+}
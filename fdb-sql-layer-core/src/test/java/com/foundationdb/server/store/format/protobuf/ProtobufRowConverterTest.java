@@ -38,6 +38,7 @@ import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
 import com.google.protobuf.Descriptors.FileDescriptor;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
 public class ProtobufRowConverterTest {
@@ -121,7 +122,14 @@ public class ProtobufRowConverterTest {
         DynamicMessage msg = converter.encode(rowIn);
         Row rowOut = converter.decode(msg);
         assertTrue (rowIn.compareTo(rowOut, 0, 0, rowType.nFields()) == 0);
-        
+        // Direct serialization matches the message, both ways.
+        byte[] bytes = converter.encodeToBytes(rowIn);
+        assertArrayEquals(msg.toByteArray(), bytes);
+        rowOut = converter.decodeFromBytes(bytes);
+        assertTrue (rowIn.compareTo(rowOut, 0, 0, rowType.nFields()) == 0);
+        rowOut = converter.decodeLazily(bytes);
+        assertTrue (rowOut.rowType() == rowType);
+        assertTrue (rowIn.compareTo(rowOut, 0, 0, rowType.nFields()) == 0);
     }
     protected ProtobufRowConverter converter(Group g) throws Exception {
         AISToProtobuf a2p = new AISToProtobuf(ProtobufRowFormat.Type.GROUP_MESSAGE);
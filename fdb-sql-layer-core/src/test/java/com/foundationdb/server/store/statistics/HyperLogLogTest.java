@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.store.statistics;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HyperLogLogTest
+{
+    private static byte[] bytes(long n) {
+        return ByteBuffer.allocate(8).putLong(n).array();
+    }
+
+    private static void assertEstimate(long expected, HyperLogLog hll) {
+        long actual = hll.estimate();
+        double error = Math.abs(actual - expected) / (double)expected;
+        assertTrue("estimate " + actual + " for " + expected, error < 0.05);
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void small() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 10; i++) {
+            hll.add(bytes(i));
+        }
+        assertEquals(10, hll.estimate());
+    }
+
+    @Test
+    public void large() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100000; i++) {
+            hll.add(bytes(i));
+        }
+        assertEstimate(100000, hll);
+    }
+
+    @Test
+    public void duplicates() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100000; i++) {
+            hll.add(bytes(i % 1000));
+        }
+        assertEstimate(1000, hll);
+    }
+
+    @Test
+    public void merge() {
+        HyperLogLog hll1 = new HyperLogLog();
+        HyperLogLog hll2 = new HyperLogLog();
+        for (int i = 0; i < 20000; i++) {
+            hll1.add(bytes(i));
+            hll2.add(bytes(i + 10000));
+        }
+        hll1.merge(hll2);
+        assertEstimate(30000, hll1);
+    }
+
+    @Test
+    public void roundTrip() {
+        HyperLogLog hll = new HyperLogLog(8);
+        for (int i = 0; i < 5000; i++) {
+            hll.add(bytes(i));
+        }
+        HyperLogLog copy = HyperLogLog.fromBytes(hll.toBytes());
+        assertEquals(8, copy.getPrecision());
+        assertEquals(hll, copy);
+        assertEquals(hll.estimate(), copy.estimate());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void mismatchedMerge() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.test.it.qp;
+
+import com.foundationdb.qp.operator.GroupCursor;
+import com.foundationdb.qp.operator.GroupPartition;
+import com.foundationdb.qp.operator.Operator;
+import com.foundationdb.qp.row.Row;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.foundationdb.qp.operator.API.*;
+import static com.foundationdb.server.test.ExpressionGenerators.*;
+
+public class Exchange_ParallelIT extends OperatorITBase {
+
+    @Override
+    protected void setupPostCreateSchema() {
+        super.setupPostCreateSchema();
+        Row[] db = new Row[]{
+                row(customer, 1L, "northbridge"),
+                row(customer, 2L, "foundation"),
+                row(customer, 3L, "matrix"),
+                row(customer, 4L, "atlas"),
+                row(customer, 5L, "highland"),
+
+                row(order, 100L, 1L, "ori"),
+                row(order, 200L, 2L, "david"),
+                row(order, 300L, 3L, "tom"),
+        };
+        use(db);
+    }
+
+    /** Test arguments Exchange_Parallel */
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullPartitions() {
+        exchange_Parallel(null, customerRowType);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPartitions() {
+        exchange_Parallel(Collections.<Operator>emptyList(), customerRowType);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullRowType() {
+        exchange_Parallel(Collections.nCopies(2, groupScan_Default(coi)), null);
+    }
+
+    /** Results must not depend on the number of partitions */
+
+    @Test
+    public void testGatherOnePartition() {
+        compareRows(ascending(), cursor(sorted(exchange(1, false, null)),
+                                        queryContext, queryBindings));
+    }
+
+    @Test
+    public void testGatherThreePartitions() {
+        compareRows(ascending(), cursor(sorted(exchange(3, false, null)),
+                                        queryContext, queryBindings));
+    }
+
+    @Test
+    public void testMergeOnePartition() {
+        compareRows(descending(), cursor(exchange(1, true, descendingOrdering()),
+                                         queryContext, queryBindings));
+    }
+
+    @Test
+    public void testMergeThreePartitions() {
+        compareRows(descending(), cursor(exchange(3, true, descendingOrdering()),
+                                         queryContext, queryBindings));
+    }
+
+    @Test
+    public void testLimitStopsEarly() {
+        Row[] expected = new Row[]{
+                row(customerRowType, 5L, "highland"),
+                row(customerRowType, 4L, "atlas"),
+        };
+        compareRows(expected, cursor(limit_Default(exchange(3, true, descendingOrdering()), 2),
+                                     queryContext, queryBindings));
+    }
+
+    /** Every row is in exactly one part of the split */
+
+    @Test
+    public void testPartitionsCoverGroup() {
+        Row[] expected = new Row[]{
+                row(customer, 1L, "northbridge"),
+                row(order, 100L, 1L, "ori"),
+                row(customer, 2L, "foundation"),
+                row(order, 200L, 2L, "david"),
+                row(customer, 3L, "matrix"),
+                row(order, 300L, 3L, "tom"),
+                row(customer, 4L, "atlas"),
+                row(customer, 5L, "highland"),
+        };
+        List<Row> actual = new ArrayList<>();
+        for (GroupPartition partition : adapter.partitionGroup(coi, 3)) {
+            GroupCursor cursor = adapter.newGroupCursor(coi);
+            cursor.rebind(partition);
+            cursor.open();
+            Row row;
+            while ((row = cursor.next()) != null) {
+                actual.add(row);
+            }
+            cursor.close();
+        }
+        compareRows(Arrays.asList(expected), actual);
+    }
+
+    private Row[] ascending() {
+        return new Row[]{
+                row(customerRowType, 1L, "northbridge"),
+                row(customerRowType, 2L, "foundation"),
+                row(customerRowType, 3L, "matrix"),
+                row(customerRowType, 4L, "atlas"),
+                row(customerRowType, 5L, "highland"),
+        };
+    }
+
+    private Row[] descending() {
+        Row[] rows = ascending();
+        Collections.reverse(Arrays.asList(rows));
+        return rows;
+    }
+
+    private Ordering descendingOrdering() {
+        Ordering ordering = ordering();
+        ordering.append(field(customerRowType, 0), false);
+        return ordering;
+    }
+
+    private Operator sorted(Operator input) {
+        Ordering ordering = ordering();
+        ordering.append(field(customerRowType, 0), true);
+        return sort_General(input, customerRowType, ordering, SortOption.PRESERVE_DUPLICATES);
+    }
+
+    private Operator exchange(int nPartitions, boolean sorted, Ordering ordering) {
+        Operator partition = filter_Default(
+                groupScan_Default(coi, PARTITION_POSITION),
+                Collections.singleton(customerRowType));
+        if (sorted) {
+            partition = sort_General(partition, customerRowType, descendingOrdering(),
+                                     SortOption.PRESERVE_DUPLICATES);
+        }
+        return exchange_Parallel(partition, nPartitions, coi, PARTITION_POSITION, customerRowType, ordering);
+    }
+
+    private static final int PARTITION_POSITION = 0;
+}
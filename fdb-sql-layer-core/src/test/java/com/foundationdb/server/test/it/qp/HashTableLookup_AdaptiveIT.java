@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.test.it.qp;
+
+import com.foundationdb.qp.operator.Operator;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.server.types.texpressions.Comparison;
+import com.foundationdb.server.types.texpressions.TPreparedBoundField;
+import com.foundationdb.server.types.texpressions.TPreparedExpression;
+import com.foundationdb.server.types.texpressions.TPreparedField;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.foundationdb.qp.operator.API.*;
+import static com.foundationdb.server.test.ExpressionGenerators.*;
+
+public class HashTableLookup_AdaptiveIT extends OperatorITBase {
+
+    static int ROW_BINDING_POSITION = 100;
+    static int TABLE_BINDING_POSITION = 200;
+    private RowType projectRowType;
+
+    @Override
+    protected void setupPostCreateSchema() {
+        super.setupPostCreateSchema();
+        Row[] db = new Row[]{
+                row(customer, 1L, "northbridge"),
+                row(customer, 2L, "foundation"),
+                row(customer, 3L, "matrix"),
+                row(customer, 4L, "atlas"),
+
+                row(order, 100L, 1L, "ori"),
+                row(order, 101L, 1L, "ori"),
+                row(order, 200L, 2L, "david"),
+                row(order, 300L, 3L, "tom"),
+                row(order, 400L, 4L, "jack"),
+                row(order, 401L, 4L, "jack"),
+                row(order, 500L, 5L, "nobody"),
+        };
+        use(db);
+    }
+
+    /** Test arguments HashTableLookup_Adaptive */
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdaptiveNullNestedInput() {
+        hashTableLookup_Adaptive(customerRowType, outerExpressions(), TABLE_BINDING_POSITION, null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdaptiveNegativeSwitchRowCount() {
+        hashTableLookup_Adaptive(customerRowType, outerExpressions(), TABLE_BINDING_POSITION, nestedLookup(), -1);
+    }
+
+    /** Join tests: results must not depend on when the switch happens */
+
+    @Test
+    public void testAlwaysHashed() {
+        compareRows(expected(), cursor(adaptiveJoinPlan(0), queryContext, queryBindings));
+    }
+
+    @Test
+    public void testSwitchPartway() {
+        compareRows(expected(), cursor(adaptiveJoinPlan(3), queryContext, queryBindings));
+    }
+
+    @Test
+    public void testNeverHashed() {
+        compareRows(expected(), cursor(adaptiveJoinPlan(Long.MAX_VALUE), queryContext, queryBindings));
+    }
+
+    private Row[] expected() {
+        return new Row[]{
+                row(projectRowType, 100L, 1L, "ori", "northbridge"),
+                row(projectRowType, 101L, 1L, "ori", "northbridge"),
+                row(projectRowType, 200L, 2L, "david", "foundation"),
+                row(projectRowType, 300L, 3L, "tom", "matrix"),
+                row(projectRowType, 400L, 4L, "jack", "atlas"),
+                row(projectRowType, 401L, 4L, "jack", "atlas"),
+        };
+    }
+
+    private List<TPreparedExpression> outerExpressions() {
+        List<TPreparedExpression> outerExpressions = new ArrayList<>();
+        outerExpressions.add(new TPreparedBoundField(orderRowType, ROW_BINDING_POSITION, 1));
+        return outerExpressions;
+    }
+
+    private Operator nestedLookup() {
+        return select_HKeyOrdered(
+                filter_Default(
+                        groupScan_Default(coi),
+                        Collections.singleton(customerRowType)),
+                customerRowType,
+                compare(field(customerRowType, 0),
+                        Comparison.EQ,
+                        boundField(orderRowType, ROW_BINDING_POSITION, 1),
+                        castResolver()));
+    }
+
+    private Operator adaptiveJoinPlan(long switchRowCount) {
+        List<TPreparedExpression> expressions = new ArrayList<>();
+        for (int i = 0; i < orderRowType.nFields(); i++) {
+            expressions.add(new TPreparedBoundField(orderRowType, ROW_BINDING_POSITION, i));
+        }
+        expressions.add(new TPreparedField(customerRowType.typeAt(1), 1));
+
+        List<TPreparedExpression> innerExpressions = new ArrayList<>();
+        innerExpressions.add(new TPreparedField(customerRowType.typeAt(0), 0));
+
+        Operator project = project_Default(
+                hashTableLookup_Adaptive(
+                        customerRowType,
+                        outerExpressions(),
+                        TABLE_BINDING_POSITION,
+                        nestedLookup(),
+                        switchRowCount
+                ),
+                customerRowType,
+                expressions
+        );
+        projectRowType = project.rowType();
+
+        return using_HashTable(
+                filter_Default(
+                        groupScan_Default(coi),
+                        Collections.singleton(customerRowType)),
+                customerRowType,
+                innerExpressions,
+                TABLE_BINDING_POSITION,
+                map_NestedLoops(
+                        filter_Default(
+                                groupScan_Default(coi),
+                                Collections.singleton(orderRowType)),
+                        project,
+                        ROW_BINDING_POSITION,
+                        false,
+                        1
+                ),
+                null, null, true
+        );
+    }
+}
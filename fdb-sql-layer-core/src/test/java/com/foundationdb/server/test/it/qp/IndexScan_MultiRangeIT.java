@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2009-2013 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.test.it.qp;
+
+import com.foundationdb.qp.expression.IndexBound;
+import com.foundationdb.qp.expression.IndexKeyRange;
+import com.foundationdb.qp.expression.RowBasedUnboundExpressions;
+import com.foundationdb.qp.operator.API;
+import com.foundationdb.qp.operator.IndexScanSelector;
+import com.foundationdb.qp.operator.Operator;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.rowtype.IndexRowType;
+import com.foundationdb.server.api.dml.SetColumnSelector;
+import com.foundationdb.server.types.texpressions.TNullExpression;
+import com.foundationdb.server.types.texpressions.TPreparedExpression;
+import com.foundationdb.server.types.texpressions.TPreparedLiteral;
+import com.foundationdb.server.types.value.Value;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.foundationdb.qp.operator.API.cursor;
+import static com.foundationdb.qp.operator.API.indexScan_MultiRange;
+import static com.foundationdb.server.test.ExpressionGenerators.field;
+
+public class IndexScan_MultiRangeIT extends OperatorITBase
+{
+    @Override
+    protected void setupCreateSchema()
+    {
+        t = createTable(
+            "schema", "t",
+            "id int not null primary key",
+            "a int");
+        createIndex("schema", "t", "a", "a");
+    }
+
+    @Override
+    protected void setupPostCreateSchema()
+    {
+        idxRowType = indexType(t, "a");
+        db = new Row[]{
+            row(t, 1L, 10L),
+            row(t, 2L, 20L),
+            row(t, 3L, 20L),
+            row(t, 4L, 30L),
+            row(t, 5L, 40L),
+            row(t, 6L, 50L),
+        };
+        queryContext = queryContext(adapter);
+        queryBindings = queryContext.createBindings();
+        use(db);
+    }
+
+    @Test
+    public void testAscending()
+    {
+        for (int quantum = 1; quantum <= 3; quantum++) {
+            test(points(10, 20, 40), ordering(ASC), quantum,
+                 row(idxRowType, 10L, 1L),
+                 row(idxRowType, 20L, 2L),
+                 row(idxRowType, 20L, 3L),
+                 row(idxRowType, 40L, 5L));
+        }
+    }
+
+    @Test
+    public void testDescending()
+    {
+        for (int quantum = 1; quantum <= 3; quantum++) {
+            test(points(10, 20, 40), ordering(DESC), quantum,
+                 row(idxRowType, 40L, 5L),
+                 row(idxRowType, 20L, 3L),
+                 row(idxRowType, 20L, 2L),
+                 row(idxRowType, 10L, 1L));
+        }
+    }
+
+    @Test
+    public void testMixedOrdering()
+    {
+        // Ranges follow the direction of the range column, not of the rest.
+        test(points(10, 20, 40), ordering(DESC, ASC), 2,
+             row(idxRowType, 40L, 5L),
+             row(idxRowType, 20L, 2L),
+             row(idxRowType, 20L, 3L),
+             row(idxRowType, 10L, 1L));
+        test(points(10, 20, 40), ordering(ASC, DESC), 2,
+             row(idxRowType, 10L, 1L),
+             row(idxRowType, 20L, 3L),
+             row(idxRowType, 20L, 2L),
+             row(idxRowType, 40L, 5L));
+    }
+
+    @Test
+    public void testMissingPoints()
+    {
+        test(points(5, 30, 35, 60), ordering(ASC), 2,
+             row(idxRowType, 30L, 4L));
+        test(points(5, 15, 60), ordering(ASC), 2);
+    }
+
+    @Test
+    public void testReopen()
+    {
+        Operator plan = indexScan_MultiRange(idxRowType, points(20, 50), ordering(ASC), selector(), 2);
+        Row[] expected = new Row[]{
+            row(idxRowType, 20L, 2L),
+            row(idxRowType, 20L, 3L),
+            row(idxRowType, 50L, 6L),
+        };
+        compareRows(expected, cursor(plan, queryContext, queryBindings));
+        compareRows(expected, cursor(plan, queryContext, queryBindings));
+    }
+
+    // For use by this class
+
+    private void test(List<IndexKeyRange> keyRanges, API.Ordering ordering, int quantum, Row... expected)
+    {
+        Operator plan = indexScan_MultiRange(idxRowType, keyRanges, ordering, selector(), quantum);
+        compareRows(expected, cursor(plan, queryContext, queryBindings));
+    }
+
+    private List<IndexKeyRange> points(int... values)
+    {
+        List<IndexKeyRange> ranges = new ArrayList<>(values.length);
+        for (int value : values) {
+            IndexBound bound = new IndexBound(exprRow(value), new SetColumnSelector(0));
+            ranges.add(IndexKeyRange.bounded(idxRowType, bound, true, bound, true));
+        }
+        return ranges;
+    }
+
+    private RowBasedUnboundExpressions exprRow(int a)
+    {
+        List<TPreparedExpression> pExprs = new ArrayList<>(2);
+        pExprs.add(new TPreparedLiteral(new Value(idxRowType.typeAt(0), a)));
+        pExprs.add(new TNullExpression(idxRowType.typeAt(1)));
+        return new RowBasedUnboundExpressions(idxRowType, pExprs);
+    }
+
+    private IndexScanSelector selector()
+    {
+        return IndexScanSelector.leftJoinAfter(idxRowType.index(), idxRowType.tableType().table());
+    }
+
+    private API.Ordering ordering(boolean... directions)
+    {
+        API.Ordering ordering = API.ordering();
+        for (int i = 0; i < directions.length; i++) {
+            ordering.append(field(idxRowType, i), directions[i]);
+        }
+        return ordering;
+    }
+
+    private static final boolean ASC = true;
+    private static final boolean DESC = false;
+
+    private int t;
+    private IndexRowType idxRowType;
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.test.it.store;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Table;
+import com.foundationdb.ais.model.TableName;
+import com.foundationdb.server.store.statistics.ColumnStatistics;
+import com.foundationdb.server.store.statistics.Histogram;
+import com.foundationdb.server.store.statistics.IndexStatisticsService;
+import com.foundationdb.server.test.it.ITBase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnStatisticsIT extends ITBase
+{
+    @Override
+    protected Map<String, String> startupConfigProperties() {
+        Map<String, String> properties = new HashMap<>(super.startupConfigProperties());
+        properties.put("fdbsql.index_statistics.column_statistics", "true");
+        return properties;
+    }
+
+    @Before
+    public void createDatabase()
+    {
+        int table = createTable(SCHEMA, TABLE,
+                                "id int not null",
+                                "a int",
+                                "b varchar(10)",
+                                "primary key(id)");
+        for (int id = 0; id < N; id++) {
+            writeRow(table, id, (id % 5 == 0) ? null : id % A_COUNT, "b" + (id % B_COUNT));
+        }
+        ddl().updateTableStatistics(session(), TableName.create(SCHEMA, TABLE), null);
+    }
+
+    @Test
+    public void nonIndexedColumns()
+    {
+        Table table = getTable(SCHEMA, TABLE);
+        ColumnStatistics a = statsService().getColumnStatistics(session(), table.getColumn("a"));
+        assertNotNull("a stats", a);
+        assertEquals("a rows", N, a.getRowCount());
+        assertEquals("a nulls", N / 5, a.getNullCount());
+        assertEquals("a null fraction", 0.2, a.getNullFraction(), 0.0001);
+        assertDistinct(A_COUNT - A_COUNT / 5, a.getDistinctCount());
+        Histogram histogram = a.getHistogram();
+        assertNotNull("a histogram", histogram);
+        assertTrue("a histogram entries", !histogram.getEntries().isEmpty());
+
+        ColumnStatistics b = statsService().getColumnStatistics(session(), table.getColumn("b"));
+        assertNotNull("b stats", b);
+        assertEquals("b nulls", 0, b.getNullCount());
+        assertDistinct(B_COUNT, b.getDistinctCount());
+        assertEquals("b selectivity", 1.0 / b.getDistinctCount(), b.getEqualSelectivity(), 0.0001);
+    }
+
+    @Test
+    public void indexedColumnSkipped()
+    {
+        Column id = getTable(SCHEMA, TABLE).getColumn("id");
+        assertNull("id stats", statsService().getColumnStatistics(session(), id));
+    }
+
+    @Test
+    public void reloadedFromStorage()
+    {
+        Column a = getTable(SCHEMA, TABLE).getColumn("a");
+        ColumnStatistics before = statsService().getColumnStatistics(session(), a);
+        statsService().clearCache();
+        ColumnStatistics after = statsService().getColumnStatistics(session(), a);
+        assertNotNull("reloaded", after);
+        assertEquals("row count", before.getRowCount(), after.getRowCount());
+        assertEquals("null count", before.getNullCount(), after.getNullCount());
+        assertEquals("distinct count", before.getDistinctCount(), after.getDistinctCount());
+        assertEquals("sketch", before.getDistinctSketch(), after.getDistinctSketch());
+        assertEquals("histogram", before.getHistogram().toString(), after.getHistogram().toString());
+    }
+
+    @Test
+    public void droppedWithTable()
+    {
+        Table table = getTable(SCHEMA, TABLE);
+        Column a = table.getColumn("a");
+        ddl().dropTable(session(), table.getName());
+        statsService().clearCache();
+        assertNull("dropped stats", statsService().getColumnStatistics(session(), a));
+    }
+
+    private static void assertDistinct(long expected, long actual) {
+        assertEquals("distinct count", expected, actual, Math.max(1, expected / 20));
+    }
+
+    private IndexStatisticsService statsService()
+    {
+        return serviceManager().getServiceByClass(IndexStatisticsService.class);
+    }
+
+    private static final String SCHEMA = "schema";
+    private static final String TABLE = "t";
+    private static final int N = 1000;
+    private static final int A_COUNT = 50;
+    private static final int B_COUNT = 20;
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.server.types.texpressions;
+
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.qp.row.ValuesHolderRow;
+import com.foundationdb.qp.rowtype.ValuesRowType;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.TScalar;
+import com.foundationdb.server.types.aksql.aktypes.AkBool;
+import com.foundationdb.server.types.common.funcs.BoolLogic;
+import com.foundationdb.server.types.common.funcs.IsNull;
+import com.foundationdb.server.types.mcompat.mtypes.MApproximateNumber;
+import com.foundationdb.server.types.mcompat.mtypes.MNumeric;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class TExpressionCompilerTest {
+    private static final TInstance INT = MNumeric.INT.instance(true);
+    private static final TInstance DOUBLE = MApproximateNumber.DOUBLE.instance(true);
+    private static final TInstance BOOL = AkBool.INSTANCE.instance(true);
+    private static final ValuesRowType ROW_TYPE = new ValuesRowType(null, 1, INT, INT, DOUBLE, BOOL);
+
+    private static final TPreparedExpression A = new TPreparedField(INT, 0);
+    private static final TPreparedExpression B = new TPreparedField(INT, 1);
+    private static final TPreparedExpression D = new TPreparedField(DOUBLE, 2);
+    private static final TPreparedExpression F = new TPreparedField(BOOL, 3);
+
+    @Test
+    public void comparisons() {
+        for (Comparison comparison : Comparison.values()) {
+            check(new TComparisonExpression(A, comparison, B));
+            check(new TComparisonExpression(A, comparison, intLiteral(1)));
+            check(new TComparisonExpression(D, comparison, doubleLiteral(0.5)));
+            check(new TComparisonExpression(F, comparison, boolLiteral(true)));
+        }
+        check(new TComparisonExpression(A, Comparison.EQ, new TPreparedLiteral(INT, new Value(INT))));
+    }
+
+    @Test
+    public void logic() {
+        TPreparedExpression ab = new TComparisonExpression(A, Comparison.LT, B);
+        TPreparedExpression d = new TComparisonExpression(D, Comparison.GE, doubleLiteral(0.0));
+        check(function(BoolLogic.AND, ab, F));
+        check(function(BoolLogic.OR, F, ab));
+        check(function(BoolLogic.NOT, F));
+        check(function(BoolLogic.OR, function(BoolLogic.AND, ab, d), function(BoolLogic.NOT, F)));
+        check(function(IsNull.create(AkBool.INSTANCE), A));
+        check(function(IsNull.create(AkBool.INSTANCE), ab));
+    }
+
+    @Test
+    public void in() {
+        List<TPreparedExpression> rhs = Arrays.asList(intLiteral(2), new TPreparedLiteral(INT, new Value(INT)), intLiteral(0));
+        check(TInExpression.prepare(A, rhs, null));
+        rhs = Arrays.asList(doubleLiteral(0.5), doubleLiteral(-1.0));
+        check(TInExpression.prepare(D, rhs, null));
+    }
+
+    @Test
+    public void fallback() {
+        TPreparedExpression xor = function(BoolLogic.XOR, F, new TComparisonExpression(A, Comparison.GT, B));
+        check(function(BoolLogic.AND, new TComparisonExpression(B, Comparison.NE, intLiteral(0)), xor));
+        assertSame(A, TExpressionCompiler.compile(A));
+        assertSame(xor, TExpressionCompiler.compile(xor));
+    }
+
+    private static void check(TPreparedExpression interpreted) {
+        TPreparedExpression compiled = TExpressionCompiler.compile(interpreted);
+        assertTrue("compiled " + interpreted, compiled instanceof TCompiledExpression);
+        TEvaluatableExpression expected = interpreted.build();
+        TEvaluatableExpression actual = compiled.build();
+        for (Row row : rows()) {
+            expected.with(row);
+            expected.evaluate();
+            actual.with(row);
+            actual.evaluate();
+            assertEquals(interpreted + " on " + row, toString(expected.resultValue()), toString(actual.resultValue()));
+        }
+    }
+
+    private static List<Row> rows() {
+        Integer[] ints = { null, -1, 0, 1, 2 };
+        Double[] doubles = { null, -1.0, 0.0, 0.5 };
+        Boolean[] bools = { null, false, true };
+        List<Row> rows = new ArrayList<>();
+        for (Integer a : ints) {
+            for (Integer b : ints) {
+                for (Double d : doubles) {
+                    for (Boolean f : bools) {
+                        rows.add(new ValuesHolderRow(ROW_TYPE,
+                                                     (a == null) ? new Value(INT) : new Value(INT, a),
+                                                     (b == null) ? new Value(INT) : new Value(INT, b),
+                                                     (d == null) ? new Value(DOUBLE) : new Value(DOUBLE, d),
+                                                     (f == null) ? new Value(BOOL) : new Value(BOOL, f)));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String toString(ValueSource value) {
+        return value.isNull() ? "NULL" : Boolean.toString(value.getBoolean());
+    }
+
+    private static TPreparedExpression function(TScalar scalar, TPreparedExpression... inputs) {
+        return new TPreparedFunction(new TValidatedScalar(scalar),
+                                     BOOL, Arrays.asList(inputs));
+    }
+
+    private static TPreparedExpression intLiteral(int value) {
+        return new TPreparedLiteral(INT, new Value(INT, value));
+    }
+
+    private static TPreparedExpression doubleLiteral(double value) {
+        return new TPreparedLiteral(DOUBLE, new Value(DOUBLE, value));
+    }
+
+    private static TPreparedExpression boolLiteral(boolean value) {
+        return new TPreparedLiteral(BOOL, new Value(BOOL, value));
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.server.types.texpressions;
+
+import com.foundationdb.qp.row.ValuesHolderRow;
+import com.foundationdb.qp.rowtype.ValuesRowType;
+import com.foundationdb.server.collation.AkCollatorFactory;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.common.types.StringFactory;
+import com.foundationdb.server.types.mcompat.mtypes.MNumeric;
+import com.foundationdb.server.types.mcompat.mtypes.MString;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.server.types.value.ValueSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public final class TInExpressionTest {
+    private static final TInstance TINYINT = MNumeric.TINYINT.instance(false);
+    private static final TInstance SMALLINT = MNumeric.SMALLINT.instance(false);
+    private static final TInstance INT = MNumeric.INT.instance(false);
+    private static final TInstance BIGINT = MNumeric.BIGINT.instance(true);
+    private static final TInstance CI_VARCHAR =
+        MString.VARCHAR.instance(32, StringFactory.DEFAULT_CHARSET_ID,
+                                 AkCollatorFactory.getAkCollator("en_us_ci").getCollationId(), true);
+
+    @Test
+    public void shortListNotHashed() {
+        List<TPreparedExpression> rhs = new ArrayList<>();
+        for (int i = 0; i < TInExpression.HASH_MIN_COUNT - 1; i++) {
+            rhs.add(literal(INT, i));
+        }
+        assertNull(TInExpression.hashed(new TPreparedField(BIGINT, 0), rhs, null));
+    }
+
+    @Test
+    public void parameterNotHashed() {
+        List<TPreparedExpression> rhs = integers();
+        rhs.add(new TPreparedParameter(0, INT));
+        assertNull(TInExpression.hashed(new TPreparedField(BIGINT, 0), rhs, null));
+    }
+
+    @Test
+    public void mixedIntegerWidths() {
+        TPreparedExpression lhs = new TPreparedField(BIGINT, 0);
+        List<TPreparedExpression> rhs = integers();
+        rhs.add(new TPreparedLiteral(INT, new Value(INT))); // Never matches.
+        assertNotNull(TInExpression.hashed(lhs, rhs, null));
+        TEvaluatableExpression in = TInExpression.prepare(lhs, rhs, null).build();
+        ValuesRowType rowType = new ValuesRowType(null, 1, BIGINT);
+        for (long n = -5; n <= 1005; n++) {
+            boolean expected = (n == -3) || ((n >= 0) && (n < 8)) || (n == 300) || (n == 1000);
+            assertEquals("in " + n, Boolean.toString(expected),
+                         evaluate(in, new ValuesHolderRow(rowType, new Value(BIGINT, n))));
+        }
+        assertEquals("in null", "NULL",
+                     evaluate(in, new ValuesHolderRow(rowType, new Value(BIGINT))));
+    }
+
+    @Test
+    public void caseInsensitiveStrings() {
+        TPreparedExpression lhs = new TPreparedField(CI_VARCHAR, 0);
+        List<TPreparedExpression> rhs = new ArrayList<>();
+        for (String s : Arrays.asList("apple", "Banana", "CHERRY", "date", "Elder", "fig", "GRAPE", "honeydew")) {
+            rhs.add(new TPreparedLiteral(CI_VARCHAR, new Value(CI_VARCHAR, s)));
+        }
+        assertNotNull(TInExpression.hashed(lhs, rhs, null));
+        TEvaluatableExpression in = TInExpression.prepare(lhs, rhs, null).build();
+        ValuesRowType rowType = new ValuesRowType(null, 1, CI_VARCHAR);
+        for (String s : Arrays.asList("APPLE", "banana", "Cherry", "grape", "HoneyDew")) {
+            assertEquals("in " + s, "true",
+                         evaluate(in, new ValuesHolderRow(rowType, new Value(CI_VARCHAR, s))));
+        }
+        for (String s : Arrays.asList("apples", "kiwi", "", "ban ana")) {
+            assertEquals("in " + s, "false",
+                         evaluate(in, new ValuesHolderRow(rowType, new Value(CI_VARCHAR, s))));
+        }
+    }
+
+    /** 0 to 7 as tinyint, smallint and int, with -3, 300 and 1000. */
+    private static List<TPreparedExpression> integers() {
+        List<TPreparedExpression> rhs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            switch (i % 3) {
+            case 0:
+                rhs.add(new TPreparedLiteral(TINYINT, new Value(TINYINT, (byte)i)));
+                break;
+            case 1:
+                rhs.add(new TPreparedLiteral(SMALLINT, new Value(SMALLINT, (short)i)));
+                break;
+            default:
+                rhs.add(literal(INT, i));
+                break;
+            }
+        }
+        rhs.add(new TPreparedLiteral(TINYINT, new Value(TINYINT, (byte)-3)));
+        rhs.add(new TPreparedLiteral(SMALLINT, new Value(SMALLINT, (short)300)));
+        rhs.add(new TPreparedLiteral(BIGINT, new Value(BIGINT, 1000L)));
+        return rhs;
+    }
+
+    private static TPreparedExpression literal(TInstance type, int value) {
+        return new TPreparedLiteral(type, new Value(type, value));
+    }
+
+    private static String evaluate(TEvaluatableExpression expression, ValuesHolderRow row) {
+        expression.with(row);
+        expression.evaluate();
+        ValueSource value = expression.resultValue();
+        return value.isNull() ? "NULL" : Boolean.toString(value.getBoolean());
+    }
+}
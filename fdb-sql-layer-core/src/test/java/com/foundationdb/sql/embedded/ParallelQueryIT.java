@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.embedded;
+
+import com.foundationdb.server.explain.format.DefaultFormatter;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.*;
+import java.util.*;
+
+/** Queries the optimizer splits into partitions and puts back together. */
+public class ParallelQueryIT extends EmbeddedJDBCITBase
+{
+    private static final String CONFIG_PREFIX = "fdbsql.optimizer.";
+    private static final int NROWS = 500;
+    private static final int NKEYS = 7;
+
+    @Override
+    protected Map<String, String> startupConfigProperties() {
+        Map<String,String> settings = new HashMap<>(super.startupConfigProperties());
+        settings.put(CONFIG_PREFIX + "parallel_max_degree", "4");
+        settings.put(CONFIG_PREFIX + "parallel_cost_per_worker", "1");
+        return settings;
+    }
+
+    @Before
+    public void populate() {
+        sql("CREATE TABLE t(id INT PRIMARY KEY NOT NULL, k INT, v INT)");
+        StringBuilder insert = new StringBuilder("INSERT INTO t VALUES");
+        for (int i = 0; i < NROWS; i++) {
+            if (i > 0) insert.append(',');
+            insert.append('(').append(i).append(',').append(k(i)).append(',').append(v(i)).append(')');
+        }
+        sql(insert.toString());
+    }
+
+    private static int k(int i) {
+        return i % NKEYS;
+    }
+
+    private static int v(int i) {
+        return (i * 37) % 101;
+    }
+
+    @Test
+    public void countStar() throws Exception {
+        String query = "SELECT COUNT(*) FROM t";
+        assertParallel(query);
+        assertEquals(NROWS, longAt(sql(query), 0, 0));
+    }
+
+    @Test
+    public void aggregates() throws Exception {
+        String query = "SELECT COUNT(v), SUM(v), MIN(v), MAX(v) FROM t";
+        assertParallel(query);
+        long sum = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < NROWS; i++) {
+            sum += v(i);
+            min = Math.min(min, v(i));
+            max = Math.max(max, v(i));
+        }
+        List<List<?>> rows = sql(query);
+        assertEquals(1, rows.size());
+        assertEquals(NROWS, longAt(rows, 0, 0));
+        assertEquals(sum, longAt(rows, 0, 1));
+        assertEquals(min, longAt(rows, 0, 2));
+        assertEquals(max, longAt(rows, 0, 3));
+    }
+
+    @Test
+    public void groupedAggregates() throws Exception {
+        String query = "SELECT k, COUNT(*), SUM(v), MAX(v) FROM t GROUP BY k ORDER BY k";
+        assertParallel(query);
+        long[] counts = new long[NKEYS], sums = new long[NKEYS], maxes = new long[NKEYS];
+        for (int i = 0; i < NROWS; i++) {
+            counts[k(i)]++;
+            sums[k(i)] += v(i);
+            maxes[k(i)] = Math.max(maxes[k(i)], v(i));
+        }
+        List<List<?>> rows = sql(query);
+        assertEquals(NKEYS, rows.size());
+        for (int k = 0; k < NKEYS; k++) {
+            assertEquals(k, longAt(rows, k, 0));
+            assertEquals(counts[k], longAt(rows, k, 1));
+            assertEquals(sums[k], longAt(rows, k, 2));
+            assertEquals(maxes[k], longAt(rows, k, 3));
+        }
+    }
+
+    @Test
+    public void sorted() throws Exception {
+        String query = "SELECT v, id FROM t ORDER BY v DESC, id";
+        assertParallel(query);
+        List<List<?>> rows = sql(query);
+        assertEquals(NROWS, rows.size());
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ids.add(longAt(rows, i, 1));
+            if (i > 0) {
+                long prev = longAt(rows, i - 1, 0), next = longAt(rows, i, 0);
+                assertTrue("descending at " + i, prev > next ||
+                           (prev == next && longAt(rows, i - 1, 1) < longAt(rows, i, 1)));
+            }
+        }
+        assertEquals("each row once", NROWS, ids.size());
+    }
+
+    @Test
+    public void parentsAndChildren() throws Exception {
+        sql("CREATE TABLE p(id INT PRIMARY KEY NOT NULL, v INT)");
+        sql("CREATE TABLE c(id INT PRIMARY KEY NOT NULL, pid INT, GROUPING FOREIGN KEY(pid) REFERENCES p(id))");
+        StringBuilder parents = new StringBuilder("INSERT INTO p VALUES");
+        StringBuilder children = new StringBuilder("INSERT INTO c VALUES");
+        int nchildren = 0;
+        for (int i = 0; i < NROWS; i++) {
+            if (i > 0) parents.append(',');
+            parents.append('(').append(i).append(',').append(v(i)).append(')');
+            // Every third parent has none.
+            for (int j = 0; j < i % 3; j++) {
+                if (nchildren > 0) children.append(',');
+                children.append('(').append(nchildren++).append(',').append(i).append(')');
+            }
+        }
+        sql(parents.toString());
+        sql(children.toString());
+        // A parent and its children must be in the same partition for
+        // them to be flattened together.
+        String query = "SELECT COUNT(*), COUNT(c.id) FROM p LEFT JOIN c ON p.id = c.pid";
+        assertParallel(query);
+        List<List<?>> rows = sql(query);
+        assertEquals(NROWS / 3 + ((NROWS % 3 > 0) ? 1 : 0) + nchildren, longAt(rows, 0, 0));
+        assertEquals(nchildren, longAt(rows, 0, 1));
+    }
+
+    private void assertParallel(String query) throws Exception {
+        List<String> plan;
+        try (Connection conn = getConnection()) {
+            plan = new DefaultFormatter(SCHEMA_NAME).format(((JDBCConnection)conn).explain(query));
+        }
+        for (String line : plan) {
+            if (line.contains("Exchange_Parallel")) {
+                return;
+            }
+        }
+        throw new AssertionError("no exchange in " + plan);
+    }
+
+    private static long longAt(List<List<?>> rows, int row, int column) {
+        return ((Number)rows.get(row).get(column)).longValue();
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.sql.embedded;
+
+import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Index;
+import com.foundationdb.ais.model.TableIndex;
+import com.foundationdb.ais.model.TableName;
+import com.foundationdb.ais.model.TestAISBuilder;
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.explain.format.DefaultFormatter;
+import com.foundationdb.server.types.value.ValueSources;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.*;
+import java.util.*;
+
+/** A table index with an included column, built through the AIS since there is no DDL for it. */
+public class TableIndexIncludedColumnsIT extends EmbeddedJDBCITBase
+{
+    private static final String TABLE = "t";
+    private static final String INDEX = "k_incl_v";
+    private static final String UNIQUE_INDEX = "w_incl_v";
+
+    @Before
+    public void createTable() {
+        TestAISBuilder builder = new TestAISBuilder(typesRegistry());
+        builder.table(SCHEMA_NAME, TABLE);
+        builder.column(SCHEMA_NAME, TABLE, "id", 0, "MCOMPAT", "int", false);
+        builder.column(SCHEMA_NAME, TABLE, "k", 1, "MCOMPAT", "int", true);
+        builder.column(SCHEMA_NAME, TABLE, "v", 2, "MCOMPAT", "int", true);
+        builder.column(SCHEMA_NAME, TABLE, "w", 3, "MCOMPAT", "int", true);
+        builder.pk(SCHEMA_NAME, TABLE);
+        builder.indexColumn(SCHEMA_NAME, TABLE, Index.PRIMARY, "id", 0, true, null);
+        builder.index(SCHEMA_NAME, TABLE, INDEX);
+        builder.indexColumn(SCHEMA_NAME, TABLE, INDEX, "k", 0, true, null);
+        builder.indexIncludedColumn(SCHEMA_NAME, TABLE, INDEX, "v");
+        builder.unique(SCHEMA_NAME, TABLE, UNIQUE_INDEX);
+        builder.indexColumn(SCHEMA_NAME, TABLE, UNIQUE_INDEX, "w", 0, true, null);
+        builder.indexIncludedColumn(SCHEMA_NAME, TABLE, UNIQUE_INDEX, "v");
+        builder.basicSchemaIsComplete();
+        builder.createGroup(TABLE, SCHEMA_NAME);
+        builder.addTableToGroup(new TableName(SCHEMA_NAME, TABLE), SCHEMA_NAME, TABLE);
+        builder.groupingIsComplete();
+        ddl().createTable(session(), builder.akibanInformationSchema().getTable(SCHEMA_NAME, TABLE));
+
+        sql("INSERT INTO t VALUES(1, 10, 100, 1000), (2, 20, 200, 2000), (3, 10, 300, 3000)");
+    }
+
+    @Test
+    public void includedColumnStored() {
+        TableIndex index = index();
+        assertEquals(Arrays.asList("v"), columnNames(index));
+        // k, then the hkey (id), then v.
+        assertEquals(Arrays.asList(Arrays.asList(10, 1, 100),
+                                   Arrays.asList(10, 3, 300),
+                                   Arrays.asList(20, 2, 200)),
+                     indexEntries(index));
+    }
+
+    @Test
+    public void updateIncludedColumnRewritesEntry() throws Exception {
+        sql("UPDATE t SET v = 222 WHERE id = 2");
+        assertEquals(Arrays.asList(Arrays.asList(10, 1, 100),
+                                   Arrays.asList(10, 3, 300),
+                                   Arrays.asList(20, 2, 222)),
+                     indexEntries(index()));
+        // Answered from the index alone, so a stale entry would show here.
+        assertEquals(Arrays.asList(Arrays.asList(20, 222)),
+                     sql("SELECT k, v FROM t WHERE k = 20"));
+    }
+
+    @Test
+    public void updateOtherColumnKeepsEntry() throws Exception {
+        sql("UPDATE t SET w = 2222 WHERE id = 2");
+        assertEquals(Arrays.asList(Arrays.asList(10, 1, 100),
+                                   Arrays.asList(10, 3, 300),
+                                   Arrays.asList(20, 2, 200)),
+                     indexEntries(index()));
+    }
+
+    @Test
+    public void coveringScan() throws Exception {
+        String query = "SELECT k, v FROM t WHERE k = 10 ORDER BY v";
+        List<String> plan = explain(query);
+        assertTrue("uses index: " + plan, contains(plan, INDEX));
+        assertFalse("covering: " + plan, contains(plan, "Lookup"));
+        assertEquals(Arrays.asList(Arrays.asList(10, 100), Arrays.asList(10, 300)),
+                     sql(query));
+    }
+
+    @Test
+    public void notCoveringScan() throws Exception {
+        String query = "SELECT k, w FROM t WHERE k = 10 ORDER BY w";
+        List<String> plan = explain(query);
+        assertTrue("needs the row: " + plan, contains(plan, "Lookup"));
+        assertEquals(Arrays.asList(Arrays.asList(10, 1000), Arrays.asList(10, 3000)),
+                     sql(query));
+    }
+
+    @Test
+    public void conditionOnIncludedColumn() throws Exception {
+        // v follows the whole key but is not part of it, so it is checked rather than scanned for.
+        assertEquals(Arrays.asList(Arrays.asList(10, 300)),
+                     sql("SELECT k, v FROM t WHERE k = 10 AND id = 3 AND v = 300"));
+        assertEquals(Arrays.asList(Arrays.asList(10, 300)),
+                     sql("SELECT k, v FROM t WHERE k = 10 AND id = 3 AND v > 200"));
+    }
+
+    @Test
+    public void uniqueIgnoresIncludedColumn() throws Exception {
+        try (Connection conn = getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute("INSERT INTO t VALUES(4, 40, 400, 1000)");
+            fail("duplicate w allowed");
+        }
+        catch (SQLException ex) {
+            assertEquals("23501", ex.getSQLState());
+        }
+        assertEquals(Arrays.asList(Arrays.asList(1000, 100),
+                                   Arrays.asList(2000, 200),
+                                   Arrays.asList(3000, 300)),
+                     indexEntries(getTable(SCHEMA_NAME, TABLE).getIndex(UNIQUE_INDEX), 0, 2));
+    }
+
+    private TableIndex index() {
+        return getTable(SCHEMA_NAME, TABLE).getIndex(INDEX);
+    }
+
+    private static List<String> columnNames(TableIndex index) {
+        List<String> names = new ArrayList<>();
+        for (Column column : index.getIncludedColumns()) {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    private List<List<Object>> indexEntries(TableIndex index) {
+        List<List<Object>> entries = new ArrayList<>();
+        for (Row row : scanAllIndex(index)) {
+            List<Object> entry = new ArrayList<>();
+            for (int i = 0; i < row.rowType().nFields(); i++) {
+                entry.add(ValueSources.toObject(row.value(i)));
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /** Just the given fields of each entry. */
+    private List<List<Object>> indexEntries(TableIndex index, int... fields) {
+        List<List<Object>> entries = new ArrayList<>();
+        for (List<Object> entry : indexEntries(index)) {
+            List<Object> selected = new ArrayList<>();
+            for (int field : fields) {
+                selected.add(entry.get(field));
+            }
+            entries.add(selected);
+        }
+        return entries;
+    }
+
+    private List<String> explain(String query) throws Exception {
+        try (Connection conn = getConnection()) {
+            return new DefaultFormatter(SCHEMA_NAME).format(((JDBCConnection)conn).explain(query));
+        }
+    }
+
+    private static boolean contains(List<String> plan, String text) {
+        for (String line : plan) {
+            if (line.contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.optimizer.rule.cost;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CardinalityFeedbackTest
+{
+    private static final double DELTA = 1.0e-9;
+
+    @Test
+    public void noFeedback() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 10.0);
+        assertEquals(0.25, feedback.correct("s.t.c EQ", 0.25), DELTA);
+    }
+
+    @Test
+    public void corrected() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 10.0);
+        CardinalityFeedback.Plan plan = new CardinalityFeedback.Plan();
+        feedback.observer(plan, "s.t.c EQ", 0.01, 0.01).observed(1000, 500);
+        assertEquals(0.5, feedback.correct("s.t.c EQ", 0.01), DELTA);
+        // Same shape with a different constant is scaled the same way.
+        assertEquals(0.1, feedback.correct("s.t.c EQ", 0.002), DELTA);
+        // But never beyond everything.
+        assertEquals(1.0, feedback.correct("s.t.c EQ", 0.1), DELTA);
+        assertTrue(plan.isStale());
+    }
+
+    @Test
+    public void smoothed() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 10.0);
+        CardinalityFeedback.Plan plan = new CardinalityFeedback.Plan();
+        feedback.observer(plan, "s.t.c LT", 0.1, 0.1).observed(1000, 400);
+        feedback.observer(plan, "s.t.c LT", 0.1, 0.4).observed(1000, 100);
+        // Geometric mean of 4x and 1x.
+        assertEquals(0.2, feedback.correct("s.t.c LT", 0.1), DELTA);
+        assertFalse(plan.isStale());
+    }
+
+    @Test
+    public void tooFewRows() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 10.0);
+        CardinalityFeedback.Plan plan = new CardinalityFeedback.Plan();
+        feedback.observer(plan, "s.t.c EQ", 0.001, 0.001).observed(CardinalityFeedback.MIN_OBSERVED_ROWS - 1, 50);
+        assertEquals(0, feedback.size());
+        assertFalse(plan.isStale());
+    }
+
+    @Test
+    public void noneSelected() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 10.0);
+        CardinalityFeedback.Plan plan = new CardinalityFeedback.Plan();
+        feedback.observer(plan, "s.t.c GT", 0.5, 0.5).observed(10000, 0);
+        assertTrue(plan.isStale());
+        assertEquals(0.5 / 10000, feedback.correct("s.t.c GT", 0.5), 1.0e-6);
+    }
+
+    @Test
+    public void bounded() {
+        CardinalityFeedback feedback = new CardinalityFeedback(2, 10.0);
+        CardinalityFeedback.Plan plan = new CardinalityFeedback.Plan();
+        feedback.observer(plan, "a", 0.1, 0.1).observed(1000, 200);
+        feedback.observer(plan, "b", 0.1, 0.1).observed(1000, 200);
+        feedback.observer(plan, "c", 0.1, 0.1).observed(1000, 200);
+        assertEquals(2, feedback.size());
+        assertEquals(0.1, feedback.correct("a", 0.1), DELTA);
+        assertEquals(0.2, feedback.correct("c", 0.1), DELTA);
+    }
+}
@@ -284,6 +284,70 @@ public final class ColumnRangesTest {
         assertEquals(expected, ColumnRanges.rangeAtNode(isNull));
     }
     
+    @Test
+    public void likePrefix() {
+        ConditionExpression like = like(firstName, "jo%");
+        ColumnRanges expected = columnRanges(
+                firstName,
+                like,
+                segment(inclusive("jo"), exclusive("jp"))
+        );
+        assertEquals(expected, ColumnRanges.rangeAtNode(like));
+    }
+
+    @Test
+    public void likePrefixAndMore() {
+        ConditionExpression like = like(firstName, "jo%e_");
+        ColumnRanges expected = columnRanges(
+                firstName,
+                Collections.<ConditionExpression>emptySet(),
+                segment(inclusive("jo"), exclusive("jp"))
+        );
+        assertEquals(expected, ColumnRanges.rangeAtNode(like));
+    }
+
+    @Test
+    public void likeEscapedWildcard() {
+        ConditionExpression like = like(firstName, "5\\%z%");
+        ColumnRanges expected = columnRanges(
+                firstName,
+                like,
+                segment(inclusive("5%z"), exclusive("5%{"))
+        );
+        assertEquals(expected, ColumnRanges.rangeAtNode(like));
+    }
+
+    @Test
+    public void likeNoPrefix() {
+        ColumnRanges expected = null;
+        assertEquals(expected, ColumnRanges.rangeAtNode(like(firstName, "%joe%")));
+        assertEquals(expected, ColumnRanges.rangeAtNode(like(firstName, "_oe")));
+    }
+
+    @Test
+    public void ilikeCaseInvariantPrefix() {
+        ConditionExpression ilike = ilike(firstName, "12b%");
+        ColumnRanges expected = columnRanges(
+                firstName,
+                Collections.<ConditionExpression>emptySet(),
+                segment(inclusive("12"), exclusive("13"))
+        );
+        assertEquals(expected, ColumnRanges.rangeAtNode(ilike));
+        assertEquals(null, ColumnRanges.rangeAtNode(ilike(firstName, "joe%")));
+    }
+
+    @Test
+    public void orWithInexactLike() {
+        ConditionExpression either = or(like(firstName, "ab%"), like(firstName, "jo%e"));
+        ColumnRanges expected = columnRanges(
+                firstName,
+                Collections.<ConditionExpression>emptySet(),
+                segment(inclusive("ab"), exclusive("ac")),
+                segment(inclusive("jo"), exclusive("jp"))
+        );
+        assertEquals(expected, ColumnRanges.rangeAtNode(either));
+    }
+
     private ColumnRanges columnRanges(ColumnExpression col, ConditionExpression condition, RangeSegment... segments) {
         return new ColumnRanges(
                 col,
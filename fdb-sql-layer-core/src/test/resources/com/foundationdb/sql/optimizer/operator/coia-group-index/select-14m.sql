@@ -0,0 +1,7 @@
+SELECT order_date, sku, quan
+  FROM customers
+ INNER JOIN orders ON customers.cid = orders.cid
+ INNER JOIN items ON orders.oid = items.oid
+ WHERE name = 'Smith'
+   AND sku IN ('1234', '4567', '6666', '1001', '1002', '1003', '1004', '1005', '1006', '1007',
+               '1008', '1009', '1010', '1011', '1012', '1013', '1014', '1015', '1016', '1017', '4567')
@@ -73,10 +73,13 @@ public abstract class PostgresBaseOperatorStatement extends PostgresDMLStatement
             pbos = compiler.generateUpdate(this,
                                            (PhysicalUpdate)result, stmt.statementToString(),
                                            parameterTypes);
-        else
-            pbos = compiler.generateSelect(this,
-                                           (PhysicalSelect)result,
-                                           parameterTypes);
+        else {
+            PhysicalSelect select = (PhysicalSelect)result;
+            pbos = compiler.generateSelect(this, select, parameterTypes);
+            if (select.isDeterministic() && (pbos instanceof PostgresOperatorStatement))
+                ((PostgresOperatorStatement)pbos).initResultCache(sql, server.getDefaultSchemaName(),
+                                                                   select.getAffectedTables());
+        }
         pbos.compiler = null;
         return pbos;
     }
@@ -33,7 +33,8 @@ public abstract class PostgresBaseStatementGenerator
         // This very inefficient reparsing by every generator is actually avoided.
         SQLParser parser = server.getParser();
         try {
-            return generateStub(server, sql, parser.parseStatement(sql),
+            return generateStub(server, sql,
+                                parser.parseStatement(PostgresCopyInStatement.maskBinaryFormat(sql)),
                                 parser.getParameterList(), paramTypes);
         }
         catch (SQLParserException ex) {
@@ -88,6 +88,11 @@ public class PostgresBoundQueryContext extends PostgresQueryContext
         }
     }
 
+    @Override
+    public boolean isCursorUnstarted() {
+        return (state == State.NORMAL) || (state == State.UNOPENED);
+    }
+
     @Override
     public <T extends CursorBase> boolean finishCursor(PostgresCursorGenerator<T> generator, T cursor, int nrows, boolean suspended) {
         this.nrows += nrows;
@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import com.foundationdb.server.types.TClass;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.common.BigDecimalWrapper;
+import com.foundationdb.server.types.common.types.StringAttribute;
+import com.foundationdb.server.types.common.types.TBigDecimal;
+import com.foundationdb.server.types.common.types.TString;
+import com.foundationdb.server.types.common.types.TypesTranslator;
+import com.foundationdb.server.types.mcompat.mtypes.MDateAndTime;
+import com.foundationdb.server.types.mcompat.mtypes.MNumeric;
+import com.foundationdb.server.types.value.ValueSource;
+import com.foundationdb.sql.server.ServerValueEncoder;
+import com.foundationdb.util.ByteSource;
+import com.foundationdb.util.Strings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes one result column's values, with their length prefix,
+ * straight into the <code>DataRow</code> message buffer. One is
+ * chosen per column up front, so the common types are written without
+ * going through {@link ServerValueEncoder}'s intermediate stream.
+ */
+abstract class PostgresColumnEncoder
+{
+    /** Write <code>value</code>, with its length, or <code>-1</code> for NULL. */
+    public final void encode(ValueSource value, PostgresMessageBuffer buffer) throws IOException {
+        if (value.isNull())
+            buffer.writeInt(-1);
+        else
+            encodeNotNull(value, buffer);
+    }
+
+    protected abstract void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) throws IOException;
+
+    public static PostgresColumnEncoder[] forColumns(List<PostgresType> columnTypes,
+                                                     PostgresQueryContext context,
+                                                     ServerValueEncoder encoder) {
+        if (columnTypes == null)
+            return new PostgresColumnEncoder[0];
+        PostgresColumnEncoder[] result = new PostgresColumnEncoder[columnTypes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = forColumn(columnTypes.get(i), context.isColumnBinary(i), encoder);
+        }
+        return result;
+    }
+
+    public static PostgresColumnEncoder forColumn(PostgresType type, boolean binary,
+                                                  ServerValueEncoder encoder) {
+        TInstance tinst = type.getType();
+        if (tinst != null) {
+            PostgresColumnEncoder direct = binary ?
+                binaryEncoder(type, encoder) :
+                textEncoder(type, tinst, encoder);
+            if (direct != null)
+                return direct;
+        }
+        return new Generic(type, binary, encoder);
+    }
+
+    private static PostgresColumnEncoder binaryEncoder(PostgresType type, ServerValueEncoder encoder) {
+        final TypesTranslator typesTranslator = encoder.getTypesTranslator();
+        // Zero dates are only special in the generic encoder.
+        boolean zeroDateTimeAsIs = (encoder.getZeroDateTimeBehavior() == ServerValueEncoder.ZeroDateTimeBehavior.NONE);
+        switch (type.getBinaryEncoding()) {
+        case INT_16:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(2);
+                    buffer.writeShort((short)typesTranslator.getIntegerValue(value));
+                }
+            };
+        case INT_32:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(4);
+                    buffer.writeInt((int)typesTranslator.getIntegerValue(value));
+                }
+            };
+        case INT_64:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(8);
+                    buffer.writeLong(typesTranslator.getIntegerValue(value));
+                }
+            };
+        case FLOAT_64:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(8);
+                    buffer.writeLong(Double.doubleToLongBits(value.getDouble()));
+                }
+            };
+        case BOOLEAN_C:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(1);
+                    buffer.write(value.getBoolean() ? 1 : 0);
+                }
+            };
+        case TIMESTAMP_INT64_MICROS_2000_NOTZ:
+            if (!zeroDateTimeAsIs)
+                return null;
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(8);
+                    buffer.writeLong(ServerValueEncoder.seconds2000NoTZ(typesTranslator.getTimestampMillisValue(value)) * 1000000L +
+                                     typesTranslator.getTimestampNanosValue(value) / 1000);
+                }
+            };
+        case DAYS_2000:
+            if (!zeroDateTimeAsIs)
+                return null;
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    buffer.writeInt(4);
+                    buffer.writeInt(ServerValueEncoder.days2000(typesTranslator.getTimestampMillisValue(value)));
+                }
+            };
+        case DECIMAL_PG_NUMERIC_VAR:
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    short[] digits = ServerValueEncoder.pgNumericVar(typesTranslator.getDecimalValue(value));
+                    buffer.writeInt(digits.length * 2);
+                    for (short d : digits) {
+                        buffer.writeShort(d);
+                    }
+                }
+            };
+        case STRING_BYTES:
+            if (isUTF8(encoder.getEncoding()))
+                return new UTF8String(null);
+            return null;
+        default:
+            return null;
+        }
+    }
+
+    private static PostgresColumnEncoder textEncoder(PostgresType type, TInstance tinst,
+                                                     ServerValueEncoder encoder) {
+        if (type.getBinaryEncoding() == PostgresType.BinaryEncoding.BINARY_OCTAL_TEXT)
+            return null;
+        TClass tclass = tinst.typeClass();
+        if ((tclass instanceof MNumeric) && (tclass != MNumeric.BIGINT_UNSIGNED)) {
+            // All the other integer types format as plain decimal digits.
+            return new PostgresColumnEncoder() {
+                @Override
+                protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+                    int start = buffer.beginLengthPrefixed();
+                    buffer.writeDecimal(integerValue(value));
+                    buffer.endLengthPrefixed(start);
+                }
+            };
+        }
+        if (tclass instanceof TBigDecimal) {
+            return new Decimal(type, encoder);
+        }
+        if (tclass instanceof TString) {
+            if (isUTF8(encoder.getEncoding()))
+                return new UTF8String(isUTF8(StringAttribute.charsetName(tinst)) ? tinst : null);
+            return null;
+        }
+        if (encoder.getZeroDateTimeBehavior() == ServerValueEncoder.ZeroDateTimeBehavior.NONE) {
+            if (tclass == MDateAndTime.DATE)
+                return new DateTime(type, encoder, false);
+            if (tclass == MDateAndTime.DATETIME)
+                return new DateTime(type, encoder, true);
+        }
+        return null;
+    }
+
+    private static boolean isUTF8(String charset) {
+        return (charset != null) && Strings.equalCharsets(StandardCharsets.UTF_8, charset);
+    }
+
+    private static long integerValue(ValueSource value) {
+        switch (TInstance.underlyingType(value.getType())) {
+        case INT_8:
+            return value.getInt8();
+        case INT_16:
+            return value.getInt16();
+        case UINT_16:
+            return value.getUInt16();
+        case INT_32:
+            return value.getInt32();
+        default:
+            return value.getInt64();
+        }
+    }
+
+    /** Anything else: go through {@link ServerValueEncoder} as before. */
+    static class Generic extends PostgresColumnEncoder {
+        private final PostgresType type;
+        private final boolean binary;
+        private final ServerValueEncoder encoder;
+
+        public Generic(PostgresType type, boolean binary, ServerValueEncoder encoder) {
+            this.type = type;
+            this.binary = binary;
+            this.encoder = encoder;
+        }
+
+        @Override
+        protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) throws IOException {
+            // Zero dates may still turn into NULL.
+            ByteArrayOutputStream bytes = encoder.encodeValue(value, type, binary);
+            if (bytes == null) {
+                buffer.writeInt(-1);
+            }
+            else {
+                buffer.writeInt(bytes.size());
+                bytes.writeTo(buffer);
+            }
+        }
+    }
+
+    /** Strings sent as UTF-8, copying the bytes when already stored that way. */
+    static class UTF8String extends PostgresColumnEncoder {
+        private final TInstance utf8Type;
+
+        public UTF8String(TInstance utf8Type) {
+            this.utf8Type = utf8Type;
+        }
+
+        @Override
+        protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) {
+            int start = buffer.beginLengthPrefixed();
+            Object cached = value.hasCacheValue() ? value.getObject() : null;
+            if ((utf8Type != null) && (cached instanceof ByteSource)) {
+                ByteSource bytes = (ByteSource)cached;
+                buffer.write(bytes.byteArray(), bytes.byteArrayOffset(), bytes.byteArrayLength());
+            }
+            else {
+                buffer.writeUTF8(value.getString());
+            }
+            buffer.endLengthPrefixed(start);
+        }
+    }
+
+    /** Decimals already in <code>BigDecimal</code> form. */
+    static class Decimal extends PostgresColumnEncoder {
+        private final Generic generic;
+
+        public Decimal(PostgresType type, ServerValueEncoder encoder) {
+            this.generic = new Generic(type, false, encoder);
+        }
+
+        @Override
+        protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) throws IOException {
+            if (value.hasCacheValue()) {
+                int start = buffer.beginLengthPrefixed();
+                buffer.writeAscii(((BigDecimalWrapper)value.getObject()).asBigDecimal().toPlainString());
+                buffer.endLengthPrefixed(start);
+            }
+            else {
+                generic.encodeNotNull(value, buffer);
+            }
+        }
+    }
+
+    /** <code>YYYY-MM-DD</code> and <code>YYYY-MM-DD HH:MM:SS</code>, without <code>String.format</code>. */
+    static class DateTime extends PostgresColumnEncoder {
+        private final Generic generic;
+        private final boolean withTime;
+
+        public DateTime(PostgresType type, ServerValueEncoder encoder, boolean withTime) {
+            this.generic = new Generic(type, false, encoder);
+            this.withTime = withTime;
+        }
+
+        @Override
+        protected void encodeNotNull(ValueSource value, PostgresMessageBuffer buffer) throws IOException {
+            long[] dt = withTime ?
+                MDateAndTime.decodeDateTime(value.getInt64()) :
+                MDateAndTime.decodeDate(value.getInt32());
+            for (long field : dt) {
+                if (field < 0) {
+                    generic.encodeNotNull(value, buffer);
+                    return;
+                }
+            }
+            int start = buffer.beginLengthPrefixed();
+            buffer.writeDigits(dt[MDateAndTime.YEAR_INDEX], 4);
+            buffer.writeAscii('-');
+            buffer.writeDigits(dt[MDateAndTime.MONTH_INDEX], 2);
+            buffer.writeAscii('-');
+            buffer.writeDigits(dt[MDateAndTime.DAY_INDEX], 2);
+            if (withTime) {
+                buffer.writeAscii(' ');
+                buffer.writeDigits(dt[MDateAndTime.HOUR_INDEX], 2);
+                buffer.writeAscii(':');
+                buffer.writeDigits(dt[MDateAndTime.MIN_INDEX], 2);
+                buffer.writeAscii(':');
+                buffer.writeDigits(dt[MDateAndTime.SEC_INDEX], 2);
+            }
+            buffer.endLengthPrefixed(start);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import com.foundationdb.sql.server.ServerType;
+import com.foundationdb.sql.server.ServerValueEncoder;
+
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.server.service.externaldata.PostgresBinaryRowReader;
+
+import java.io.IOException;
+
+/** Output rows in PostgreSQL binary <code>COPY</code> format, using
+ * the same column encoders as binary result rows.
+ */
+public class PostgresCopyBinaryOutputter extends PostgresOutputter<Row>
+{
+    private final PostgresColumnEncoder[] columnEncoders;
+
+    public PostgresCopyBinaryOutputter(PostgresQueryContext context,
+                                       PostgresDMLStatement statement,
+                                       String encoding) {
+        super(context, statement);
+        encoder = new ServerValueEncoder(context.getTypesTranslator(),
+                                         encoding,
+                                         context.getServer().getFormatOptions());
+        columnEncoders = new PostgresColumnEncoder[ncols];
+        for (int i = 0; i < ncols; i++) {
+            PostgresType type = columnTypes.get(i);
+            // Types without a binary encoding of their own are sent as text.
+            boolean binary = (type.getBinaryEncoding() != ServerType.BinaryEncoding.NONE);
+            columnEncoders[i] = PostgresColumnEncoder.forColumn(type, binary, encoder);
+        }
+    }
+
+    @Override
+    public void output(Row row) throws IOException {
+        messenger.beginMessage(PostgresMessages.COPY_DATA_TYPE.code());
+        output(row, messenger.getMessageBuffer());
+        messenger.sendMessage();
+    }
+
+    @Override
+    public void beforeData() throws IOException {
+        messenger.beginMessage(PostgresMessages.COPY_OUT_RESPONSE_TYPE.code());
+        messenger.write(1);
+        messenger.writeShort(ncols);
+        for (int i = 0; i < ncols; i++) {
+            messenger.writeShort(1);
+        }
+        messenger.sendMessage();
+        messenger.beginMessage(PostgresMessages.COPY_DATA_TYPE.code());
+        outputHeader(messenger.getMessageBuffer());
+        messenger.sendMessage();
+    }
+
+    @Override
+    public void afterData() throws IOException {
+        messenger.beginMessage(PostgresMessages.COPY_DATA_TYPE.code());
+        outputTrailer(messenger.getMessageBuffer());
+        messenger.sendMessage();
+        messenger.beginMessage(PostgresMessages.COPY_DONE_TYPE.code());
+        messenger.sendMessage();
+    }
+
+    public void output(Row row, PostgresMessageBuffer buffer) throws IOException {
+        buffer.writeShort(ncols);
+        for (int i = 0; i < ncols; i++) {
+            columnEncoders[i].encode(row.value(i), buffer);
+        }
+    }
+
+    public void outputHeader(PostgresMessageBuffer buffer) {
+        byte[] signature = PostgresBinaryRowReader.SIGNATURE;
+        buffer.write(signature, 0, signature.length);
+        buffer.writeInt(0);     // flags
+        buffer.writeInt(0);     // header extension length
+    }
+
+    public void outputTrailer(PostgresMessageBuffer buffer) {
+        buffer.writeShort(-1);
+    }
+
+}
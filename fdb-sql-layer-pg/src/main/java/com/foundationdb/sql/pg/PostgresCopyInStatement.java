@@ -51,8 +51,10 @@ public class PostgresCopyInStatement extends PostgresBaseStatement
     private List<Column> toColumns;
     private File fromFile;
     private CopyStatementNode.Format format;
+    private boolean binary;
     private String encoding;
     private CsvFormat csvFormat;
+    private List<PostgresType> toTypes; // Only for binary format.
     private long skipRows;
     private long commitFrequency;
     private int maxRetries;
@@ -81,6 +83,79 @@ public class PostgresCopyInStatement extends PostgresBaseStatement
         return format;
     }
 
+    /** Is this a COPY with PostgreSQL's own <code>FORMAT BINARY</code>? */
+    public static boolean isBinaryFormat(String sql) {
+        return (binaryFormatOption(sql) >= 0);
+    }
+
+    /**
+     * The parser's grammar does not know <code>FORMAT BINARY</code>, so
+     * it is handed the statement with <code>CSV</code> in its place,
+     * padded to keep every offset the same. {@link #isBinaryFormat} on
+     * the original text then tells the two apart.
+     */
+    public static String maskBinaryFormat(String sql) {
+        int index = binaryFormatOption(sql);
+        if (index < 0)
+            return sql;
+        return sql.substring(0, index) + "CSV   " + sql.substring(index + 6);
+    }
+
+    /** Where the <code>BINARY</code> of a <code>FORMAT BINARY</code>
+     * outside any quotes or comments in a COPY statement starts, or
+     * <code>-1</code>. */
+    protected static int binaryFormatOption(String sql) {
+        String previous = null;
+        int i = 0, len = sql.length();
+        while (i < len) {
+            char ch = sql.charAt(i);
+            if ((ch == '\'') || (ch == '"')) {
+                int close = sql.indexOf(ch, i + 1);
+                if (close < 0)
+                    break;
+                i = close + 1;
+                previous = "";
+            }
+            else if (sql.startsWith("--", i)) {
+                int close = sql.indexOf('\n', i);
+                if (close < 0)
+                    break;
+                i = close + 1;
+            }
+            else if (sql.startsWith("/*", i)) {
+                int close = sql.indexOf("*/", i + 2);
+                if (close < 0)
+                    break;
+                i = close + 2;
+            }
+            else if (Character.isLetter(ch) || (ch == '_')) {
+                int start = i;
+                while ((i < len) && (Character.isLetterOrDigit(sql.charAt(i)) || 
+                                     (sql.charAt(i) == '_')))
+                    i++;
+                String word = sql.substring(start, i);
+                if (previous == null) {
+                    if (!word.equalsIgnoreCase("COPY"))
+                        break;
+                }
+                else if (word.equalsIgnoreCase("BINARY") &&
+                         previous.equalsIgnoreCase("FORMAT")) {
+                    return start;
+                }
+                previous = word;
+            }
+            else {
+                if (!Character.isWhitespace(ch)) {
+                    if (previous == null)
+                        break;
+                    previous = "";
+                }
+                i++;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public PostgresStatement finishGenerating(PostgresServerSession server,
                                               String sql, StatementNode stmt,
@@ -111,20 +186,32 @@ public class PostgresCopyInStatement extends PostgresBaseStatement
         format = copyStmt.getFormat();
         if (format == null)
             format = CopyStatementNode.Format.CSV;
-        switch (format) {
-        case CSV:
-            csvFormat = csvFormat(copyStmt, server);
-            if (copyStmt.isHeader()) {
-                skipRows = 1;
-            }
-            break;
-        case MYSQL_DUMP:
+        binary = isBinaryFormat(sql);
+        if (binary) {
             encoding = copyStmt.getEncoding();
             if (encoding == null)
                 encoding = server.getMessenger().getEncoding();
-            break;
-        default:
-            throw new UnsupportedSQLException("COPY FORMAT " + format);
+            toTypes = new ArrayList<>(toColumns.size());
+            for (Column column : toColumns) {
+                toTypes.add(PostgresType.fromAIS(column));
+            }
+        }
+        else {
+            switch (format) {
+            case CSV:
+                csvFormat = csvFormat(copyStmt, server);
+                if (copyStmt.isHeader()) {
+                    skipRows = 1;
+                }
+                break;
+            case MYSQL_DUMP:
+                encoding = copyStmt.getEncoding();
+                if (encoding == null)
+                    encoding = server.getMessenger().getEncoding();
+                break;
+            default:
+                throw new UnsupportedSQLException("COPY FORMAT " + format);
+            }
         }
         commitFrequency = copyStmt.getCommitFrequency();
         if (commitFrequency == 0) {
@@ -150,22 +237,31 @@ public class PostgresCopyInStatement extends PostgresBaseStatement
             // Always use a stream: we align records and messages, but
             // this is not a requirement on the client.
             istr = new PostgresCopyInputStream(server.getMessenger(), 
-                                               toColumns.size());
+                                               toColumns.size(),
+                                               binary);
         try {
             preExecute(context, DXLFunction.UNSPECIFIED_DML_WRITE);
-            switch (format) {
-            case CSV:
-                nrows = externalData.loadTableFromCsv(session, istr, csvFormat, skipRows,
-                                                      toTable, toColumns,
-                                                      commitFrequency, maxRetries,
-                                                      context);
-                break;
-            case MYSQL_DUMP:
-                nrows = externalData.loadTableFromMysqlDump(session, istr, encoding,
-                                                            toTable, toColumns,
-                                                            commitFrequency, maxRetries,
-                                                            context);
-                break;
+            if (binary) {
+                nrows = externalData.loadTableFromPostgresBinary(session, istr, encoding,
+                                                                 toTypes, toTable, toColumns,
+                                                                 commitFrequency, maxRetries,
+                                                                 context);
+            }
+            else {
+                switch (format) {
+                case CSV:
+                    nrows = externalData.loadTableFromCsv(session, istr, csvFormat, skipRows,
+                                                          toTable, toColumns,
+                                                          commitFrequency, maxRetries,
+                                                          context);
+                    break;
+                case MYSQL_DUMP:
+                    nrows = externalData.loadTableFromMysqlDump(session, istr, encoding,
+                                                                toTable, toColumns,
+                                                                commitFrequency, maxRetries,
+                                                                context);
+                    break;
+                }
             }
         }
         finally {
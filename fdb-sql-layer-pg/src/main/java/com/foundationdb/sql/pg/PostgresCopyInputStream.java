@@ -29,13 +29,20 @@ public class PostgresCopyInputStream extends InputStream
     
     public PostgresCopyInputStream(PostgresMessenger messenger, int ncols) 
             throws IOException {
+        this(messenger, ncols, false);
+    }
+
+    public PostgresCopyInputStream(PostgresMessenger messenger, int ncols,
+                                   boolean binary) 
+            throws IOException {
         this.messenger = messenger;
 
+        int format = binary ? 1 : 0;
         messenger.beginMessage(PostgresMessages.COPY_IN_RESPONSE_TYPE.code());
-        messenger.writeByte(0); // textual
+        messenger.writeByte(format);
         messenger.writeShort((short)ncols);
         for (int i = 0; i < ncols; i++) {
-            messenger.writeShort(0); // text
+            messenger.writeShort(format);
         }
         messenger.sendMessage(true);
     }
@@ -44,7 +51,7 @@ public class PostgresCopyInputStream extends InputStream
     public int read() throws IOException {
         while (true) {
             if (pos < length)
-                return message[pos++];
+                return message[pos++] & 0xFF;
             if (!nextMessage())
                 return -1;
         }
@@ -30,6 +30,7 @@ import com.foundationdb.server.service.externaldata.CsvFormat;
 import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
 
 import static com.foundationdb.sql.pg.PostgresCopyInStatement.csvFormat;
+import static com.foundationdb.sql.pg.PostgresCopyInStatement.isBinaryFormat;
 import static com.foundationdb.server.service.dxl.DXLFunctionsHook.DXLFunction;
 
 import java.io.*;
@@ -40,6 +41,9 @@ public class PostgresCopyOutStatement extends PostgresOperatorStatement
 {
     private File toFile;
     private CsvFormat csvFormat;
+    private String binaryEncoding; // Only for binary format.
+
+    private static final int FILE_BUFFER_SIZE = 65536;
 
     public PostgresCopyOutStatement(PostgresOperatorCompiler compiler) {
         super(compiler);
@@ -64,15 +68,22 @@ public class PostgresCopyOutStatement extends PostgresOperatorStatement
         CopyStatementNode.Format format = copyStmt.getFormat();
         if (format == null)
             format = CopyStatementNode.Format.CSV;
-        switch (format) {
-        case CSV:
-            csvFormat = csvFormat(copyStmt, server);
-            if (copyStmt.isHeader()) {
-                csvFormat.setHeadings(getColumnNames());
+        if (isBinaryFormat(sql)) {
+            binaryEncoding = copyStmt.getEncoding();
+            if (binaryEncoding == null)
+                binaryEncoding = server.getMessenger().getEncoding();
+        }
+        else {
+            switch (format) {
+            case CSV:
+                csvFormat = csvFormat(copyStmt, server);
+                if (copyStmt.isHeader()) {
+                    csvFormat.setHeadings(getColumnNames());
+                }
+                break;
+            default:
+                throw new UnsupportedSQLException("COPY FORMAT " + format);
             }
-            break;
-        default:
-            throw new UnsupportedSQLException("COPY FORMAT " + format);
         }
         return this;
     }
@@ -91,17 +102,21 @@ public class PostgresCopyOutStatement extends PostgresOperatorStatement
             preExecute(context, DXLFunction.UNSPECIFIED_DML_READ);
             cursor = context.startCursor(this, bindings);
             outputStream = new FileOutputStream(toFile);
-            int ncols = getColumnTypes().size();
-            PostgresCopyCsvOutputter outputter = 
-                new PostgresCopyCsvOutputter(context, this, csvFormat);
-            if (csvFormat.getHeadings() != null) {
-                outputter.outputHeadings(outputStream);
-                nrows++;
+            if (binaryEncoding != null) {
+                nrows = outputBinary(context, cursor, outputStream);
             }
-            Row row;
-            while ((row = cursor.next()) != null) {
-                outputter.output(row, outputStream);
-                nrows++;
+            else {
+                PostgresCopyCsvOutputter outputter = 
+                    new PostgresCopyCsvOutputter(context, this, csvFormat);
+                if (csvFormat.getHeadings() != null) {
+                    outputter.outputHeadings(outputStream);
+                    nrows++;
+                }
+                Row row;
+                while ((row = cursor.next()) != null) {
+                    outputter.output(row, outputStream);
+                    nrows++;
+                }
             }
         }
         finally {
@@ -113,8 +128,31 @@ public class PostgresCopyOutStatement extends PostgresOperatorStatement
         return commandComplete("COPY " + nrows);
     }
 
+    protected int outputBinary(PostgresQueryContext context, Cursor cursor,
+                               OutputStream outputStream) throws IOException {
+        int nrows = 0;
+        PostgresCopyBinaryOutputter outputter = 
+            new PostgresCopyBinaryOutputter(context, this, binaryEncoding);
+        PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+        outputter.outputHeader(buffer);
+        Row row;
+        while ((row = cursor.next()) != null) {
+            outputter.output(row, buffer);
+            nrows++;
+            if (buffer.size() >= FILE_BUFFER_SIZE) {
+                buffer.writeTo(outputStream);
+                buffer.reset();
+            }
+        }
+        outputter.outputTrailer(buffer);
+        buffer.writeTo(outputStream);
+        return nrows;
+    }
+
     @Override
     protected PostgresOutputter<Row> getRowOutputter(PostgresQueryContext context) {
+        if (binaryEncoding != null)
+            return new PostgresCopyBinaryOutputter(context, this, binaryEncoding);
         return new PostgresCopyCsvOutputter(context, this, csvFormat);
     }
     
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer for an outgoing message, with direct writers for the
+ * common representations of column values, so that they need not go
+ * through an intermediate stream.
+ */
+class PostgresMessageBuffer extends ByteArrayOutputStream
+{
+    public PostgresMessageBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /** The underlying array, valid up to {@link #size}. */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /** Is the buffer big enough that it should not be kept around? */
+    public boolean isOversized() {
+        return (buf.length > RETAINED_SIZE);
+    }
+
+    public void writeShort(int v) {
+        ensureCapacity(2);
+        buf[count++] = (byte)(v >>> 8);
+        buf[count++] = (byte)v;
+    }
+
+    public void writeInt(int v) {
+        ensureCapacity(4);
+        setInt(count, v);
+        count += 4;
+    }
+
+    public void writeLong(long v) {
+        writeInt((int)(v >>> 32));
+        writeInt((int)v);
+    }
+
+    public void setInt(int position, int v) {
+        buf[position] = (byte)(v >>> 24);
+        buf[position+1] = (byte)(v >>> 16);
+        buf[position+2] = (byte)(v >>> 8);
+        buf[position+3] = (byte)v;
+    }
+
+    /** Write a placeholder length and return the position after it. */
+    public int beginLengthPrefixed() {
+        writeInt(0);
+        return count;
+    }
+
+    /** Fill in the length of everything written since {@link #beginLengthPrefixed}. */
+    public void endLengthPrefixed(int start) {
+        setInt(start - 4, count - start);
+    }
+
+    /** Write the decimal digits of <code>v</code>, as <code>Long.toString</code> would. */
+    public void writeDecimal(long v) {
+        if (v < 0) {
+            if (v == Long.MIN_VALUE) {
+                writeAscii(Long.toString(v));
+                return;
+            }
+            ensureCapacity(1);
+            buf[count++] = '-';
+            v = -v;
+        }
+        writeDigits(v, 1);
+    }
+
+    /** Write the non-negative <code>v</code> zero-padded to at least <code>width</code> digits. */
+    public void writeDigits(long v, int width) {
+        assert v >= 0 : v;
+        int ndigits = 1;
+        for (long n = v / 10; n > 0; n /= 10)
+            ndigits++;
+        if (ndigits < width)
+            ndigits = width;
+        ensureCapacity(ndigits);
+        int pos = count + ndigits;
+        while (pos > count) {
+            buf[--pos] = (byte)('0' + (int)(v % 10));
+            v /= 10;
+        }
+        count += ndigits;
+    }
+
+    public void writeAscii(char c) {
+        ensureCapacity(1);
+        buf[count++] = (byte)c;
+    }
+
+    /** Write a string known to be all ASCII, such as a formatted number. */
+    public void writeAscii(String s) {
+        int len = s.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++)
+            buf[count++] = (byte)s.charAt(i);
+    }
+
+    /**
+     * Write <code>s</code> encoded as UTF-8. Like the JDK encoder used
+     * elsewhere, unpaired surrogates become <code>?</code>.
+     */
+    public void writeUTF8(String s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buf[count++] = (byte)c;
+            }
+            else if (c < 0x800) {
+                ensureCapacity(2);
+                buf[count++] = (byte)(0xC0 | (c >> 6));
+                buf[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && (i + 1 < len) &&
+                     Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(4);
+                buf[count++] = (byte)(0xF0 | (cp >> 18));
+                buf[count++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte)(0x80 | (cp & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                ensureCapacity(1);
+                buf[count++] = '?';
+            }
+            else {
+                ensureCapacity(3);
+                buf[count++] = (byte)(0xE0 | (c >> 12));
+                buf[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ensureCapacity(int more) {
+        int needed = count + more;
+        if (needed > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(needed, buf.length * 2));
+    }
+
+    private static final int INITIAL_SIZE = 1024;
+    private static final int RETAINED_SIZE = 1024 * 1024;
+}
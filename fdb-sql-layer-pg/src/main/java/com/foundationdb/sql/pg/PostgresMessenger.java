@@ -58,7 +58,7 @@ public class PostgresMessenger implements DataInput, DataOutput
     private final DataInputStream dataInput;
     private byte[] rawMessageInput;
     private DataInputStream messageInput;
-    private ByteArrayOutputStream byteOutput;
+    private PostgresMessageBuffer byteOutput;
     private DataOutputStream messageOutput;
     private String encoding = "UTF-8";
 
@@ -68,9 +68,13 @@ public class PostgresMessenger implements DataInput, DataOutput
         // So, turn off kernel delay, but wrap a buffer so every
         // message isn't its own packet.
         socket.setTcpNoDelay(true);
-        inputStream = socket.getInputStream();
+        // Likewise buffer input, so that a pipelined batch of
+        // messages is not read a few bytes at a time and can be
+        // recognized with peekMessageType().
+        inputStream = new BufferedInputStream(socket.getInputStream());
         dataInput = new DataInputStream(inputStream);
         outputStream = new BufferedOutputStream(socket.getOutputStream());
+        newMessageBuffer();
     }
 
     InputStream getInputStream() {
@@ -103,6 +107,18 @@ public class PostgresMessenger implements DataInput, DataOutput
         this.encoding = newEncoding;
     }
 
+    /** Return the type of the next message if it has already arrived,
+     * without consuming it, or <code>null</code> if reading it would block.
+     */
+    protected PostgresMessages peekMessageType() throws IOException {
+        if (inputStream.available() <= 0)
+            return null;
+        inputStream.mark(1);
+        int code = inputStream.read();
+        inputStream.reset();
+        return PostgresMessages.messageType(code);
+    }
+
     /** Read the next message from the stream, without any type opcode. */
     protected PostgresMessages readMessage() throws IOException {
         return readMessage(true);
@@ -167,8 +183,7 @@ public class PostgresMessenger implements DataInput, DataOutput
 
     /** Begin outgoing message of given type. */
     protected void beginMessage(int type) throws IOException {
-        byteOutput = new ByteArrayOutputStream();
-        messageOutput = new DataOutputStream(byteOutput);
+        byteOutput.reset();
         messageOutput.write(type);
         messageOutput.writeInt(0);
     }
@@ -176,18 +191,18 @@ public class PostgresMessenger implements DataInput, DataOutput
     /** Send outgoing message. */
     protected void sendMessage() throws IOException {
         messageOutput.flush();
-        byte[] msg = byteOutput.toByteArray();
+        byte[] msg = byteOutput.buffer();
         
         // check we're writing an allowed message. 
         assert PostgresMessages.writeTypeCorrect((int)msg[0]) : "Invalid write message: " + (char)msg[0];
         
-        int len = msg.length - 1;
-        msg[1] = (byte)(len >> 24);
-        msg[2] = (byte)(len >> 16);
-        msg[3] = (byte)(len >> 8);
-        msg[4] = (byte)len;
-        outputStream.write(msg);
+        int len = byteOutput.size() - 1;
+        byteOutput.setInt(1, len);
+        outputStream.write(msg, 0, len + 1);
         bytesWritten(len + 1);
+        // Do not hang on to the space from some one-off huge message.
+        if (byteOutput.isOversized())
+            newMessageBuffer();
     }
 
     /** Send outgoing message and optionally flush stream. */
@@ -211,15 +226,27 @@ public class PostgresMessenger implements DataInput, DataOutput
      * something asynchronous can be sent. */
     protected Object suspendMessage() throws IOException {
         messageOutput.flush();
-        return byteOutput;
+        Object state = byteOutput;
+        newMessageBuffer();
+        return state;
     }
 
     /** Restore the state from {@link #suspendMessage}. */
     protected void resumeMessage(Object state) throws IOException {
-        byteOutput = (ByteArrayOutputStream)state;
+        byteOutput = (PostgresMessageBuffer)state;
         messageOutput = new DataOutputStream(byteOutput);
     }
 
+    private void newMessageBuffer() {
+        byteOutput = new PostgresMessageBuffer();
+        messageOutput = new DataOutputStream(byteOutput);
+    }
+
+    /** Get the buffer for the current message, for writing values directly. */
+    PostgresMessageBuffer getMessageBuffer() {
+        return byteOutput;
+    }
+
     /** Read null-terminated string. */
     public String readString() throws IOException {
         ByteArrayOutputStream bs = new ByteArrayOutputStream();
@@ -21,6 +21,7 @@ import com.foundationdb.ais.model.Column;
 import com.foundationdb.sql.optimizer.plan.CostEstimate;
 import com.foundationdb.qp.operator.API;
 import com.foundationdb.qp.operator.Cursor;
+import com.foundationdb.qp.operator.ListQueryBindingsCursor;
 import com.foundationdb.qp.operator.Operator;
 import com.foundationdb.qp.operator.QueryBindings;
 import com.foundationdb.qp.row.Row;
@@ -185,12 +186,71 @@ public class PostgresModifyOperatorStatement extends PostgresBaseOperatorStateme
             }
         }
         
+        return modifyComplete(rowsModified);
+    }
+
+    protected PostgresStatementResult modifyComplete(int rowsModified) {
         //TODO: Find a way to extract InsertNode#statementToString() or equivalent
         return commandComplete(isInsert() ?
                                (statementType + " 0 " + rowsModified) :
                                (statementType + " " + rowsModified));
     }
 
+    /** Can several executions be run together by {@link #executeBatch}? */
+    public boolean canBatch() {
+        return !outputResult;
+    }
+
+    /** Execute once for each of the given bindings, all through a
+     * single cursor over the plan. <code>results</code> is filled in
+     * as each execution completes, so that if one fails, those before
+     * it can still be reported.
+     */
+    public void executeBatch(PostgresQueryContext context, List<QueryBindings> bindings,
+                             PostgresStatementResult[] results) {
+        assert canBatch();
+        PostgresServerSession server = context.getServer();
+        if (resultOperator == null) {
+            for (int i = 0; i < results.length; i++) {
+                server.getSessionMonitor().countEvent(StatementTypes.DML_STMT);
+                results[i] = modifyComplete(0);
+            }
+            return;
+        }
+        Cursor cursor = null;
+        try {
+            preExecute(context, DXLFunction.UNSPECIFIED_DML_WRITE);
+            cursor = API.cursor(resultOperator, context, new ListQueryBindingsCursor(bindings));
+            cursor.openBindings();
+            for (int i = 0; i < results.length; i++) {
+                server.getSessionMonitor().countEvent(StatementTypes.DML_STMT);
+                QueryBindings next = cursor.nextBindings();
+                assert (next == bindings.get(i)) : next;
+                int rowsModified = 0;
+                cursor.open();
+                try {
+                    while (cursor.next() != null) {
+                        rowsModified++;
+                    }
+                }
+                finally {
+                    cursor.close();
+                }
+                results[i] = modifyComplete(rowsModified);
+            }
+        }
+        finally {
+            try {
+                if (cursor != null) {
+                    cursor.closeBindings();
+                }
+            }
+            finally {
+                postExecute(context, DXLFunction.UNSPECIFIED_DML_WRITE);
+            }
+        }
+    }
+
     @Override
     protected InOutTap executeTap()
     {
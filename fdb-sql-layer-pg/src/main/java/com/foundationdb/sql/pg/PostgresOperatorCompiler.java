@@ -205,6 +205,7 @@ public class PostgresOperatorCompiler extends ServerOperatorCompiler
                     columnNames, columnTypes, aisColumns,
                     parameterTypes,
                     select.getCostEstimate());
+        postmt.initFeedbackPlan(select.getFeedbackPlan());
         return postmt;
     }
 }
@@ -18,12 +18,18 @@
 package com.foundationdb.sql.pg;
 
 import com.foundationdb.ais.model.Column;
+import com.foundationdb.ais.model.Group;
+import com.foundationdb.ais.model.Table;
 import com.foundationdb.server.error.InvalidOperationException;
 import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
 import com.foundationdb.sql.optimizer.plan.CostEstimate;
+import com.foundationdb.sql.optimizer.rule.cost.CardinalityFeedback;
 import com.foundationdb.qp.operator.*;
 import com.foundationdb.qp.row.Row;
 import com.foundationdb.qp.rowtype.RowType;
+import com.foundationdb.server.types.aksql.aktypes.AkBlob;
+import com.foundationdb.sql.server.ServerResultCache;
+import com.foundationdb.sql.server.ServerStatementCache;
 import com.foundationdb.util.tap.InOutTap;
 import com.foundationdb.util.tap.Tap;
 
@@ -40,10 +46,14 @@ import java.io.IOException;
  * @see PostgresOperatorCompiler
  */
 public class PostgresOperatorStatement extends PostgresBaseOperatorStatement 
-                                       implements PostgresCursorGenerator<Cursor>
+                                       implements PostgresCursorGenerator<Cursor>,
+                                                  ServerStatementCache.Recompilable
 {
     private Operator resultOperator;
     private CostEstimate costEstimate;
+    private CardinalityFeedback.Plan feedbackPlan;
+    private List<Object> resultCacheKey;
+    private List<Group> resultCacheGroups;
 
     private static final Logger logger = LoggerFactory.getLogger(PostgresOperatorStatement.class);
     private static final InOutTap EXECUTE_TAP = Tap.createTimer("PostgresOperatorStatement: execute shared");
@@ -63,6 +73,49 @@ public class PostgresOperatorStatement extends PostgresBaseOperatorStatement
         this.resultOperator = resultOperator;
         this.costEstimate = costEstimate;
     }
+
+    /** Track whether observed selectivities have made the plan stale. */
+    public void initFeedbackPlan(CardinalityFeedback.Plan feedbackPlan) {
+        this.feedbackPlan = feedbackPlan;
+    }
+
+    @Override
+    public boolean isStale() {
+        return (feedbackPlan != null) && feedbackPlan.isStale();
+    }
+
+    /**
+     * Allow results to be cached, because the statement always gives the
+     * same rows for the same parameters against the same data.
+     */
+    public void initResultCache(String sql, String defaultSchemaName, Collection<Table> tables) {
+        RowType rowType = getResultRowType();
+        if (rowType != null) {
+            for (int i = 0; i < rowType.nFields(); i++) {
+                // Lob values refer back to storage.
+                if (AkBlob.isBlob(rowType.typeAt(i).typeClass()))
+                    return;
+            }
+        }
+        Set<Group> groups = new HashSet<>();
+        for (Table table : tables) {
+            groups.add(table.getGroup());
+        }
+        this.resultCacheKey = Arrays.<Object>asList(sql, defaultSchemaName);
+        this.resultCacheGroups = new ArrayList<>(groups);
+    }
+
+    protected List<Object> resultCacheKey(QueryBindings bindings) {
+        List<Object> key = new ArrayList<>(resultCacheKey);
+        key.add(getAISGeneration());
+        PostgresType[] parameterTypes = getParameterTypes();
+        if (parameterTypes != null) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                key.add(ServerResultCache.keyValue(bindings.getValue(i)));
+            }
+        }
+        return key;
+    }
     
     @Override
     public TransactionMode getTransactionMode() {
@@ -108,17 +161,48 @@ public class PostgresOperatorStatement extends PostgresBaseOperatorStatement
         InvalidOperationException exceptionFromExecution = null;
         RuntimeException runtimeExDuringExecution = null;
         boolean suspended = false;
+        ServerResultCache resultCache = null;
+        List<Object> cacheKey = null;
+        long[] groupVersions = null;
+        List<Row> cachedRows = null, rowsToCache = null;
+        long cacheSize = 0;
+        if ((resultCacheKey != null) && (maxrows <= 0) && context.isCursorUnstarted()) {
+            resultCache = server.getResultCache();
+        }
         try {
             preExecute(context, DXLFunction.UNSPECIFIED_DML_READ);
-            cursor = context.startCursor(this, bindings);
+            if (resultCache != null) {
+                groupVersions = server.getGroupVersions(resultCacheGroups);
+                if (groupVersions != null) {
+                    cacheKey = resultCacheKey(bindings);
+                    cachedRows = resultCache.get(cacheKey, groupVersions);
+                    if (cachedRows == null)
+                        rowsToCache = new ArrayList<>();
+                }
+            }
+            if (cachedRows == null)
+                cursor = context.startCursor(this, bindings);
             PostgresOutputter<Row> outputter = getRowOutputter(context);
             outputter.beforeData();
-            if (cursor != null) {
+            if (cachedRows != null) {
+                for (Row row : cachedRows) {
+                    outputter.output(row);
+                    nrows++;
+                }
+            }
+            else if (cursor != null) {
                 Row row;
                 while ((row = cursor.next()) != null) {
                     assert (getResultRowType() == null) || (row.rowType() == getResultRowType()) : row;
                     outputter.output(row);
                     nrows++;
+                    if (rowsToCache != null) {
+                        cacheSize += ServerResultCache.estimateSize(row);
+                        if (resultCache.fits(cacheSize))
+                            rowsToCache.add(ServerResultCache.copyRow(row));
+                        else
+                            rowsToCache = null;
+                    }
                     if ((maxrows > 0) && (nrows >= maxrows)) {
                         suspended = true;
                         break;
@@ -167,6 +251,9 @@ public class PostgresOperatorStatement extends PostgresBaseOperatorStatement
             return portalSuspended(nrows);
         }
         else {
+            if (rowsToCache != null) {
+                resultCache.put(cacheKey, groupVersions, rowsToCache, cacheSize);
+            }
             return commandComplete("SELECT " + nrows, nrows);
         }
     }
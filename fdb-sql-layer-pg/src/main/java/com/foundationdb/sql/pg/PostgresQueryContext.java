@@ -42,6 +42,11 @@ public class PostgresQueryContext extends ServerQueryContext<PostgresServerSessi
         return generator.openCursor(this, bindings);
     }
 
+    /** Whether the next {@link #startCursor} will begin at the start of the results. */
+    public boolean isCursorUnstarted() {
+        return true;
+    }
+
     /**
      *
      * @param cursor a cursor as returned by startCursor
@@ -19,37 +19,25 @@ package com.foundationdb.sql.pg;
 
 import com.foundationdb.qp.row.Row;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 public class PostgresRowOutputter extends PostgresOutputter<Row>
 {
-    private static final Logger logger = LoggerFactory.getLogger(PostgresRowOutputter.class);
+    private final PostgresColumnEncoder[] columnEncoders;
 
     public PostgresRowOutputter(PostgresQueryContext context,
                                 PostgresDMLStatement statement) {
         super(context, statement);
+        columnEncoders = PostgresColumnEncoder.forColumns(columnTypes, context, encoder);
     }
 
     @Override
     public void output(Row row) throws IOException {
         messenger.beginMessage(PostgresMessages.DATA_ROW_TYPE.code());
-        messenger.writeShort(ncols);
+        PostgresMessageBuffer buffer = messenger.getMessageBuffer();
+        buffer.writeShort(ncols);
         for (int i = 0; i < ncols; i++) {
-            PostgresType type = columnTypes.get(i);
-            boolean binary = context.isColumnBinary(i);
-            ByteArrayOutputStream bytes = encoder.encodeValue(row.value(i), type, binary);
-            if (bytes == null) {
-                messenger.writeInt(-1);
-            }
-            else {
-                messenger.writeInt(bytes.size());
-                messenger.writeByteStream(bytes);
-                logger.trace("BE Row Data -> {}:{}", i, bytes.size() );
-            }
+            columnEncoders[i].encode(row.value(i), buffer);
         }
         messenger.sendMessage();
     }
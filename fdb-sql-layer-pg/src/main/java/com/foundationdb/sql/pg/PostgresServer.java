@@ -17,8 +17,10 @@
 
 package com.foundationdb.sql.pg;
 
+import com.foundationdb.sql.optimizer.rule.cost.CardinalityFeedback;
 import com.foundationdb.sql.server.CacheCounters;
 import com.foundationdb.sql.server.ServerServiceRequirements;
+import com.foundationdb.sql.server.ServerResultCache;
 import com.foundationdb.sql.server.ServerStatementCache;
 
 import com.foundationdb.server.error.InvalidPortException;
@@ -86,6 +88,8 @@ public class PostgresServer implements Runnable, ServerMonitor {
     // end AIS-dependent state
     private volatile Date overrideCurrentTime;
     private final CacheCounters cacheCounters = new CacheCounters();
+    private final ServerResultCache resultCache;
+    private CardinalityFeedback cardinalityFeedback;
     private AuthenticationType authenticationType;
     private Subject gssLogin;
     private String jaasConfigName;
@@ -109,6 +113,12 @@ public class PostgresServer implements Runnable, ServerMonitor {
         
         String capacityString = properties.getProperty("statementCacheCapacity");
         statementCacheCapacity = Integer.parseInt(capacityString);
+        resultCache = new ServerResultCache(new CacheCounters(),
+                                            Long.parseLong(properties.getProperty("resultCacheCapacity", "0")));
+        int feedbackCapacity = Integer.parseInt(properties.getProperty("cardinalityFeedbackCapacity", "0"));
+        if (feedbackCapacity > 0)
+            cardinalityFeedback = new CardinalityFeedback(feedbackCapacity,
+                                                          Double.parseDouble(properties.getProperty("cardinalityFeedbackThreshold", "10")));
         
         slowLimit = Integer.parseInt(properties.getProperty("connection_slow_limit", "250"));
         hardLimit = Integer.parseInt(properties.getProperty("connection_hard_limit", "500"));
@@ -344,6 +354,20 @@ public class PostgresServer implements Runnable, ServerMonitor {
         }
     }
 
+    /** The node-wide result cache, or <code>null</code> if disabled. */
+    public ServerResultCache getResultCache() {
+        return (resultCache.getCapacity() > 0) ? resultCache : null;
+    }
+
+    public void resetResultCache() {
+        resultCache.reset();
+    }
+
+    /** The node-wide store of observed selectivities, or <code>null</code> if disabled. */
+    public CardinalityFeedback getCardinalityFeedback() {
+        return cardinalityFeedback;
+    }
+
     // used for testing
     public Set<Integer> getCurrentSessions() {
         return new HashSet<>(connections.keySet());
@@ -18,6 +18,11 @@
 package com.foundationdb.sql.pg;
 
 import com.foundationdb.ais.model.AkibanInformationSchema;
+import com.foundationdb.ais.model.Group;
+import com.foundationdb.sql.optimizer.rule.cost.CostEstimator;
+import com.foundationdb.sql.server.ServerCostEstimator;
+import com.foundationdb.sql.server.ServerOperatorCompiler;
+import com.foundationdb.sql.server.ServerResultCache;
 import com.foundationdb.sql.server.ServerServiceRequirements;
 import com.foundationdb.sql.server.ServerSessionBase;
 import com.foundationdb.sql.server.ServerSessionMonitor;
@@ -38,6 +43,7 @@ import com.foundationdb.server.service.monitor.CursorMonitor;
 import com.foundationdb.server.service.monitor.MonitorStage;
 import com.foundationdb.server.service.monitor.PreparedStatementMonitor;
 import com.foundationdb.server.service.monitor.SessionMonitor.StatementTypes;
+import com.foundationdb.server.service.tree.KeyCreator;
 import com.foundationdb.util.MultipleCauseException;
 import com.foundationdb.util.tap.InOutTap;
 import com.foundationdb.util.tap.Tap;
@@ -98,6 +104,8 @@ public class PostgresServerConnection extends ServerSessionBase
     private final LongMetric bytesInMetric, bytesOutMetric;
 
     private volatile String cancelForKillReason, cancelByUser;
+    private int executeBatchSize;
+    private boolean resultCacheEnabled;
 
     public PostgresServerConnection(PostgresServer server, Socket socket, 
                                     int sessionId, int secret,
@@ -723,7 +731,7 @@ public class PostgresServerConnection extends ServerSessionBase
             List<StatementNode> stmts;
             try {
                 sessionMonitor.enterStage(MonitorStage.PARSE);
-                stmts = parser.parseStatements(sql);
+                stmts = parser.parseStatements(PostgresCopyInStatement.maskBinaryFormat(sql));
             } 
             catch (SQLParserException ex) {
                 throw new SQLParseException(ex);
@@ -814,7 +822,7 @@ public class PostgresServerConnection extends ServerSessionBase
             List<ParameterNode> params;
             try {
                 sessionMonitor.enterStage(MonitorStage.PARSE);
-                stmt = parser.parseStatement(sql);
+                stmt = parser.parseStatement(PostgresCopyInStatement.maskBinaryFormat(sql));
                 params = parser.getParameterList();
             } 
             catch (SQLParserException ex) {
@@ -850,6 +858,12 @@ public class PostgresServerConnection extends ServerSessionBase
     }
 
     protected void processBind() throws IOException {
+        bindPortal(readBind());
+        sendBindComplete();
+    }
+
+    /** Read a Bind message into a new portal, without yet making it current. */
+    protected PostgresBoundQueryContext readBind() throws IOException {
         String portalName = messenger.readString();
         String stmtName = messenger.readString();
         byte[][] params = null;
@@ -919,12 +933,19 @@ public class PostgresServerConnection extends ServerSessionBase
         }
         bound.setBindings(bindings);
         bound.setColumnBinary(resultsBinary, defaultResultsBinary);
+        return bound;
+    }
+
+    protected void bindPortal(PostgresBoundQueryContext bound) {
         PostgresBoundQueryContext prev;
         synchronized (boundPortals) {
-            prev = boundPortals.put(portalName, bound);
+            prev = boundPortals.put(bound.getName(), bound);
         }
-        if (prev != null)
+        if ((prev != null) && (prev != bound))
             prev.close();
+    }
+
+    protected void sendBindComplete() throws IOException {
         messenger.beginMessage(PostgresMessages.BIND_COMPLETE_TYPE.code());
         messenger.sendMessage();
     }
@@ -965,10 +986,20 @@ public class PostgresServerConnection extends ServerSessionBase
         long startTime = System.currentTimeMillis();
         String portalName = messenger.readString();
         int maxrows = messenger.readInt();
+        executePortal(portalName, maxrows, startTime, true);
+    }
+
+    protected void executePortal(String portalName, int maxrows, long startTime, 
+                                 boolean allowBatch) throws IOException {
         logger.debug("Execute: {}", portalName);
         PostgresBoundQueryContext context = boundPortals.get(portalName);
         if (context == null)
             throw new NoSuchCursorException(portalName);
+        if (allowBatch && canExecuteBatch(context) &&
+            (messenger.peekMessageType() == PostgresMessages.BIND_TYPE)) {
+            executeBatch(context, startTime);
+            return;
+        }
         QueryBindings bindings = context.getBindings();
         PostgresPreparedStatement pstmt = context.getStatement();
         sessionMonitor.startStatement(pstmt.getSQL(), pstmt.getName(), startTime);
@@ -980,6 +1011,122 @@ public class PostgresServerConnection extends ServerSessionBase
         }
     }
 
+    protected boolean canExecuteBatch(PostgresBoundQueryContext context) {
+        if (executeBatchSize <= 1)
+            return false;
+        PostgresStatement stmt = context.getStatement().getStatement();
+        return ((stmt instanceof PostgresModifyOperatorStatement) &&
+                ((PostgresModifyOperatorStatement)stmt).canBatch());
+    }
+
+    /** Run a pipelined sequence of Bind / Execute pairs for the same
+     * modifying statement, as sent by JDBC <code>executeBatch()</code>,
+     * through a single cursor over its plan in a single transaction.
+     * The client still gets a BindComplete and CommandComplete for each
+     * pair, in order. As in the PostgreSQL extended protocol, an error
+     * in any execution of the batch aborts the entire implicit
+     * transaction. Every Bind is read before anything is executed, so
+     * one that fails fails the whole batch without running any of it.
+     * Each portal is bound in turn afterwards, closing the one it
+     * replaces.
+     */
+    protected void executeBatch(PostgresBoundQueryContext first, long startTime) throws IOException {
+        PostgresPreparedStatement pstmt = first.getStatement();
+        PostgresModifyOperatorStatement stmt = (PostgresModifyOperatorStatement)pstmt.getStatement();
+        List<PostgresBoundQueryContext> batch = new ArrayList<>();
+        batch.add(first);
+        // Messages read ahead that turn out not to belong to the batch.
+        PostgresBoundQueryContext nextBound = null;
+        String nextPortalName = null;
+        int nextMaxrows = 0;
+        RuntimeException bindError = null;
+        while ((batch.size() < executeBatchSize) &&
+               (messenger.peekMessageType() == PostgresMessages.BIND_TYPE)) {
+            messenger.readMessage();
+            PostgresBoundQueryContext bound;
+            try {
+                bound = readBind();
+            }
+            catch (RuntimeException ex) {
+                bindError = ex;
+                break;
+            }
+            if ((bound.getStatement() != pstmt) ||
+                (messenger.peekMessageType() != PostgresMessages.EXECUTE_TYPE)) {
+                nextBound = bound;
+                break;
+            }
+            messenger.readMessage();
+            String portalName = messenger.readString();
+            int maxrows = messenger.readInt();
+            if (!portalName.equals(bound.getName())) {
+                nextBound = bound;
+                nextPortalName = portalName;
+                nextMaxrows = maxrows;
+                break;
+            }
+            batch.add(bound);
+        }
+        if (bindError != null) {
+            closeBatch(batch, null);
+            throw bindError;
+        }
+        logger.debug("Execute batch: {} x {}", batch.size(), pstmt.getName());
+        List<QueryBindings> bindings = new ArrayList<>(batch.size());
+        for (PostgresBoundQueryContext bound : batch) {
+            bindings.add(bound.getBindings());
+        }
+        PostgresStatementResult[] results = new PostgresStatementResult[batch.size()];
+        sessionMonitor.startStatement(pstmt.getSQL(), pstmt.getName(), startTime);
+        RuntimeException executeError = null;
+        try {
+            executeBatchWithAutoTxn(stmt, first, bindings, results);
+        }
+        catch (RuntimeException ex) {
+            executeError = ex;
+        }
+        // The first Bind was already acknowledged when it was processed.
+        int rowsProcessed = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (i > 0)
+                sendBindComplete();
+            if (results[i] == null)
+                break;
+            results[i].sendCommandComplete(messenger);
+            rowsProcessed += results[i].getRowsProcessed();
+        }
+        if (executeError != null) {
+            closeBatch(batch, nextBound);
+            throw executeError;
+        }
+        for (int i = 1; i < batch.size(); i++) {
+            bindPortal(batch.get(i));
+        }
+        sessionMonitor.endStatement(rowsProcessed);
+        logger.debug("Execute batch complete: {} rows", rowsProcessed);
+        if (reqs.monitor().isQueryLogEnabled()) {
+            reqs.monitor().logQuery(sessionMonitor, null);
+        }
+        if (nextBound != null) {
+            bindPortal(nextBound);
+            sendBindComplete();
+        }
+        if (nextPortalName != null)
+            executePortal(nextPortalName, nextMaxrows, System.currentTimeMillis(), false);
+    }
+
+    /** Close the read-ahead portals of a batch that will not be bound.
+     * The first was already bound when its own Bind was processed.
+     */
+    protected void closeBatch(List<PostgresBoundQueryContext> batch,
+                              PostgresBoundQueryContext nextBound) {
+        for (int i = 1; i < batch.size(); i++) {
+            batch.get(i).close();
+        }
+        if (nextBound != null)
+            nextBound.close();
+    }
+
     protected void processFlush() throws IOException {
         messenger.flush();
     }
@@ -1094,7 +1241,29 @@ public class PostgresServerConnection extends ServerSessionBase
     public int getStatementCacheCapacity() {
         return server.getStatementCacheCapacity();
     }
+
+    @Override
+    public ServerResultCache getResultCache() {
+        return resultCacheEnabled ? server.getResultCache() : null;
+    }
+
+    @Override
+    public long[] getGroupVersions(List<Group> groups) {
+        long[] versions = new long[groups.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = reqs.store().getGroupVersion(session, groups.get(i));
+            if (versions[i] < 0)
+                return null;
+        }
+        return versions;
+    }
     
+    @Override
+    public CostEstimator costEstimator(ServerOperatorCompiler compiler, KeyCreator keyCreator) {
+        return new ServerCostEstimator(this, reqs, compiler, keyCreator,
+                                       server.getCardinalityFeedback());
+    }
+
     protected ServerStatementCache<PostgresStatement>  getStatementCache() {
         // Statement cache depends on some connection settings.
         return server.getStatementCache(Arrays.asList(parser.getFeatures(),
@@ -1159,6 +1328,16 @@ public class PostgresServerConnection extends ServerSessionBase
         boolean success = false;
         try {
             result = executeStatement(pstmt, context, bindings, maxrows);
+            if (localTransaction && isGroupCommit(pstmt)) {
+                while (true) {
+                    // Committed or ended either way, unless to be retried.
+                    localTransaction = false;
+                    if (!groupCommitOrRetryTransaction())
+                        break;
+                    localTransaction = true;
+                    result = executeStatement(pstmt, context, bindings, maxrows);
+                }
+            }
             success = true;
         }
         finally {
@@ -1169,6 +1348,35 @@ public class PostgresServerConnection extends ServerSessionBase
         return result.getRowsProcessed();
     }
 
+    /** A write whose only output is its command completion can be run
+     * again if its part of a group commit has to be retried. */
+    protected boolean isGroupCommit(PostgresStatement pstmt) {
+        return isGroupCommitEnabled() &&
+            (pstmt instanceof PostgresModifyOperatorStatement) &&
+            ((PostgresModifyOperatorStatement)pstmt).canBatch();
+    }
+
+    protected void executeBatchWithAutoTxn(PostgresModifyOperatorStatement pstmt, PostgresQueryContext context, 
+                                           List<QueryBindings> bindings, PostgresStatementResult[] results) {
+        boolean localTransaction = beforeExecute(pstmt);
+        boolean success = false;
+        try {
+            if (pstmt.getAISGenerationMode() == ServerStatement.AISGenerationMode.NOT_ALLOWED) {
+                updateAIS(context);
+                if (pstmt.getAISGeneration() != ais.getGeneration())
+                    throw new StaleStatementException();
+            }
+            session.setTimeoutAfterMillis(getQueryTimeoutMilli());
+            sessionMonitor.enterStage(MonitorStage.EXECUTE);
+            pstmt.executeBatch(context, bindings, results);
+            success = true;
+        }
+        finally {
+            afterExecute(pstmt, localTransaction, success, true);
+            sessionMonitor.leaveStage();
+        }
+    }
+
     protected PostgresStatementResult executeStatement(PostgresStatement pstmt, PostgresQueryContext context, QueryBindings bindings, int maxrows)
             throws IOException {
         try {
@@ -1402,6 +1610,14 @@ public class PostgresServerConnection extends ServerSessionBase
                 rebuildCompiler();
             return true;
         }
+        if ("execute_batch_size".equals(key)) {
+            executeBatchSize = (value == null) ? 0 : Integer.parseInt(value);
+            return true;
+        }
+        if ("resultCache".equals(key)) {
+            resultCacheEnabled = Boolean.parseBoolean(value);
+            return true;
+        }
         if ("zeroDateTimeBehavior".equals(key)) {
             valueEncoder = null; // Also depends on this.
         }
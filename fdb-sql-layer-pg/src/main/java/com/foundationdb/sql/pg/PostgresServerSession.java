@@ -17,8 +17,10 @@
 
 package com.foundationdb.sql.pg;
 
+import com.foundationdb.ais.model.Group;
 import com.foundationdb.sql.parser.ParameterNode;
 import com.foundationdb.sql.parser.StatementNode;
+import com.foundationdb.sql.server.ServerResultCache;
 import com.foundationdb.sql.server.ServerSession;
 import com.foundationdb.sql.server.ServerValueEncoder;
 
@@ -68,4 +70,13 @@ public interface PostgresServerSession extends ServerSession
     
     public int getStatementCacheCapacity();
 
+    /** Return the query result cache, if this session uses one. */
+    public ServerResultCache getResultCache();
+
+    /**
+     * Return the current version of each of the given groups, or
+     * <code>null</code> if any of them cannot be cached.
+     */
+    public long[] getGroupVersions(List<Group> groups);
+
 }
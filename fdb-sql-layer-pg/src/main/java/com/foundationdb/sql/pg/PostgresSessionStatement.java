@@ -70,7 +70,8 @@ public class PostgresSessionStatement extends PostgresStatementResults
         // Optimization. (Dummy for testing of statement cache.)
         "optimizerDummySetting", "statementCacheCapacity", "resetStatementCache",
         // Execution.
-        "constraintCheckTime", "queryTimeoutSec", "transactionPeriodicallyCommit",
+        "constraintCheckTime", "queryTimeoutSec", "transactionPeriodicallyCommit", "strictReadVersion",
+        "resultCache",
         // Compatible and translated.
         "statement_timeout",
         // Compatible that actually does something.
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import com.foundationdb.server.types.FormatOptions;
+import com.foundationdb.server.types.TInstance;
+import com.foundationdb.server.types.mcompat.mtypes.MDateAndTime;
+import com.foundationdb.server.types.mcompat.mtypes.MTypesTranslator;
+import com.foundationdb.server.types.value.Value;
+import com.foundationdb.sql.server.ServerValueEncoder;
+import com.foundationdb.sql.server.ServerValueEncoder.ZeroDateTimeBehavior;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public final class PostgresColumnEncoderTest {
+    private static final byte[] NULL = { -1, -1, -1, -1 };
+    private static final byte[] ZERO_INT = { 0, 0, 0, 4, 0, 0, 0, 0 };
+
+    @Test
+    public void binaryZeroDateConvertedToNull() throws IOException {
+        TInstance type = MDateAndTime.DATE.instance(true);
+        assertArrayEquals(NULL, encodeBinary(type, new Value(type, 0), ZeroDateTimeBehavior.CONVERT_TO_NULL));
+    }
+
+    @Test
+    public void binaryZeroDateTimeConvertedToNull() throws IOException {
+        TInstance type = MDateAndTime.DATETIME.instance(true);
+        assertArrayEquals(NULL, encodeBinary(type, new Value(type, 0L), ZeroDateTimeBehavior.CONVERT_TO_NULL));
+    }
+
+    @Test
+    public void binaryDateRoundTrip() throws IOException {
+        // 2000-01-01 is day zero for Postgres.
+        TInstance type = MDateAndTime.DATE.instance(true);
+        Value value = new Value(type, MDateAndTime.encodeDate(2000, 1, 1));
+        assertArrayEquals(ZERO_INT, encodeBinary(type, value, ZeroDateTimeBehavior.NONE));
+        assertArrayEquals(ZERO_INT, encodeBinary(type, value, ZeroDateTimeBehavior.CONVERT_TO_NULL));
+    }
+
+    private static byte[] encodeBinary(TInstance type, Value value, ZeroDateTimeBehavior zeroDateTimeBehavior) throws IOException {
+        ServerValueEncoder encoder = new ServerValueEncoder(MTypesTranslator.INSTANCE, "UTF-8",
+                                                            zeroDateTimeBehavior, new FormatOptions());
+        PostgresColumnEncoder columnEncoder = PostgresColumnEncoder.forColumn(PostgresType.fromTInstance(type),
+                                                                              true, encoder);
+        PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+        columnEncoder.encode(value, buffer);
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.sql.pg;
+
+import org.junit.Test;
+
+import static com.foundationdb.sql.pg.PostgresCopyInStatement.isBinaryFormat;
+import static com.foundationdb.sql.pg.PostgresCopyInStatement.maskBinaryFormat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class PostgresCopyBinaryFormatTest {
+    @Test
+    public void binaryOption() {
+        String sql = "COPY t TO '/tmp/t.bin' WITH (FORMAT BINARY)";
+        assertTrue(isBinaryFormat(sql));
+        assertEquals("COPY t TO '/tmp/t.bin' WITH (FORMAT CSV   )", maskBinaryFormat(sql));
+    }
+
+    @Test
+    public void amongOtherOptions() {
+        String sql = "copy t (a, b) from stdin with (format\nbinary, encoding 'UTF8')";
+        assertTrue(isBinaryFormat(sql));
+        assertEquals(sql.length(), maskBinaryFormat(sql).length());
+        assertEquals("copy t (a, b) from stdin with (format\nCSV   , encoding 'UTF8')", maskBinaryFormat(sql));
+    }
+
+    @Test
+    public void notBinary() {
+        String[] sqls = {
+            "COPY t FROM STDIN",
+            "COPY t TO STDOUT WITH (FORMAT CSV)",
+            "COPY t TO 'format binary' WITH (FORMAT CSV)",
+            "COPY t TO STDOUT WITH (DELIMITER '\"', FORMAT CSV) -- FORMAT BINARY",
+            "SELECT 'FORMAT BINARY'",
+            "INSERT INTO t VALUES('x') -- COPY t FORMAT BINARY",
+        };
+        for (String sql : sqls) {
+            assertFalse(sql, isBinaryFormat(sql));
+            assertEquals(sql, maskBinaryFormat(sql));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class PostgresMessageBufferTest {
+    @Test
+    public void decimal() {
+        long[] values = { 0, 7, -7, 10, 99, -100, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long v : values) {
+            PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+            buffer.writeDecimal(v);
+            assertEquals(Long.toString(v), contents(buffer));
+        }
+    }
+
+    @Test
+    public void paddedDigits() {
+        PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+        buffer.writeDigits(7, 4);
+        buffer.writeAscii('-');
+        buffer.writeDigits(12345, 4);
+        buffer.writeAscii('-');
+        buffer.writeDigits(0, 2);
+        assertEquals("0007-12345-00", contents(buffer));
+    }
+
+    @Test
+    public void utf8() {
+        String s = "a\u00e9\u4e2d\ud83d\ude00\ud800z";
+        PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+        buffer.writeUTF8(s);
+        assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    }
+
+    @Test
+    public void lengthPrefixed() {
+        PostgresMessageBuffer buffer = new PostgresMessageBuffer();
+        buffer.writeShort(1);
+        int start = buffer.beginLengthPrefixed();
+        char[] big = new char[5000];
+        Arrays.fill(big, 'x');
+        buffer.writeAscii(new String(big));
+        buffer.endLengthPrefixed(start);
+        byte[] bytes = buffer.toByteArray();
+        assertEquals(2 + 4 + 5000, bytes.length);
+        assertEquals(0, bytes[0]);
+        assertEquals(1, bytes[1]);
+        assertEquals(5000, ((bytes[2] & 0xFF) << 24) | ((bytes[3] & 0xFF) << 16) | ((bytes[4] & 0xFF) << 8) | (bytes[5] & 0xFF));
+    }
+
+    private static String contents(PostgresMessageBuffer buffer) {
+        return new String(buffer.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
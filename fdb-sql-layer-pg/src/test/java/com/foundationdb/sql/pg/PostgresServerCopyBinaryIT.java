@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.foundationdb.sql.pg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+/** COPY ... WITH (FORMAT BINARY) out to a file and back in. */
+public class PostgresServerCopyBinaryIT extends PostgresServerITBase
+{
+    private static final byte[] SIGNATURE = {
+        'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0
+    };
+    private static final String COLUMNS =
+        "(id INT NOT NULL PRIMARY KEY, name VARCHAR(32), amount DECIMAL(10,2), d DATE, x DOUBLE)";
+
+    private File copyFile;
+
+    @Before
+    public void createTables() throws Exception {
+        sql("CREATE TABLE t1 " + COLUMNS);
+        sql("CREATE TABLE t2 " + COLUMNS);
+        sql("INSERT INTO t1 VALUES" +
+            "(1, 'alpha', 12.34, '2014-03-15', 1.5)," +
+            "(2, 'b\u00e9ta', -0.01, '1999-12-31', -2.25)," +
+            "(3, NULL, NULL, NULL, NULL)");
+        copyFile = File.createTempFile(getClass().getSimpleName(), ".bin");
+        copyFile.deleteOnExit();
+    }
+
+    @After
+    public void deleteFile() {
+        copyFile.delete();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        List<List<?>> copied = sql("COPY t1 TO '" + copyFile.getPath() + "' WITH (FORMAT BINARY)");
+        assertEquals("no result set for COPY", null, copied);
+        assertHeaderAndCount(3);
+
+        sql("COPY t2 FROM '" + copyFile.getPath() + "' WITH (FORMAT BINARY)");
+        List<List<?>> expected = Arrays.<List<?>>asList(
+            Arrays.asList(1, "alpha", new BigDecimal("12.34"), Date.valueOf("2014-03-15"), 1.5),
+            Arrays.asList(2, "b\u00e9ta", new BigDecimal("-0.01"), Date.valueOf("1999-12-31"), -2.25),
+            Arrays.asList(3, null, null, null, null));
+        assertEquals(expected, sql("SELECT * FROM t2 ORDER BY id"));
+        assertEquals(sql("SELECT * FROM t1 ORDER BY id"), sql("SELECT * FROM t2 ORDER BY id"));
+    }
+
+    @Test
+    public void roundTripColumnList() throws Exception {
+        sql("COPY (SELECT id, name FROM t1 WHERE id < 3) TO '" + copyFile.getPath() + "' WITH (FORMAT BINARY)");
+        assertHeaderAndCount(2);
+
+        sql("COPY t2 (id, name) FROM '" + copyFile.getPath() + "' WITH (FORMAT BINARY)");
+        List<List<?>> expected = Arrays.<List<?>>asList(
+            Arrays.asList(1, "alpha", null),
+            Arrays.asList(2, "b\u00e9ta", null));
+        assertEquals(expected, sql("SELECT id, name, amount FROM t2 ORDER BY id"));
+    }
+
+    /** Check the binary COPY header and count the tuples up to the trailer. */
+    private void assertHeaderAndCount(int expectedRows) throws Exception {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(copyFile))) {
+            byte[] signature = new byte[SIGNATURE.length];
+            in.readFully(signature);
+            assertArrayEquals("signature", SIGNATURE, signature);
+            assertEquals("flags", 0, in.readInt());
+            in.skipBytes(in.readInt());
+            int nrows = 0;
+            while (true) {
+                short nfields = in.readShort();
+                if (nfields == -1)
+                    break;
+                for (int i = 0; i < nfields; i++) {
+                    int len = in.readInt();
+                    if (len > 0)
+                        in.skipBytes(len);
+                }
+                nrows++;
+            }
+            assertEquals("tuples", expectedRows, nrows);
+            assertEquals("end of file", -1, in.read());
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import com.foundationdb.sql.jdbc.PGStatement;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -195,4 +196,66 @@ public class PostgresServerPreparedStatementIT extends PostgresServerITBase {
         assertEquals("Rows with fetch size 2", rows, listRows(rs, 2));
         getConnection().setAutoCommit(ac);
     }
+
+    @Test
+    public void batchInsert() throws Exception {
+        final int BATCH_COUNT = 100;
+        PreparedStatement p = getConnection().prepareStatement("INSERT INTO "+TABLE_NAME+" VALUES (?,?)");
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            p.setInt(1, 100 + i);
+            p.setInt(2, i);
+            p.addBatch();
+        }
+        int[] counts = p.executeBatch();
+        assertEquals("Batch size", BATCH_COUNT, counts.length);
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            assertEquals("Inserted count " + i, 1, counts[i]);
+        }
+        p.close();
+        assertEquals("Scanned row count", ROW_COUNT + BATCH_COUNT, countRows(newScan().executeQuery()));
+    }
+
+    @Test
+    public void batchInsertDuplicate() throws Exception {
+        PreparedStatement p = getConnection().prepareStatement("INSERT INTO "+TABLE_NAME+" VALUES (?,?)");
+        for (int i = 0; i < 10; i++) {
+            // The last one is a duplicate of an existing row.
+            p.setInt(1, (i < 9) ? 100 + i : 1);
+            p.setInt(2, i);
+            p.addBatch();
+        }
+        try {
+            p.executeBatch();
+            fail("Expected exception");
+        }
+        catch (BatchUpdateException ex) {
+            assertEquals("Error code from exception", ErrorCode.DUPLICATE_KEY.getFormattedValue(), ex.getSQLState());
+        }
+        p.close();
+        // Connection still usable afterwards.
+        assertEquals("Inserted count", 1, newInsert().executeUpdate());
+    }
+
+    @Test
+    public void batchInsertBadParameter() throws Exception {
+        PreparedStatement p = getConnection().prepareStatement("INSERT INTO "+TABLE_NAME+" VALUES (?,?)");
+        for (int i = 0; i < 10; i++) {
+            // The last one cannot be bound to an int.
+            if (i < 9)
+                p.setInt(1, 100 + i);
+            else
+                p.setString(1, "one hundred");
+            p.setInt(2, i);
+            p.addBatch();
+        }
+        try {
+            p.executeBatch();
+            fail("Expected exception");
+        }
+        catch (BatchUpdateException ex) {
+        }
+        p.close();
+        // None of the batch was committed.
+        assertEquals("Scanned row count", ROW_COUNT, countRows(newScan().executeQuery()));
+    }
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2009-2015 FoundationDB, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.foundationdb.sql.pg;
+
+import com.foundationdb.qp.row.Row;
+import com.foundationdb.sql.server.CacheCounters;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PostgresServerResultCacheIT extends PostgresServerFilesITBase
+{
+    public static final String PQUERY = "SELECT id, n FROM t1 WHERE id = ?";
+    public static final String RQUERY = "SELECT id FROM t1 WHERE n = RANDOM()";
+    public static final int NROWS = 10;
+
+    private CacheCounters counters;
+    private int hitsBase, missesBase;
+
+    @Override
+    protected Map<String, String> startupConfigProperties() {
+        Map<String,String> map = new HashMap<>(super.startupConfigProperties());
+        map.put("fdbsql.fdb.track_group_versions", "true");
+        return map;
+    }
+
+    @Before
+    public void createData() throws Exception {
+        int tid = createTable(SCHEMA_NAME, "t1", "id int not null primary key", "n int");
+        Row[] rows = new Row[NROWS];
+        for (int i = 0; i < NROWS; i++) {
+            rows[i] = row(tid, i, i * 10);
+        }
+        writeRows(rows);
+        server().resetResultCache();
+        counters = server().getResultCache().getCounters();
+        hitsBase = counters.getHits();
+        missesBase = counters.getMisses();
+        Statement stmt = getConnection().createStatement();
+        stmt.execute("SET resultCache TO 'true'");
+        stmt.close();
+    }
+
+    @Test
+    public void testRepeated() throws Exception {
+        PreparedStatement stmt = getConnection().prepareStatement(PQUERY);
+        for (int i = 0; i < 100; i++) {
+            pquery(stmt, i / NROWS, (i / NROWS) * 10);
+        }
+        stmt.close();
+        assertEquals("Cache hits matches", 90, counters.getHits() - hitsBase);
+        assertEquals("Cache misses matches", 10, counters.getMisses() - missesBase);
+    }
+
+    @Test
+    public void testInvalidatedByUpdate() throws Exception {
+        PreparedStatement stmt = getConnection().prepareStatement(PQUERY);
+        pquery(stmt, 1, 10);
+        pquery(stmt, 1, 10);
+        Statement update = getConnection().createStatement();
+        update.executeUpdate("UPDATE t1 SET n = 11 WHERE id = 1");
+        update.close();
+        pquery(stmt, 1, 11);
+        pquery(stmt, 1, 11);
+        stmt.close();
+        assertEquals("Cache hits matches", 2, counters.getHits() - hitsBase);
+        assertEquals("Cache misses matches", 2, counters.getMisses() - missesBase);
+    }
+
+    @Test
+    public void testNonDeterministic() throws Exception {
+        Statement stmt = getConnection().createStatement();
+        for (int i = 0; i < 10; i++) {
+            stmt.executeQuery(RQUERY).close();
+        }
+        stmt.close();
+        assertEquals("Cache hits matches", 0, counters.getHits() - hitsBase);
+        assertEquals("Cache misses matches", 0, counters.getMisses() - missesBase);
+    }
+
+    @Test
+    public void testSessionDisabled() throws Exception {
+        Statement set = getConnection().createStatement();
+        set.execute("SET resultCache TO 'false'");
+        set.close();
+        PreparedStatement stmt = getConnection().prepareStatement(PQUERY);
+        for (int i = 0; i < 10; i++) {
+            pquery(stmt, 1, 10);
+        }
+        stmt.close();
+        assertEquals("Cache hits matches", 0, counters.getHits() - hitsBase);
+        assertEquals("Cache misses matches", 0, counters.getMisses() - missesBase);
+    }
+
+    protected void pquery(PreparedStatement stmt, int id, int n) throws Exception {
+        stmt.setInt(1, id);
+        ResultSet rs = stmt.executeQuery();
+        if (rs.next()) {
+            assertEquals("Query result matches", id, rs.getInt(1));
+            assertEquals("Query result matches", n, rs.getInt(2));
+        }
+        else {
+            fail("No query results");
+        }
+        assertFalse("Single query result", rs.next());
+        rs.close();
+    }
+}